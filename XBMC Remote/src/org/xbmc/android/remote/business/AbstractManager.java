@@ -22,12 +22,16 @@
 package org.xbmc.android.remote.business;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.xbmc.android.util.ClientFactory;
 import org.xbmc.android.util.Crc32;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IInfoClient;
 import org.xbmc.api.data.IMusicClient;
@@ -38,12 +42,14 @@ import org.xbmc.api.presentation.INotifiableController;
 import org.xbmc.api.type.CacheType;
 import org.xbmc.api.type.SortType;
 import org.xbmc.api.type.ThumbSize;
+import org.xbmc.httpapi.CountingInputStream;
 import org.xbmc.httpapi.WifiStateException;
 
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 /**
@@ -73,20 +79,146 @@ public abstract class AbstractManager implements INotifiableManager {
 	public static final int PREF_SORT_KEY_MOVIE = 7;
 	public static final int PREF_SORT_KEY_EPISODE = 8;
 	
+	/**
+	 * Number of rows of the first page of a paged list. Kept small so the
+	 * list shows up quickly, no matter how large the library is.
+	 */
+	public static final int FIRST_PAGE_SIZE = 50;
+	
+	/**
+	 * Number of rows of all following pages
+	 */
+	public static final int PAGE_SIZE = 250;
+	
 	protected INotifiableController mController = null;
 	
-	protected Handler mHandler;
+	protected CommandExecutor mExecutor;
 	
 	protected SharedPreferences mPref;
 	protected int mCurrentSortKey;
 	
-	protected List<Runnable> failedRequests = new ArrayList<Runnable>();
+	protected List<Runnable> failedRequests = Collections.synchronizedList(new ArrayList<Runnable>());
+	
+	/**
+	 * Coalesced queries which are queued or running, by key. Also used as
+	 * lock when adding followers.
+	 */
+	private final HashMap<String, Command<?>> mInFlight = new HashMap<String, Command<?>>();
+	
+	/**
+	 * Number of queries which were answered by an identical one, of all
+	 * managers.
+	 */
+	private static final AtomicInteger sCoalesced = new AtomicInteger();
+	
+	/**
+	 * Sets the executor running the commands
+	 * @param executor
+	 */
+	public void setExecutor(CommandExecutor executor) {
+		mExecutor = executor;
+	}
+	
 	/**
-	 * Sets the handler used in the looping thread
-	 * @param handler
+	 * Returns the executor lane the commands of this manager are queued in.
+	 * @return One of CommandExecutor's LANE_* constants
 	 */
-	public void setHandler(Handler handler) {
-		mHandler = handler;
+	public int getLane() {
+		return CommandExecutor.LANE_LIST;
+	}
+	
+	/**
+	 * Returns the library the results of this manager belong to, so they
+	 * can be dropped from the {@link ResultCache} when it's updated.
+	 * @return One of ResultCache's LIBRARY_* constants
+	 */
+	public int getLibrary() {
+		return ResultCache.LIBRARY_NONE;
+	}
+	
+	/**
+	 * Posts a query, unless an identical one is still queued or running. In
+	 * that case the command isn't run but gets the result of the other one,
+	 * for instance when switching quickly between tabs or rotating the
+	 * device re-requests the same list.
+	 * 
+	 * If the result is in the {@link ResultCache}, the response gets it right
+	 * away, without posting anything. When called on the UI thread, the
+	 * response is even run before this method returns. Off the UI thread
+	 * without a controller to hand it over, the query is run anyway.
+	 * 
+	 * @param key     Method and everything the result depends on, including
+	 *                sort settings. See {@link #key(String, Object...)}.
+	 * @param command Query to post
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> void post(String key, Command<T> command) {
+		final T cached = (T)ResultCache.get().get(key);
+		if (cached != null) {
+			if (Looper.myLooper() == Looper.getMainLooper()) {
+				command.mResponse.value = cached;
+				command.mResponse.run();
+				return;
+			} else if (command.mController != null) {
+				command.mResponse.value = cached;
+				command.mController.runOnUI(command.mResponse);
+				return;
+			}
+		}
+		synchronized (mInFlight) {
+			final Command<T> running = (Command<T>)mInFlight.get(key);
+			if (running != null && !running.isCancelled()) {
+				running.follow(command);
+				sCoalesced.incrementAndGet();
+				if (DEBUG) Log.i(TAG, "Coalesced " + key + " with the running query.");
+				return;
+			}
+			command.mKey = key;
+			mInFlight.put(key, command);
+		}
+		mExecutor.post(command);
+	}
+	
+	/**
+	 * Called by a coalesced query when done. Identical queries posted from
+	 * now on run again, or are answered by the cache.
+	 * @param command Finished query
+	 * @param done    True if the query succeeded
+	 * @return Queries which wait for its result
+	 */
+	<T> ArrayList<Command<T>> release(Command<T> command, boolean done) {
+		if (done) {
+			ResultCache.get().put(command.mKey, getLibrary(), command.mResponse.value);
+		}
+		synchronized (mInFlight) {
+			if (mInFlight.get(command.mKey) == command) {
+				mInFlight.remove(command.mKey);
+			}
+		}
+		return command.takeFollowers();
+	}
+	
+	/**
+	 * Builds the key of a coalesced query.
+	 * @param method Name of the manager method
+	 * @param args   Everything the result depends on
+	 * @return Key
+	 */
+	protected static String key(String method, Object... args) {
+		final StringBuilder sb = new StringBuilder(method);
+		for (Object arg : args) {
+			sb.append('|');
+			sb.append(arg);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns the number of queries which were answered by an identical one
+	 * instead of asking XBMC.
+	 */
+	public static int getCoalescedCount() {
+		return sCoalesced.get();
 	}
 	
 	public void setController(INotifiableController controller) {
@@ -141,6 +273,21 @@ public abstract class AbstractManager implements INotifiableManager {
 		return ClientFactory.getTvShowClient(this, context);
 	}
 	
+	/**
+	 * Returns the local copy of the library and lets it catch up with XBMC
+	 * in the background. Its getters return null as long as a table isn't
+	 * completely synced, so fall back to the client in that case.
+	 * @param context
+	 * @return Library mirror or null if no host is set.
+	 */
+	protected LibraryMirror mirror(Context context) {
+		final LibraryMirror mirror = LibraryMirror.getInstance(context);
+		if (mirror != null) {
+			mirror.requestSync(context);
+		}
+		return mirror;
+	}
+	
 	/**
 	 * Calls the UI thread's callback code.
 	 * @param response Response object
@@ -151,7 +298,7 @@ public abstract class AbstractManager implements INotifiableManager {
 			mController.runOnUI(response);
 		}else{
 			Log.w(TAG, "*** ignoring onFinish, controller is null.");
-			//mHandler.post(response);
+			//mExecutor.post(response);
 		}
 	}
 	
@@ -161,7 +308,7 @@ public abstract class AbstractManager implements INotifiableManager {
 	 * @param response Response object
 	 */
 	public void getCover(final DataResponse<Bitmap> response, final ICoverArt cover, final int thumbSize, final Bitmap defaultCover, final Context context, final boolean getFromCacheOnly) {
-		mHandler.post(new Runnable() {
+		mExecutor.post(new Runnable() {
 			public void run() {
 				if (cover.getCrc() != 0L) {
 					// first, try mem cache (only if size = small, other sizes aren't mem-cached.
@@ -196,7 +343,7 @@ public abstract class AbstractManager implements INotifiableManager {
 	 */
 	public static boolean cacheCover(final ICoverArt cover, final INotifiableManager manager, final Context context) {
 		if (!DiskCacheThread.isInCache(cover, ThumbSize.MEDIUM)) {
-			return DownloadThread.download(null, cover, ThumbSize.MEDIUM, null, manager, context, false);
+			return DownloadPool.download(null, cover, ThumbSize.MEDIUM, null, manager, context, false);
 		}
 		return false;
 	}
@@ -208,20 +355,18 @@ public abstract class AbstractManager implements INotifiableManager {
 	 */
 	protected void getCoverFromMem(final DataResponse<Bitmap> response, final ICoverArt cover, final int thumbSize, Bitmap defaultCover, final Context context, final boolean getFromCacheOnly) {
 		if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] Checking in mem cache..");
-		MemCacheThread.get().getCover(new DataResponse<Bitmap>() {
-			public void run() {
-				if (value == null) {
-					if (DEBUG) Log.i(TAG, "[" + cover.getId() + ThumbSize.getDir(thumbSize) + "] empty");
-					// then, try sdcard cache
-					getCoverFromDisk(response, cover, thumbSize, context, getFromCacheOnly);
-				} else {
-					if (DEBUG) Log.i(TAG, "[" + cover.getId() + ThumbSize.getDir(thumbSize) + "] FOUND in memory!");
-					response.value = value;
-					response.cacheType = CacheType.MEMORY;
-					onFinish(response);
-				}
-			}
-		}, cover, thumbSize, mController, defaultCover);
+		// the mem cache is thread-safe, no need to go through its thread.
+		final Bitmap bitmap = MemCacheThread.getCover(cover, thumbSize, defaultCover);
+		if (bitmap == null) {
+			if (DEBUG) Log.i(TAG, "[" + cover.getId() + ThumbSize.getDir(thumbSize) + "] empty");
+			// then, try sdcard cache
+			getCoverFromDisk(response, cover, thumbSize, context, getFromCacheOnly);
+		} else {
+			if (DEBUG) Log.i(TAG, "[" + cover.getId() + ThumbSize.getDir(thumbSize) + "] FOUND in memory!");
+			response.value = bitmap;
+			response.cacheType = CacheType.MEMORY;
+			onFinish(response);
+		}
 	}
 	
 	/**
@@ -264,7 +409,7 @@ public abstract class AbstractManager implements INotifiableManager {
 	 */
 	protected void getCoverFromNetwork(final DataResponse<Bitmap> response, final ICoverArt cover, final int thumbSize, final Context context) {
 		if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] Downloading..");
-		DownloadThread.get().getCover(new DataResponse<Bitmap>() {
+		DownloadPool.get().getCover(new DataResponse<Bitmap>() {
 			public void run() {
 				if (value == null) {
 					if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] Download empty");
@@ -278,6 +423,101 @@ public abstract class AbstractManager implements INotifiableManager {
 		}, cover, thumbSize, mController, this, context);
 	}
 	
+	/**
+	 * Fetches one page of a list.
+	 * @param <T> Type of the list items
+	 */
+	protected interface Pager<T> {
+		/**
+		 * Synchronously fetches a page.
+		 * @param offset Number of rows to skip
+		 * @param limit Maximal number of rows to return
+		 * @return Rows of the page
+		 * @throws Exception
+		 */
+		public ArrayList<T> getPage(int offset, int limit) throws Exception;
+	}
+	
+	/**
+	 * Fetches a list in pages. The first page is posted as the response's
+	 * value, further pages are fetched one by one and posted to
+	 * {@link PagedResponse#onPage(ArrayList)}, until a page comes back
+	 * incomplete.
+	 * <p/>
+	 * Every page is queued separately, so other requests like cover
+	 * downloads don't have to wait until the whole list is loaded. Pages go
+	 * to the controller which requested the list, even if it got paused in
+	 * the meantime, so the list is complete when coming back to it.
+	 * 
+	 * @param operation Name of the operation for tracing
+	 * @param response  Response object
+	 * @param pager     Fetches the pages
+	 */
+	protected <T> void getPaged(final String operation, final PagedResponse<T> response, final Pager<T> pager) {
+		final INotifiableController controller = mController;
+		mExecutor.post(new Command<ArrayList<T>>(operation, response, this) {
+			@Override
+			public void doRun() throws Exception {
+				final ArrayList<T> page = pager.getPage(0, FIRST_PAGE_SIZE);
+				response.value = page != null ? page : new ArrayList<T>();
+			}
+			@Override
+			protected void onFinished() {
+				// the first page went out, so the next one can't overtake it
+				if (response.value.size() == FIRST_PAGE_SIZE) {
+					postNextPage(operation, response, pager, controller, FIRST_PAGE_SIZE);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Queues the fetch of the page at the given offset.
+	 * @param operation Name of the operation for tracing
+	 * @param response Response object
+	 * @param pager    Fetches the pages
+	 * @param controller Controller receiving the pages
+	 * @param offset   Number of rows already delivered
+	 */
+	private <T> void postNextPage(final String operation, final PagedResponse<T> response, final Pager<T> pager, final INotifiableController controller, final int offset) {
+		final long posted = SystemClock.elapsedRealtime();
+		// the first page is on screen already, the rest can wait
+		mExecutor.post(new Runnable() {
+			public void run() {
+				if (response.isCancelled() || controller == null) {
+					return;
+				}
+				final long started = SystemClock.elapsedRealtime();
+				final long bytes = CountingInputStream.getThreadCount();
+				boolean done = false;
+				try {
+					final ArrayList<T> page = pager.getPage(offset, PAGE_SIZE);
+					done = true;
+					if (page == null || page.isEmpty()) {
+						return;
+					}
+					controller.runOnUI(new Runnable() {
+						public void run() {
+							if (!response.isCancelled()) {
+								response.onPage(page);
+							}
+						}
+					});
+					if (page.size() == PAGE_SIZE) {
+						postNextPage(operation, response, pager, controller, offset + PAGE_SIZE);
+					}
+				} catch (Exception e) {
+					// the list's screen, not the one currently shown
+					if (controller != null && !response.isCancelled()) {
+						controller.onError(e);
+					}
+				} finally {
+					CommandTrace.record(operation + ".page", started - posted, SystemClock.elapsedRealtime() - started, CountingInputStream.getThreadCount() - bytes, 0, !done);
+				}
+			}
+		}, CommandExecutor.LANE_BACKGROUND, controller);
+	}
+	
 	/**
 	 * Commands failed because of wrong connection state are special. After the connection has the right state we
 	 * could retry the command
@@ -306,15 +546,15 @@ public abstract class AbstractManager implements INotifiableManager {
 	
 	public void retryAll() {
 		Log.d(TAG, "Posting retries to the queue");
-		mHandler.post(new Runnable() {
+		mExecutor.post(new Runnable() {
 			public void run() {
 				Log.d(TAG, "runnable started, posting retries");
-				while(failedRequests.size() > 0) {
-					if(mHandler.post(failedRequests.get(0)))
-						Log.d(TAG, "Runnable posted");
-					else
-						Log.d(TAG, "Runnable coudln't be posted");
-					failedRequests.remove(0);
+				synchronized (failedRequests) {
+					for (Runnable request : failedRequests) {
+						mExecutor.post(request);
+					}
+					Log.d(TAG, "Posted " + failedRequests.size() + " retries");
+					failedRequests.clear();
 				}
 			}
 		});
@@ -119,7 +119,7 @@ abstract public class AbstractThread extends Thread {
 	public static void quitThreads() {
 		MemCacheThread.quit();
 		DiskCacheThread.quit();
-		DownloadThread.quit();
+		DownloadPool.quit();
 	}
 	
 }
\ No newline at end of file
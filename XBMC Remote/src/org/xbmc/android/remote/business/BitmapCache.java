@@ -0,0 +1,149 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+
+/**
+ * Least recently used bitmap cache, bounded by the number of bytes the
+ * bitmaps take up rather than by number of entries.
+ *
+ * All methods are synchronized, so the cache can be accessed from any
+ * thread. Evicted bitmaps are only dropped, not recycled, since they might
+ * still be displayed.
+ *
+ * @author Team XBMC
+ */
+class BitmapCache {
+
+	/**
+	 * Access-ordered, so the eldest entry is the least recently used one.
+	 */
+	private final LinkedHashMap<Long, Bitmap> mMap = new LinkedHashMap<Long, Bitmap>(32, 0.75f, true);
+
+	private final int mMaxBytes;
+	private int mBytes = 0;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+	private int mEvictions = 0;
+
+	/**
+	 * Class constructor
+	 * @param maxBytes Maximal size of all cached bitmaps in bytes
+	 */
+	BitmapCache(int maxBytes) {
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns a bitmap and marks it as recently used.
+	 * @param key Key, usually the CRC of the cover
+	 * @return Bitmap or null if not cached
+	 */
+	public synchronized Bitmap get(long key) {
+		final Bitmap bitmap = mMap.get(key);
+		if (bitmap != null) {
+			mHits++;
+		} else {
+			mMisses++;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Checks if a bitmap is cached, without counting it as access.
+	 * @param key Key, usually the CRC of the cover
+	 * @return True if cached, false otherwise.
+	 */
+	public synchronized boolean contains(long key) {
+		return mMap.containsKey(key);
+	}
+
+	/**
+	 * Adds a bitmap and evicts the least recently used ones until the cache
+	 * fits its budget again. Bitmaps larger than the whole budget are not
+	 * cached at all.
+	 * @param key    Key, usually the CRC of the cover
+	 * @param bitmap Bitmap to cache
+	 */
+	public synchronized void put(long key, Bitmap bitmap) {
+		final int size = sizeOf(bitmap);
+		if (size > mMaxBytes) {
+			return;
+		}
+		final Bitmap previous = mMap.put(key, bitmap);
+		if (previous != null) {
+			mBytes -= sizeOf(previous);
+		}
+		mBytes += size;
+		final Iterator<Map.Entry<Long, Bitmap>> it = mMap.entrySet().iterator();
+		while (mBytes > mMaxBytes && it.hasNext()) {
+			final Map.Entry<Long, Bitmap> eldest = it.next();
+			mBytes -= sizeOf(eldest.getValue());
+			it.remove();
+			mEvictions++;
+		}
+	}
+
+	public synchronized int size() {
+		return mMap.size();
+	}
+
+	public synchronized int getBytes() {
+		return mBytes;
+	}
+
+	public int getMaxBytes() {
+		return mMaxBytes;
+	}
+
+	public synchronized int getHits() {
+		return mHits;
+	}
+
+	public synchronized int getMisses() {
+		return mMisses;
+	}
+
+	public synchronized int getEvictions() {
+		return mEvictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return mMap.size() + " bitmaps, " + (mBytes / 1024) + "/" + (mMaxBytes / 1024) + "K, " + mHits + " hits, " + mMisses + " misses, " + mEvictions + " evictions";
+	}
+
+	/**
+	 * Returns the number of bytes of a bitmap's pixel data.
+	 * @param bitmap
+	 * @return Size in bytes
+	 */
+	private static int sizeOf(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+}
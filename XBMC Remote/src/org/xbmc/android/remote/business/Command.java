@@ -1,9 +1,14 @@
 package org.xbmc.android.remote.business;
 
+import java.util.ArrayList;
+
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.presentation.INotifiableController;
+import org.xbmc.httpapi.CountingInputStream;
 import org.xbmc.httpapi.WifiStateException;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 /**
@@ -16,38 +21,225 @@ import android.util.Log;
 public abstract class Command<T> implements Runnable {
 
 	public int mRetryCount = 0;
-	public long mStarted = 0;
+	
+	/**
+	 * When the command was queued, set again when retried.
+	 */
+	public long mPosted = 0;
+	
+	/**
+	 * Name of the operation for tracing, like "MusicManager.getAlbums".
+	 */
+	public final String mOperation;
+	
 	public final INotifiableManager mManager;
 	public final DataResponse<T> mResponse;
 	
-	// TODO Disable this when not needed anymore
-	public final StackTraceElement mCaller;
+	/**
+	 * Controller the result is for and lane of the executor, both taken from
+	 * the manager when created.
+	 */
+	public final INotifiableController mController;
+	public final int mLane;
+	
+	private volatile boolean mCancelled = false;
+	
+	/**
+	 * Set if identical queries are coalesced into this one, see
+	 * {@link AbstractManager#post(String, Command)}.
+	 */
+	String mKey = null;
+	
+	/**
+	 * Identical queries posted while this one was queued or running. They
+	 * aren't run themselves but get this one's result.
+	 */
+	private final ArrayList<Command<T>> mFollowers = new ArrayList<Command<T>>(0);
 	
 	public static final int MAX_RETRY = 5;
 	
+	/**
+	 * Class constructor, uses the class name as operation name. Better use
+	 * {@link #Command(String, DataResponse, INotifiableManager)}.
+	 * @param response Response object
+	 * @param manager  Manager running the command
+	 */
 	public Command(DataResponse<T> response, INotifiableManager manager) {
+		this(null, response, manager);
+	}
+	
+	/**
+	 * Class constructor
+	 * @param operation Name of the operation for tracing
+	 * @param response  Response object
+	 * @param manager   Manager running the command
+	 */
+	public Command(String operation, DataResponse<T> response, INotifiableManager manager) {
+		mOperation = operation != null ? operation : getClass().getName();
 		mManager = manager;
 		mResponse = response;
-		mStarted = System.currentTimeMillis();
-		mCaller = new Throwable().fillInStackTrace().getStackTrace()[2];
+		if (manager instanceof AbstractManager) {
+			mController = ((AbstractManager)manager).mController;
+			mLane = ((AbstractManager)manager).getLane();
+		} else {
+			mController = null;
+			mLane = CommandExecutor.LANE_LIST;
+		}
+		mPosted = SystemClock.elapsedRealtime();
 	}
 	
 	public void run() {
+		boolean done = false;
+		Exception error = null;
+		long started = 0;
+		long bytes = 0;
 		try {
+			if (!isWanted()) {
+				return;
+			}
 			mRetryCount ++;
-			Log.d("Command", "Running command counter: " + mRetryCount);
 			if(mRetryCount > MAX_RETRY) return;
+			started = SystemClock.elapsedRealtime();
+			bytes = CountingInputStream.getThreadCount();
 			doRun();
-			Log.i(mCaller.getClassName(), "*** " + mCaller.getMethodName() + ": " + (System.currentTimeMillis() - mStarted) + "ms");
+			if (AbstractManager.DEBUG) Log.i("Command", mOperation + ": " + (SystemClock.elapsedRealtime() - started) + "ms");
 
-			mManager.onFinish(mResponse);
+			done = true;
+			if (!mCancelled) {
+				mManager.onFinish(mResponse);
+				onFinished();
+			}
 		} catch (WifiStateException e) {
-			mManager.onWrongConnectionState(e.getState(), this);
+			error = e;
+			if (!mCancelled) {
+				mManager.onWrongConnectionState(e.getState(), this);
+			}
 		} catch (Exception e) {
+			error = e;
+			if (!mCancelled) {
+				mManager.onError(e);
+			}
+		} finally {
+			if (started > 0) {
+				CommandTrace.record(mOperation, started - mPosted, SystemClock.elapsedRealtime() - started, CountingInputStream.getThreadCount() - bytes, mRetryCount - 1, !done);
+			}
+			if (mKey != null) {
+				final ArrayList<Command<T>> followers = ((AbstractManager)mManager).release(this, done);
+				for (Command<T> follower : followers) {
+					if (done) {
+						follower.finish(mResponse.value);
+					} else {
+						follower.fail(error != null ? error : new Exception(mOperation + " failed."));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Adds an identical query which should get the result of this one.
+	 * @param follower Command which won't be run
+	 */
+	void follow(Command<T> follower) {
+		synchronized (mFollowers) {
+			mFollowers.add(follower);
+		}
+	}
+	
+	/**
+	 * Returns and forgets the followers.
+	 */
+	ArrayList<Command<T>> takeFollowers() {
+		synchronized (mFollowers) {
+			final ArrayList<Command<T>> followers = new ArrayList<Command<T>>(mFollowers);
+			mFollowers.clear();
+			return followers;
+		}
+	}
+	
+	/**
+	 * Answers a follower with the result of the query it was coalesced into.
+	 * @param value Result
+	 */
+	private void finish(T value) {
+		if (!mCancelled && mController != null) {
+			mResponse.value = value;
+			mController.runOnUI(mResponse);
+		}
+	}
+	
+	/**
+	 * Tells a follower that the query it was coalesced into failed, the
+	 * same way as if it had run itself.
+	 * @param e Exception of the failed query
+	 */
+	private void fail(Exception e) {
+		if (mCancelled) {
+			return;
+		}
+		if (e instanceof WifiStateException) {
+			// queued for retry, then runs on its own.
+			mManager.onWrongConnectionState(((WifiStateException)e).getState(), this);
+		} else {
 			mManager.onError(e);
 		}
 	}
 	
+	/**
+	 * Tells the command that nobody waits for its result anymore. It doesn't
+	 * start if still queued, and doesn't call back if already running.
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+	
+	/**
+	 * Cancels this command and its followers if they belong to a controller.
+	 * @param owner Controller which went away
+	 * @return True if the command still needs to be run for someone else.
+	 */
+	boolean cancel(INotifiableController owner) {
+		if (mController == owner) {
+			mCancelled = true;
+		}
+		synchronized (mFollowers) {
+			for (Command<T> follower : mFollowers) {
+				if (follower.mController == owner) {
+					follower.mCancelled = true;
+				}
+			}
+		}
+		return isWanted();
+	}
+	
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+	
+	/**
+	 * Returns true if this command or one of its followers isn't cancelled.
+	 */
+	boolean isWanted() {
+		if (!mCancelled) {
+			return true;
+		}
+		synchronized (mFollowers) {
+			for (Command<T> follower : mFollowers) {
+				if (!follower.mCancelled) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
 	public abstract void doRun() throws Exception;
+	
+	/**
+	 * Called on the worker thread after the response was handed over to
+	 * the UI thread, so anything posted to the UI from here arrives after it.
+	 */
+	protected void onFinished() {
+	}
 
 }
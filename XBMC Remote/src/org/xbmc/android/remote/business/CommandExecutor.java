@@ -0,0 +1,353 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.xbmc.api.presentation.INotifiableController;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Runs the managers' commands on a few worker threads, in three lanes:
+ * <ol>
+ *   <li>{@link #LANE_INTERACTIVE}: remote control, one at a time and in order,</li>
+ *   <li>{@link #LANE_LIST}: data of the list or screen currently shown,</li>
+ *   <li>{@link #LANE_BACKGROUND}: prefetching, like the following pages of a list.</li>
+ * </ol>
+ * A free worker always takes the oldest command of the first lane which is
+ * below its limit. Since the other lanes together never occupy all workers,
+ * a "pause" doesn't wait for a slow query posted before it.
+ *
+ * All commands go to the current host, so the number of workers is the
+ * parallelism limit per host. It stays below the connections per host of
+ * the HTTP API's pool, which also serves the cover downloads.
+ *
+ * @author Team XBMC
+ */
+public class CommandExecutor {
+
+	private static final String TAG = "CommandExecutor";
+
+	public static final int LANE_INTERACTIVE = 0;
+	public static final int LANE_LIST = 1;
+	public static final int LANE_BACKGROUND = 2;
+
+	private static final String[] LANE_NAMES = { "interactive", "list", "background" };
+
+	/**
+	 * Maximal number of running commands per lane
+	 */
+	private static final int[] MAX_RUNNING = { 1, 2, 1 };
+
+	/**
+	 * Number of workers. LANE_LIST and LANE_BACKGROUND together may only use
+	 * all but one of them.
+	 */
+	private static final int MAX_WORKERS = 3;
+
+	/**
+	 * Idle workers are stopped after this time (milliseconds)
+	 */
+	private static final long KEEP_ALIVE = 30000L;
+
+	private final Object mLock = new Object();
+
+	private final List<LinkedList<Task>> mQueues = new ArrayList<LinkedList<Task>>(LANE_NAMES.length);
+	private final ArrayList<Task> mRunning = new ArrayList<Task>(MAX_WORKERS);
+	private final int[] mRunningCount = new int[3];
+
+	private int mWorkers = 0;
+	private int mIdle = 0;
+
+	/**
+	 * Statistics per lane, guarded by mLock.
+	 */
+	private final long[] mStarted = new long[3];
+	private final long[] mWaitTotal = new long[3];
+	private final long[] mWaitMax = new long[3];
+	
+	public CommandExecutor() {
+		for (int lane = 0; lane < LANE_NAMES.length; lane++) {
+			mQueues.add(new LinkedList<Task>());
+		}
+	}
+
+	/**
+	 * Queues a command. The lane is taken from the command, other runnables
+	 * go to {@link #LANE_LIST}.
+	 * @param runnable Command to run
+	 * @return Always true, same as Handler.post().
+	 */
+	public boolean post(Runnable runnable) {
+		if (runnable instanceof Command<?>) {
+			final Command<?> command = (Command<?>)runnable;
+			command.mPosted = SystemClock.elapsedRealtime();
+			return post(command, command.mLane, command.mController);
+		}
+		return post(runnable, LANE_LIST, null);
+	}
+
+	/**
+	 * Queues a runnable in a given lane.
+	 * @param runnable Code to run
+	 * @param lane     One of the LANE_* constants
+	 * @param owner    Controller the result is for, can be null.
+	 * @return Always true
+	 */
+	public boolean post(Runnable runnable, int lane, INotifiableController owner) {
+		synchronized (mLock) {
+			mQueues.get(lane).add(new Task(runnable, lane, owner));
+			if (mIdle > 0) {
+				mLock.notify();
+			}
+			// a woken worker only leaves the idle count once it has the lock
+			// again, so more queued commands than idle workers means a burst
+			// which the idle ones can't take alone.
+			if (getQueued() > mIdle && mWorkers < MAX_WORKERS && canRun(lane)) {
+				startWorker();
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Starts another worker thread. Needs mLock.
+	 */
+	private void startWorker() {
+		mWorkers++;
+		final Thread worker = new Thread(mWorker, "ManagerThread #" + mWorkers);
+		worker.setDaemon(true);
+		worker.start();
+	}
+	
+	/**
+	 * Returns the number of commands waiting in all lanes. Needs mLock.
+	 */
+	private int getQueued() {
+		int queued = 0;
+		for (LinkedList<Task> queue : mQueues) {
+			queued += queue.size();
+		}
+		return queued;
+	}
+
+	/**
+	 * Drops all queued commands of a controller and tells the running ones
+	 * not to call back.
+	 * @param owner Controller which went away
+	 */
+	public void cancel(INotifiableController owner) {
+		if (owner == null) {
+			return;
+		}
+		int dropped = 0;
+		synchronized (mLock) {
+			for (LinkedList<Task> queue : mQueues) {
+				for (Iterator<Task> it = queue.iterator(); it.hasNext(); ) {
+					if (cancel(it.next(), owner)) {
+						it.remove();
+						dropped++;
+					}
+				}
+			}
+			for (Task task : mRunning) {
+				cancel(task, owner);
+			}
+		}
+		if (AbstractManager.DEBUG) Log.i(TAG, "Dropped " + dropped + " queued commands of " + owner);
+	}
+
+	/**
+	 * Cancels a task for a controller.
+	 * @return True if nobody else waits for the task.
+	 */
+	private static boolean cancel(Task task, INotifiableController owner) {
+		if (task.runnable instanceof Command<?>) {
+			// commands may have been coalesced with other controllers' ones
+			return !((Command<?>)task.runnable).cancel(owner);
+		}
+		return task.owner == owner;
+	}
+
+	/**
+	 * Returns the number of commands waiting in a lane.
+	 * @param lane One of the LANE_* constants
+	 */
+	public int getQueueDepth(int lane) {
+		synchronized (mLock) {
+			return mQueues.get(lane).size();
+		}
+	}
+
+	/**
+	 * Returns the average time commands of a lane waited before they ran.
+	 * @param lane One of the LANE_* constants
+	 * @return Wait time in milliseconds
+	 */
+	public long getAverageWait(int lane) {
+		synchronized (mLock) {
+			return mStarted[lane] == 0 ? 0 : mWaitTotal[lane] / mStarted[lane];
+		}
+	}
+
+	/**
+	 * Returns the longest time a command of a lane waited before it ran.
+	 * @param lane One of the LANE_* constants
+	 * @return Wait time in milliseconds
+	 */
+	public long getMaxWait(int lane) {
+		synchronized (mLock) {
+			return mWaitMax[lane];
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		synchronized (mLock) {
+			for (int lane = 0; lane < mQueues.size(); lane++) {
+				if (lane > 0) {
+					sb.append(", ");
+				}
+				sb.append(LANE_NAMES[lane]);
+				sb.append(": ");
+				sb.append(mQueues.get(lane).size());
+				sb.append(" queued, ");
+				sb.append(mRunningCount[lane]);
+				sb.append(" running, ");
+				sb.append(mStarted[lane] == 0 ? 0 : mWaitTotal[lane] / mStarted[lane]);
+				sb.append("/");
+				sb.append(mWaitMax[lane]);
+				sb.append("ms avg/max wait");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns true if a command of the lane may start now. Needs mLock.
+	 */
+	private boolean canRun(int lane) {
+		if (mRunningCount[lane] >= MAX_RUNNING[lane]) {
+			return false;
+		}
+		return lane == LANE_INTERACTIVE || mRunningCount[LANE_LIST] + mRunningCount[LANE_BACKGROUND] < MAX_WORKERS - 1;
+	}
+
+	/**
+	 * Takes the next command which may run. Needs mLock.
+	 * @return Task or null if nothing can run right now.
+	 */
+	private Task next() {
+		for (int lane = 0; lane < mQueues.size(); lane++) {
+			if (!mQueues.get(lane).isEmpty() && canRun(lane)) {
+				final Task task = mQueues.get(lane).removeFirst();
+				final long wait = SystemClock.elapsedRealtime() - task.queued;
+				mStarted[lane]++;
+				mWaitTotal[lane] += wait;
+				mWaitMax[lane] = Math.max(mWaitMax[lane], wait);
+				mRunningCount[lane]++;
+				mRunning.add(task);
+				return task;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Waits for the next command which may run.
+	 * @return Task or null if the worker was idle for too long.
+	 */
+	private Task take() {
+		synchronized (mLock) {
+			final long deadline = SystemClock.elapsedRealtime() + KEEP_ALIVE;
+			Task task;
+			while ((task = next()) == null) {
+				final long left = deadline - SystemClock.elapsedRealtime();
+				if (left <= 0) {
+					return null;
+				}
+				mIdle++;
+				try {
+					mLock.wait(left);
+				} catch (InterruptedException e) {
+					return null;
+				} finally {
+					mIdle--;
+				}
+			}
+			return task;
+		}
+	}
+	
+	private final Runnable mWorker = new Runnable() {
+		public void run() {
+			Task task = null;
+			try {
+				while ((task = take()) != null) {
+					try {
+						task.runnable.run();
+					} catch (RuntimeException e) {
+						Log.e(TAG, "Uncaught exception in command: " + e.getMessage(), e);
+					} finally {
+						// also on errors, or the lane stays blocked for good.
+						synchronized (mLock) {
+							mRunningCount[task.lane]--;
+							mRunning.remove(task);
+						}
+					}
+				}
+			} finally {
+				synchronized (mLock) {
+					mWorkers--;
+					// a task is only left if an error killed the worker, so
+					// replace it if there's more to do.
+					if (task != null && getQueued() > 0) {
+						startWorker();
+					}
+				}
+			}
+		}
+	};
+
+	/**
+	 * A queued runnable with its lane and owner.
+	 */
+	private static class Task {
+		final Runnable runnable;
+		final int lane;
+		final INotifiableController owner;
+		final long queued;
+
+		Task(Runnable runnable, int lane, INotifiableController owner) {
+			this.runnable = runnable;
+			this.lane = lane;
+			this.owner = owner;
+			queued = SystemClock.elapsedRealtime();
+		}
+	}
+}
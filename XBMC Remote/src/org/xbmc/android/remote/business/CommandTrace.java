@@ -0,0 +1,189 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Remembers the last {@link #SIZE} commands: their operation, how long they
+ * waited in the queue and ran, how many bytes they received and how often
+ * they were retried. Recording only writes a few array slots, so it's
+ * always on.
+ *
+ * For profiling, {@link #export()} summarizes the recorded commands as a
+ * latency histogram per operation.
+ *
+ * @author Team XBMC
+ */
+public class CommandTrace {
+
+	/**
+	 * Number of recorded commands
+	 */
+	public static final int SIZE = 512;
+
+	/**
+	 * Upper bounds of the histogram buckets in milliseconds. The last bucket
+	 * takes everything above.
+	 */
+	private static final int[] BUCKETS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+	private static final String[] sOperations = new String[SIZE];
+	private static final int[] sWait = new int[SIZE];
+	private static final int[] sRun = new int[SIZE];
+	private static final int[] sBytes = new int[SIZE];
+	private static final int[] sRetries = new int[SIZE];
+	private static final boolean[] sFailed = new boolean[SIZE];
+
+	private static int sNext = 0;
+	private static int sCount = 0;
+
+	/**
+	 * Records a finished command.
+	 * @param operation Name of the operation, like "MusicManager.getAlbums"
+	 * @param wait      Time in the queue in milliseconds
+	 * @param run       Execution time in milliseconds
+	 * @param bytes     Bytes received
+	 * @param retries   Number of earlier attempts
+	 * @param failed    True if the command didn't deliver a result
+	 */
+	public static synchronized void record(String operation, long wait, long run, long bytes, int retries, boolean failed) {
+		final int i = sNext;
+		sOperations[i] = operation;
+		sWait[i] = (int)Math.min(wait, Integer.MAX_VALUE);
+		sRun[i] = (int)Math.min(run, Integer.MAX_VALUE);
+		sBytes[i] = (int)Math.min(bytes, Integer.MAX_VALUE);
+		sRetries[i] = retries;
+		sFailed[i] = failed;
+		sNext = (i + 1) % SIZE;
+		if (sCount < SIZE) {
+			sCount++;
+		}
+	}
+
+	public static synchronized int getCount() {
+		return sCount;
+	}
+
+	public static synchronized void clear() {
+		Arrays.fill(sOperations, null);
+		sNext = 0;
+		sCount = 0;
+	}
+
+	/**
+	 * Summarizes the recorded commands per operation: count, failures,
+	 * retries, median and 90th percentile of wait and run time, average
+	 * bytes and a histogram of the total latency (wait + run).
+	 * @return One line per operation, slowest first, with a header line.
+	 */
+	public static String export() {
+		final HashMap<String, Stats> stats = new HashMap<String, Stats>();
+		synchronized (CommandTrace.class) {
+			for (int n = 0; n < sCount; n++) {
+				final int i = (sNext - sCount + n + SIZE) % SIZE;
+				Stats s = stats.get(sOperations[i]);
+				if (s == null) {
+					s = new Stats(sOperations[i]);
+					stats.put(sOperations[i], s);
+				}
+				s.add(sWait[i], sRun[i], sBytes[i], sRetries[i], sFailed[i]);
+			}
+		}
+		final ArrayList<Stats> sorted = new ArrayList<Stats>(stats.values());
+		Collections.sort(sorted);
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("operation\tcount\tfailed\tretries\twait p50/p90\trun p50/p90\tavg bytes");
+		for (int bound : BUCKETS) {
+			sb.append("\t<");
+			sb.append(bound);
+			sb.append("ms");
+		}
+		sb.append("\tmore\n");
+		for (Stats s : sorted) {
+			s.appendTo(sb);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Collected numbers of one operation
+	 */
+	private static class Stats implements Comparable<Stats> {
+		final String operation;
+		final ArrayList<Integer> waits = new ArrayList<Integer>();
+		final ArrayList<Integer> runs = new ArrayList<Integer>();
+		final int[] buckets = new int[BUCKETS.length + 1];
+		long bytes = 0;
+		int failed = 0;
+		int retries = 0;
+		long total = 0;
+
+		Stats(String operation) {
+			this.operation = operation;
+		}
+
+		void add(int wait, int run, int bytes, int retries, boolean failed) {
+			waits.add(wait);
+			runs.add(run);
+			this.bytes += bytes;
+			this.retries += retries;
+			if (failed) {
+				this.failed++;
+			}
+			total += wait + run;
+			int b = 0;
+			while (b < BUCKETS.length && wait + run >= BUCKETS[b]) {
+				b++;
+			}
+			buckets[b]++;
+		}
+
+		void appendTo(StringBuilder sb) {
+			Collections.sort(waits);
+			Collections.sort(runs);
+			sb.append(operation);
+			sb.append('\t').append(runs.size());
+			sb.append('\t').append(failed);
+			sb.append('\t').append(retries);
+			sb.append('\t').append(percentile(waits, 50)).append('/').append(percentile(waits, 90));
+			sb.append('\t').append(percentile(runs, 50)).append('/').append(percentile(runs, 90));
+			sb.append('\t').append(bytes / runs.size());
+			for (int count : buckets) {
+				sb.append('\t').append(count);
+			}
+			sb.append('\n');
+		}
+
+		private static int percentile(ArrayList<Integer> sorted, int p) {
+			return sorted.get(Math.min(sorted.size() - 1, sorted.size() * p / 100));
+		}
+
+		public int compareTo(Stats another) {
+			return total < another.total ? 1 : (total > another.total ? -1 : 0);
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.xbmc.api.business.IControlManager;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IControlClient.ICurrentlyPlaying;
+import org.xbmc.api.data.ILibraryClient;
 import org.xbmc.api.type.SeekType;
 
 import android.content.Context;
@@ -37,13 +38,21 @@ import android.content.Context;
  */
 public class ControlManager extends AbstractManager implements IControlManager, INotifiableManager {
 	
+	/**
+	 * Remote control goes first, before any list data.
+	 */
+	@Override
+	public int getLane() {
+		return CommandExecutor.LANE_INTERACTIVE;
+	}
+	
 	/**
 	 * Starts playing the media file <code>filename</code> .
 	 * @param response Response object
 	 * @param filename File to play
 	 */
 	public void playFile(final DataResponse<Boolean> response, final String filename, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.playFile", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).playFile(ControlManager.this, filename);
@@ -58,7 +67,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param context Context reference
 	 */
 	public void playFolder(final DataResponse<Boolean> response, final String foldername, final String playlistType, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.playFolder", response, this){
 			@Override
 			public void doRun() throws Exception {
 				IControlClient cc = control(context);
@@ -78,7 +87,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param context Context reference
 	 */
 	public void queueFolder(final DataResponse<Boolean> response, final String foldername, final String playlistType, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.queueFolder", response, this){
 			@Override
 			public void doRun() throws Exception {
 				IControlClient cc = control(context);
@@ -100,7 +109,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @return true on success, false otherwise.
 	 */
 	public void playUrl(final DataResponse<Boolean> response, final String url, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.playUrl", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).playUrl(ControlManager.this, url);
@@ -115,7 +124,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @return true on success, false otherwise.
 	 */
 	public void playNext(final DataResponse<Boolean> response, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.playNext", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).playNext(ControlManager.this);
@@ -129,7 +138,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param fileOrFolder File to play
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final String fileOrFolder, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.addToPlaylist", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).addToPlaylist(ControlManager.this, fileOrFolder);
@@ -152,7 +161,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @return true on success, false otherwise.
 	 */
 	public void seek(final DataResponse<Boolean> response, final SeekType type, final int progress, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.seek", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).seek(ControlManager.this, type, progress);
@@ -168,10 +177,14 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param mediaType
 	 */
 	public void updateLibrary(final DataResponse<Boolean> response, final String mediaType, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		// XBMC scans in the background, the cache is dropped again when it's done.
+		ResultCache.get().onScanStarted("music".equals(mediaType) ? ResultCache.LIBRARY_MUSIC : ResultCache.LIBRARY_VIDEO);
+		mExecutor.post(new Command<Boolean>("ControlManager.updateLibrary", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).updateLibrary(ControlManager.this, mediaType);
+				// renamed items keep their IDs, so the mirror can't tell by itself
+				LibraryMirror.onLibraryChanged("music".equals(mediaType) ? ILibraryClient.MUSIC_DATABASE : ILibraryClient.VIDEO_DATABASE);
 			}
 		});
 	}
@@ -182,7 +195,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param filename File to show
 	 */
 	public void showPicture(final DataResponse<Boolean> response, final String filename, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.showPicture", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).showPicture(ControlManager.this, filename);
@@ -196,7 +209,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param response
 	 */
 	public void getCurrentlyPlaying(final DataResponse<ICurrentlyPlaying> response, final Context context) {
-		mHandler.post(new Command<ICurrentlyPlaying>(response, this){
+		mExecutor.post(new Command<ICurrentlyPlaying>("ControlManager.getCurrentlyPlaying", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).getCurrentlyPlaying(ControlManager.this);
@@ -210,7 +223,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param response Response object
 	 */
 	public void getPlaylistId(final DataResponse<Integer> response, final Context context) {
-		mHandler.post(new Command<Integer>(response, this){
+		mExecutor.post(new Command<Integer>("ControlManager.getPlaylistId", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).getPlaylistId(ControlManager.this);
@@ -225,7 +238,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param id Playlist identifier
 	 */
 	public void setPlaylistId(final DataResponse<Boolean> response, final int id, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.setPlaylistId", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).setPlaylistId(ControlManager.this, id);
@@ -239,7 +252,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param position New playlist position
 	 */
 	public void setPlaylistPos(final DataResponse<Boolean> response, final int position, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.setPlaylistPos", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).setPlaylistPos(ControlManager.this, position);
@@ -254,7 +267,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 * @param context Context reference
 	 */
 	public void clearPlaylist(final DataResponse<Boolean> response, final String playlistId, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this){
+		mExecutor.post(new Command<Boolean>("ControlManager.clearPlaylist", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).clearPlaylist(ControlManager.this, playlistId);
@@ -270,7 +283,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	 */
 	public void setGuiSetting(final DataResponse<Boolean> response, final int setting, 
 			final String value, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("ControlManager.setGuiSetting", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).setGuiSetting(ControlManager.this, setting, value);
@@ -280,7 +293,7 @@ public class ControlManager extends AbstractManager implements IControlManager,
 	}
 
 	public void getVolume(final DataResponse<Integer> response, final Context context) {
-		mHandler.post(new Command<Integer>(response, this) {
+		mExecutor.post(new Command<Integer>("ControlManager.getVolume", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = control(context).getVolume(ControlManager.this);
@@ -21,16 +21,12 @@
 
 package org.xbmc.android.remote.business;
 
-import java.io.File;
-
-import org.xbmc.android.util.Crc32;
 import org.xbmc.android.util.ImportUtilities;
+import org.xbmc.android.util.Metrics;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.object.ICoverArt;
 import org.xbmc.api.presentation.INotifiableController;
-import org.xbmc.api.type.MediaType;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 /**
  * This thread asynchronously delivers sdcard-cached bitmaps.
@@ -47,6 +43,10 @@ class DiskCacheThread extends AbstractThread {
 	 * Singleton instance of this thread
 	 */
 	protected static DiskCacheThread sHttpApiThread;
+	
+	private static final Metrics.Histogram READ_TIME = Metrics.histogram("cover.disk.read");
+	private static final Metrics.Counter HITS = Metrics.counter("cover.disk.hit");
+	private static final Metrics.Counter MISSES = Metrics.counter("cover.disk.miss");
 
 	/**
 	 * Constructor is protected, use get().
@@ -68,17 +68,8 @@ class DiskCacheThread extends AbstractThread {
 		mHandler.post(new Runnable() {
 			public void run() {
 				if (cover != null) {
-					final File file = ImportUtilities.getCacheFile(MediaType.getArtFolder(cover.getMediaType()), thumbSize, Crc32.formatAsHexLowerCase(cover.getCrc()));
-				    if (file.exists()) {
-				    	final Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
-				    	if (bitmap == null) { // file is available but obviously corruped, so delete it.
-				    		file.delete();
-				    		response.value = null;
-				    	} else {
-				    		MemCacheThread.addCoverToCache(cover, bitmap, thumbSize);
-				    		response.value = bitmap;
-				    	}
-				    }
+					// corrupted thumbs are removed by the store and returned as null.
+					response.value = getCover(cover, thumbSize);
 				}
 				done(controller, response);
 			}
@@ -93,24 +84,26 @@ class DiskCacheThread extends AbstractThread {
 	 * @return Bitmap or null if not available.
 	 */
 	public static Bitmap getCover(ICoverArt cover, int thumbSize) {
-		final File file = ImportUtilities.getCacheFile(MediaType.getArtFolder(cover.getMediaType()), thumbSize, Crc32.formatAsHexLowerCase(cover.getCrc()));
-	    if (file.exists()) {
-	    	final Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
-	    	MemCacheThread.addCoverToCache(cover, bitmap, thumbSize);
-	    	return bitmap;
-	    } else
-	    	return null;
+		final long start = System.nanoTime();
+		final Bitmap bitmap = ImportUtilities.getCoverFromCache(cover, thumbSize);
+		READ_TIME.recordSince(start);
+		if (bitmap != null) {
+			HITS.inc();
+			MemCacheThread.addCoverToCache(cover, bitmap, thumbSize);
+		} else {
+			MISSES.inc();
+		}
+		return bitmap;
 	}
 	
 	/**
-	 * Checks if a thumb is in the disk cache.
+	 * Checks if a thumb is in the disk cache. This is an in-memory lookup
+	 * and doesn't touch the sdcard.
 	 * @param cover
 	 * @return True if thumb is in disk cache, false otherwise.
 	 */
 	public static boolean isInCache(ICoverArt cover, int thumbSize) {
-		final File file = ImportUtilities.getCacheFile(MediaType.getArtFolder(cover.getMediaType()), thumbSize, Crc32.formatAsHexLowerCase(cover.getCrc()).toLowerCase());
-		// TODO sometimes the filesize is zero
-		return file.exists() && file.length() > 0;
+		return ImportUtilities.isInCache(cover, thumbSize);
 	}
 	
 	/**
@@ -0,0 +1,347 @@
+/*
+ *      Copyright (C) 2005-2009 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xbmc.android.util.Metrics;
+import org.xbmc.api.business.DataResponse;
+import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.object.ICoverArt;
+import org.xbmc.api.presentation.INotifiableController;
+import org.xbmc.api.type.MediaType;
+import org.xbmc.api.type.ThumbSize;
+import org.xbmc.httpapi.WifiStateException;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+/**
+ * Asynchronously downloads thumbs from XBMC and returns them as Bitmap.
+ * 
+ * Downloads run on a small pool of worker threads, so a grid full of covers
+ * isn't serialized behind the network latency of every single thumb. Requests
+ * for a cover which is already queued or being downloaded in the same size
+ * don't start a new download but are answered by the running one.
+ * 
+ * Queued downloads are served last in, first out: when scrolling through a
+ * list, the covers of the rows currently on screen are requested last and
+ * should be fetched before the ones of rows which went by already. 
+ * 
+ * When downloaded, the thumb is automatically saved to the memory- and disk-
+ * cache for further usage.
+ * 
+ * @author Team XBMC
+ */
+class DownloadPool {
+	
+	/**
+	 * Singleton instance of the pool
+	 */
+	private static DownloadPool sInstance;
+	
+	private static final String TAG = "DownloadPool";
+	private static final boolean DEBUG = AbstractManager.DEBUG;
+	
+	/**
+	 * Number of parallel downloads. Stays below the number of connections
+	 * per host, so there is room for other queries.
+	 */
+	private static final int POOL_SIZE = 3;
+	
+	/**
+	 * Idle workers are stopped after this time (seconds)
+	 */
+	private static final long KEEP_ALIVE = 30L;
+	
+	private final PriorityBlockingQueue<Runnable> mQueue = new PriorityBlockingQueue<Runnable>();
+	private final ThreadPoolExecutor mExecutor;
+	
+	/**
+	 * Queued and running downloads by cover and size. Also used as lock when
+	 * adding or removing waiting requests.
+	 */
+	private final HashMap<String, Download> mDownloads = new HashMap<String, Download>();
+	
+	/**
+	 * Increases with every request, newer requests are served first.
+	 */
+	private final AtomicLong mSequence = new AtomicLong();
+	
+	private static final Metrics.Histogram FETCH_TIME = Metrics.histogram("cover.download");
+	private static final Metrics.Counter JOINED = Metrics.counter("cover.download.joined");
+	private static final Metrics.Counter FAILED = Metrics.counter("cover.download.failed");
+	
+	/**
+	 * Constructor is private, use get().
+	 */
+	private DownloadPool() {
+		mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, mQueue, new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "HTTP API Download Thread #" + mCount.incrementAndGet());
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+		mExecutor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Asynchronously downloads a thumb from XBMC and stores it locally.
+	 * 
+	 * @param response   Response object
+	 * @param cover      Which cover to download
+	 * @param thumbSize  Which size to return
+	 * @param controller Controller to be announced
+	 * @param manager    Manager is needed to obtain different managers for cache access
+	 * @param context    Context is needed for obtaining other manager instances
+	 */
+	public void getCover(final DataResponse<Bitmap> response, final ICoverArt cover, final int thumbSize, final INotifiableController controller, final INotifiableManager manager, final Context context) {
+		if (cover == null) {
+			AbstractThread.done(controller, response);
+			return;
+		}
+		final String key = cover.getCrc() + "/" + thumbSize;
+		synchronized (mDownloads) {
+			Download download = mDownloads.get(key);
+			if (download != null) {
+				if (DEBUG) Log.i(TAG, "Cover " + cover + " is already being downloaded, waiting for it.");
+				JOINED.inc();
+				download.add(response, controller);
+				// requested again, so it's on screen again: move it up the queue.
+				if (mQueue.remove(download)) {
+					download.mSequence = mSequence.incrementAndGet();
+					mExecutor.execute(download);
+				}
+				return;
+			}
+			download = new Download(key, cover, thumbSize, manager, context);
+			download.add(response, controller);
+			download.mSequence = mSequence.incrementAndGet();
+			mDownloads.put(key, download);
+			mExecutor.execute(download);
+		}
+	}
+	
+	/**
+	 * Drops all downloads which haven't started yet. Their responses are
+	 * never called back.
+	 */
+	private void cancelQueued() {
+		synchronized (mDownloads) {
+			final ArrayList<Runnable> queued = new ArrayList<Runnable>();
+			mQueue.drainTo(queued);
+			for (Runnable r : queued) {
+				mDownloads.remove(((Download)r).mKey);
+			}
+			if (DEBUG) Log.i(TAG, "Dropped " + queued.size() + " queued downloads.");
+		}
+	}
+	
+	/**
+	 * Synchonously downloads a thumb from XBMC and stores it locally.
+	 * 
+	 * @param response Response object, can be null.
+	 * @param cover Cover to download
+	 * @param thumbSize Size to return to response object
+	 * @param controller Controller to be announced, can be null.
+	 * @param manager Manager is needed to obtain different managers for cache access
+	 * @param context Context is needed for obtaining other manager instances
+	 * @return True if cover was downloaded successfully, false otherwise.
+	 */
+	public static boolean download(final DataResponse<Bitmap> response, final ICoverArt cover, final int thumbSize, final INotifiableController controller, final INotifiableManager manager, final Context context, final boolean addToMemCache) {
+		final Bitmap bitmap = fetch(cover, thumbSize, manager, context, addToMemCache);
+		if (response != null) {
+			response.value = bitmap;
+		}
+		AbstractThread.done(controller, response);
+		return bitmap != null;
+	}
+	
+	/**
+	 * Synchronously downloads a thumb and adds it to the disk and optionally
+	 * to the memory cache.
+	 * 
+	 * @param cover Cover to download
+	 * @param thumbSize Size to return
+	 * @param manager Manager is needed to obtain different managers for cache access
+	 * @param context Context is needed for obtaining other manager instances
+	 * @param addToMemCache If true, result is added to the memory cache
+	 * @return Bitmap in requested size or null if not available.
+	 */
+	private static Bitmap fetch(final ICoverArt cover, final int thumbSize, final INotifiableManager manager, final Context context, final boolean addToMemCache) {
+		if (DEBUG) Log.i(TAG, "Download START..");
+		final long start = System.nanoTime();
+		Bitmap bitmap = null;
+		try {
+			switch (cover.getMediaType()) {
+				case MediaType.MUSIC:
+					bitmap = AbstractThread.music(manager, context).getCover(manager, cover, thumbSize);
+					break;
+				case MediaType.VIDEO_MOVIE:
+				case MediaType.VIDEO:
+					bitmap = AbstractThread.video(manager, context).getCover(manager, cover, thumbSize);
+					break;
+				case MediaType.VIDEO_TVEPISODE:
+				case MediaType.VIDEO_TVSEASON:
+				case MediaType.VIDEO_TVSHOW:
+					bitmap = AbstractThread.tvshow(manager, context).getCover(manager, cover, thumbSize);
+					break;
+				default:
+					break;
+			}
+		} catch (WifiStateException e) {
+			// not the cover's fault, so it isn't blocked in the mem cache and gets fetched again later
+			Log.w(TAG, "Cannot download cover " + cover.getCrc() + " in connection state " + e.getState());
+			FAILED.inc();
+			return null;
+		}
+		if (DEBUG) Log.i(TAG, "Download END.");
+		FETCH_TIME.recordSince(start);
+		if (bitmap != null) {
+			// add to disk cache
+			final Bitmap v = DiskCacheThread.addCoverToCache(cover, bitmap, thumbSize);
+			// add to mem cache
+			if (addToMemCache) {
+				MemCacheThread.addCoverToCache(cover, v, thumbSize);
+			}
+			if (DEBUG) Log.i(TAG, "Done");
+			return v;
+		} else {
+			FAILED.inc();
+			if (addToMemCache) {
+				// still add null value to mem cache so we don't try to fetch it again
+				if (DEBUG) Log.i(TAG, "Adding null-value (" + cover.getCrc() + ") to mem cache in order to block future downloads");
+				MemCacheThread.addCoverToCache(cover, null, 0);
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the instance of the pool. Spawns if necessary.
+	 * @return
+	 */
+	public static synchronized DownloadPool get() {
+		if (sInstance == null) {
+			sInstance = new DownloadPool();
+		}
+		return sInstance;
+	}
+	
+	/**
+	 * Drops queued downloads, for instance when the activity changes. Running
+	 * downloads are finished, the worker threads stop when idle.
+	 */
+	public static synchronized void quit() {
+		if (sInstance != null) {
+			sInstance.cancelQueued();
+		}
+	}
+	
+	/**
+	 * Download of one cover in one size, answering all requests which came in
+	 * until it's done.
+	 */
+	private class Download implements Runnable, Comparable<Download> {
+		
+		final String mKey;
+		final ICoverArt mCover;
+		final int mThumbSize;
+		final INotifiableManager mManager;
+		final Context mContext;
+		
+		/**
+		 * Waiting responses and their controllers, guarded by mDownloads.
+		 */
+		final ArrayList<DataResponse<Bitmap>> mResponses = new ArrayList<DataResponse<Bitmap>>(1);
+		final ArrayList<INotifiableController> mControllers = new ArrayList<INotifiableController>(1);
+		
+		/**
+		 * Only changed while not queued, otherwise the queue breaks.
+		 */
+		long mSequence;
+		
+		Download(String key, ICoverArt cover, int thumbSize, INotifiableManager manager, Context context) {
+			mKey = key;
+			mCover = cover;
+			mThumbSize = thumbSize;
+			mManager = manager;
+			mContext = context;
+		}
+		
+		void add(DataResponse<Bitmap> response, INotifiableController controller) {
+			mResponses.add(response);
+			mControllers.add(controller);
+		}
+		
+		public void run() {
+			if (DEBUG) Log.i(TAG, "Downloading cover " + mCover);
+			Bitmap bitmap = null;
+			try {
+				/* the cover might have been downloaded in another size or by a
+				 * previous request in the meantime, so check the caches again.
+				 */
+				bitmap = MemCacheThread.getCover(mCover, mThumbSize); // we're optimistic, let's check the memory first.
+				if (bitmap != null) {
+					if (DEBUG) Log.i(TAG, "Cover is now already in mem cache, directly returning...");
+				} else if (mThumbSize < ThumbSize.BIG && DiskCacheThread.isInCache(mCover, mThumbSize)) {
+					if (DEBUG) Log.i(TAG, "Cover is not in mem cache anymore but still on disk, directly returning...");
+					bitmap = DiskCacheThread.getCover(mCover, mThumbSize);
+				} else {
+					bitmap = fetch(mCover, mThumbSize, mManager, mContext, true);
+				}
+			} finally {
+				final ArrayList<DataResponse<Bitmap>> responses;
+				final ArrayList<INotifiableController> controllers;
+				synchronized (mDownloads) {
+					mDownloads.remove(mKey);
+					responses = new ArrayList<DataResponse<Bitmap>>(mResponses);
+					controllers = new ArrayList<INotifiableController>(mControllers);
+				}
+				for (int i = 0; i < responses.size(); i++) {
+					final DataResponse<Bitmap> response = responses.get(i);
+					if (response != null) {
+						response.value = bitmap;
+					}
+					AbstractThread.done(controllers.get(i), response);
+				}
+			}
+		}
+		
+		/**
+		 * Newest first.
+		 */
+		public int compareTo(Download another) {
+			return mSequence > another.mSequence ? -1 : (mSequence < another.mSequence ? 1 : 0);
+		}
+	}
+}
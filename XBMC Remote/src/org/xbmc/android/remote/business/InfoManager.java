@@ -45,7 +45,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param field Field to return
 	 */
 	public void getSystemInfo(final DataResponse<String> response, final int field, final Context context) {
-		mHandler.post(new Command<String>(response, this){
+		mExecutor.post(new Command<String>("InfoManager.getSystemInfo", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getSystemInfo(InfoManager.this, field);
@@ -60,7 +60,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param mediaType Media type
 	 */
 	public void getShares(final DataResponse<ArrayList<FileLocation>> response, final int mediaType, final Context context) {
-		mHandler.post(new Command<ArrayList<FileLocation>>(response, this) {
+		mExecutor.post(new Command<ArrayList<FileLocation>>("InfoManager.getShares", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getShares(InfoManager.this, mediaType);
@@ -78,7 +78,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @return
 	 */
 	public void getDirectory(final DataResponse<ArrayList<FileLocation>> response, final String path, final DirectoryMask mask, final int offset, final int limit, final Context context, final int mediaType) {
-		mHandler.post(new Command<ArrayList<FileLocation>>(response, this){
+		mExecutor.post(new Command<ArrayList<FileLocation>>("InfoManager.getDirectory", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getDirectory(InfoManager.this, path, mask, offset, limit, mediaType);
@@ -94,7 +94,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @return
 	 */
 	public void getDirectory(final DataResponse<ArrayList<FileLocation>> response, final String path, final Context context, final int mediaType) {
-		mHandler.post(new Command<ArrayList<FileLocation>>(response, this){
+		mExecutor.post(new Command<ArrayList<FileLocation>>("InfoManager.getDirectory", response, this){
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getDirectory(InfoManager.this, path, mediaType);
@@ -110,7 +110,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param context 
 	 */
 	public void getGuiSettingBool(final DataResponse<Boolean> response, final int setting, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("InfoManager.getGuiSettingBool", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getGuiSettingBool(InfoManager.this, setting);
@@ -125,7 +125,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param context 
 	 */
 	public void getGuiSettingInt(final DataResponse<Integer> response, final int setting, final Context context) {
-		mHandler.post(new Command<Integer>(response, this) {
+		mExecutor.post(new Command<Integer>("InfoManager.getGuiSettingInt", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = info(context).getGuiSettingInt(InfoManager.this, setting);
@@ -150,7 +150,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param val Integer value to set
 	 */
 	public void setGuiSettingInt(final DataResponse<Boolean> response, final int field, final int val, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("InfoManager.setGuiSettingInt", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = info(context).setGuiSettingInt(InfoManager.this, field, val);
@@ -165,7 +165,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	 * @param val Boolean value to set
 	 */
 	public void setGuiSettingBool(final DataResponse<Boolean> response, final int field, final boolean val, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("InfoManager.setGuiSettingBool", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = info(context).setGuiSettingBool(InfoManager.this, field, val);
@@ -174,7 +174,7 @@ public class InfoManager extends AbstractManager implements IInfoManager, INotif
 	}
 	
 //	public <T> void getGuiSetting(final Class<T> t, final DataResponse<T> response, final int setting) {
-//		mHandler.post(new Command<T>(response, this) {
+//		mExecutor.post(new Command<T>(response, this) {
 //			@Override
 //			public void doRun() throws Exception {
 //				switch(GuiSettings.getTypeInt(setting)) {
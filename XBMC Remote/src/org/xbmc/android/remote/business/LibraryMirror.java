@@ -0,0 +1,678 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.util.ArrayList;
+
+import org.xbmc.android.util.ClientFactory;
+import org.xbmc.android.util.HostFactory;
+import org.xbmc.api.business.DataResponse;
+import org.xbmc.api.business.EventBus;
+import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.data.ILibraryClient;
+import org.xbmc.api.object.Album;
+import org.xbmc.api.object.Artist;
+import org.xbmc.api.object.Genre;
+import org.xbmc.api.object.Host;
+import org.xbmc.api.object.Movie;
+import org.xbmc.api.object.Song;
+import org.xbmc.api.type.SortType;
+import org.xbmc.httpapi.WifiStateException;
+import org.xbmc.httpapi.client.MusicClient;
+import org.xbmc.httpapi.client.VideoClient;
+import org.xbmc.jsonrpc.Notification;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Local copy of the parts of XBMC's library the list screens show, so they
+ * can be read without asking XBMC every time. There is one database per host.
+ *
+ * Tables are synced one after another in the background. Before fetching
+ * anything, one query per table compares row count, highest ID and, for
+ * tables whose rows change in place, a checksum column with what we have.
+ * If nothing changed we're done, if only rows with higher IDs were added
+ * just those are fetched, otherwise the table is fetched again. Rows are
+ * fetched in pages ordered by ID, so nothing is skipped or fetched twice.
+ *
+ * A table is only read once it's completely synced, until then the managers
+ * ask XBMC directly as before.
+ *
+ * Changes which keep count and IDs, like a renamed album, can't be seen that
+ * way. When XBMC says its library changed or the user started a scan, the
+ * tables of that library are fetched again on the next sync.
+ *
+ * @author Team XBMC
+ */
+public class LibraryMirror extends SQLiteOpenHelper {
+
+	private static final String TAG = "LibraryMirror";
+
+	private static final String DATABASE_PREFIX = "library_";
+	private static final int DATABASE_VERSION = 2;
+
+	private static final String STATE_TABLE = "sync_state";
+
+	/**
+	 * Number of rows fetched per query
+	 */
+	private static final int FETCH_SIZE = 500;
+
+	/**
+	 * Minimal time in milliseconds between two syncs
+	 */
+	private static final long SYNC_INTERVAL = 5 * 60 * 1000;
+
+	public static final Table ARTISTS = new Table("artist", ILibraryClient.MUSIC_DATABASE, "artist", null, null,
+			"idArtist", "strArtist");
+	public static final Table ALBUMS = new Table("album", ILibraryClient.MUSIC_DATABASE, "albumview", "strAlbum <> ''", null,
+			"idAlbum", "strAlbum", "strArtist", "iYear", "strThumb", "idArtist");
+	public static final Table GENRES = new Table("genre", ILibraryClient.MUSIC_DATABASE, "genre", null, null,
+			"idGenre", "strGenre");
+	public static final Table SONGS = new Table("song", ILibraryClient.MUSIC_DATABASE, "songview", null, null,
+			"idSong", "strTitle", "strArtist", "strAlbum", "iTrack", "iDuration", "strPath", "strFileName", "strThumb", "idAlbum", "idArtist", "idGenre");
+	public static final Table MOVIES = new Table("movie", ILibraryClient.VIDEO_DATABASE, "movie, files, path", "movie.idFile = files.idFile AND path.idPath = files.idPath", "playCount",
+			"idMovie", "c00", "c07", "strPath", "strFileName", "c15", "c11", "c14", "ROUND(c05, 2) AS c05", "playCount", "c10", "files.idFile AS idFile");
+
+	private static final Table[] TABLES = { ARTISTS, ALBUMS, GENRES, SONGS, MOVIES };
+
+	private static LibraryMirror sInstance = null;
+	private static int sHostId = -1;
+
+	private boolean mSyncing = false;
+	private long mLastSync = 0;
+	
+	/**
+	 * Incremented per database whenever its tables must be fetched again,
+	 * guarded by this.
+	 */
+	private final int[] mGeneration = new int[3];
+
+	private LibraryMirror(Context context, Host host) {
+		super(context, DATABASE_PREFIX + host.id + ".db", null, DATABASE_VERSION);
+	}
+
+	/**
+	 * Returns the mirror of the current host. Switching hosts closes the
+	 * mirror of the previous one.
+	 * @param context
+	 * @return Mirror or null if no host is set.
+	 */
+	public static synchronized LibraryMirror getInstance(Context context) {
+		final Host host = HostFactory.host;
+		if (host == null) {
+			return null;
+		}
+		if (sInstance == null || sHostId != host.id) {
+			if (sInstance != null) {
+				sInstance.close();
+			}
+			sInstance = new LibraryMirror(context.getApplicationContext(), host);
+			sHostId = host.id;
+		}
+		return sInstance;
+	}
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL("CREATE TABLE " + STATE_TABLE + " (tbl TEXT PRIMARY KEY, count INTEGER, max_id INTEGER, checksum REAL, synced INTEGER)");
+		for (Table table : TABLES) {
+			db.execSQL(table.createSql());
+		}
+	}
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		db.execSQL("DROP TABLE IF EXISTS " + STATE_TABLE);
+		for (Table table : TABLES) {
+			db.execSQL("DROP TABLE IF EXISTS " + table.name);
+		}
+		onCreate(db);
+	}
+
+	/**
+	 * Makes the next sync fetch all tables of a database again. Also ends
+	 * the wait for the next sync.
+	 * @param database Either {@link ILibraryClient#MUSIC_DATABASE} or {@link ILibraryClient#VIDEO_DATABASE}
+	 */
+	public void invalidate(int database) {
+		synchronized (this) {
+			mGeneration[database]++;
+			// due right away, also if a sync is running
+			mLastSync = -1;
+		}
+		final ContentValues values = new ContentValues();
+		values.put("count", -1);
+		for (Table table : TABLES) {
+			if (table.database == database) {
+				getWritableDatabase().update(STATE_TABLE, values, "tbl = ?", new String[] { table.name });
+			}
+		}
+		Log.i(TAG, "Database " + database + " changed, fetching it again on next sync.");
+	}
+
+	/**
+	 * Invalidates a database of the current host's mirror, if open.
+	 * @param database Either {@link ILibraryClient#MUSIC_DATABASE} or {@link ILibraryClient#VIDEO_DATABASE}
+	 */
+	public static void onLibraryChanged(int database) {
+		final LibraryMirror mirror;
+		synchronized (LibraryMirror.class) {
+			mirror = sInstance;
+		}
+		if (mirror != null) {
+			try {
+				mirror.invalidate(database);
+			} catch (RuntimeException e) {
+				// closed because the host changed
+				Log.e(TAG, "Invalidating failed: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the mirror when XBMC updates its library.
+	 */
+	public static final EventBus.Listener<Notification> NOTIFICATION_LISTENER = new EventBus.Listener<Notification>() {
+		public void onEvent(Notification notification) {
+			if (notification.method.startsWith("AudioLibrary.")) {
+				onLibraryChanged(ILibraryClient.MUSIC_DATABASE);
+			} else if (notification.method.startsWith("VideoLibrary.")) {
+				onLibraryChanged(ILibraryClient.VIDEO_DATABASE);
+			}
+		}
+	};
+
+	/**
+	 * Starts syncing all tables in the background, unless a sync is already
+	 * running or the last one finished less than five minutes ago.
+	 * @param context
+	 */
+	public void requestSync(final Context context) {
+		synchronized (this) {
+			if (mSyncing || (mLastSync > 0 && SystemClock.elapsedRealtime() - mLastSync < SYNC_INTERVAL)) {
+				return;
+			}
+			mSyncing = true;
+		}
+		new Thread("LibraryMirror") {
+			public void run() {
+				try {
+					final ILibraryClient client = ClientFactory.getLibraryClient(sManagerStub, context);
+					for (Table table : TABLES) {
+						if (!sync(client, table)) {
+							break;
+						}
+					}
+				} catch (WifiStateException e) {
+					Log.i(TAG, "Not syncing, no wifi.");
+				} catch (RuntimeException e) {
+					// database closed because the host changed, or full
+					Log.e(TAG, "Sync failed: " + e.getMessage(), e);
+				} finally {
+					synchronized (LibraryMirror.this) {
+						mSyncing = false;
+						// unless invalidated meanwhile
+						if (mLastSync >= 0) {
+							mLastSync = SystemClock.elapsedRealtime();
+						}
+					}
+				}
+			}
+		}.start();
+	}
+
+	/**
+	 * Brings one table up to date with XBMC.
+	 * @param client Library client of the current host
+	 * @param table  Table to sync
+	 * @return True if the table is complete, false if XBMC couldn't be asked.
+	 */
+	boolean sync(ILibraryClient client, Table table) {
+		final int generation;
+		synchronized (this) {
+			generation = mGeneration[table.database];
+		}
+		final SQLiteDatabase db = getWritableDatabase();
+		int localCount = -1;
+		int localMax = -1;
+		double localChecksum = 0;
+		final Cursor state = db.query(STATE_TABLE, new String[] { "count", "max_id", "checksum" }, "tbl = ?", new String[] { table.name }, null, null, null);
+		try {
+			if (state.moveToFirst()) {
+				localCount = state.getInt(0);
+				localMax = state.getInt(1);
+				localChecksum = state.getDouble(2);
+			}
+		} finally {
+			state.close();
+		}
+
+		final ArrayList<String[]> stats = client.query(sManagerStub, table.database, table.statsSql(localMax), 4);
+		if (stats.isEmpty()) {
+			return false;
+		}
+		final int count = parseInt(stats.get(0)[0]);
+		final int newer = Math.max(parseInt(stats.get(0)[2]), 0);
+		final double checksum = parseDouble(stats.get(0)[3]);
+
+		// rows we already have are unchanged, so at most new ones were added
+		final boolean append = localCount >= 0 && count - newer == localCount && Math.abs(checksum - localChecksum) < 0.5;
+		if (append && newer == 0) {
+			return true;
+		}
+		int last = -1;
+		if (append) {
+			last = localMax;
+		} else {
+			db.beginTransaction();
+			try {
+				db.delete(STATE_TABLE, "tbl = ?", new String[] { table.name });
+				db.delete(table.name, null, null);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		}
+
+		final ContentValues values = new ContentValues();
+		while (true) {
+			final ArrayList<String[]> rows = client.query(sManagerStub, table.database, table.fetchSql(last), table.columns.length);
+			if (rows.isEmpty()) {
+				break;
+			}
+			db.beginTransaction();
+			try {
+				for (String[] row : rows) {
+					values.clear();
+					for (int i = 0; i < table.columns.length; i++) {
+						// the HTTP API returns NULL as empty field
+						if (row[i].length() == 0 && !table.isText(i)) {
+							values.putNull(table.columns[i]);
+						} else {
+							values.put(table.columns[i], row[i]);
+						}
+					}
+					db.replace(table.name, null, values);
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+			last = parseInt(rows.get(rows.size() - 1)[0]);
+			if (rows.size() < FETCH_SIZE) {
+				break;
+			}
+		}
+
+		// only mark as synced if we got everything, otherwise next sync starts over
+		final Cursor local = db.rawQuery(table.localStatsSql(), null);
+		try {
+			local.moveToFirst();
+			if (local.getInt(0) != count) {
+				Log.w(TAG, "Table " + table.name + " has " + local.getInt(0) + " rows instead of " + count + ", resyncing next time.");
+				db.delete(STATE_TABLE, "tbl = ?", new String[] { table.name });
+				return false;
+			}
+			final boolean invalidated;
+			synchronized (this) {
+				invalidated = generation != mGeneration[table.database];
+			}
+			values.clear();
+			values.put("tbl", table.name);
+			// XBMC changed while we fetched, so make sure to fetch again
+			values.put("count", invalidated ? -1 : local.getInt(0));
+			values.put("max_id", local.isNull(1) ? -1 : local.getInt(1));
+			values.put("checksum", local.getDouble(2));
+			values.put("synced", System.currentTimeMillis());
+			db.replace(STATE_TABLE, null, values);
+		} finally {
+			local.close();
+		}
+		Log.i(TAG, "Synced " + count + " rows of " + table.name + (append ? ", " + newer + " new." : "."));
+		return true;
+	}
+
+	/**
+	 * Returns true if the table is completely mirrored and can be read.
+	 * @param table
+	 * @return
+	 */
+	public boolean isSynced(Table table) {
+		final Cursor cursor = getReadableDatabase().query(STATE_TABLE, new String[] { "tbl" }, "tbl = ?", new String[] { table.name }, null, null, null);
+		try {
+			return cursor.getCount() > 0;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads rows of a mirrored table.
+	 * @param table   Table to read
+	 * @param where   Condition or null for all rows
+	 * @param orderBy ORDER BY clause including the keyword, or empty string
+	 * @param offset  Number of rows to skip
+	 * @param limit   Number of rows to return, -1 for all.
+	 * @param mapper  Converts a row into an object
+	 * @return Mapped rows or null if the table isn't synced.
+	 */
+	public <T> ArrayList<T> query(Table table, String where, String orderBy, int offset, int limit, CursorMapper<T> mapper) {
+		if (!isSynced(table)) {
+			return null;
+		}
+		final StringBuilder sb = new StringBuilder("SELECT ");
+		for (int i = 0; i < table.columns.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(table.columns[i]);
+		}
+		sb.append(" FROM ");
+		sb.append(table.name);
+		if (where != null) {
+			sb.append(" WHERE ");
+			sb.append(where);
+		}
+		if (limit >= 0) {
+			sb.append(orderBy.length() == 0 ? " ORDER BY " : orderBy + ", ");
+			sb.append(table.id);
+			sb.append(" LIMIT ");
+			sb.append(limit);
+			sb.append(" OFFSET ");
+			sb.append(offset);
+		} else {
+			sb.append(orderBy);
+		}
+		final Cursor cursor = getReadableDatabase().rawQuery(sb.toString(), null);
+		try {
+			final ArrayList<T> list = new ArrayList<T>(cursor.getCount());
+			while (cursor.moveToNext()) {
+				list.add(mapper.map(cursor));
+			}
+			return list;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Returns all albums, same as {@link MusicClient#getAlbums(INotifiableManager, int, String, int, int)}.
+	 * @return Albums or null if not synced.
+	 */
+	public ArrayList<Album> getAlbums(int sortBy, String sortOrder, int offset, int limit) {
+		return query(ALBUMS, null, MusicClient.albumsOrderBy(sortBy, sortOrder), offset, limit, ALBUM_MAPPER);
+	}
+
+	/**
+	 * Returns all albums of an artist.
+	 * @return Albums or null if not synced.
+	 */
+	public ArrayList<Album> getAlbums(Artist artist, int sortBy, String sortOrder) {
+		return query(ALBUMS, "idArtist = " + artist.id, MusicClient.albumsOrderBy(sortBy, sortOrder), 0, -1, ALBUM_MAPPER);
+	}
+
+	/**
+	 * Returns all songs of an album.
+	 * @return Songs or null if not synced.
+	 */
+	public ArrayList<Song> getSongs(Album album, int sortBy, String sortOrder) {
+		return query(SONGS, "idAlbum = " + album.id, MusicClient.songsOrderBy(sortBy, sortOrder), 0, -1, SONG_MAPPER);
+	}
+
+	/**
+	 * Returns all artists, not only album artists.
+	 * @return Artists or null if not synced.
+	 */
+	public ArrayList<Artist> getArtists() {
+		return query(ARTISTS, null, " ORDER BY upper(strArtist), strArtist", 0, -1, ARTIST_MAPPER);
+	}
+
+	/**
+	 * Returns all music genres.
+	 * @return Genres or null if not synced.
+	 */
+	public ArrayList<Genre> getGenres() {
+		return query(GENRES, null, " ORDER BY upper(strGenre), strGenre", 0, -1, GENRE_MAPPER);
+	}
+
+	/**
+	 * Returns all movies, same as {@link VideoClient#getMovies(INotifiableManager, int, String, int, int, boolean)}.
+	 * @return Movies or null if not synced.
+	 */
+	public ArrayList<Movie> getMovies(int sortBy, String sortOrder, boolean hideWatched, int offset, int limit) {
+		final String orderBy = sortBy == SortType.DATE_ADDED ? " ORDER BY idFile " + sortOrder : VideoClient.moviesOrderBy(sortBy, sortOrder);
+		return query(MOVIES, hideWatched ? "playCount IS NULL OR playCount = 0" : null, orderBy, offset, limit, MOVIE_MAPPER);
+	}
+
+	private static int parseInt(String value) {
+		if (value == null || value.length() == 0) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static double parseDouble(String value) {
+		if (value == null || value.length() == 0) {
+			return -1.0;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			return -1.0;
+		}
+	}
+
+	private static String getString(Cursor cursor, int column) {
+		final String value = cursor.getString(column);
+		return value == null ? "" : value;
+	}
+
+	private static int getInt(Cursor cursor, int column) {
+		return parseInt(cursor.getString(column));
+	}
+
+	/**
+	 * Converts the current row of a cursor into an object.
+	 * @param <T> Type of the mapped object
+	 */
+	public interface CursorMapper<T> {
+		public T map(Cursor cursor);
+	}
+
+	public static final CursorMapper<Album> ALBUM_MAPPER = new CursorMapper<Album>() {
+		public Album map(Cursor c) {
+			return new Album(getInt(c, 0), getString(c, 1), getString(c, 2), getInt(c, 3), getString(c, 4));
+		}
+	};
+
+	public static final CursorMapper<Artist> ARTIST_MAPPER = new CursorMapper<Artist>() {
+		public Artist map(Cursor c) {
+			return new Artist(getInt(c, 0), getString(c, 1));
+		}
+	};
+
+	public static final CursorMapper<Genre> GENRE_MAPPER = new CursorMapper<Genre>() {
+		public Genre map(Cursor c) {
+			return new Genre(getInt(c, 0), getString(c, 1));
+		}
+	};
+
+	public static final CursorMapper<Song> SONG_MAPPER = new CursorMapper<Song>() {
+		public Song map(Cursor c) {
+			return new Song(getInt(c, 0), getString(c, 1), getString(c, 2), getString(c, 3), getInt(c, 4), getInt(c, 5), getString(c, 6), getString(c, 7), getString(c, 8));
+		}
+	};
+
+	public static final CursorMapper<Movie> MOVIE_MAPPER = new CursorMapper<Movie>() {
+		public Movie map(Cursor c) {
+			return new Movie(getInt(c, 0), getString(c, 1), getInt(c, 2), getString(c, 3), getString(c, 4), getString(c, 5), getString(c, 6), getString(c, 7), parseDouble(c.getString(8)), getInt(c, 9));
+		}
+	};
+
+	/**
+	 * Describes a mirrored table: where its rows come from in XBMC's database
+	 * and which columns are copied. A column can be given as "expression AS
+	 * name", the first column is the ID.
+	 */
+	public static class Table {
+
+		final String name;
+		final int database;
+		final String from;
+		final String condition;
+		final String checksum;
+		final String[] select;
+		final String[] columns;
+		final String id;
+
+		Table(String name, int database, String from, String condition, String checksum, String... select) {
+			this.name = name;
+			this.database = database;
+			this.from = from;
+			this.condition = condition;
+			this.checksum = checksum;
+			this.select = select;
+			columns = new String[select.length];
+			for (int i = 0; i < select.length; i++) {
+				final int as = select[i].indexOf(" AS ");
+				columns[i] = as < 0 ? select[i] : select[i].substring(as + 4);
+			}
+			id = columns[0];
+		}
+
+		/**
+		 * Returns true if the column holds text, as in XBMC's naming.
+		 */
+		boolean isText(int column) {
+			return columns[column].startsWith("str") || columns[column].matches("c\\d\\d");
+		}
+
+		String createSql() {
+			final StringBuilder sb = new StringBuilder("CREATE TABLE ");
+			sb.append(name);
+			sb.append(" (");
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(columns[i]);
+				sb.append(isText(i) ? " TEXT" : " INTEGER");
+				if (i == 0) {
+					sb.append(" PRIMARY KEY");
+				}
+			}
+			sb.append(")");
+			return sb.toString();
+		}
+
+		/**
+		 * Count, highest ID, number of rows above our highest ID and checksum
+		 * of the rest on XBMC's side.
+		 */
+		String statsSql(int localMax) {
+			final StringBuilder sb = new StringBuilder("SELECT COUNT(*), MAX(");
+			sb.append(select[0]);
+			sb.append("), SUM(");
+			sb.append(select[0]);
+			sb.append(" > ");
+			sb.append(localMax);
+			sb.append("), TOTAL(");
+			if (checksum != null) {
+				sb.append("CASE WHEN ");
+				sb.append(select[0]);
+				sb.append(" <= ");
+				sb.append(localMax);
+				sb.append(" THEN ");
+				sb.append(checksum);
+				sb.append(" END");
+			} else {
+				sb.append("0");
+			}
+			sb.append(") FROM ");
+			sb.append(from);
+			if (condition != null) {
+				sb.append(" WHERE ");
+				sb.append(condition);
+			}
+			return sb.toString();
+		}
+
+		String localStatsSql() {
+			return "SELECT COUNT(*), MAX(" + id + "), TOTAL(" + (checksum != null ? checksum : "0") + ") FROM " + name;
+		}
+
+		/**
+		 * Next page of rows after the given ID.
+		 */
+		String fetchSql(int after) {
+			final StringBuilder sb = new StringBuilder("SELECT ");
+			for (int i = 0; i < select.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(select[i]);
+			}
+			sb.append(" FROM ");
+			sb.append(from);
+			sb.append(" WHERE ");
+			if (condition != null) {
+				sb.append(condition);
+				sb.append(" AND ");
+			}
+			sb.append(select[0]);
+			sb.append(" > ");
+			sb.append(after);
+			sb.append(" ORDER BY ");
+			sb.append(select[0]);
+			sb.append(" LIMIT ");
+			sb.append(FETCH_SIZE);
+			return sb.toString();
+		}
+	}
+
+	private static final INotifiableManager sManagerStub = new INotifiableManager() {
+		public void onMessage(int code, String message) {
+		}
+		public void onMessage(String message) {
+		}
+		public void onError(Exception e) {
+			Log.w(TAG, "Error while syncing: " + e.getMessage());
+		}
+		public void onFinish(DataResponse<?> response) {
+		}
+		public void onWrongConnectionState(int state, Command<?> cmd) {
+		}
+		public void retryAll() {
+		}
+	};
+}
@@ -23,19 +23,17 @@ package org.xbmc.android.remote.business;
 
 import org.xbmc.api.presentation.INotifiableController;
 
-import android.os.Handler;
-import android.os.Looper;
-
 /**
- * Spawned on first access, then looping. Takes all HTTP API commands and
- * synchronously returns the result.
+ * Holds the managers, created on first access. Their commands are run by a
+ * {@link CommandExecutor}, which replaces the single looping thread all
+ * commands used to be queued on.
  * 
  * @author Team XBMC
  */
-public class ManagerThread extends Thread {
+public class ManagerThread {
 
 	private static ManagerThread sManagerThread;
-	private Handler mHandler;
+	private final CommandExecutor mExecutor = new CommandExecutor();
 	
 	private final InfoManager mInfoManager;
 	private final ControlManager mControlManager;
@@ -44,38 +42,34 @@ public class ManagerThread extends Thread {
 	private final TvShowManager mTvShowManager;
 	
 	private ManagerThread() {
-		super("ManagerThread");
 		mInfoManager = new InfoManager();
 		mControlManager = new ControlManager();
 		mMusicManager = new MusicManager();
 		mVideoManager = new VideoManager();
 		mTvShowManager = new TvShowManager();
+		mInfoManager.setExecutor(mExecutor);
+		mControlManager.setExecutor(mExecutor);
+		mMusicManager.setExecutor(mExecutor);
+		mVideoManager.setExecutor(mExecutor);
+		mTvShowManager.setExecutor(mExecutor);
 	}
-	public static ManagerThread get() {
+	public static synchronized ManagerThread get() {
 		if (sManagerThread == null) {
 			sManagerThread = new ManagerThread();
-			sManagerThread.start();
-			// thread must be entirely started
-			while (sManagerThread.mHandler == null) {
-				try {
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
 		}
 		return sManagerThread;
 	}
 	
-	public void run() {
-		Looper.prepare();
-		mHandler = new Handler();
-		mInfoManager.setHandler(mHandler);
-		mControlManager.setHandler(mHandler);
-		mMusicManager.setHandler(mHandler);
-		mVideoManager.setHandler(mHandler);
-		mTvShowManager.setHandler(mHandler);
-		Looper.loop();
+	public static CommandExecutor executor() {
+		return get().mExecutor;
+	}
+	
+	/**
+	 * Drops the queued commands of a controller which went away.
+	 * @param controller
+	 */
+	public static void cancel(INotifiableController controller) {
+		get().mExecutor.cancel(controller);
 	}
 	
 	public static InfoManager info(INotifiableController controller) {
@@ -21,9 +21,10 @@
 
 package org.xbmc.android.remote.business;
 
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
+import org.xbmc.android.util.Metrics;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.object.ICoverArt;
 import org.xbmc.api.presentation.INotifiableController;
@@ -35,9 +36,13 @@ import android.util.Log;
 /**
  * This thread asynchronously delivers memory-cached bitmaps.
  * 
- * The memory cache keeps small-size thumb bitmaps in a soft-referenced list.
- * This thread is directly accessed by the original HttpApi thread, through one
- * of its wrappers.
+ * The memory cache keeps small and medium thumb bitmaps in two LRU caches,
+ * each bounded by a share of the VM's heap. Covers which couldn't be
+ * downloaded are remembered for {@link #NOT_AVAILABLE_TTL}, so they aren't
+ * requested over and over again.
+ * <p/>
+ * All static methods are thread-safe and can be used directly by the disk
+ * and download threads.
  * 
  * @author Team XBMC
  */
@@ -46,17 +51,38 @@ class MemCacheThread extends AbstractThread {
 	private final static String TAG = "MemCacheThread";
 	private final static boolean DEBUG = AbstractManager.DEBUG;
 	
+	/**
+	 * How long a missing cover is remembered as missing (milliseconds)
+	 */
+	public static final long NOT_AVAILABLE_TTL = 5L * 60L * 1000L;
+	
+	/**
+	 * Maximal number of covers remembered as missing
+	 */
+	private static final int NOT_AVAILABLE_MAX = 1000;
+	
 	/**
 	 * Singleton instance of this thread
 	 */
 	protected static MemCacheThread sHttpApiThread;
 	
 	/**
-	 * The actual cache variable. Here are the thumbs stored. 
+	 * The actual cache variable. Here are the thumbs stored. Budgets are
+	 * relative to the heap size, which depends on the device.
 	 */
-	private static final HashMap<Long, SoftReference<Bitmap>> sCacheSmall = new HashMap<Long, SoftReference<Bitmap>>();
-	private static final HashMap<Long, SoftReference<Bitmap>> sCacheMedium = new HashMap<Long, SoftReference<Bitmap>>();
-	private static final HashMap<Long, Boolean> sNotAvailable = new HashMap<Long, Boolean>();
+	private static final BitmapCache sCacheSmall = new BitmapCache((int)(Runtime.getRuntime().maxMemory() / 16));
+	private static final BitmapCache sCacheMedium = new BitmapCache((int)(Runtime.getRuntime().maxMemory() / 8));
+	
+	/**
+	 * CRCs of missing covers, mapped to their expiration time. In insertion
+	 * order, so expired entries are at the beginning.
+	 */
+	private static final LinkedHashMap<Long, Long> sNotAvailable = new LinkedHashMap<Long, Long>();
+	private static int sNotAvailableHits = 0;
+	
+	private static final Metrics.Counter HITS = Metrics.counter("cover.mem.hit");
+	private static final Metrics.Counter MISSING = Metrics.counter("cover.mem.missing");
+	private static final Metrics.Counter MISSES = Metrics.counter("cover.mem.miss");
 
 	/**
 	 * Constructor is protected, use get().
@@ -78,29 +104,45 @@ class MemCacheThread extends AbstractThread {
 		}
 		mHandler.post(new Runnable() {
 			public void run() {
-				if (DEBUG) Log.i(TAG,  "[" + cover.getId() + "] Checking if cover in cache..");
 				if (cover != null) {
-					final long crc = cover.getCrc();
-					final SoftReference<Bitmap> ref = getCache(thumbSize).get(crc);
-			        if (ref != null) {
-			        	if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> In cache.");
-			        	response.value = ref.get();
-			        } else if (sNotAvailable.containsKey(crc)) {
-			        	if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> Marked as not-in-cache (" + crc + ").");
-			        	response.value = defaultCover;
-			        } else {
-			        	if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> Not in cache.");
-			        }
+					response.value = getCover(cover, thumbSize, defaultCover);
 				}
 				done(controller, response);
 			}
 		});
 	}
 	
-	private static HashMap<Long, SoftReference<Bitmap>> getCache(int thumbSize) {
+	private static BitmapCache getCache(int thumbSize) {
 		return (thumbSize == ThumbSize.MEDIUM) ? sCacheMedium : sCacheSmall;
 	}
 	
+	/**
+	 * Synchronously returns a thumb from the mem cache, the default cover if
+	 * the thumb is known to be missing, or null if not available.
+	 * 
+	 * @param cover        Which cover to return
+	 * @param thumbSize    Which size to return
+	 * @param defaultCover Returned if the cover is known to be missing
+	 * @return Bitmap or null if not available.
+	 */
+	public static Bitmap getCover(ICoverArt cover, int thumbSize, Bitmap defaultCover) {
+		final long crc = cover.getCrc();
+		if (DEBUG) Log.i(TAG,  "[" + cover.getId() + "] Checking if cover in cache..");
+		final Bitmap bitmap = getCover(cover, thumbSize);
+		if (bitmap != null) {
+			if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> In cache.");
+			HITS.inc();
+			return bitmap;
+		} else if (isNotAvailable(crc)) {
+			if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> Marked as not-in-cache (" + crc + ").");
+			MISSING.inc();
+			return defaultCover;
+		}
+		if (DEBUG) Log.i(TAG, "[" + cover.getId() + "] -> Not in cache.");
+		MISSES.inc();
+		return null;
+	}
+	
 	/**
 	 * Synchronously returns a thumb from the mem cache, or null 
 	 * if not available.
@@ -109,7 +151,10 @@ class MemCacheThread extends AbstractThread {
 	 * @return Bitmap or null if not available.
 	 */
 	public static Bitmap getCover(ICoverArt cover, int thumbSize) {
-		return getCache(thumbSize).get(cover.getCrc()).get();
+		if (thumbSize != ThumbSize.SMALL && thumbSize != ThumbSize.MEDIUM) {
+			return null;
+		}
+		return getCache(thumbSize).get(cover.getCrc());
 	}
 	
 	/**
@@ -118,7 +163,7 @@ class MemCacheThread extends AbstractThread {
 	 * @return True if thumb is in mem cache, false otherwise.
 	 */
 	public static boolean isInCache(ICoverArt cover, int thumbSize) {
-		return (thumbSize == ThumbSize.SMALL || thumbSize == ThumbSize.MEDIUM) && getCache(thumbSize).containsKey(cover.getCrc());
+		return (thumbSize == ThumbSize.SMALL || thumbSize == ThumbSize.MEDIUM) && getCache(thumbSize).contains(cover.getCrc());
 	}
 	
 	/**
@@ -129,10 +174,71 @@ class MemCacheThread extends AbstractThread {
 	public static void addCoverToCache(ICoverArt cover, Bitmap bitmap, int thumbSize) {
 		// if bitmap is null, add an entry to the sNotAvailable table so we can return the default bitmap later directly.
 		if (bitmap == null) {
-			sNotAvailable.put(cover.getCrc(), true);
+			setNotAvailable(cover.getCrc());
 		} else if (thumbSize == ThumbSize.SMALL || thumbSize == ThumbSize.MEDIUM) {
-			getCache(thumbSize).put(cover.getCrc(), new SoftReference<Bitmap>(bitmap));
+			getCache(thumbSize).put(cover.getCrc(), bitmap);
+		}
+	}
+	
+	/**
+	 * Checks if a cover is known to be missing. Expired entries are removed
+	 * on the way.
+	 * @param crc CRC of the cover
+	 * @return True if the cover is missing, false if unknown.
+	 */
+	private static boolean isNotAvailable(long crc) {
+		synchronized (sNotAvailable) {
+			final long now = System.currentTimeMillis();
+			purgeNotAvailable(now);
+			final Long expires = sNotAvailable.get(crc);
+			if (expires != null && expires > now) {
+				sNotAvailableHits++;
+				return true;
+			}
+			return false;
+		}
+	}
+	
+	private static void setNotAvailable(long crc) {
+		synchronized (sNotAvailable) {
+			final long now = System.currentTimeMillis();
+			sNotAvailable.remove(crc); // re-insert at the end
+			sNotAvailable.put(crc, now + NOT_AVAILABLE_TTL);
+			purgeNotAvailable(now);
+		}
+	}
+	
+	/**
+	 * Removes expired entries and, if still too large, the oldest ones.
+	 * Must be called while holding the lock on {@link #sNotAvailable}.
+	 * @param now Current time
+	 */
+	private static void purgeNotAvailable(long now) {
+		final Iterator<Long> it = sNotAvailable.values().iterator();
+		int size = sNotAvailable.size();
+		while (it.hasNext()) {
+			if (it.next() <= now || size > NOT_AVAILABLE_MAX) {
+				it.remove();
+				size--;
+			} else {
+				break;
+			}
+		}
+	}
+	
+
+	/**
+	 * Returns a human-readable summary of the cache usage.
+	 * @return Cache statistics
+	 */
+	public static String getStats() {
+		final int notAvailableHits;
+		final int notAvailable;
+		synchronized (sNotAvailable) {
+			notAvailableHits = sNotAvailableHits;
+			notAvailable = sNotAvailable.size();
 		}
+		return "Small: " + sCacheSmall + "; Medium: " + sCacheMedium + "; Missing: " + notAvailable + " covers, " + notAvailableHits + " hits";
 	}
 
 	/**
@@ -150,6 +256,7 @@ class MemCacheThread extends AbstractThread {
 	}
 	
 	public synchronized static void quit() {
+		Log.d(TAG, getStats());
 		if (sHttpApiThread != null) {
 			sHttpApiThread.mHandler.getLooper().quit();
 			sHttpApiThread = null;
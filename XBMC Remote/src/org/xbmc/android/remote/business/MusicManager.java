@@ -23,9 +23,11 @@ package org.xbmc.android.remote.business;
 
 import java.util.ArrayList;
 
+import org.xbmc.android.util.HostFactory;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IMusicManager;
 import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.business.ISortableManager;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IMusicClient;
@@ -34,6 +36,7 @@ import org.xbmc.api.info.PlayStatus;
 import org.xbmc.api.object.Album;
 import org.xbmc.api.object.Artist;
 import org.xbmc.api.object.Genre;
+import org.xbmc.api.object.Host;
 import org.xbmc.api.object.Song;
 import org.xbmc.api.type.SortType;
 import org.xbmc.httpapi.WifiStateException;
@@ -48,12 +51,24 @@ import android.content.Context;
  */
 public class MusicManager extends AbstractManager implements IMusicManager, ISortableManager, INotifiableManager {
 	
+	/**
+	 * XBMC's "show compilation artists" setting inverted, as last read, and
+	 * the host it was read from. Guarded by the class.
+	 */
+	private static Boolean sAlbumArtistsOnly = null;
+	private static int sAlbumArtistsOnlyHost = -1;
+	
+	@Override
+	public int getLibrary() {
+		return ResultCache.LIBRARY_MUSIC;
+	}
+	
 	/**
 	 * Gets all albums from database
 	 * @param response Response object
 	 */
 	public void getCompilations(final DataResponse<ArrayList<Album>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Album>>(response, this){
+		post(key("getCompilations"), new Command<ArrayList<Album>>("MusicManager.getCompilations", response, this){
 			@Override
 			public void doRun() throws Exception {
 				final IMusicClient mc = music(context);
@@ -68,10 +83,30 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void getAlbums(final DataResponse<ArrayList<Album>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Album>>(response, this) {
+		final int sortBy = getSortBy(SortType.ALBUM);
+		final String sortOrder = getSortOrder();
+		post(key("getAlbums", sortBy, sortOrder), new Command<ArrayList<Album>>("MusicManager.getAlbums", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				response.value = music(context).getAlbums(MusicManager.this, getSortBy(SortType.ALBUM), getSortOrder());
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Album> albums = mirror != null ? mirror.getAlbums(sortBy, sortOrder, 0, -1) : null;
+				response.value = albums != null ? albums : music(context).getAlbums(MusicManager.this, sortBy, sortOrder);
+			}
+		});
+	}
+	
+	/**
+	 * Gets all albums from database, page by page
+	 * @param response Response object, receives the first page
+	 */
+	public void getAlbums(final PagedResponse<Album> response, final Context context) {
+		final int sortBy = getSortBy(SortType.ALBUM);
+		final String sortOrder = getSortOrder();
+		getPaged("MusicManager.getAlbums", response, new Pager<Album>() {
+			public ArrayList<Album> getPage(int offset, int limit) throws Exception {
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Album> albums = mirror != null ? mirror.getAlbums(sortBy, sortOrder, offset, limit) : null;
+				return albums != null ? albums : music(context).getAlbums(MusicManager.this, sortBy, sortOrder, offset, limit);
 			}
 		});
 	}
@@ -82,7 +117,9 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 */
 	public ArrayList<Album> getAlbums(final Context context) {
 		try { //TODO fix this to throw 
-			return music(context).getAlbums(MusicManager.this, getSortBy(SortType.ALBUM), getSortOrder());
+			final LibraryMirror mirror = mirror(context);
+			final ArrayList<Album> albums = mirror != null ? mirror.getAlbums(getSortBy(SortType.ALBUM), getSortOrder(), 0, -1) : null;
+			return albums != null ? albums : music(context).getAlbums(MusicManager.this, getSortBy(SortType.ALBUM), getSortOrder());
 		} catch (WifiStateException e) {
 			e.printStackTrace();
 		}
@@ -95,16 +132,20 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param artist  Artist of the albums
 	 */
 	public void getAlbums(final DataResponse<ArrayList<Album>> response, final Artist artist, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getAlbums(MusicManager.this, artist, getSortBy(SortType.ALBUM), getSortOrder());
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Album>>(response, this){
+		final int sortBy = getSortBy(SortType.ALBUM);
+		final String sortOrder = getSortOrder();
+		post(key("getAlbums(artist)", artist.id, sortBy, sortOrder), new Command<ArrayList<Album>>("MusicManager.getAlbums", response, this){
 			@Override
 			public void doRun() throws Exception {
-				response.value = music(context).getAlbums(MusicManager.this, artist, getSortBy(SortType.ALBUM), getSortOrder());
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Album> albums = mirror != null ? mirror.getAlbums(artist, sortBy, sortOrder) : null;
+				response.value = albums != null ? albums : music(context).getAlbums(MusicManager.this, artist, sortBy, sortOrder);
 			}
 		});
 	}
@@ -115,15 +156,17 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param artist  Genre of the albums
 	 */
 	public void getAlbums(final DataResponse<ArrayList<Album>> response, final Genre genre, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getAlbums(MusicManager.this, genre, getSortBy(SortType.ALBUM), getSortOrder());
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Album>>(response, this) {
+		final int sortBy = getSortBy(SortType.ALBUM);
+		final String sortOrder = getSortOrder();
+		post(key("getAlbums(genre)", genre.id, sortBy, sortOrder), new Command<ArrayList<Album>>("MusicManager.getAlbums", response, this) {
 			public void doRun() throws Exception{ 
-				response.value = music(context).getAlbums(MusicManager.this, genre, getSortBy(SortType.ALBUM), getSortOrder());
+				response.value = music(context).getAlbums(MusicManager.this, genre, sortBy, sortOrder);
 			}
 		});
 	}
@@ -134,15 +177,19 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Album
 	 */
 	public void getSongs(final DataResponse<ArrayList<Song>> response, final Album album, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getSongs(MusicManager.this, album, getSortBy(SortType.ARTIST), getSortOrder());
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Song>>(response, this) {
+		final int sortBy = getSortBy(SortType.TRACK);
+		final String sortOrder = getSortOrder();
+		post(key("getSongs(album)", album.id, sortBy, sortOrder), new Command<ArrayList<Song>>("MusicManager.getSongs", response, this) {
 			public void doRun() throws Exception{ 
-				response.value = music(context).getSongs(MusicManager.this, album, getSortBy(SortType.TRACK), getSortOrder());
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Song> songs = mirror != null ? mirror.getSongs(album, sortBy, sortOrder) : null;
+				response.value = songs != null ? songs : music(context).getSongs(MusicManager.this, album, sortBy, sortOrder);
 			}
 		});
 	}
@@ -153,15 +200,17 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Artist
 	 */
 	public void getSongs(final DataResponse<ArrayList<Song>> response, final Artist artist, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getSongs(MusicManager.this, artist, getSortBy(SortType.ARTIST), getSortOrder());
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Song>>(response, this) {
+		final int sortBy = getSortBy(SortType.ARTIST);
+		final String sortOrder = getSortOrder();
+		post(key("getSongs(artist)", artist.id, sortBy, sortOrder), new Command<ArrayList<Song>>("MusicManager.getSongs", response, this) {
 			public void doRun() throws Exception{ 
-				response.value = music(context).getSongs(MusicManager.this, artist, getSortBy(SortType.ARTIST), getSortOrder());
+				response.value = music(context).getSongs(MusicManager.this, artist, sortBy, sortOrder);
 			}
 		});
 	}
@@ -172,15 +221,47 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Genre
 	 */
 	public void getSongs(final DataResponse<ArrayList<Song>> response, final Genre genre, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getSongs(MusicManager.this, genre, getSortBy(SortType.ARTIST), getSortOrder());
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Song>>(response, this) {
+		final int sortBy = getSortBy(SortType.ARTIST);
+		final String sortOrder = getSortOrder();
+		post(key("getSongs(genre)", genre.id, sortBy, sortOrder), new Command<ArrayList<Song>>("MusicManager.getSongs", response, this) {
 			public void doRun() throws Exception{ 
-				response.value = music(context).getSongs(MusicManager.this, genre, getSortBy(SortType.ARTIST), getSortOrder());
+				response.value = music(context).getSongs(MusicManager.this, genre, sortBy, sortOrder);
+			}
+		});
+	}
+
+	/**
+	 * Gets all songs from an artist from database, page by page
+	 * @param response Response object, receives the first page
+	 * @param artist Artist
+	 */
+	public void getSongs(final PagedResponse<Song> response, final Artist artist, final Context context) {
+		final int sortBy = getSortBy(SortType.ARTIST);
+		final String sortOrder = getSortOrder();
+		getPaged("MusicManager.getSongs", response, new Pager<Song>() {
+			public ArrayList<Song> getPage(int offset, int limit) throws Exception {
+				return music(context).getSongs(MusicManager.this, artist, sortBy, sortOrder, offset, limit);
+			}
+		});
+	}
+	
+	/**
+	 * Gets all songs of a genre from database, page by page
+	 * @param response Response object, receives the first page
+	 * @param genre Genre
+	 */
+	public void getSongs(final PagedResponse<Song> response, final Genre genre, final Context context) {
+		final int sortBy = getSortBy(SortType.ARTIST);
+		final String sortOrder = getSortOrder();
+		getPaged("MusicManager.getSongs", response, new Pager<Song>() {
+			public ArrayList<Song> getPage(int offset, int limit) throws Exception {
+				return music(context).getSongs(MusicManager.this, genre, sortBy, sortOrder, offset, limit);
 			}
 		});
 	}
@@ -190,7 +271,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void getArtists(final DataResponse<ArrayList<Artist>> response, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				boolean albumArtistsOnly;
 //				try {
@@ -202,21 +283,45 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 //				}
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Artist>>(response, this) {
+		// the setting decides which artists are returned, so the last known value is part of the key.
+		final Boolean known = getAlbumArtistsOnly();
+		post(key("getArtists", known), new Command<ArrayList<Artist>>("MusicManager.getArtists", response, this) {
 			public void doRun() throws Exception{ 
-				final boolean albumArtistsOnly = !info(context).getGuiSettingBool(MusicManager.this, GuiSettings.MusicLibrary.SHOW_COMPLATION_ARTISTS);
-				response.value = music(context).getArtists(MusicManager.this, albumArtistsOnly);
+				// read again on every miss, a changed setting is used from the next query on
+				final boolean current = !info(context).getGuiSettingBool(MusicManager.this, GuiSettings.MusicLibrary.SHOW_COMPLATION_ARTISTS);
+				setAlbumArtistsOnly(current);
+				final boolean albumArtistsOnly = known != null ? known.booleanValue() : current;
+				// the mirror has all artists, album artists only are still filtered by XBMC
+				final LibraryMirror mirror = albumArtistsOnly ? null : mirror(context);
+				final ArrayList<Artist> artists = mirror != null ? mirror.getArtists() : null;
+				response.value = artists != null ? artists : music(context).getArtists(MusicManager.this, albumArtistsOnly);
 			}
 		});
 	}
 	
+	/**
+	 * Returns the last read "show compilation artists" setting of the
+	 * current host, inverted.
+	 * @return True if only album artists are shown, null if not read yet.
+	 */
+	private static synchronized Boolean getAlbumArtistsOnly() {
+		final Host host = HostFactory.host;
+		return host != null && host.id == sAlbumArtistsOnlyHost ? sAlbumArtistsOnly : null;
+	}
+	
+	private static synchronized void setAlbumArtistsOnly(boolean albumArtistsOnly) {
+		final Host host = HostFactory.host;
+		sAlbumArtistsOnly = albumArtistsOnly;
+		sAlbumArtistsOnlyHost = host != null ? host.id : -1;
+	}
+	
 	/**
 	 * Gets all artists with at least one song of a genre.
 	 * @param response Response object
 	 * @param genre Genre
 	 */
 	public void getArtists(final DataResponse<ArrayList<Artist>> response, final Genre genre, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				boolean albumArtistsOnly;
 //				try {
@@ -228,7 +333,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 //				}
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Artist>>(response, this) {
+		post(key("getArtists(genre)", genre.id), new Command<ArrayList<Artist>>("MusicManager.getArtists", response, this) {
 			public void doRun() throws Exception{ 
 				final boolean albumArtistsOnly = !info(context).getGuiSettingBool(MusicManager.this, GuiSettings.MusicLibrary.SHOW_COMPLATION_ARTISTS);
 				response.value = music(context).getArtists(MusicManager.this, genre, albumArtistsOnly);
@@ -241,15 +346,17 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void getGenres(final DataResponse<ArrayList<Genre>> response, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				response.value = music(context).getGenres(MusicManager.this);
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<ArrayList<Genre>>(response, this) {
+		post(key("getGenres"), new Command<ArrayList<Genre>>("MusicManager.getGenres", response, this) {
 			public void doRun() throws Exception{ 
-				response.value = music(context).getGenres(MusicManager.this);
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Genre> genres = mirror != null ? mirror.getGenres() : null;
+				response.value = genres != null ? genres : music(context).getGenres(MusicManager.this);
 			}
 		});
 	}
@@ -263,7 +370,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Album to add
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Album album, final Context context) {
-//		mHandler.post(new Runnable() {
+//		mExecutor.post(new Runnable() {
 //			public void run() { 
 //				final IMusicClient mc = music(context);
 //				final IControlClient cc = control(context);
@@ -273,7 +380,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 //				onFinish(response);
 //			}
 //		});
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -291,7 +398,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param genre Genre of songs to add
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Genre genre, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -308,7 +415,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Song to add
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Song song, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).addToPlaylist(MusicManager.this, song);
 			}
@@ -328,7 +435,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param song Song to play
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Album album, final Song song, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -376,7 +483,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param artist Artist
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Artist artist, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{  
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -395,7 +502,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param genre Genre
 	 */
 	public void addToPlaylist(final DataResponse<Boolean> response, final Artist artist, final Genre genre, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.addToPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -412,7 +519,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param position Position, starting with 0.
 	 */
 	public void setPlaylistSong(final DataResponse<Boolean> response, final int position, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.setPlaylistSong", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).setPlaylistPosition(MusicManager.this, position);
 			}
@@ -425,7 +532,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @return True on success, false otherwise.
 	 */
 	public void removeFromPlaylist(final DataResponse<Boolean> response, final int position, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.removeFromPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).removeFromPlaylist(MusicManager.this, position);
 			}
@@ -438,7 +545,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @return True on success, false otherwise.
 	 */
 	public void removeFromPlaylist(final DataResponse<Boolean> response, final String path, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.removeFromPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).removeFromPlaylist(MusicManager.this, path);
 			}
@@ -451,7 +558,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Album to play
 	 */
 	public void play(final DataResponse<Boolean> response, final Album album, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{ 
 				control(context).stop(MusicManager.this);
 				response.value = music(context).play(MusicManager.this, album, getSortBy(SortType.TRACK), getSortOrder());
@@ -465,7 +572,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param genre Genre of songs to play
 	 */
 	public void play(final DataResponse<Boolean> response, final Genre genre, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{ 
 				control(context).stop(MusicManager.this);
 				response.value = music(context).play(MusicManager.this, genre, getSortBy(SortType.ARTIST), getSortOrder());
@@ -479,7 +586,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param song Song to play
 	 */
 	public void play(final DataResponse<Boolean> response, final Song song, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{ 
 				control(context).stop(MusicManager.this);
 				response.value = music(context).play(MusicManager.this, song);
@@ -494,7 +601,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param song Song to play
 	 */
 	public void play(final DataResponse<Boolean> response, final Album album, final Song song, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{  
 				final IMusicClient mc = music(context);
 				final IControlClient cc = control(context);
@@ -525,7 +632,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param artist Artist whose songs to play
 	 */
 	public void play(final DataResponse<Boolean> response, final Artist artist, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{ 
 				control(context).stop(MusicManager.this);
 				response.value = music(context).play(MusicManager.this, artist, getSortBy(SortType.ALBUM), getSortOrder());
@@ -540,7 +647,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param genre  Genre filter
 	 */
 	public void play(final DataResponse<Boolean> response, final Artist artist, final Genre genre, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.play", response, this) {
 			public void doRun() throws Exception{ 
 				control(context).stop(MusicManager.this);
 				response.value = music(context).play(MusicManager.this, artist, genre);
@@ -554,7 +661,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void playlistNext(final DataResponse<Boolean> response, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("MusicManager.playlistNext", response, this) {
 			public void doRun() throws Exception{  
 				response.value = music(context).playNext(MusicManager.this);
 			}
@@ -566,7 +673,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void getPlaylist(final DataResponse<ArrayList<String>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<String>>(response, this) {
+		mExecutor.post(new Command<ArrayList<String>>("MusicManager.getPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).getPlaylist(MusicManager.this);
 				final String firstEntry = response.value.get(0);
@@ -582,7 +689,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param response Response object
 	 */
 	public void getPlaylistPosition(final DataResponse<Integer> response, final Context context) {
-		mHandler.post(new Command<Integer>(response, this) {
+		mExecutor.post(new Command<Integer>("MusicManager.getPlaylistPosition", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).getPlaylistPosition(MusicManager.this);
 			}
@@ -595,7 +702,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param album Album to update
 	 */
 	public void updateAlbumInfo(final DataResponse<Album> response, final Album album, final Context context) {
-		mHandler.post(new Command<Album>(response, this) {
+		mExecutor.post(new Command<Album>("MusicManager.updateAlbumInfo", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).updateAlbumInfo(MusicManager.this, album);
 			}
@@ -608,7 +715,7 @@ public class MusicManager extends AbstractManager implements IMusicManager, ISor
 	 * @param artist Artist to update
 	 */
 	public void updateArtistInfo(final DataResponse<Artist> response, final Artist artist, final Context context) {
-		mHandler.post(new Command<Artist>(response, this) {
+		mExecutor.post(new Command<Artist>("MusicManager.updateArtistInfo", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = music(context).updateArtistInfo(MusicManager.this, artist);
 			}
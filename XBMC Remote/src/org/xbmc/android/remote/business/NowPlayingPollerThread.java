@@ -21,8 +21,9 @@
 
 package org.xbmc.android.remote.business;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -31,20 +32,33 @@ import java.util.HashSet;
 
 import org.xbmc.android.util.Base64;
 import org.xbmc.android.util.ClientFactory;
+import org.xbmc.android.util.ConnectionFactory;
+import org.xbmc.android.util.HostFactory;
+import org.xbmc.android.util.Metrics;
 import org.xbmc.api.business.DataResponse;
+import org.xbmc.api.business.EventBus;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IControlClient.ICurrentlyPlaying;
 import org.xbmc.api.data.IInfoClient;
 import org.xbmc.api.info.PlayStatus;
+import org.xbmc.httpapi.BroadcastListener;
+import org.xbmc.httpapi.EnvelopeInputStream;
 import org.xbmc.httpapi.WifiStateException;
+import org.xbmc.jsonrpc.Notification;
+import org.xbmc.jsonrpc.TcpConnection;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
 import android.util.Log;
 
 /**
@@ -55,6 +69,15 @@ import android.util.Log;
  * Please remember to unsubscribe (e.g. onPause()) in order to avoid unnecessary
  * polling.
  * 
+ * If XBMC's broadcasts or JSON-RPC notifications reach us, the thread only
+ * polls when a playback event arrives and every {@link #RECONCILE_INTERVAL}
+ * milliseconds. In between,
+ * progress is counted up locally. Otherwise it falls back to polling every
+ * second.
+ * 
+ * How often is polled is decided by a {@link PollScheduler}, which also backs
+ * off when XBMC can't be reached.
+ * 
  * @author Team XBMC
  */
 public class NowPlayingPollerThread extends Thread {
@@ -71,6 +94,33 @@ public class NowPlayingPollerThread extends Thread {
 	public static final int MESSAGE_PLAYLIST_ITEM_CHANGED = 667;
 	public static final int MESSAGE_COVER_CHANGED = 668;
 	public static final int MESSAGE_PLAYSTATE_CHANGED = 669;
+	
+	/**
+	 * Delay between two progress updates in milliseconds
+	 */
+	private static final int POLL_INTERVAL = 1000;
+	
+	/**
+	 * Maximal time in milliseconds the interpolated state is trusted when
+	 * broadcasts are available.
+	 */
+	private static final int RECONCILE_INTERVAL = 10000;
+	
+	/**
+	 * Time in milliseconds the thread keeps running without subscribers, so
+	 * switching between activities doesn't restart it.
+	 */
+	private static final int IDLE_TIMEOUT = 30000;
+	
+	/**
+	 * Broadcasts are only used if the user agreed, since the listener sets
+	 * the broadcast port and level in XBMC's settings.
+	 */
+	private static final String PREF_USE_BROADCASTS = "setting_use_broadcasts";
+	
+	private static final Metrics.Histogram POLL_TIME = Metrics.histogram("poller.poll");
+	private static final Metrics.Counter POLL_ERRORS = Metrics.counter("poller.poll.errors");
+	private static final Metrics.Counter INTERPOLATED = Metrics.counter("poller.interpolated");
 
 	private IInfoClient mInfo;
 	private IControlClient mControl;
@@ -82,6 +132,49 @@ public class NowPlayingPollerThread extends Thread {
 	private int mPlayList = -1;
 	private int mPosition = -1;
 	
+	private BroadcastListener mBroadcastListener;
+	private TcpConnection mTcpConnection;
+	
+	/**
+	 * True as long as XBMC's broadcasts are received
+	 */
+	private volatile boolean mPushEnabled = false;
+	
+	/**
+	 * True as long as the JSON-RPC notification socket is open
+	 */
+	private volatile boolean mNotificationsEnabled = false;
+	
+	/**
+	 * Set by broadcast events, makes the thread poll instead of interpolate.
+	 */
+	private volatile boolean mRefresh = false;
+	
+	/**
+	 * Set by the manager stub when a request failed. Connection errors are
+	 * posted there instead of being thrown.
+	 */
+	private volatile boolean mErrorPosted = false;
+	
+	/**
+	 * When the last subscriber left, guarded by this.
+	 */
+	private long mUnusedSince = SystemClock.elapsedRealtime();
+	private boolean mStopped = false;
+	
+	private final PollScheduler mScheduler = new PollScheduler();
+	private final Context mContext;
+	
+	/**
+	 * Slows down polling while the screen is off.
+	 */
+	private final BroadcastReceiver mScreenReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			mScheduler.setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+		}
+	};
+	
 	/**
 	 * Since this one is kinda of its own, we use a stub as manager.
 	 * @TODO create some toats or at least logs instead of empty on* methods.
@@ -89,6 +182,7 @@ public class NowPlayingPollerThread extends Thread {
 	private final INotifiableManager mManagerStub;
 	
 	public NowPlayingPollerThread(final Context context){
+		mContext = context.getApplicationContext();
   	  	mManagerStub = new INotifiableManager() {
 			public void onMessage(int code, String message) { }
 			public void onMessage(String message) { }
@@ -100,6 +194,7 @@ public class NowPlayingPollerThread extends Thread {
 					Log.e(TAG, e.getMessage());
 				}
 				e.printStackTrace();
+				mErrorPosted = true;
 			}
 			public void onFinish(DataResponse<?> response) {
 			}
@@ -119,20 +214,132 @@ public class NowPlayingPollerThread extends Thread {
 			mInfo = null;
 		}
   	  	mSubscribers = new HashSet<Handler>();
+  	  	mBroadcastListener = null;
+  	  	if (PreferenceManager.getDefaultSharedPreferences(mContext).getBoolean(PREF_USE_BROADCASTS, false)) {
+  	  		try {
+  	  			mBroadcastListener = ClientFactory.getBroadcastListener(mManagerStub, context);
+  	  			mBroadcastListener.getEventBus().subscribe(mBroadcastObserver);
+  	  			mPushEnabled = mBroadcastListener.isAvailable();
+  	  		} catch (WifiStateException e) {
+  	  			mBroadcastListener = null;
+  	  		}
+  	  	}
+  	  	try {
+  	  		mTcpConnection = ClientFactory.getTcpConnection(context);
+  	  		mTcpConnection.getNotifications().subscribe(mNotificationObserver);
+  	  		mNotificationsEnabled = mTcpConnection.isConnected();
+  	  	} catch (WifiStateException e) {
+  	  		mTcpConnection = null;
+  	  	}
+  	  	final IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+  	  	filter.addAction(Intent.ACTION_SCREEN_OFF);
+  	  	mContext.registerReceiver(mScreenReceiver, filter);
 	}
 	
-	public synchronized void subscribe(Handler handler) {
-		// update handler on the state of affairs
-		final ICurrentlyPlaying currPlaying = mControl.getCurrentlyPlaying(mManagerStub);
-		sendSingleMessage(handler, MESSAGE_PROGRESS_CHANGED, currPlaying);
-		sendSingleMessage(handler, MESSAGE_PLAYLIST_ITEM_CHANGED, currPlaying);
-		sendSingleMessage(handler, MESSAGE_COVER_CHANGED, currPlaying);
-		
-		mSubscribers.add(handler);
+	/**
+	 * Receives XBMC's broadcasts. Anything related to playback wakes up the
+	 * thread in order to poll the new state.
+	 */
+	private final EventBus.Listener<BroadcastListener.Event> mBroadcastObserver = new EventBus.Listener<BroadcastListener.Event>() {
+		public void onEvent(BroadcastListener.Event event) {
+			switch (event.id) {
+				case BroadcastListener.EVENT_AVAILABLE:
+					mPushEnabled = true;
+					break;
+				case BroadcastListener.EVENT_ERROR:
+				case BroadcastListener.EVENT_TIMEOUT:
+					mPushEnabled = false;
+					break;
+				case BroadcastListener.EVENT_UNKNOWN:
+				case BroadcastListener.EVENT_ON_ACTION:
+				case BroadcastListener.EVENT_ON_PROGRESS_CHANGED:
+					return;
+			}
+			refresh();
+		}
+	};
+	
+	/**
+	 * Receives XBMC's JSON-RPC notifications, same as broadcasts.
+	 */
+	private final EventBus.Listener<Notification> mNotificationObserver = new EventBus.Listener<Notification>() {
+		public void onEvent(Notification notification) {
+			if (Notification.CONNECTED.equals(notification.method)) {
+				mNotificationsEnabled = true;
+			} else if (Notification.DISCONNECTED.equals(notification.method)) {
+				mNotificationsEnabled = false;
+			} else if (!notification.isPlaybackEvent()) {
+				return;
+			}
+			refresh();
+		}
+	};
+	
+	/**
+	 * Returns true if XBMC tells us about changes, so we don't need to poll.
+	 * @return True if broadcasts or notifications are received
+	 */
+	private boolean isPushEnabled() {
+		return mPushEnabled || mNotificationsEnabled;
+	}
+	
+	/**
+	 * Makes the thread poll XBMC as soon as possible.
+	 */
+	public void refresh() {
+		mRefresh = true;
+		mScheduler.wake();
+	}
+	
+	/**
+	 * Returns the scheduler, so controllers can report user interaction.
+	 * @return Poll scheduler of this thread
+	 */
+	public PollScheduler getScheduler() {
+		return mScheduler;
+	}
+	
+	public void subscribe(Handler handler) {
+		synchronized (this) {
+			if (!mStopped) {
+				// update handler on the state of affairs
+				final ICurrentlyPlaying currPlaying = mControl.getCurrentlyPlaying(mManagerStub);
+				sendSingleMessage(handler, MESSAGE_PROGRESS_CHANGED, currPlaying);
+				sendSingleMessage(handler, MESSAGE_PLAYLIST_ITEM_CHANGED, currPlaying);
+				sendSingleMessage(handler, MESSAGE_COVER_CHANGED, currPlaying);
+				
+				mSubscribers.add(handler);
+				return;
+			}
+		}
+		// stopped in the meantime, so go to the next one.
+		ConnectionFactory.getNowPlayingPoller(mContext).subscribe(handler);
 	}
 	
 	public synchronized void unSubscribe(Handler handler){
 		mSubscribers.remove(handler);
+		if (mSubscribers.isEmpty()) {
+			mUnusedSince = SystemClock.elapsedRealtime();
+		}
+	}
+	
+	/**
+	 * Returns true if the thread stopped or is about to, because nobody
+	 * subscribed for a while.
+	 */
+	public synchronized boolean isStopped() {
+		return mStopped || !isAlive();
+	}
+	
+	/**
+	 * Stops the thread if it had no subscribers for a while.
+	 * @return True if the thread should end.
+	 */
+	private synchronized boolean stopIfUnused() {
+		if (mSubscribers.isEmpty() && SystemClock.elapsedRealtime() - mUnusedSince > IDLE_TIMEOUT) {
+			mStopped = true;
+		}
+		return mStopped;
 	}
 	
 	public synchronized Bitmap getNowPlayingCover(){
@@ -165,26 +372,78 @@ public class NowPlayingPollerThread extends Thread {
 	}
 	
 	public void run() {
+		try {
+			poll();
+		} finally {
+			if (mBroadcastListener != null) {
+				mBroadcastListener.getEventBus().unsubscribe(mBroadcastObserver);
+			}
+			if (mTcpConnection != null) {
+				mTcpConnection.getNotifications().unsubscribe(mNotificationObserver);
+				ClientFactory.releaseTcpConnection();
+			}
+			mContext.unregisterReceiver(mScreenReceiver);
+			Log.i(TAG, "Polled " + mScheduler);
+		}
+	}
+	
+	/**
+	 * Loops until the thread gets interrupted.
+	 */
+	private void poll() {
 		String lastPos = "-1";
 		int lastPlayStatus = PlayStatus.UNKNOWN;
 		int currentPlayStatus = PlayStatus.UNKNOWN;
 		int currentMediaType = 0;
 		IControlClient control = mControl; // use local reference for faster access
 		HashSet<Handler> subscribers = mSubscribers;
-		while (!isInterrupted() ) {
-			if (subscribers.size() > 0){
+		ICurrentlyPlaying lastPlaying = null;
+		long lastPoll = 0;
+		while (!isInterrupted() && !stopIfUnused()) {
+			mScheduler.setHost(HostFactory.host);
+			final long now = SystemClock.elapsedRealtime();
+			if (subscribers.size() > 0 && lastPlaying != null && isPushEnabled() && !mRefresh && now - lastPoll < RECONCILE_INTERVAL) {
+				// nothing announced, so count up locally
+				INTERPOLATED.inc();
+				if (currentPlayStatus == PlayStatus.PLAYING) {
+					final InterpolatedPlaying interpolated = new InterpolatedPlaying(lastPlaying, (int)((now - lastPoll) / 1000));
+					sendMessage(MESSAGE_PROGRESS_CHANGED, interpolated);
+					if (lastPlaying.getDuration() > 0 && interpolated.getTime() >= lastPlaying.getDuration()) {
+						mRefresh = true;
+					}
+				}
+			} else if (subscribers.size() > 0){
+				mRefresh = false;
 /*				if (!control.isConnected()) {
 					sendEmptyMessage(MESSAGE_CONNECTION_ERROR);
 				} else {*/
+					final long start = System.nanoTime();
 					ICurrentlyPlaying currPlaying;
+					mErrorPosted = false;
 					try{
 						 currPlaying = control.getCurrentlyPlaying(mManagerStub);
 					} catch(Exception e) {
 						e.printStackTrace();
-						sendEmptyMessage(MESSAGE_CONNECTION_ERROR);
-						return;
+						currPlaying = null;
 					}
+					if (currPlaying == null || mErrorPosted) {
+						// connection errors come back as "nothing playing", only the manager knows.
+						POLL_ERRORS.inc();
+						// only tell subscribers once, then retry less and less often
+						mScheduler.onError();
+						if (mScheduler.getErrorCount() == 1) {
+							sendEmptyMessage(MESSAGE_CONNECTION_ERROR);
+						}
+						if (!pause()) {
+							return;
+						}
+						continue;
+					}
+					mScheduler.onSuccess();
+					lastPlaying = currPlaying;
+					lastPoll = now;
 					currentPlayStatus = currPlaying.getPlayStatus();
+					mScheduler.setPlaying(currentPlayStatus == PlayStatus.PLAYING);
 					String currentPos = currPlaying.getTitle() + currPlaying.getDuration();
 					
 					// send changed status
@@ -220,12 +479,7 @@ public class NowPlayingPollerThread extends Thread {
 			  	  				if (!downloadURI.equals(mCoverPath)) {
 			  	  					mCoverPath = downloadURI;
 			  	  					
-			  	  					byte[] buffer = download(downloadURI);
-			  	  					
-			  	  					if (buffer == null || buffer.length == 0)
-			  	  						mCover = null;
-			  	  					else 
-			  	  						mCover = BitmapFactory.decodeByteArray(buffer, 0, buffer.length);
+			  	  					mCover = download(downloadURI);
 
 			  	  					for (Handler handler : subscribers) {
 			  	  						sendSingleMessage(handler, MESSAGE_COVER_CHANGED, currPlaying);
@@ -248,35 +502,83 @@ public class NowPlayingPollerThread extends Thread {
 			  	  			Log.e(TAG, Log.getStackTraceString(e));
 			  	  		}
 					}
+					POLL_TIME.recordSince(start);
 				}
 //			}
-			try {
-				sleep(1000);
-			} catch (InterruptedException e) {
-				sendEmptyMessage(MESSAGE_RECONFIGURE);
+			if (!pause()) {
 				return;
 			}
 			lastPlayStatus = currentPlayStatus;
 		}
 	}
 	
-	private byte[] download(String pathToDownload) {
+	/**
+	 * Waits until the next update. With broadcasts or notifications, progress is updated every
+	 * second since interpolating is free.
+	 * @return False if the thread was interrupted, true otherwise.
+	 */
+	private boolean pause() {
+		final boolean interpolate = isPushEnabled() && mScheduler.getErrorCount() == 0;
+		try {
+			mScheduler.await(interpolate ? Math.min(POLL_INTERVAL, mScheduler.getInterval()) : mScheduler.getInterval());
+			return true;
+		} catch (InterruptedException e) {
+			sendEmptyMessage(MESSAGE_RECONFIGURE);
+			return false;
+		}
+	}
+	
+	/**
+	 * Downloads and decodes the cover, which comes base64-encoded from the
+	 * HTTP API. Everything is decoded while being received.
+	 * @param pathToDownload URL of the cover
+	 * @return Cover or null if not available.
+	 */
+	private Bitmap download(String pathToDownload) {
+		InputStream is = null;
 		try {
 			final URL url = new URL(pathToDownload);
 			final URLConnection uc = url.openConnection();
-			
-			final BufferedReader rd = new BufferedReader(new InputStreamReader(uc.getInputStream()), 8192);
-			
-			final StringBuilder sb = new StringBuilder();
-			String line = "";
-			while ((line = rd.readLine()) != null) {    
-				sb.append(line);
-			}
-			
-			rd.close();
-			return Base64.decode(sb.toString().replace("<html>", "").replace("</html>", ""));
+			is = new Base64.InputStream(new EnvelopeInputStream(new BufferedInputStream(uc.getInputStream(), 8192)), Base64.DECODE);
+			return BitmapFactory.decodeStream(is);
 		} catch (Exception e) {
 			return null;
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (IOException e) { }
+			}
+		}
+	}
+	
+	/**
+	 * Last polled state with the time advanced by the seconds passed since.
+	 */
+	private static class InterpolatedPlaying implements ICurrentlyPlaying {
+		private static final long serialVersionUID = 3203618409781432317L;
+		private final ICurrentlyPlaying mPolled;
+		private final int mTime;
+		public InterpolatedPlaying(ICurrentlyPlaying polled, int elapsed) {
+			mPolled = polled;
+			final int time = polled.getTime() + elapsed;
+			mTime = polled.getDuration() > 0 ? Math.min(time, polled.getDuration()) : time;
+		}
+		public int getTime() { return mTime; }
+		public float getPercentage() {
+			final int duration = mPolled.getDuration();
+			return duration > 0 ? mTime * 100f / duration : mPolled.getPercentage();
 		}
+		public int getPlayStatus() { return mPolled.getPlayStatus(); }
+		public int getMediaType() { return mPolled.getMediaType(); }
+		public boolean isPlaying() { return mPolled.isPlaying(); }
+		public int getPlaylistPosition() { return mPolled.getPlaylistPosition(); }
+		public String getFilename() { return mPolled.getFilename(); }
+		public String getTitle() { return mPolled.getTitle(); }
+		public int getDuration() { return mPolled.getDuration(); }
+		public String getArtist() { return mPolled.getArtist(); }
+		public String getAlbum() { return mPolled.getAlbum(); }
+		public int getHeight() { return mPolled.getHeight(); }
+		public int getWidth() { return mPolled.getWidth(); }
 	}
 }
@@ -0,0 +1,165 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import org.xbmc.api.object.Host;
+
+import android.os.SystemClock;
+
+/**
+ * Decides how long a polling thread waits before asking XBMC again.
+ *
+ * The host's poll interval is used while something is playing. Right after
+ * the user did something the interval is halved, when paused or stopped it's
+ * five times longer and while the screen is off ten times. After connection
+ * errors it doubles with every failed poll, up to a minute.
+ *
+ * The polling thread calls {@link #await(int)} between two polls, anything
+ * else can cut the wait short with {@link #wake()}.
+ *
+ * @author Team XBMC
+ */
+public class PollScheduler {
+
+	/**
+	 * Time in milliseconds after an interaction during which we poll faster
+	 */
+	private static final int INTERACTION_WINDOW = 10000;
+
+	private static final int MIN_INTERVAL = 250;
+	private static final int MAX_BACKOFF = 60000;
+	private static final int MAX_BACKOFF_SHIFT = 8;
+
+	private static final int IDLE_FACTOR = 5;
+	private static final int SCREEN_OFF_FACTOR = 10;
+
+	private volatile int mBaseInterval = Host.DEFAULT_POLL_INTERVAL;
+	private volatile boolean mPlaying = false;
+	private volatile boolean mScreenOn = true;
+	private volatile long mLastInteraction = 0;
+
+	private volatile int mErrors = 0;
+	private volatile int mPollCount = 0;
+
+	private boolean mWoken = false;
+	private final Object mLock = new Object();
+
+	/**
+	 * Takes the poll interval of a host, or the default if none is set.
+	 * @param host Current host, can be null.
+	 */
+	public void setHost(Host host) {
+		mBaseInterval = host != null && host.poll_interval > 0 ? Math.max(host.poll_interval, MIN_INTERVAL) : Host.DEFAULT_POLL_INTERVAL;
+	}
+
+	/**
+	 * Tells the scheduler that the user did something, so we poll faster for
+	 * a while and right now.
+	 */
+	public void onInteraction() {
+		mLastInteraction = SystemClock.elapsedRealtime();
+		wake();
+	}
+
+	public void setPlaying(boolean playing) {
+		mPlaying = playing;
+	}
+
+	public void setScreenOn(boolean screenOn) {
+		mScreenOn = screenOn;
+		if (screenOn) {
+			wake();
+		}
+	}
+
+	/**
+	 * Counts a successful poll and resets the backoff.
+	 */
+	public void onSuccess() {
+		mPollCount++;
+		mErrors = 0;
+	}
+
+	/**
+	 * Counts a failed poll, which doubles the interval until the next one.
+	 */
+	public void onError() {
+		mPollCount++;
+		mErrors++;
+	}
+
+	/**
+	 * Returns the time to wait until the next poll.
+	 * @return Interval in milliseconds
+	 */
+	public int getInterval() {
+		final int base = mBaseInterval;
+		final int errors = mErrors;
+		if (errors > 0) {
+			return (int)Math.min((long)base << Math.min(errors, MAX_BACKOFF_SHIFT), MAX_BACKOFF);
+		}
+		if (!mScreenOn) {
+			return base * SCREEN_OFF_FACTOR;
+		}
+		if (SystemClock.elapsedRealtime() - mLastInteraction < INTERACTION_WINDOW) {
+			return Math.max(base / 2, MIN_INTERVAL);
+		}
+		return mPlaying ? base : base * IDLE_FACTOR;
+	}
+
+	/**
+	 * Waits until the interval is over or someone calls {@link #wake()}.
+	 * @param interval Time to wait in milliseconds
+	 * @throws InterruptedException
+	 */
+	public void await(int interval) throws InterruptedException {
+		synchronized (mLock) {
+			if (!mWoken) {
+				mLock.wait(interval);
+			}
+			mWoken = false;
+		}
+	}
+
+	/**
+	 * Ends the current wait, or skips the next one if nobody is waiting.
+	 */
+	public void wake() {
+		synchronized (mLock) {
+			mWoken = true;
+			mLock.notify();
+		}
+	}
+
+	public int getPollCount() {
+		return mPollCount;
+	}
+
+	public int getErrorCount() {
+		return mErrors;
+	}
+
+	@Override
+	public String toString() {
+		return "every " + getInterval() + "ms, " + mPollCount + " polls, " + mErrors + " errors in a row";
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.business;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.xbmc.android.util.HostFactory;
+import org.xbmc.api.business.EventBus;
+import org.xbmc.api.object.Host;
+import org.xbmc.jsonrpc.Notification;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Keeps results of library queries which rarely change, like genres or
+ * artists, so going back and forth between screens doesn't ask XBMC every
+ * time.
+ *
+ * Results are cached by the key of the query (see
+ * {@link AbstractManager#key(String, Object...)}) for a time depending on
+ * the query method. Methods without a time aren't cached. The cache holds
+ * results of the current host only, and at most {@link #MAX_BYTES} bytes;
+ * the least recently used results are dropped first.
+ *
+ * Results of a library are dropped when XBMC says it changed. While a scan
+ * started through {@link ControlManager#updateLibrary} runs, results of its
+ * library aren't cached at all, since they may be outdated any moment.
+ *
+ * @author Team XBMC
+ */
+public class ResultCache implements EventBus.Listener<Notification> {
+
+	private static final String TAG = "ResultCache";
+
+	public static final int LIBRARY_NONE = 0;
+	public static final int LIBRARY_MUSIC = 1;
+	public static final int LIBRARY_VIDEO = 2;
+
+	/**
+	 * Maximal estimated size of all cached results in bytes
+	 */
+	public static final long MAX_BYTES = 2 * 1024 * 1024;
+
+	/**
+	 * Number of list elements measured for estimating the size of a list
+	 */
+	private static final int SAMPLE_SIZE = 16;
+
+	/**
+	 * Assumed sizes of an object header and a field in bytes
+	 */
+	private static final int OBJECT_BYTES = 16;
+	private static final int FIELD_BYTES = 8;
+
+	private static final long MINUTE = 60 * 1000;
+
+	/**
+	 * How long a scan is assumed to run if XBMC doesn't say it finished,
+	 * for instance without a TCP connection.
+	 */
+	private static final long SCAN_TIMEOUT = 10 * MINUTE;
+
+	private static ResultCache sInstance;
+
+	/**
+	 * Time to live in milliseconds by query method
+	 */
+	private final HashMap<String, Long> mTtls = new HashMap<String, Long>();
+
+	/**
+	 * Cached results by key, least recently used first. Also used as lock.
+	 */
+	private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	/**
+	 * Until when a scan runs, by library
+	 */
+	private final long[] mScanning = new long[3];
+
+	private int mBytes = 0;
+	private int mHostId = -1;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+
+	private ResultCache() {
+		setTtl("getGenres", 30 * MINUTE);
+		setTtl("getMovieGenres", 30 * MINUTE);
+		setTtl("getTvShowGenres", 30 * MINUTE);
+		setTtl("getArtists", 10 * MINUTE);
+		setTtl("getActors", 10 * MINUTE);
+		setTtl("getMovieActors", 10 * MINUTE);
+		setTtl("getTvShowActors", 10 * MINUTE);
+	}
+
+	public static synchronized ResultCache get() {
+		if (sInstance == null) {
+			sInstance = new ResultCache();
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Sets how long the results of a query method are kept.
+	 * @param method Method name as used in the key
+	 * @param ttl    Time in milliseconds, 0 to not cache the method.
+	 */
+	public void setTtl(String method, long ttl) {
+		synchronized (mEntries) {
+			if (ttl > 0) {
+				mTtls.put(method, ttl);
+			} else {
+				mTtls.remove(method);
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached result of a query.
+	 * @param key Key of the query
+	 * @return Result or null if not cached or expired.
+	 */
+	public Object get(String key) {
+		synchronized (mEntries) {
+			if (!mTtls.containsKey(method(key))) {
+				return null;
+			}
+			checkHost();
+			final Entry entry = mEntries.get(key);
+			if (entry == null) {
+				mMisses++;
+				return null;
+			}
+			if (entry.expires < SystemClock.elapsedRealtime()) {
+				remove(key);
+				mMisses++;
+				return null;
+			}
+			mHits++;
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Stores the result of a query, if its method is cached.
+	 * @param key     Key of the query
+	 * @param library Library the result belongs to, one of the LIBRARY_* constants
+	 * @param value   Result
+	 */
+	public void put(String key, int library, Object value) {
+		if (value == null) {
+			return;
+		}
+		final long bytes = estimateBytes(value);
+		synchronized (mEntries) {
+			final Long ttl = mTtls.get(method(key));
+			if (ttl == null || bytes > MAX_BYTES / 2) {
+				return;
+			}
+			checkHost();
+			if (mScanning[library] > SystemClock.elapsedRealtime()) {
+				return;
+			}
+			remove(key);
+			mEntries.put(key, new Entry(value, library, bytes, SystemClock.elapsedRealtime() + ttl));
+			mBytes += bytes;
+			// drop least recently used
+			for (Iterator<Entry> it = mEntries.values().iterator(); mBytes > MAX_BYTES && it.hasNext(); ) {
+				mBytes -= it.next().bytes;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops all results of a library.
+	 * @param library One of the LIBRARY_* constants
+	 */
+	public void invalidate(int library) {
+		synchronized (mEntries) {
+			for (Iterator<Entry> it = mEntries.values().iterator(); it.hasNext(); ) {
+				final Entry entry = it.next();
+				if (entry.library == library) {
+					mBytes -= entry.bytes;
+					it.remove();
+				}
+			}
+		}
+		if (AbstractManager.DEBUG) Log.i(TAG, "Invalidated library " + library);
+	}
+
+	/**
+	 * Stops caching results of a library until XBMC finished scanning it,
+	 * or {@link #SCAN_TIMEOUT} passed.
+	 * @param library One of the LIBRARY_* constants
+	 */
+	public void onScanStarted(int library) {
+		synchronized (mEntries) {
+			mScanning[library] = SystemClock.elapsedRealtime() + SCAN_TIMEOUT;
+		}
+		invalidate(library);
+	}
+
+	/**
+	 * Drops the results of a library when XBMC updated it.
+	 */
+	public void onEvent(Notification notification) {
+		final int library;
+		if (notification.method.startsWith("AudioLibrary.")) {
+			library = LIBRARY_MUSIC;
+		} else if (notification.method.startsWith("VideoLibrary.")) {
+			library = LIBRARY_VIDEO;
+		} else {
+			return;
+		}
+		if (notification.method.endsWith(".OnScanFinished")) {
+			synchronized (mEntries) {
+				mScanning[library] = 0;
+			}
+		}
+		invalidate(library);
+	}
+
+	public void clear() {
+		synchronized (mEntries) {
+			mEntries.clear();
+			mBytes = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (mEntries) {
+			return mEntries.size() + " results, " + (mBytes / 1024) + "K, " + mHits + " hits, " + mMisses + " misses";
+		}
+	}
+
+	/**
+	 * Empties the cache if the host changed. Needs the lock.
+	 */
+	private void checkHost() {
+		final Host host = HostFactory.host;
+		final int hostId = host != null ? host.id : -1;
+		if (hostId != mHostId) {
+			mEntries.clear();
+			mBytes = 0;
+			mScanning[LIBRARY_MUSIC] = mScanning[LIBRARY_VIDEO] = 0;
+			mHostId = hostId;
+		}
+	}
+
+	/**
+	 * Needs the lock.
+	 */
+	private void remove(String key) {
+		final Entry entry = mEntries.remove(key);
+		if (entry != null) {
+			mBytes -= entry.bytes;
+		}
+	}
+
+	/**
+	 * Estimates the memory used by a result: object headers, fields and
+	 * characters of strings. Lists are estimated by their first elements,
+	 * objects referenced by fields other than strings aren't counted.
+	 * @param value Result
+	 * @return Estimated size in bytes
+	 */
+	static long estimateBytes(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof String) {
+			return OBJECT_BYTES * 2 + ((String)value).length() * 2;
+		}
+		if (value instanceof Collection<?>) {
+			final Collection<?> collection = (Collection<?>)value;
+			long sampled = 0;
+			int n = 0;
+			for (Iterator<?> it = collection.iterator(); n < SAMPLE_SIZE && it.hasNext(); n++) {
+				sampled += estimateBytes(it.next());
+			}
+			final long elements = n == 0 ? 0 : sampled * collection.size() / n;
+			return OBJECT_BYTES * 2 + (long)collection.size() * FIELD_BYTES + elements;
+		}
+		long bytes = OBJECT_BYTES;
+		for (Class<?> c = value.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				bytes += FIELD_BYTES;
+				if (field.getType() == String.class) {
+					try {
+						field.setAccessible(true);
+						bytes += estimateBytes(field.get(value));
+					} catch (Exception e) {
+						// counted as reference only
+					}
+				}
+			}
+		}
+		return bytes;
+	}
+
+	private static String method(String key) {
+		final int end = key.indexOf('|');
+		return end < 0 ? key : key.substring(0, end);
+	}
+
+	private static class Entry {
+		final Object value;
+		final int library;
+		final long bytes;
+		final long expires;
+
+		Entry(Object value, int library, long bytes, long expires) {
+			this.value = value;
+			this.library = library;
+			this.bytes = bytes;
+			this.expires = expires;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.business.ISortableManager;
 import org.xbmc.api.business.ITvShowManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Actor;
 import org.xbmc.api.object.Episode;
 import org.xbmc.api.object.Genre;
@@ -18,13 +19,18 @@ import android.content.Context;
 
 public class TvShowManager extends AbstractManager implements ITvShowManager,
 		ISortableManager, INotifiableManager {
+	
+	@Override
+	public int getLibrary() {
+		return ResultCache.LIBRARY_VIDEO;
+	}
 
 	/**
 	 * Gets all tv shows actors from database
 	 * @param response Response object
 	 */
 	public void getTvShowActors(final DataResponse<ArrayList<Actor>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Actor>>(response, this) {
+		post(key("getTvShowActors"), new Command<ArrayList<Actor>>("TvShowManager.getTvShowActors", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = shows(context).getTvShowActors(TvShowManager.this);
@@ -37,7 +43,7 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param response Response object
 	 */
 	public void getTvShowGenres(final DataResponse<ArrayList<Genre>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Genre>>(response, this) {
+		post(key("getTvShowGenres"), new Command<ArrayList<Genre>>("TvShowManager.getTvShowGenres", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = shows(context).getTvShowGenres(TvShowManager.this);
@@ -50,10 +56,13 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param response Response object
 	 */
 	public void getTvShows(final DataResponse<ArrayList<TvShow>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<TvShow>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getTvShows", sortBy, sortOrder, hideWatched), new Command<ArrayList<TvShow>>("TvShowManager.getTvShows", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				response.value = shows(context).getTvShows(TvShowManager.this, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				response.value = shows(context).getTvShows(TvShowManager.this, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -103,10 +112,13 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param genre Genre of the tv shows
 	 */
 	public void getTvShows(final DataResponse<ArrayList<TvShow>> response, final Genre genre, final Context context) {
-		mHandler.post(new Command<ArrayList<TvShow>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getTvShows(genre)", genre.id, sortBy, sortOrder, hideWatched), new Command<ArrayList<TvShow>>("TvShowManager.getTvShows", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				response.value = shows(context).getTvShows(TvShowManager.this, genre, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				response.value = shows(context).getTvShows(TvShowManager.this, genre, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -117,10 +129,13 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param actor Actor of the tv shows
 	 */
 	public void getTvShows(DataResponse<ArrayList<TvShow>> response, final Actor actor, final Context context) {
-		mHandler.post(new Command<ArrayList<TvShow>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getTvShows(actor)", actor.id, sortBy, sortOrder, hideWatched), new Command<ArrayList<TvShow>>("TvShowManager.getTvShows", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				mResponse.value = shows(context).getTvShows(TvShowManager.this, actor, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				mResponse.value = shows(context).getTvShows(TvShowManager.this, actor, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -132,10 +147,13 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 */
 	public void getEpisodes(DataResponse<ArrayList<Episode>> response,
 			final TvShow show, final Context context) {
-		mHandler.post(new Command<ArrayList<Episode>>(response, this) {
+		final int sortBy = getSortBy(SortType.EPISODE_NUM);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getEpisodes(show)", show.id, sortBy, sortOrder, hideWatched), new Command<ArrayList<Episode>>("TvShowManager.getEpisodes", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				mResponse.value = shows(context).getEpisodes(TvShowManager.this, show, getSortBy(SortType.EPISODE_NUM), getSortOrder(), getHideWatched(context));
+				mResponse.value = shows(context).getEpisodes(TvShowManager.this, show, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -147,10 +165,11 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 */
 	public void getSeasons(DataResponse<ArrayList<Season>> response,
 			final TvShow show, final Context context) {
-		mHandler.post(new Command<ArrayList<Season>>(response, this) {
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getSeasons", show.id, hideWatched), new Command<ArrayList<Season>>("TvShowManager.getSeasons", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				mResponse.value = shows(context).getSeasons(TvShowManager.this, show, getHideWatched(context));
+				mResponse.value = shows(context).getSeasons(TvShowManager.this, show, hideWatched);
 			}
 		});
 	}
@@ -163,10 +182,13 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 */
 	public void getEpisodes(DataResponse<ArrayList<Episode>> response,
 			final TvShow show, final Season season, final Context context) {
-		mHandler.post(new Command<ArrayList<Episode>>(response, this) {
+		final int sortBy = getSortBy(SortType.EPISODE_NUM);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getEpisodes(season)", show.id, season.number, sortBy, sortOrder, hideWatched), new Command<ArrayList<Episode>>("TvShowManager.getEpisodes", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				mResponse.value = shows(context).getEpisodes(TvShowManager.this, show, season, getSortBy(SortType.EPISODE_NUM), getSortOrder(), getHideWatched(context));
+				mResponse.value = shows(context).getEpisodes(TvShowManager.this, show, season, sortBy, sortOrder, hideWatched);
 			}
 		});
 		
@@ -179,10 +201,29 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 */
 	public void getEpisodes(DataResponse<ArrayList<Episode>> response,
 			final Season season, final Context context) {
-		mHandler.post(new Command<ArrayList<Episode>>(response, this) {
+		final int sortBy = getSortBy(SortType.EPISODE_NUM);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getEpisodes(season only)", season.show.id, season.number, sortBy, sortOrder, hideWatched), new Command<ArrayList<Episode>>("TvShowManager.getEpisodes", response, this) {
 			@Override
 			public void doRun() throws Exception {
-				mResponse.value = shows(context).getEpisodes(TvShowManager.this, season, getSortBy(SortType.EPISODE_NUM), getSortOrder(), getHideWatched(context));
+				mResponse.value = shows(context).getEpisodes(TvShowManager.this, season, sortBy, sortOrder, hideWatched);
+			}
+		});
+	}
+
+	/**
+	 * Gets all episodes of a season from database, page by page
+	 * @param response Response object, receives the first page
+	 * @param season Season the returning episodes belong to
+	 */
+	public void getEpisodes(PagedResponse<Episode> response, final Season season, final Context context) {
+		final int sortBy = getSortBy(SortType.EPISODE_NUM);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		getPaged("TvShowManager.getEpisodes", response, new Pager<Episode>() {
+			public ArrayList<Episode> getPage(int offset, int limit) throws Exception {
+				return shows(context).getEpisodes(TvShowManager.this, season, sortBy, sortOrder, hideWatched, offset, limit);
 			}
 		});
 	}
@@ -193,7 +234,7 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param episode Episode to update
 	 */
 	public void updateEpisodeDetails(DataResponse<Episode> response, final Episode episode, final Context context) {
-		mHandler.post(new Command<Episode>(response, this) {
+		mExecutor.post(new Command<Episode>("TvShowManager.updateEpisodeDetails", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				mResponse.value = shows(context).updateEpisodeDetails(TvShowManager.this, episode);
@@ -207,7 +248,7 @@ public class TvShowManager extends AbstractManager implements ITvShowManager,
 	 * @param show TvShow to update
 	 */
 	public void updateTvShowDetails(DataResponse<TvShow> response, final TvShow show, final Context context) {
-		mHandler.post(new Command<TvShow>(response, this) {
+		mExecutor.post(new Command<TvShow>("TvShowManager.updateTvShowDetails", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				mResponse.value = shows(context).updateTvShowDetails(TvShowManager.this, show);
@@ -27,6 +27,7 @@ import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.business.ISortableManager;
 import org.xbmc.api.business.IVideoManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Actor;
 import org.xbmc.api.object.Genre;
 import org.xbmc.api.object.Movie;
@@ -42,13 +43,18 @@ import android.content.Context;
  */
 public class VideoManager extends AbstractManager implements IVideoManager, ISortableManager, INotifiableManager {
 	
+	@Override
+	public int getLibrary() {
+		return ResultCache.LIBRARY_VIDEO;
+	}
+	
 	/**
 	 * Updates the movie object with additional data (plot, cast, etc)
 	 * @param response Response object
 	 * @param movie Movie
 	 */
 	public void updateMovieDetails(final DataResponse<Movie> response, final Movie movie, final Context context) {
-		mHandler.post(new Command<Movie>(response, this) {
+		mExecutor.post(new Command<Movie>("VideoManager.updateMovieDetails", response, this) {
 			@Override
 			public void doRun() throws Exception {
 				response.value = video(context).updateMovieDetails(VideoManager.this, movie);
@@ -61,10 +67,32 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getMovies(final DataResponse<ArrayList<Movie>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Movie>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getMovies", sortBy, sortOrder, hideWatched), new Command<ArrayList<Movie>>("VideoManager.getMovies", response, this) {
 			@Override
 			public void doRun() throws Exception { 
-				response.value = video(context).getMovies(VideoManager.this, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Movie> movies = mirror != null ? mirror.getMovies(sortBy, sortOrder, hideWatched, 0, -1) : null;
+				response.value = movies != null ? movies : video(context).getMovies(VideoManager.this, sortBy, sortOrder, hideWatched);
+			}
+		});
+	}
+	
+	/**
+	 * Gets all movies from database, page by page
+	 * @param response Response object, receives the first page
+	 */
+	public void getMovies(final PagedResponse<Movie> response, final Context context) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		getPaged("VideoManager.getMovies", response, new Pager<Movie>() {
+			public ArrayList<Movie> getPage(int offset, int limit) throws Exception {
+				final LibraryMirror mirror = mirror(context);
+				final ArrayList<Movie> movies = mirror != null ? mirror.getMovies(sortBy, sortOrder, hideWatched, offset, limit) : null;
+				return movies != null ? movies : video(context).getMovies(VideoManager.this, sortBy, sortOrder, offset, limit, hideWatched);
 			}
 		});
 	}
@@ -75,7 +103,9 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 */
 	public ArrayList<Movie> getMovies(final Context context) {
 		try {
-			return video(context).getMovies(VideoManager.this, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+			final LibraryMirror mirror = mirror(context);
+			final ArrayList<Movie> movies = mirror != null ? mirror.getMovies(getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context), 0, -1) : null;
+			return movies != null ? movies : video(context).getMovies(VideoManager.this, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
 		} catch (WifiStateException e) {
 			e.printStackTrace();
 		}
@@ -101,10 +131,13 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param actor Actor
 	 */
 	public void getMovies(final DataResponse<ArrayList<Movie>> response, final Actor actor, final Context context) {
-		mHandler.post(new Command<ArrayList<Movie>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getMovies(actor)", actor.id, sortBy, sortOrder, hideWatched), new Command<ArrayList<Movie>>("VideoManager.getMovies", response, this) {
 			@Override
 			public void doRun() throws Exception { 
-				response.value = video(context).getMovies(VideoManager.this, actor, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				response.value = video(context).getMovies(VideoManager.this, actor, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -115,10 +148,13 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param genre Genre
 	 */
 	public void getMovies(final DataResponse<ArrayList<Movie>> response, final Genre genre, final Context context) {
-		mHandler.post(new Command<ArrayList<Movie>>(response, this) {
+		final int sortBy = getSortBy(SortType.TITLE);
+		final String sortOrder = getSortOrder();
+		final boolean hideWatched = getHideWatched(context);
+		post(key("getMovies(genre)", genre.id, sortBy, sortOrder, hideWatched), new Command<ArrayList<Movie>>("VideoManager.getMovies", response, this) {
 			@Override
 			public void doRun() throws Exception { 
-				response.value = video(context).getMovies(VideoManager.this, genre, getSortBy(SortType.TITLE), getSortOrder(), getHideWatched(context));
+				response.value = video(context).getMovies(VideoManager.this, genre, sortBy, sortOrder, hideWatched);
 			}
 		});
 	}
@@ -129,7 +165,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getActors(final DataResponse<ArrayList<Actor>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Actor>>(response, this) {
+		post(key("getActors"), new Command<ArrayList<Actor>>("VideoManager.getActors", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = video(context).getActors(VideoManager.this);
@@ -156,7 +192,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getMovieActors(final DataResponse<ArrayList<Actor>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Actor>>(response, this) {
+		post(key("getMovieActors"), new Command<ArrayList<Actor>>("VideoManager.getMovieActors", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = video(context).getMovieActors(VideoManager.this);
@@ -169,7 +205,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getTvShowActors(final DataResponse<ArrayList<Actor>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Actor>>(response, this) {
+		post(key("getTvShowActors"), new Command<ArrayList<Actor>>("VideoManager.getTvShowActors", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = video(context).getTvShowActors(VideoManager.this);
@@ -182,7 +218,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getMovieGenres(final DataResponse<ArrayList<Genre>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<Genre>>(response, this) {
+		post(key("getMovieGenres"), new Command<ArrayList<Genre>>("VideoManager.getMovieGenres", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				response.value = video(context).getMovieGenres(VideoManager.this);
@@ -197,7 +233,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 
 	public void getTvShowGenres(DataResponse<ArrayList<Genre>> response,
 			final Context context) {
-		mHandler.post(new Command<ArrayList<Genre>>(response, this) {
+		post(key("getTvShowGenres"), new Command<ArrayList<Genre>>("VideoManager.getTvShowGenres", response, this) {
 			@Override
 			public void doRun() throws Exception { 
 				mResponse.value = video(context).getTvShowGenres(VideoManager.this);
@@ -211,7 +247,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param position Position, starting with 0.
 	 */
 	public void setPlaylistVideo(final DataResponse<Boolean> response, final int position, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("VideoManager.setPlaylistVideo", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = video(context).setPlaylistPosition(VideoManager.this, position);
 			}
@@ -223,7 +259,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getPlaylist(final DataResponse<ArrayList<String>> response, final Context context) {
-		mHandler.post(new Command<ArrayList<String>>(response, this) {
+		mExecutor.post(new Command<ArrayList<String>>("VideoManager.getPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = video(context).getPlaylist(VideoManager.this);
 				final String firstEntry = response.value.get(0);
@@ -239,7 +275,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @param response Response object
 	 */
 	public void getPlaylistPosition(final DataResponse<Integer> response, final Context context) {
-		mHandler.post(new Command<Integer>(response, this) {
+		mExecutor.post(new Command<Integer>("VideoManager.getPlaylistPosition", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = video(context).getPlaylistPosition(VideoManager.this);
 			}
@@ -252,7 +288,7 @@ public class VideoManager extends AbstractManager implements IVideoManager, ISor
 	 * @return True on success, false otherwise.
 	 */
 	public void removeFromPlaylist(final DataResponse<Boolean> response, final String path, final Context context) {
-		mHandler.post(new Command<Boolean>(response, this) {
+		mExecutor.post(new Command<Boolean>("VideoManager.removeFromPlaylist", response, this) {
 			public void doRun() throws Exception{ 
 				response.value = video(context).removeFromPlaylist(VideoManager.this, path);
 			}
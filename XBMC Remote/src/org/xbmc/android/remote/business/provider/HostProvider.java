@@ -23,6 +23,8 @@ package org.xbmc.android.remote.business.provider;
 
 import java.util.HashMap;
 
+import org.xbmc.api.object.Host;
+
 import android.content.ContentProvider;
 import android.content.ContentUris;
 import android.content.ContentValues;
@@ -45,7 +47,7 @@ public class HostProvider extends ContentProvider {
 
 	public static final String AUTHORITY = "org.xbmc.android.provider.remote";
 
-	private static final int DATABASE_VERSION = 4;
+	private static final int DATABASE_VERSION = 5;
 	private static final String DATABASE_NAME = "xbmc_hosts.db";
 	private static final String HOSTS_TABLE_NAME = "hosts";
 
@@ -80,7 +82,8 @@ public class HostProvider extends ContentProvider {
 					+ Hosts.ACCESS_POINT + " TEXT,"
 					+ Hosts.MAC_ADDR + " TEXT,"
 					+ Hosts.WOL_PORT + " INTEGER,"
-					+ Hosts.WOL_WAIT + " INTEGER"
+					+ Hosts.WOL_WAIT + " INTEGER,"
+					+ Hosts.POLL_INTERVAL + " INTEGER"
 					+ ");");
 		}
 
@@ -112,6 +115,12 @@ public class HostProvider extends ContentProvider {
 				 + " INTEGER;";
 				 db.execSQL(altertable);
 				 Log.d(TAG, "executed: " + altertable);
+			case 4:
+				Log.d(TAG, "Upgrading database from version 4 to 5");
+				altertable = "ALTER TABLE " + HOSTS_TABLE_NAME + " ADD COLUMN " + Hosts.POLL_INTERVAL
+				+ " INTEGER DEFAULT " + Host.DEFAULT_POLL_INTERVAL + ";";
+				db.execSQL(altertable);
+				Log.d(TAG, "executed: " + altertable);
 				 
 				//WARNING!!! ADD A break; BEFORE THE DEFAULT BLOCK OF THE DATABASE WILL BE DROPPED!!! 
 				 break;
@@ -237,6 +246,9 @@ public class HostProvider extends ContentProvider {
 		if (values.containsKey(Hosts.WOL_WAIT) == false) {
 			values.put(Hosts.WOL_WAIT, 0);
 		}
+		if (values.containsKey(Hosts.POLL_INTERVAL) == false) {
+			values.put(Hosts.POLL_INTERVAL, Host.DEFAULT_POLL_INTERVAL);
+		}
 
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
 		long rowId = db.insert(HOSTS_TABLE_NAME, Hosts.ADDR, values);
@@ -311,6 +323,7 @@ public class HostProvider extends ContentProvider {
 		sHostsProjectionMap.put(Hosts.MAC_ADDR, Hosts.MAC_ADDR);
 		sHostsProjectionMap.put(Hosts.WOL_PORT, Hosts.WOL_PORT);
 		sHostsProjectionMap.put(Hosts.WOL_WAIT, Hosts.WOL_WAIT);
+		sHostsProjectionMap.put(Hosts.POLL_INTERVAL, Hosts.POLL_INTERVAL);
 	}
 
 	/**
@@ -417,6 +430,14 @@ public class HostProvider extends ContentProvider {
 		 * </P>
 		 */
 		public static final String WOL_PORT = "wol_port";
+		
+		/**
+		 * The time in milliseconds between two "Now playing" polls
+		 * <P>
+		 * Type: INTEGER
+		 * </P>
+		 */
+		public static final String POLL_INTERVAL = "poll_interval";
 
 		/**
 		 * The content:// style URL for this table
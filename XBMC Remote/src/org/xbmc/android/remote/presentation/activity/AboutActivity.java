@@ -29,11 +29,14 @@ import org.xbmc.api.business.IEventClientManager;
 import org.xbmc.eventclient.ButtonCodes;
 
 import android.app.Activity;
+import android.content.Intent;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.Bundle;
 import android.text.Html;
 import android.text.method.LinkMovementMethod;
 import android.view.KeyEvent;
+import android.view.View;
+import android.view.View.OnLongClickListener;
 import android.widget.TextView;
 
 public class AboutActivity extends Activity {
@@ -51,6 +54,13 @@ public class AboutActivity extends Activity {
 			final int versionCode = getPackageManager().getPackageInfo(getPackageName(), 0).versionCode;
 			((TextView)findViewById(R.id.about_version)).setText("v" + versionName);
 			((TextView)findViewById(R.id.about_revision)).setText("Revision " + versionCode);
+			// hidden entry to the metrics debug screen
+			findViewById(R.id.about_revision).setOnLongClickListener(new OnLongClickListener() {
+				public boolean onLongClick(View v) {
+					startActivity(new Intent(AboutActivity.this, MetricsActivity.class));
+					return true;
+				}
+			});
 			TextView message = (TextView)findViewById(R.id.about_url_message);
 			
 			message.setText(Html.fromHtml("Visit our project page at <a href=\"http://code.google.com/p/android-xbmcremote\">Google Code</a>."));
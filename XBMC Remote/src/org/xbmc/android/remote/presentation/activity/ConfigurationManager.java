@@ -21,6 +21,8 @@
 
 package org.xbmc.android.remote.presentation.activity;
 
+import org.xbmc.android.util.ImportUtilities;
+
 import android.app.Activity;
 import android.app.KeyguardManager;
 import android.content.Context;
@@ -32,6 +34,7 @@ import android.preference.PreferenceManager;
 class ConfigurationManager implements OnSharedPreferenceChangeListener {
 
 	public final static String PREF_KEYGUARD_DISABLED = "setting_disable_keyguard";
+	public final static String PREF_COVER_CACHE_SIZE = "setting_cover_cache_size";
 
 	public final static String KEYGUARD_STATUS_ENABLED = "0";
 	public final static String KEYGUARD_STATUS_REMOTE_ONLY = "1";
@@ -56,6 +59,7 @@ class ConfigurationManager implements OnSharedPreferenceChangeListener {
 		final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mActivity);
 		prefs.registerOnSharedPreferenceChangeListener(this);
 		mKeyguardState = Integer.parseInt(prefs.getString(PREF_KEYGUARD_DISABLED, KEYGUARD_STATUS_ENABLED));
+		applyCoverCacheSize(prefs);
 	}
 
 	public static ConfigurationManager getInstance(Activity activity) {
@@ -102,7 +106,24 @@ class ConfigurationManager implements OnSharedPreferenceChangeListener {
 				disableKeyguard(mActivity);
 			else
 				enableKeyguard();
+		} else if (key.equals(PREF_COVER_CACHE_SIZE)) {
+			applyCoverCacheSize(prefs);
+		}
+	}
+	
+	/**
+	 * Sets the disk cache quota, which is stored in megabytes.
+	 * @param prefs Preferences
+	 */
+	private static void applyCoverCacheSize(SharedPreferences prefs) {
+		final String def = String.valueOf(ImportUtilities.DEFAULT_CACHE_QUOTA / (1024 * 1024));
+		long megabytes;
+		try {
+			megabytes = Long.parseLong(prefs.getString(PREF_COVER_CACHE_SIZE, def));
+		} catch (NumberFormatException e) {
+			megabytes = Long.parseLong(def);
 		}
+		ImportUtilities.setCacheQuota(megabytes * 1024 * 1024);
 	}
 	
 	public void onActivityResume(Activity activity) {
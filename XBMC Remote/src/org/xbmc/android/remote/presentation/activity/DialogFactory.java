@@ -21,25 +21,21 @@
 
 package org.xbmc.android.remote.presentation.activity;
 
-import java.io.File;
 import java.util.ArrayList;
 
 import org.xbmc.android.remote.R;
-import org.xbmc.android.util.Crc32;
 import org.xbmc.android.util.ImportUtilities;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IMusicManager;
 import org.xbmc.api.object.Album;
 import org.xbmc.api.object.Artist;
 import org.xbmc.api.object.Song;
-import org.xbmc.api.type.MediaType;
 import org.xbmc.api.type.ThumbSize;
 
 import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.util.TypedValue;
 import android.view.Display;
 import android.view.Gravity;
@@ -154,9 +150,9 @@ public abstract class DialogFactory {
 			yearText.setVisibility(View.GONE);
 		}
 		
-        final File file = new File(ImportUtilities.getCacheDirectory(MediaType.getArtFolder(album.getMediaType()), ThumbSize.SMALL), Crc32.formatAsHexLowerCase(album.getCrc()));
-        if (file.exists()) {
-        	cover.setImageBitmap(BitmapFactory.decodeFile(file.getAbsolutePath()));
+        final Bitmap albumBitmap = ImportUtilities.getCoverFromCache(album, ThumbSize.SMALL);
+        if (albumBitmap != null) {
+        	cover.setImageBitmap(albumBitmap);
         }
         
 		trackTable.setScrollContainer(true);
@@ -217,20 +213,17 @@ public abstract class DialogFactory {
 		final TextView genresText = (TextView) dialog.findViewById(R.id.artist_genres);
 		final TextView biographyText = (TextView) dialog.findViewById(R.id.artist_biography);
 		
-        final File file = new File(ImportUtilities.getCacheDirectory(MediaType.getArtFolder(artist.getMediaType()), ThumbSize.MEDIUM), Crc32.formatAsHexLowerCase(artist.getCrc()));
-        if (file.exists()) {
-        	final Bitmap coverBitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
-        	if (coverBitmap != null) {
-        		cover.setImageBitmap(coverBitmap);
-        		
-        		// correct alignment if texts do not fit
-        		final Display display = activity.getWindowManager().getDefaultDisplay();
-        		final LinearLayout header = (LinearLayout) dialog.findViewById(R.id.LinearLayoutHeader);
-        		if (coverBitmap.getWidth() > display.getWidth() / 2) {
-        			header.setOrientation(LinearLayout.VERTICAL);
-        		} else {
-        			header.setOrientation(LinearLayout.HORIZONTAL);
-        		}
+        final Bitmap coverBitmap = ImportUtilities.getCoverFromCache(artist, ThumbSize.MEDIUM);
+        if (coverBitmap != null) {
+        	cover.setImageBitmap(coverBitmap);
+        	
+        	// correct alignment if texts do not fit
+        	final Display display = activity.getWindowManager().getDefaultDisplay();
+        	final LinearLayout header = (LinearLayout) dialog.findViewById(R.id.LinearLayoutHeader);
+        	if (coverBitmap.getWidth() > display.getWidth() / 2) {
+        		header.setOrientation(LinearLayout.VERTICAL);
+        	} else {
+        		header.setOrientation(LinearLayout.HORIZONTAL);
         	}
         }
         
@@ -0,0 +1,153 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.remote.presentation.activity;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.xbmc.android.remote.R;
+import org.xbmc.android.remote.business.AbstractManager;
+import org.xbmc.android.remote.business.CommandTrace;
+import org.xbmc.android.remote.business.ManagerThread;
+import org.xbmc.android.remote.business.ResultCache;
+import org.xbmc.android.util.IOUtilities;
+import org.xbmc.android.util.Metrics;
+
+import android.app.Activity;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+/**
+ * Debug screen showing the counters and latency histograms of
+ * {@link Metrics}, together with the command trace, executor and result
+ * cache statistics. Everything can be saved to the sdcard, so numbers of
+ * different builds can be compared. Opened by long-pressing the revision
+ * on the about screen.
+ *
+ * @author Team XBMC
+ */
+public class MetricsActivity extends Activity {
+
+	private static final int MENU_REFRESH = 1;
+	private static final int MENU_SAVE = 2;
+	private static final int MENU_RESET = 3;
+
+	private static final String EXPORT_DIRECTORY = "xbmc";
+
+	private TextView mText;
+	private ConfigurationManager mConfigurationManager;
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mText = new TextView(this);
+		mText.setTypeface(Typeface.MONOSPACE);
+		mText.setTextSize(10);
+		mText.setHorizontallyScrolling(true);
+		final ScrollView scroll = new ScrollView(this);
+		scroll.addView(mText);
+		setContentView(scroll);
+		mConfigurationManager = ConfigurationManager.getInstance(this);
+	}
+
+	@Override
+	protected void onResume() {
+		super.onResume();
+		mConfigurationManager.onActivityResume(this);
+		refresh();
+	}
+
+	@Override
+	protected void onPause() {
+		super.onPause();
+		mConfigurationManager.onActivityPause();
+	}
+
+	@Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+		menu.add(0, MENU_REFRESH, 0, "Refresh").setIcon(R.drawable.menu_refresh);
+		menu.add(0, MENU_SAVE, 0, "Save to SD Card").setIcon(R.drawable.menu_download);
+		menu.add(0, MENU_RESET, 0, "Reset").setIcon(R.drawable.menu_exit);
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		switch (item.getItemId()) {
+			case MENU_REFRESH:
+				refresh();
+				return true;
+			case MENU_SAVE:
+				save();
+				return true;
+			case MENU_RESET:
+				Metrics.reset();
+				CommandTrace.clear();
+				refresh();
+				return true;
+		}
+		return super.onOptionsItemSelected(item);
+	}
+
+	private void refresh() {
+		mText.setText(Metrics.export() + "\n" + getSections());
+	}
+
+	/**
+	 * Writes everything on the screen to a time-stamped file in the cache
+	 * directory of the sdcard.
+	 */
+	private void save() {
+		final File dir = IOUtilities.getExternalFile(EXPORT_DIRECTORY);
+		final File file = new File(dir, "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt");
+		try {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Cannot create " + dir + ".");
+			}
+			Metrics.exportTo(file, getSections());
+			Toast.makeText(this, "Saved to " + file + ".", Toast.LENGTH_LONG).show();
+		} catch (IOException e) {
+			Toast.makeText(this, "Saving failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+		}
+	}
+
+	/**
+	 * Returns the statistics kept outside of the registry.
+	 * @return Command trace, executor and result cache as text
+	 */
+	private static String getSections() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(CommandTrace.export());
+		sb.append("\nexecutor\t").append(ManagerThread.executor());
+		sb.append("\nresult cache\t").append(ResultCache.get());
+		sb.append("\ncoalesced\t").append(AbstractManager.getCoalescedCount());
+		sb.append('\n');
+		return sb.toString();
+	}
+}
@@ -27,6 +27,7 @@ import java.net.SocketTimeoutException;
 
 import org.apache.http.HttpException;
 import org.xbmc.android.remote.business.Command;
+import org.xbmc.android.remote.business.ManagerThread;
 import org.xbmc.android.remote.presentation.activity.HostSettingsActivity;
 import org.xbmc.android.remote.presentation.activity.SettingsActivity;
 import org.xbmc.android.util.ClientFactory;
@@ -34,6 +35,7 @@ import org.xbmc.android.util.HostFactory;
 import org.xbmc.android.util.WifiHelper;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.object.Host;
+import org.xbmc.api.presentation.INotifiableController;
 import org.xbmc.httpapi.NoNetworkException;
 import org.xbmc.httpapi.NoSettingsException;
 import org.xbmc.httpapi.WrongDataFormatException;
@@ -315,6 +317,10 @@ public abstract class AbstractController {
 	public void onActivityPause() {
 //		mActivity = null;
 		mPaused = true;
+		if (this instanceof INotifiableController && mActivity != null && mActivity.isFinishing()) {
+			// nobody will show the results anymore
+			ManagerThread.cancel((INotifiableController)this);
+		}
 	}
 
 	public void onActivityResume(Activity activity) {
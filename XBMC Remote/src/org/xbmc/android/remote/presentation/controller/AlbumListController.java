@@ -34,6 +34,7 @@ import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IControlManager;
 import org.xbmc.api.business.IMusicManager;
 import org.xbmc.api.business.ISortableManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Album;
 import org.xbmc.api.object.Artist;
 import org.xbmc.api.object.Genre;
@@ -261,7 +262,7 @@ public class AlbumListController extends ListController implements IController {
 			} else {
 				setTitle("Albums...");				// all albums
 				showOnLoading();
-				mMusicManager.getAlbums(new DataResponse<ArrayList<Album>>() {
+				mMusicManager.getAlbums(paged(new PagedResponse<Album>() {
 					public void run() {
 						if (value.size() > 0) {
 							setTitle("Albums (" + value.size() + ")");
@@ -271,7 +272,11 @@ public class AlbumListController extends ListController implements IController {
 							setNoDataMessage("No Albums found.", R.drawable.default_album);
 						}
 					}
-				}, mActivity.getApplicationContext());
+					public void onPage(ArrayList<Album> page) {
+						appendPage(mCurrentView == VIEW_GRID && mGrid != null ? mGrid : mList, page);
+						setTitle("Albums (" + value.size() + ")");
+					}
+				}), mActivity.getApplicationContext());
 			}
 		}
 	}
@@ -35,6 +35,7 @@ import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IControlManager;
 import org.xbmc.api.business.ISortableManager;
 import org.xbmc.api.business.ITvShowManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Episode;
 import org.xbmc.api.object.Movie;
 import org.xbmc.api.object.Season;
@@ -136,7 +137,7 @@ public class EpisodeListController extends ListController implements IController
 		showOnLoading();
 		if (season != null) {
 			setTitle(season.show.title + " Season " + season.number + " - Episodes");
-			mTvManager.getEpisodes(new DataResponse<ArrayList<Episode>>() {
+			mTvManager.getEpisodes(paged(new PagedResponse<Episode>() {
 				public void run() {
 					if(value.size() > 0) {
 						setTitle(season.show.title + " Season " + season.number + " - Episodes (" + value.size() + ")");
@@ -145,7 +146,11 @@ public class EpisodeListController extends ListController implements IController
 						setNoDataMessage("No episodes found.", R.drawable.icon_movie_dark);
 					}
 				}
-			}, season, mActivity.getApplicationContext());
+				public void onPage(ArrayList<Episode> page) {
+					appendPage(mList, page);
+					setTitle(season.show.title + " Season " + season.number + " - Episodes (" + value.size() + ")");
+				}
+			}), season, mActivity.getApplicationContext());
 		}
 	}
 	
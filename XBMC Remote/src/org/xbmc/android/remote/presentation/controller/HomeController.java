@@ -23,8 +23,6 @@ package org.xbmc.android.remote.presentation.controller;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Observable;
-import java.util.Observer;
 
 import org.xbmc.android.remote.R;
 import org.xbmc.android.remote.business.AbstractManager;
@@ -45,6 +43,7 @@ import org.xbmc.android.util.HostFactory;
 import org.xbmc.android.util.WakeOnLan;
 import org.xbmc.android.util.WifiHelper;
 import org.xbmc.api.business.DataResponse;
+import org.xbmc.api.business.EventBus;
 import org.xbmc.api.business.IInfoManager;
 import org.xbmc.api.business.IMusicManager;
 import org.xbmc.api.business.INotifiableManager;
@@ -94,7 +93,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.AdapterView.OnItemClickListener;
 
-public class HomeController extends AbstractController implements INotifiableController, IController, Observer, OnSharedPreferenceChangeListener {
+public class HomeController extends AbstractController implements INotifiableController, IController, EventBus.Listener<BroadcastListener.Event>, OnSharedPreferenceChangeListener {
 	
 	private static final int HOME_ACTION_REMOTE = 0;
 	private static final int HOME_ACTION_MUSIC = 1;
@@ -130,7 +129,7 @@ public class HomeController extends AbstractController implements INotifiableCon
 		mMenuGrid = menuGrid;
 		setupMenuItems(menuGrid);
 //		BroadcastListener bcl = BroadcastListener.getInstance(ConnectionManager.getHttpClient(this));
-//		bcl.addObserver(this);
+//		bcl.getEventBus().subscribe(this);
 	}
 	
 	public View.OnClickListener getOnHostChangeListener() {
@@ -319,17 +318,14 @@ public class HomeController extends AbstractController implements INotifiableCon
 		};
 	}
 	
-	public void update(Observable observable, Object data) {
-		if (data instanceof BroadcastListener.Event) {
-			BroadcastListener.Event event = (BroadcastListener.Event)data;
-			switch (event.id) {
-				case BroadcastListener.EVENT_ON_PROGRESS_CHANGED:
-					Log.i("broadcast", "EVENT_ON_PROGRESS_CHANGED: " + event.getInt(0));
-					break;
-				default:
-					Log.i("broadcast", "EVENT: " + event.id + ", int = " + event.getInt(0));
-					break;
-			}
+	public void onEvent(BroadcastListener.Event event) {
+		switch (event.id) {
+			case BroadcastListener.EVENT_ON_PROGRESS_CHANGED:
+				Log.i("broadcast", "EVENT_ON_PROGRESS_CHANGED: " + event.getInt(0));
+				break;
+			default:
+				Log.i("broadcast", "EVENT: " + event.id + ", int = " + event.getInt(0));
+				break;
 		}
 	}
 	
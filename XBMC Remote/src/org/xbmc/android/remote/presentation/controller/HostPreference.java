@@ -51,7 +51,7 @@ import android.widget.Toast;
 public class HostPreference extends DialogPreference {
 	
 	private EditText mNameView, mHostView, mPortView, mUserView, mPassView, 
-				mEsPortView, mTimeoutView, mAccPointView, mMacAddrView, mWolWaitView, mWolPortView;
+				mEsPortView, mTimeoutView, mAccPointView, mMacAddrView, mWolWaitView, mWolPortView, mPollIntervalView;
 	
 	private CheckBox mWifiOnlyView;
 	
@@ -157,6 +157,7 @@ public class HostPreference extends DialogPreference {
 		mWifiOnlyView = (CheckBox)parent.findViewById(R.id.pref_wifi_only);
 		mWolPortView = (EditText)parent.findViewById(R.id.pref_wol_port);
 		mWolWaitView = (EditText)parent.findViewById(R.id.pref_wol_wait);
+		mPollIntervalView = (EditText)parent.findViewById(R.id.pref_poll_interval);
 		return parent;
 	}
 	
@@ -177,6 +178,7 @@ public class HostPreference extends DialogPreference {
 			mWifiOnlyView.setChecked(mHost.wifi_only);
 			mWolPortView.setText(String.valueOf(mHost.wol_port));
 			mWolWaitView.setText(String.valueOf(mHost.wol_wait));
+			mPollIntervalView.setText(String.valueOf(mHost.poll_interval));
 		} else {
 			//set defaults:
 			mPortView.setText("" + Host.DEFAULT_HTTP_PORT);
@@ -184,6 +186,7 @@ public class HostPreference extends DialogPreference {
 			mTimeoutView.setText("" + Host.DEFAULT_TIMEOUT);
 			mWolPortView.setText("" + Host.DEFAULT_WOL_PORT);
 			mWolWaitView.setText("" + Host.DEFAULT_WOL_WAIT);
+			mPollIntervalView.setText("" + Host.DEFAULT_POLL_INTERVAL);
 		}
 	}
 	
@@ -225,6 +228,11 @@ public class HostPreference extends DialogPreference {
 			}catch (NumberFormatException e) {
 				host.wol_wait = Host.DEFAULT_WOL_WAIT;
 			}
+			try {
+				host.poll_interval = Integer.parseInt(mPollIntervalView.getText().toString());
+			} catch (NumberFormatException e) {
+				host.poll_interval = Host.DEFAULT_POLL_INTERVAL;
+			}
 			
 			
 			if (mHost == null) {
@@ -22,6 +22,7 @@
 package org.xbmc.android.remote.presentation.controller;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 
 import org.xbmc.android.remote.R;
 import org.xbmc.android.remote.presentation.activity.NowPlayingActivity;
@@ -29,6 +30,7 @@ import org.xbmc.android.widget.FastScrollView;
 import org.xbmc.android.widget.IdleListDetector;
 import org.xbmc.android.widget.IdleListener;
 import org.xbmc.api.business.DataResponse;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.presentation.INotifiableController;
 import org.xbmc.api.type.ThumbSize;
 
@@ -78,6 +80,8 @@ public abstract class ListController extends AbstractController implements Seria
 	
 	protected static Bitmap mFallbackBitmap;
 	protected IdleListDetector mPostScrollLoader;
+	
+	private PagedResponse<?> mPagedResponse = null;
 
 	public void onCreate(Activity activity, Handler handler, AbsListView list) {
 		super.onCreate(activity, handler);
@@ -193,6 +197,40 @@ public abstract class ListController extends AbstractController implements Seria
 		return mList.getAdapter() instanceof LoadingAdapter;
 	}
 	
+	/**
+	 * Remembers the response currently filling the list. Since only one
+	 * list is shown at a time, a previous paged response still loading is
+	 * cancelled.
+	 * @param response New paged response
+	 * @return Same response
+	 */
+	protected <R extends PagedResponse<?>> R paged(R response) {
+		if (mPagedResponse != null) {
+			mPagedResponse.cancel();
+		}
+		mPagedResponse = response;
+		return response;
+	}
+	
+	/**
+	 * Appends a page of a paged response to the adapter of a list. Since the
+	 * adapter's items are the list of the first page, the page is also
+	 * appended to that list.
+	 * @param list List view containing the adapter
+	 * @param page Items to append
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> void appendPage(AbsListView list, ArrayList<T> page) {
+		if (list.getAdapter() instanceof ArrayAdapter<?> && !isLoading()) {
+			final ArrayAdapter<T> adapter = (ArrayAdapter<T>)list.getAdapter();
+			adapter.setNotifyOnChange(false);
+			for (T item : page) {
+				adapter.add(item);
+			}
+			adapter.notifyDataSetChanged();
+		}
+	}
+	
 	@Override
 	public void onActivityResume(Activity activity) {
 		super.onActivityResume(activity);
@@ -34,6 +34,7 @@ import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IControlManager;
 import org.xbmc.api.business.ISortableManager;
 import org.xbmc.api.business.IVideoManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Actor;
 import org.xbmc.api.object.Genre;
 import org.xbmc.api.object.Movie;
@@ -163,7 +164,7 @@ public class MovieListController extends ListController implements IController {
 			}, genre, mActivity.getApplicationContext());
 		} else {
 			setTitle("Movies...");				// all movies
-			mVideoManager.getMovies(new DataResponse<ArrayList<Movie>>() {
+			mVideoManager.getMovies(paged(new PagedResponse<Movie>() {
 				public void run() {
 					if (value.size() > 0) {
 						setTitle("Movies (" + value.size() + ")");
@@ -173,7 +174,11 @@ public class MovieListController extends ListController implements IController {
 						setNoDataMessage("No movies found.", R.drawable.icon_movie_dark);
 					}
 				}
-			}, mActivity.getApplicationContext());
+				public void onPage(ArrayList<Movie> page) {
+					appendPage(mList, page);
+					setTitle("Movies (" + value.size() + ")");
+				}
+			}), mActivity.getApplicationContext());
 		}
 	}
 	
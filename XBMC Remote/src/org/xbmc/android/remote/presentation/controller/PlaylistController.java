@@ -132,6 +132,7 @@ public class PlaylistController extends ListController implements IController, C
 						mVideoManager.setPlaylistVideo(doNothing, item.position, mActivity.getApplicationContext());
 						break;
 					}
+					onInteraction();
 				}
 			});
 			mList.setOnKeyListener(new ListControllerOnKeyListener<Song>());
@@ -279,10 +280,18 @@ public class PlaylistController extends ListController implements IController, C
 							break;
 					}
 				} catch (IOException e) { }
+				onInteraction();
 			}
 		});
 	}
 	
+	/**
+	 * Makes the poller pick up the effect of a command sooner.
+	 */
+	private void onInteraction() {
+		ConnectionFactory.getNowPlayingPoller(mActivity.getApplicationContext()).getScheduler().onInteraction();
+	}
+	
 
 	/**
 	 * Handles the push- release button code. Switches image of the pressed
@@ -300,6 +309,7 @@ public class PlaylistController extends ListController implements IController, C
 				mEventClient.sendButton("R1", mAction, false, true, true, (short) 0, (byte) 0);
 			} catch (IOException e) {
 			}
+			onInteraction();
 		}
 	}
 	
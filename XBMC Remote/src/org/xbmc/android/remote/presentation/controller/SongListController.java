@@ -31,6 +31,7 @@ import org.xbmc.android.util.ImportUtilities;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.IMusicManager;
 import org.xbmc.api.business.ISortableManager;
+import org.xbmc.api.business.PagedResponse;
 import org.xbmc.api.object.Album;
 import org.xbmc.api.object.Artist;
 import org.xbmc.api.object.Genre;
@@ -179,7 +180,7 @@ public class SongListController extends ListController implements IController {
 			
 		} else if (artist != null) {
 			setTitle(artist.name + " - Songs...");
-			mMusicManager.getSongs(new DataResponse<ArrayList<Song>>() {
+			mMusicManager.getSongs(paged(new PagedResponse<Song>() {
 				public void run() {
 					if (value.size() > 0) {
 						setTitle(artist.name + " - Songs (" + value.size() + ")");
@@ -189,11 +190,15 @@ public class SongListController extends ListController implements IController {
 						setNoDataMessage("No songs found.", R.drawable.icon_song_dark);
 					}
 				}
-			}, artist, mActivity.getApplicationContext());
+				public void onPage(ArrayList<Song> page) {
+					appendPage(mList, page);
+					setTitle(artist.name + " - Songs (" + value.size() + ")");
+				}
+			}), artist, mActivity.getApplicationContext());
 			
 		} else if (genre != null) {
 			setTitle(genre.name + " - Songs...");
-			mMusicManager.getSongs(new DataResponse<ArrayList<Song>>() {
+			mMusicManager.getSongs(paged(new PagedResponse<Song>() {
 				public void run() {
 					if (value.size() > 0) {
 						setTitle(genre.name + " - Songs (" + value.size() + ")");
@@ -203,7 +208,11 @@ public class SongListController extends ListController implements IController {
 						setNoDataMessage("No songs found.", R.drawable.icon_song_dark);
 					}
 				}
-			}, genre, mActivity.getApplicationContext());
+				public void onPage(ArrayList<Song> page) {
+					appendPage(mList, page);
+					setTitle(genre.name + " - Songs (" + value.size() + ")");
+				}
+			}), genre, mActivity.getApplicationContext());
 		}
 	}
 	
@@ -1635,6 +1635,7 @@ public class Base64
         private boolean breakLines;     // Break lines at less than 80 characters
         private int     options;        // Record options used to create the stream.
         private byte[]  decodabet;      // Local copies to avoid extra method calls
+        private byte[]  b4 = new byte[4]; // Scratch for decoding, reused
         
         
         /**
@@ -1721,7 +1722,7 @@ public class Base64
                 
                 // Else decoding
                 else {
-                    byte[] b4 = new byte[4];
+                    byte[] b4 = this.b4;
                     int i = 0;
                     for( i = 0; i < 4; i++ ) {
                         // Read four "meaningful" bytes:
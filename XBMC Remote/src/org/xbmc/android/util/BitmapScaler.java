@@ -0,0 +1,192 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.util;
+
+import java.util.Arrays;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+/**
+ * Resizes bitmaps for thumbnails.
+ * 
+ * Downscaling uses a box filter: every target pixel is the average of all
+ * source pixels it covers, weighted by the covered area. Other than bilinear
+ * filtering, which only looks at the four closest source pixels, this gives
+ * smooth results for any ratio.
+ * 
+ * The source is read one row at a time and every target row is written as
+ * soon as it's complete, so apart from the target bitmap only a few buffers
+ * of the width of a row are needed.
+ * 
+ * @author Team XBMC
+ */
+public abstract class BitmapScaler {
+	
+	private static final String TAG = "BitmapScaler";
+	
+	/**
+	 * Largest amount of scratch memory a resize needed so far (bytes)
+	 */
+	private static volatile int sPeakScratchBytes = 0;
+	
+	/**
+	 * Resizes a bitmap. Shrinking uses the box filter, enlarging is done
+	 * with bilinear filtering.
+	 * @param source Bitmap to resize
+	 * @param width  Target width
+	 * @param height Target height
+	 * @return Resized bitmap or source if size already matches.
+	 */
+	public static Bitmap scale(Bitmap source, int width, int height) {
+		if (source == null || width <= 0 || height <= 0) {
+			return source;
+		}
+		final int srcWidth = source.getWidth();
+		final int srcHeight = source.getHeight();
+		if (width == srcWidth && height == srcHeight) {
+			return source;
+		}
+		if (width > srcWidth || height > srcHeight) {
+			return Bitmap.createScaledBitmap(source, width, height, true);
+		}
+		return boxFilter(source, width, height);
+	}
+	
+	/**
+	 * Shrinks a bitmap using the box filter if it's bigger than the given
+	 * size in both directions. Otherwise, the source is returned.
+	 * @param source Bitmap to shrink
+	 * @param width  Target width
+	 * @param height Target height
+	 * @return Shrunk bitmap or source
+	 */
+	public static Bitmap shrink(Bitmap source, int width, int height) {
+		if (source == null || width <= 0 || height <= 0 || width >= source.getWidth() || height >= source.getHeight()) {
+			return source;
+		}
+		return boxFilter(source, width, height);
+	}
+	
+	/**
+	 * Returns the largest amount of scratch memory a resize needed so far,
+	 * not counting source and target bitmap.
+	 * @return Peak scratch memory in bytes
+	 */
+	public static int getPeakScratchBytes() {
+		return sPeakScratchBytes;
+	}
+	
+	/**
+	 * Averages the source down to the target size.
+	 * 
+	 * In order to stay with integers, coordinates are scaled so that a
+	 * source pixel is <tt>width</tt> units wide and a target pixel is
+	 * <tt>srcWidth</tt> units wide (same for the height). The overlap of a
+	 * source and a target pixel then is the integer weight of the source
+	 * pixel, and the weights of every target pixel sum up to 
+	 * <tt>srcWidth * srcHeight</tt>.
+	 */
+	private static Bitmap boxFilter(Bitmap source, int width, int height) {
+		final int srcWidth = source.getWidth();
+		final int srcHeight = source.getHeight();
+		final Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+		final Bitmap target = Bitmap.createBitmap(width, height, config);
+		
+		final int[] srcRow = new int[srcWidth];
+		final int[] dstRow = new int[width];
+		final int[] hSums = new int[width * 4];     // one source row, shrunk horizontally
+		final long[] vSums = new long[width * 4];   // current target row, ARGB sums
+		final long total = (long)srcWidth * srcHeight;
+		
+		final int scratch = (srcRow.length + dstRow.length + hSums.length) * 4 + vSums.length * 8;
+		if (scratch > sPeakScratchBytes) {
+			sPeakScratchBytes = scratch;
+		}
+		
+		int y = 0;
+		int yEnd = srcHeight;
+		for (int sy = 0; sy < srcHeight; sy++) {
+			source.getPixels(srcRow, 0, srcWidth, 0, sy, srcWidth, 1);
+			shrinkRow(srcRow, srcWidth, hSums, width);
+			int start = sy * height;
+			final int end = start + height;
+			while (start < end) {
+				final int weight = Math.min(end, yEnd) - start;
+				for (int i = 0; i < vSums.length; i++) {
+					vSums[i] += (long)hSums[i] * weight;
+				}
+				start += weight;
+				if (start == yEnd) {
+					// target row complete
+					for (int x = 0, i = 0; x < width; x++, i += 4) {
+						dstRow[x] = (int)((vSums[i] + total / 2) / total) << 24
+						          | (int)((vSums[i + 1] + total / 2) / total) << 16
+						          | (int)((vSums[i + 2] + total / 2) / total) << 8
+						          | (int)((vSums[i + 3] + total / 2) / total);
+						vSums[i] = vSums[i + 1] = vSums[i + 2] = vSums[i + 3] = 0;
+					}
+					target.setPixels(dstRow, 0, width, 0, y, width, 1);
+					y++;
+					yEnd += srcHeight;
+				}
+			}
+		}
+		Log.d(TAG, "Resized " + srcWidth + "x" + srcHeight + " to " + width + "x" + height + " with " + scratch + " bytes of scratch memory (peak " + sPeakScratchBytes + ")");
+		return target;
+	}
+	
+	/**
+	 * Shrinks a row horizontally into per-channel sums of weighted pixels.
+	 * @param src      Source pixels
+	 * @param srcWidth Number of source pixels
+	 * @param sums     ARGB sums of every target pixel, overwritten
+	 * @param width    Number of target pixels
+	 */
+	private static void shrinkRow(int[] src, int srcWidth, int[] sums, int width) {
+		Arrays.fill(sums, 0);
+		int x = 0;
+		int xEnd = srcWidth;
+		for (int sx = 0; sx < srcWidth; sx++) {
+			final int pixel = src[sx];
+			final int a = pixel >>> 24;
+			final int r = (pixel >> 16) & 0xff;
+			final int g = (pixel >> 8) & 0xff;
+			final int b = pixel & 0xff;
+			int start = sx * width;
+			final int end = start + width;
+			while (start < end) {
+				final int weight = Math.min(end, xEnd) - start;
+				final int i = x * 4;
+				sums[i] += a * weight;
+				sums[i + 1] += r * weight;
+				sums[i + 2] += g * weight;
+				sums[i + 3] += b * weight;
+				start += weight;
+				if (start == xEnd) {
+					x++;
+					xEnd += srcWidth;
+				}
+			}
+		}
+	}
+}
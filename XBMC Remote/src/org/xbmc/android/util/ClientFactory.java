@@ -24,21 +24,25 @@ package org.xbmc.android.util;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.xbmc.android.remote.business.LibraryMirror;
+import org.xbmc.android.remote.business.ResultCache;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IEventClient;
 import org.xbmc.api.data.IInfoClient;
+import org.xbmc.api.data.ILibraryClient;
 import org.xbmc.api.data.IMusicClient;
 import org.xbmc.api.data.ITvShowClient;
 import org.xbmc.api.data.IVideoClient;
-import org.xbmc.api.info.SystemInfo;
 import org.xbmc.api.object.Host;
 import org.xbmc.eventclient.EventClient;
+import org.xbmc.httpapi.BroadcastListener;
 import org.xbmc.httpapi.HttpApi;
 import org.xbmc.httpapi.WifiStateException;
+import org.xbmc.jsonrpc.Connection;
+import org.xbmc.jsonrpc.TcpConnection;
 
 import android.content.Context;
 import android.util.Log;
@@ -58,14 +62,28 @@ public abstract class ClientFactory {
 	private static HttpApi sHttpClient;
 //	private static JsonRpc sJsonClient;
 	private static EventClient sEventClient;
-	private static int sApiType = API_TYPE_UNSET;
+	private static TcpConnection sTcpConnection;
+	private static int sTcpUsers = 0;
+	private static volatile int sApiType = API_TYPE_UNSET;
+	
+	/**
+	 * Capabilities of the current host, null until known
+	 */
+	private static volatile HostCapabilities sCapabilities;
+	private static final AtomicBoolean sProbing = new AtomicBoolean(false);
+	private static volatile long sLastProbe = 0;
+	
+	/**
+	 * Minimal time in milliseconds between two probes of a host which doesn't answer
+	 */
+	private static final int PROBE_RETRY = 30000;
 	
 	private static final String TAG = "ClientFactory";
 	private static final String NAME = "Android XBMC Remote";
 	
 	public static IInfoClient getInfoClient(INotifiableManager manager, Context context) throws WifiStateException {
 		assertWifiState(context);
-		probeQueryApiType(manager);
+		probeQueryApiType(manager, context);
 		switch (sApiType) {
 			case API_TYPE_JSONRPC:
 //				return createJsonClient(manager).info;
@@ -78,19 +96,19 @@ public abstract class ClientFactory {
 	
 	public static IControlClient getControlClient(INotifiableManager manager, Context context) throws WifiStateException {
 		assertWifiState(context);
-		probeQueryApiType(manager);
+		probeQueryApiType(manager, context);
 		return createHttpClient(manager).control;
 	}
 	
 	public static IVideoClient getVideoClient(INotifiableManager manager, Context context) throws WifiStateException {
 		assertWifiState(context);
-		probeQueryApiType(manager);
+		probeQueryApiType(manager, context);
 		return createHttpClient(manager).video;
 	}
 	
 	public static IMusicClient getMusicClient(INotifiableManager manager, Context context) throws WifiStateException {
 		assertWifiState(context);
-		probeQueryApiType(manager);
+		probeQueryApiType(manager, context);
 		switch (sApiType) {
 			case API_TYPE_JSONRPC:
 //				return createJsonClient(manager).music;
@@ -103,10 +121,23 @@ public abstract class ClientFactory {
 	
 	public static ITvShowClient getTvShowClient(INotifiableManager manager, Context context) throws WifiStateException {
 		assertWifiState(context);
-		probeQueryApiType(manager);
+		probeQueryApiType(manager, context);
 		return createHttpClient(manager).shows;
 	}
 	
+	/**
+	 * Returns the client for raw access to XBMC's databases, which always
+	 * goes through the HTTP API.
+	 * @param manager Upper layer reference
+	 * @param context
+	 * @return Library client
+	 * @throws WifiStateException
+	 */
+	public static ILibraryClient getLibraryClient(INotifiableManager manager, Context context) throws WifiStateException {
+		assertWifiState(context);
+		return createHttpClient(manager).library;
+	}
+	
 	private static void assertWifiState(Context context) throws WifiStateException {
 		if (context != null && HostFactory.host != null && HostFactory.host.wifi_only){
 			final int state = WifiHelper.getInstance(context).getWifiState();
@@ -122,12 +153,64 @@ public abstract class ClientFactory {
 		return createEventClient(manager);
 	}
 	
+	/**
+	 * Returns the listener for XBMC's UDP broadcasts. The first call makes
+	 * XBMC broadcast to a random port, which is done through the HTTP API.
+	 * @param manager Upper layer reference
+	 * @param context
+	 * @return Broadcast listener
+	 * @throws WifiStateException
+	 */
+	public static BroadcastListener getBroadcastListener(INotifiableManager manager, Context context) throws WifiStateException {
+		assertWifiState(context);
+		return BroadcastListener.getInstance(createHttpClient(manager));
+	}
+	
+	/**
+	 * Returns the connection to XBMC's TCP JSON-RPC interface, through which
+	 * XBMC pushes notifications and JSON-RPC calls are sent. It's opened on the first call and follows
+	 * host changes. Every call must be matched by {@link #releaseTcpConnection()}.
+	 * @param context
+	 * @return TCP connection
+	 * @throws WifiStateException
+	 */
+	public static synchronized TcpConnection getTcpConnection(Context context) throws WifiStateException {
+		assertWifiState(context);
+		if (sTcpConnection == null) {
+			final Host host = HostFactory.host;
+			sTcpConnection = TcpConnection.getInstance(host != null ? host.addr : null, Host.DEFAULT_JSONRPC_TCP_PORT);
+			// single JSON-RPC calls use the socket too while it's open
+			Connection.getInstance(host != null ? host.addr : null, host != null ? host.port : 0).setTcpConnection(sTcpConnection);
+			// cached library queries are outdated when XBMC updates its library
+			sTcpConnection.getNotifications().subscribe(ResultCache.get());
+			sTcpConnection.getNotifications().subscribe(LibraryMirror.NOTIFICATION_LISTENER);
+		}
+		sTcpConnection.start();
+		sTcpUsers++;
+		return sTcpConnection;
+	}
+	
+	/**
+	 * Closes the TCP connection when nobody uses it anymore, so it doesn't
+	 * keep reconnecting in the background. Without notifications cached
+	 * library queries may get outdated, so they are dropped as well.
+	 */
+	public static synchronized void releaseTcpConnection() {
+		if (sTcpUsers > 0 && --sTcpUsers == 0 && sTcpConnection != null) {
+			sTcpConnection.stop();
+			ResultCache.get().clear();
+		}
+	}
+	
 	/**
 	 * Resets the client so it has to re-read the settings and recreate the instance.
 	 * @param host New host settings, can be null.
 	 */
 	public static void resetClient(Host host) {
 		sApiType = API_TYPE_UNSET;
+		sCapabilities = null;
+		XBMC_REV = -1;
+		sLastProbe = 0;
 		if (sHttpClient != null) {
 			sHttpClient.setHost(host);
 		} else {
@@ -148,6 +231,9 @@ public abstract class ClientFactory {
 		} else {
 			Log.w(TAG, "Not updating event client's host because no instance is set yet.");
 		}
+		if (sTcpConnection != null) {
+			sTcpConnection.setHost(host != null ? host.addr : null, Host.DEFAULT_JSONRPC_TCP_PORT);
+		}
 	}
 
 	/**
@@ -196,52 +282,61 @@ public abstract class ClientFactory {
 	
 	
 	/**
-	 * Tries to find out which xbmc flavor and which API is running.
+	 * Tries to find out which xbmc flavor and which API is running. Known
+	 * hosts are read from the capability store, otherwise XBMC is asked in
+	 * the background and the HTTP API is used until it has answered.
 	 * @param manager Upper layer reference
+	 * @param context Used to read and write the capability store, can be null.
 	 */
-	private static void probeQueryApiType(final INotifiableManager manager) {
+	private static void probeQueryApiType(final INotifiableManager manager, Context context) {
 		final Host host = HostFactory.host;
-		
-		if (sApiType != API_TYPE_UNSET) {
+		if (sCapabilities != null || host == null || host.addr.equals("")) {
 			return;
 		}
-		
-		// try to get version string via http api
-		final HttpApi httpClient;
-		if (host != null && !host.addr.equals("")){
-			httpClient = new HttpApi(host, host.timeout >= 0 ? host.timeout : Host.DEFAULT_TIMEOUT);
-		} else {
-			httpClient = new HttpApi(null, -1);
-		}
-		final String version = httpClient.info.getSystemInfo(manager, SystemInfo.SYSTEM_BUILD_VERSION);
-		Log.i(TAG, "VERSION = " + version);
-		
-		// 1. try to match xbmc's version
-		Pattern pattern = Pattern.compile("r\\d+");
-		Matcher matcher = pattern.matcher(version);
-		if (matcher.find()) {
-			final int rev = Integer.parseInt(matcher.group().substring(1));
-			Log.i(TAG, "Found XBMC at revision " + rev + "!");
-			XBMC_REV = rev;
-			sApiType = rev >= MIN_JSONRPC_REV ? API_TYPE_JSONRPC : API_TYPE_HTTPIAPI;
-		} else {
-			// parse git version
-			pattern = Pattern.compile("Git.([a-f\\d]+)");
-			matcher = pattern.matcher(version);
-			if (matcher.find()) {
-				final String commit = matcher.group(1);
-				Log.i(TAG, "Found XBMC at Git commit " + commit + "!");
-				
-				// set to last revision where we used SVN
-				XBMC_REV = 35744;
-				sApiType = API_TYPE_JSONRPC;
+		final Context appContext = context == null ? null : context.getApplicationContext();
+		final HostCapabilities known = appContext == null ? null : HostCapabilities.load(appContext, host);
+		if (known != null) {
+			setCapabilities(known);
+			if (!known.isStale()) {
+				return;
 			}
-				
-			// 2. try to match boxee's version
-			// 3. plex? duh.
-			
-			sApiType = API_TYPE_UNSET;
 		}
+		final long now = System.currentTimeMillis();
+		if (now - sLastProbe < PROBE_RETRY || !sProbing.compareAndSet(false, true)) {
+			return;
+		}
+		sLastProbe = now;
+		(new Thread("Probe-Host") {
+			public void run() {
+				try {
+					final HostCapabilities probed = HostCapabilities.probe(host, manager);
+					// drop the result if the host has changed meanwhile
+					if (probed != null && host == HostFactory.host) {
+						setCapabilities(probed);
+						if (appContext != null) {
+							probed.save(appContext, host);
+						}
+					}
+				} finally {
+					sProbing.set(false);
+				}
+			}
+		}).start();
+	}
+	
+	private static void setCapabilities(HostCapabilities capabilities) {
+		Log.i(TAG, "Host capabilities: " + capabilities);
+		XBMC_REV = capabilities.revision;
+		sApiType = capabilities.apiType;
+		sCapabilities = capabilities;
+	}
+	
+	/**
+	 * Returns what is known about the current host's XBMC.
+	 * @return Capabilities, null if not known yet.
+	 */
+	public static HostCapabilities getCapabilities() {
+		return sCapabilities;
 	}
 
 
@@ -109,17 +109,18 @@ public class ConnectionFactory {
 	
 	/**
 	 * Returns an instance of the NowPlaying Poller . Instantiation takes place only
-	 * once, otherwise the first instance is returned.
+	 * once, otherwise the first instance is returned. The poller stops a while
+	 * after its last subscriber left, a new one is started then.
 	 * 
 	 * @param context
 	 * @return A reference to the NowPlaying Poller
 	 */
-	public static NowPlayingPollerThread getNowPlayingPoller(Context context) {
+	public static synchronized NowPlayingPollerThread getNowPlayingPoller(Context context) {
 		if (sNowPlayingPoller == null) {
 			sNowPlayingPoller = new NowPlayingPollerThread(context);
 			sNowPlayingPoller.start();
 		}
-		if (!sNowPlayingPoller.isAlive()){
+		if (sNowPlayingPoller.isStopped()){
 			sNowPlayingPoller = new NowPlayingPollerThread(context);
 			sNowPlayingPoller.start();			
 		}
@@ -21,66 +21,138 @@
 
 package org.xbmc.android.util;
 
-import java.io.UnsupportedEncodingException;
-
 /**
  * This is basically a transcript from XBMC's Crc32.cpp. It avoids having to
  * query for thumb names by the HTTP API.
  * 
+ * XBMC's CRC is the non-reflected CRC-32 (polynomial 0x04C11DB7, no final
+ * XOR) over the UTF-8 bytes of a string. Instead of shifting bit by bit,
+ * eight bytes at a time are looked up in precomputed tables ("slicing by 
+ * eight"). {@link #computeLowerCase(String)} lowercases and encodes while
+ * hashing, without creating any intermediate strings or arrays.
+ * 
  * @author freezy <phreezie@gmail.com>
  */
 public class Crc32 {
+	
+	private static final int POLYNOMIAL = 0x04C11DB7;
+	
+	/**
+	 * TABLES[0] is the CRC of a single byte, TABLES[k] the CRC of a byte 
+	 * followed by k zero bytes.
+	 */
+	private static final int[][] TABLES = new int[8][256];
+	
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	static {
+		for (int n = 0; n < 256; n++) {
+			int crc = n << 24;
+			for (int i = 0; i < 8; i++) {
+				crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+			}
+			TABLES[0][n] = crc;
+		}
+		for (int k = 1; k < 8; k++) {
+			for (int n = 0; n < 256; n++) {
+				final int crc = TABLES[k - 1][n];
+				TABLES[k][n] = (crc << 8) ^ TABLES[0][crc >>> 24];
+			}
+		}
+	}
 
 	public static int compute(byte[] buffer, int crc) {
-		int count = buffer.length;
-		while (count-- > 0) {
-			crc = compute(buffer[buffer.length - count - 1], crc);
+		return compute(buffer, 0, buffer.length, crc);
+	}
+	
+	public static int compute(byte[] buffer, int offset, int length, int crc) {
+		final int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+		final int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+		int i = offset;
+		final int end = offset + length;
+		for (final int end8 = end - 7; i < end8; i += 8) {
+			crc ^= (buffer[i] & 0xff) << 24 | (buffer[i + 1] & 0xff) << 16 | (buffer[i + 2] & 0xff) << 8 | (buffer[i + 3] & 0xff);
+			crc = t7[crc >>> 24] ^ t6[(crc >>> 16) & 0xff] ^ t5[(crc >>> 8) & 0xff] ^ t4[crc & 0xff]
+			    ^ t3[buffer[i + 4] & 0xff] ^ t2[buffer[i + 5] & 0xff] ^ t1[buffer[i + 6] & 0xff] ^ t0[buffer[i + 7] & 0xff];
+		}
+		for (; i < end; i++) {
+			crc = (crc << 8) ^ t0[(crc >>> 24) ^ (buffer[i] & 0xff)];
 		}
 		return crc;
 	}
 
 	public static int compute(byte value, int crc) {
-		crc ^= (value << 24);
-		for (int i = 0; i < 8; i++) {
-			if ((crc & 0x80000000) != 0) {
-				crc = (crc << 1) ^ 0x04C11DB7;
-			} else {
-				crc <<= 1;
-			}
-		}
-		return crc;
+		return (crc << 8) ^ TABLES[0][(crc >>> 24) ^ (value & 0xff)];
 	}
 
 	public static int compute(String strValue) {
-		try {
-			return compute(strValue.getBytes("UTF-8"), 0xFFFFFFFF);
-		} catch (UnsupportedEncodingException e) {
-			return compute(strValue.getBytes(), 0xFFFFFFFF);
-		}
+		return compute(strValue, false);
 	}
 
 	public static String computeAsHex(String strValue) {
-		return String.format("%08x", compute(strValue));
+		return toHex(compute(strValue));
 	}
 
 	public static String computeAsHexLowerCase(String strValue) {
-		return String.format("%08x", compute(toXbmcLowerCase(strValue)));
+		return toHex(computeLowerCase(strValue));
 	}
 	
 	public static String formatAsHexLowerCase(long crc) {
-		return String.format("%08x", (int)crc).toLowerCase();
+		return toHex((int)crc);
 	}
 
 	public static int computeLowerCase(String strValue) {
-		return compute(toXbmcLowerCase(strValue));
+		return compute(strValue, true);
+	}
+	
+	/**
+	 * Encodes a string to UTF-8 and hashes the bytes in one pass. Like
+	 * XBMC, only A-Z are lowercased. Unpaired surrogates are encoded as
+	 * '?', same as String.getBytes() does.
+	 * @param strValue  String to hash
+	 * @param lowerCase Lowercase before hashing
+	 * @return CRC
+	 */
+	private static int compute(String strValue, boolean lowerCase) {
+		final int[] t0 = TABLES[0];
+		final int length = strValue.length();
+		int crc = 0xFFFFFFFF;
+		for (int i = 0; i < length; i++) {
+			int c = strValue.charAt(i);
+			if (c < 0x80) {
+				if (lowerCase && c >= 'A' && c <= 'Z') {
+					c += 'a' - 'A';
+				}
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ c];
+			} else if (c < 0x800) {
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0xc0 | c >> 6)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | c & 0x3f)];
+			} else if (c < 0xd800 || c > 0xdfff) {
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0xe0 | c >> 12)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | (c >> 6) & 0x3f)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | c & 0x3f)];
+			} else if (c <= 0xdbff && i + 1 < length && Character.isLowSurrogate(strValue.charAt(i + 1))) {
+				final int cp = Character.toCodePoint((char)c, strValue.charAt(++i));
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0xf0 | cp >> 18)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | (cp >> 12) & 0x3f)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | (cp >> 6) & 0x3f)];
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ (0x80 | cp & 0x3f)];
+			} else {
+				crc = (crc << 8) ^ t0[(crc >>> 24) ^ '?'];
+			}
+		}
+		return crc;
 	}
-	private static String toXbmcLowerCase(String strValue) {
-		   char chars[] = strValue.toCharArray();
-		    for(int i = 0; i < chars.length; i++){
-		      if(chars[i] >= 65 && chars[i] <= 90)
-		        chars[i] = Character.toLowerCase(chars[i]);
-		    }
-		    return new String(chars);
+	
+	/**
+	 * Formats a CRC as 8 lowercase hex digits, same as "%08x".
+	 */
+	private static String toHex(int crc) {
+		final char[] chars = new char[8];
+		for (int i = 7; i >= 0; i--) {
+			chars[i] = HEX[crc & 0xf];
+			crc >>>= 4;
+		}
+		return new String(chars);
 	}
-
 }
@@ -0,0 +1,187 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.info.SystemInfo;
+import org.xbmc.api.object.Host;
+import org.xbmc.httpapi.HttpApi;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * What we know about the XBMC instance of a host: its revision and which
+ * API it speaks. Found out by asking XBMC for its build version, and kept
+ * in a preference file per host address, so it doesn't need to be asked
+ * again after a restart.
+ * 
+ * @author Team XBMC
+ */
+public class HostCapabilities {
+	
+	private static final String TAG = "HostCapabilities";
+	
+	private static final String PREFS_NAME = "capabilities";
+	private static final String KEY_REVISION = ".revision";
+	private static final String KEY_API_TYPE = ".api_type";
+	private static final String KEY_PROBED = ".probed";
+	
+	/**
+	 * Time in milliseconds after which XBMC is asked again, in case it has
+	 * been updated.
+	 */
+	private static final long MAX_AGE = 24L * 60 * 60 * 1000;
+	
+	/**
+	 * Revision of the last SVN build, used for builds from Git
+	 */
+	private static final int LAST_SVN_REV = 35744;
+	
+	private static final Pattern SVN_REVISION = Pattern.compile("r(\\d+)");
+	private static final Pattern GIT_COMMIT = Pattern.compile("Git.([a-f\\d]+)");
+	
+	/**
+	 * SVN revision of XBMC, -1 if unknown
+	 */
+	public final int revision;
+	/**
+	 * One of the <code>ClientFactory.API_TYPE_*</code> constants
+	 */
+	public final int apiType;
+	/**
+	 * When XBMC was asked, in milliseconds since the epoch
+	 */
+	public final long probed;
+	
+	public HostCapabilities(int revision, int apiType, long probed) {
+		this.revision = revision;
+		this.apiType = apiType;
+		this.probed = probed;
+	}
+	
+	public boolean hasMicroHttpd() {
+		return revision >= ClientFactory.MICROHTTPD_REV;
+	}
+	
+	public boolean hasThumbsInVfs() {
+		return revision >= ClientFactory.THUMB_TO_VFS_REV;
+	}
+	
+	/**
+	 * Returns true if XBMC should be asked again.
+	 * @return True if older than a day
+	 */
+	public boolean isStale() {
+		final long age = System.currentTimeMillis() - probed;
+		return age < 0 || age > MAX_AGE;
+	}
+	
+	/**
+	 * Reads XBMC's revision and flavor from its build version string.
+	 * @param version Build version as returned by XBMC
+	 * @return Capabilities, null if the version is empty.
+	 */
+	public static HostCapabilities parse(String version) {
+		if (version == null || version.length() == 0) {
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		// 1. try to match xbmc's version
+		Matcher matcher = SVN_REVISION.matcher(version);
+		if (matcher.find()) {
+			final int rev = Integer.parseInt(matcher.group(1));
+			Log.i(TAG, "Found XBMC at revision " + rev + "!");
+			return new HostCapabilities(rev, rev >= ClientFactory.MIN_JSONRPC_REV ? ClientFactory.API_TYPE_JSONRPC : ClientFactory.API_TYPE_HTTPIAPI, now);
+		}
+		// parse git version
+		matcher = GIT_COMMIT.matcher(version);
+		if (matcher.find()) {
+			Log.i(TAG, "Found XBMC at Git commit " + matcher.group(1) + "!");
+			return new HostCapabilities(LAST_SVN_REV, ClientFactory.API_TYPE_JSONRPC, now);
+		}
+		// 2. try to match boxee's version
+		// 3. plex? duh.
+		return new HostCapabilities(-1, ClientFactory.API_TYPE_UNSET, now);
+	}
+	
+	/**
+	 * Asks XBMC for its build version through the HTTP API. Blocks until
+	 * XBMC answers.
+	 * @param host    Host to ask
+	 * @param manager Upper layer reference for error posting
+	 * @return Capabilities, null if XBMC didn't answer.
+	 */
+	public static HostCapabilities probe(Host host, INotifiableManager manager) {
+		final HttpApi httpClient = new HttpApi(host, host.timeout >= 0 ? host.timeout : Host.DEFAULT_TIMEOUT);
+		final String version = httpClient.info.getSystemInfo(manager, SystemInfo.SYSTEM_BUILD_VERSION);
+		Log.i(TAG, "VERSION = " + version);
+		return parse(version);
+	}
+	
+	/**
+	 * Returns the stored capabilities of a host.
+	 * @param context
+	 * @param host
+	 * @return Capabilities, null if the host has never been probed.
+	 */
+	public static HostCapabilities load(Context context, Host host) {
+		final SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+		final String key = getKey(host);
+		final long probed = prefs.getLong(key + KEY_PROBED, 0);
+		if (probed == 0) {
+			return null;
+		}
+		return new HostCapabilities(prefs.getInt(key + KEY_REVISION, -1), prefs.getInt(key + KEY_API_TYPE, ClientFactory.API_TYPE_UNSET), probed);
+	}
+	
+	/**
+	 * Stores the capabilities of a host.
+	 * @param context
+	 * @param host
+	 */
+	public void save(Context context, Host host) {
+		final String key = getKey(host);
+		context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+			.putInt(key + KEY_REVISION, revision)
+			.putInt(key + KEY_API_TYPE, apiType)
+			.putLong(key + KEY_PROBED, probed)
+			.commit();
+	}
+	
+	/**
+	 * Capabilities are stored by address, so they're still valid when the
+	 * host is renamed and invalid when it points somewhere else.
+	 */
+	private static String getKey(Host host) {
+		return host.addr + ":" + host.port;
+	}
+	
+	@Override
+	public String toString() {
+		return "revision " + revision + ", API type " + apiType;
+	}
+}
@@ -83,6 +83,7 @@ public abstract class HostFactory {
 				final int macAddrCol = cur.getColumnIndex(HostProvider.Hosts.MAC_ADDR);
 				final int wolPortCol = cur.getColumnIndex(HostProvider.Hosts.WOL_PORT);
 				final int wolWaitCol = cur.getColumnIndex(HostProvider.Hosts.WOL_WAIT);
+				final int pollIntervalCol = cur.getColumnIndex(HostProvider.Hosts.POLL_INTERVAL);
 				do {
 					final Host host = new Host();
 					host.id = cur.getInt(idCol);
@@ -98,6 +99,7 @@ public abstract class HostFactory {
 					host.wifi_only = cur.getInt(wifiOnlyCol)==1; //stored as 1 = true and 0 = false in sqlite
 					host.wol_port = cur.getInt(wolPortCol);
 					host.wol_wait = cur.getInt(wolWaitCol);
+					host.poll_interval = cur.getInt(pollIntervalCol);
 					hosts.add(host);
 				} while (cur.moveToNext());
 			}
@@ -126,6 +128,7 @@ public abstract class HostFactory {
 		values.put(HostProvider.Hosts.ACCESS_POINT, host.access_point);
 		values.put(HostProvider.Hosts.WOL_PORT, host.wol_port);
 		values.put(HostProvider.Hosts.WOL_WAIT, host.wol_wait);
+		values.put(HostProvider.Hosts.POLL_INTERVAL, host.poll_interval);
 		context.getContentResolver().insert(HostProvider.Hosts.CONTENT_URI, values);
 	}
 	
@@ -148,6 +151,7 @@ public abstract class HostFactory {
 		values.put(HostProvider.Hosts.ACCESS_POINT, host.access_point);
 		values.put(HostProvider.Hosts.WOL_PORT, host.wol_port);
 		values.put(HostProvider.Hosts.WOL_WAIT, host.wol_wait);
+		values.put(HostProvider.Hosts.POLL_INTERVAL, host.poll_interval);
 		context.getContentResolver().update(HostProvider.Hosts.CONTENT_URI, values, HostProvider.Hosts._ID + "=" + host.id, null);
 	}
 	
@@ -221,6 +225,7 @@ public abstract class HostFactory {
 				host.mac_addr = cur.getString(cur.getColumnIndex(HostProvider.Hosts.MAC_ADDR)); 
 				host.wol_port = cur.getInt(cur.getColumnIndex(HostProvider.Hosts.WOL_PORT));
 				host.wol_wait = cur.getInt(cur.getColumnIndex(HostProvider.Hosts.WOL_WAIT));
+				host.poll_interval = cur.getInt(cur.getColumnIndex(HostProvider.Hosts.POLL_INTERVAL));
 				return host;
 			}
 		} finally {
@@ -16,10 +16,13 @@
 
 package org.xbmc.android.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.xbmc.api.object.ICoverArt;
 import org.xbmc.api.type.MediaType;
@@ -37,6 +40,24 @@ public abstract class ImportUtilities {
 	private static final String TAG = "ImportUtilities";
     private static final String CACHE_DIRECTORY = "xbmc";
     private static final double MIN_FREE_SPACE = 3;
+    
+    /**
+     * Default size of the whole thumb cache (bytes)
+     */
+    public static final long DEFAULT_CACHE_QUOTA = 100L * 1024 * 1024;
+    
+    /**
+     * Thumb stores by art folder and size
+     */
+    private static final HashMap<String, ThumbStore> sStores = new HashMap<String, ThumbStore>();
+    
+    private static long sCacheQuota = DEFAULT_CACHE_QUOTA;
+    
+    /**
+     * Trims stores in the background. The thread stops when idle.
+     */
+    private static final ThreadPoolExecutor sTrimmer = new ThreadPoolExecutor(0, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    private static final AtomicBoolean sTrimScheduled = new AtomicBoolean(false);
 
     public static File getCacheDirectory(String type, int size) {
     	StringBuilder sb = new StringBuilder(CACHE_DIRECTORY);
@@ -45,21 +66,146 @@ public abstract class ImportUtilities {
         return IOUtilities.getExternalFile(sb.toString());
     }
     
-    public static File getCacheFile(String type, int size, String name) {
-    	StringBuilder sb = new StringBuilder(32);
-    	sb.append(CACHE_DIRECTORY);
-    	sb.append(type);
-    	sb.append(ThumbSize.getDir(size));
-    	sb.append("/");
-    	sb.append(name);
-    	return IOUtilities.getExternalFile(sb.toString());
+    /**
+     * Returns the packed thumb store of a media type in a given size.
+     * @param type Art folder of the media type
+     * @param size Thumb size
+     * @return Thumb store
+     */
+    public static ThumbStore getThumbStore(String type, int size) {
+    	final String key = type + ThumbSize.getDir(size);
+    	synchronized (sStores) {
+    		ThumbStore store = sStores.get(key);
+    		if (store == null) {
+    			store = new ThumbStore(getCacheDirectory(type, size));
+    			store.setQuota(getQuota(type, size));
+    			sStores.put(key, store);
+    			// imports thumbs of previous versions
+    			trimCache();
+    		}
+    		return store;
+    	}
+    }
+    
+    /**
+     * Sets the size of the whole thumb cache and trims it in the background
+     * if necessary. The quota is split among media types and sizes, see
+     * {@link #getQuota(String, int)}. The quota of a single store can be
+     * overridden with {@link ThumbStore#setQuota(long)}.
+     * @param bytes Quota in bytes, 0 for unlimited.
+     */
+    public static void setCacheQuota(long bytes) {
+    	synchronized (sStores) {
+    		sCacheQuota = bytes;
+    		final int[] mediaTypes = MediaType.getTypes();
+    		for (int i = 0; i < mediaTypes.length; i++) {
+    			final String folder = MediaType.getArtFolder(mediaTypes[i]);
+    			getThumbStore(folder, ThumbSize.SMALL).setQuota(getQuota(folder, ThumbSize.SMALL));
+    			getThumbStore(folder, ThumbSize.MEDIUM).setQuota(getQuota(folder, ThumbSize.MEDIUM));
+    		}
+    	}
+    	trimCache();
+    }
+    
+    /**
+     * Returns the part of the cache quota of a media type in a given size.
+     * Videos get half of the quota, music 40% and pictures the rest. Medium
+     * thumbs take three quarters of that, small ones a quarter.
+     * @param type Art folder of the media type
+     * @param size Thumb size
+     * @return Quota in bytes, 0 for unlimited.
+     */
+    public static long getQuota(String type, int size) {
+    	final double typeShare;
+    	if (type.equals(MediaType.getArtFolder(MediaType.VIDEO))) {
+    		typeShare = 0.5;
+    	} else if (type.equals(MediaType.getArtFolder(MediaType.MUSIC))) {
+    		typeShare = 0.4;
+    	} else {
+    		typeShare = 0.1;
+    	}
+    	final double sizeShare = size == ThumbSize.SMALL ? 0.25 : 0.75;
+    	synchronized (sStores) {
+    		return (long)(sCacheQuota * typeShare * sizeShare);
+    	}
+    }
+    
+    /**
+     * Imports old thumb files, evicts thumbs from all stores over their
+     * quota and compacts them, in the background. Calls while a trim is
+     * pending are ignored.
+     */
+    public static void trimCache() {
+    	if (sTrimScheduled.compareAndSet(false, true)) {
+    		sTrimmer.execute(new Runnable() {
+    			public void run() {
+    				sTrimScheduled.set(false);
+    				int evicted = 0;
+    				for (ThumbStore store : getThumbStores()) {
+    					store.importFiles();
+    					evicted += store.trim();
+    				}
+    				if (evicted > 0) {
+    					Log.i(TAG, "Evicted " + evicted + " thumbs. " + getCacheStats());
+    				}
+    			}
+    		});
+    	}
+    }
+    
+    /**
+     * Returns a human-readable summary of the disk cache usage.
+     * @return Cache statistics, one line per store.
+     */
+    public static String getCacheStats() {
+    	final StringBuilder sb = new StringBuilder();
+    	for (ThumbStore store : getThumbStores()) {
+    		sb.append(store.toString());
+    		sb.append(String.format(" (%.1f%% hit rate)\n", store.getHitRate() * 100));
+    	}
+    	return sb.toString();
+    }
+    
+    private static ThumbStore[] getThumbStores() {
+    	synchronized (sStores) {
+    		return sStores.values().toArray(new ThumbStore[sStores.size()]);
+    	}
+    }
+    
+    /**
+     * Checks if a thumb is in the disk cache. Doesn't touch the disk.
+     * @param cover Cover to check
+     * @param size  Thumb size
+     * @return True if cached, false otherwise.
+     */
+    public static boolean isInCache(ICoverArt cover, int size) {
+    	return getThumbStore(MediaType.getArtFolder(cover.getMediaType()), size).contains((int)cover.getCrc());
+    }
+    
+    /**
+     * Reads a thumb from the disk cache. Thumbs which can't be decoded are
+     * removed.
+     * @param cover Cover to read
+     * @param size  Thumb size
+     * @return Bitmap or null if not cached.
+     */
+    public static Bitmap getCoverFromCache(ICoverArt cover, int size) {
+    	final ThumbStore store = getThumbStore(MediaType.getArtFolder(cover.getMediaType()), size);
+    	final int crc = (int)cover.getCrc();
+    	final byte[] data = store.get(crc);
+    	if (data == null) {
+    		return null;
+    	}
+    	final Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    	if (bitmap == null) { // obviously corrupted, so remove it.
+    		store.remove(crc);
+    	}
+    	return bitmap;
     }
-
     
     public static Bitmap addCoverToCache(ICoverArt cover, Bitmap bitmap, int thumbSize) {
     	Bitmap sizeToReturn = null;
     	Bitmap resized = null;
-    	File cacheDirectory;
     	final int mediaType = cover.getMediaType();
     	for (int currentThumbSize : ThumbSize.values()) {
     		// don't save big covers
@@ -69,29 +215,22 @@ public abstract class ImportUtilities {
     			else
     				continue;
     		}
-    		try {
-    			cacheDirectory = ensureCache(MediaType.getArtFolder(mediaType), currentThumbSize);
-    		} catch (IOException e) {
-    			return null;
+    		final Bitmap resizing = resized == null ? bitmap : resized;
+    		Dimension uncroppedDim = ThumbSize.getDimension(currentThumbSize, mediaType, resizing.getWidth(), resizing.getHeight());
+    		Dimension targetDim = ThumbSize.getTargetDimension(currentThumbSize, mediaType, resizing.getWidth(), resizing.getHeight());
+    		// TODO: crop
+    		Log.i(TAG, "Resizing to: " + uncroppedDim + " in order to fit into " + targetDim);
+    		
+    		resized = BitmapScaler.scale(resizing, uncroppedDim.x, uncroppedDim.y);
+    		final ByteArrayOutputStream out = new ByteArrayOutputStream(IOUtilities.IO_BUFFER_SIZE * 4);
+    		resized.compress(Bitmap.CompressFormat.JPEG, 85, out);
+    		final ThumbStore store = getThumbStore(MediaType.getArtFolder(mediaType), currentThumbSize);
+    		store.put((int)cover.getCrc(), out.toByteArray());
+    		if (store.needsTrim()) {
+    			trimCache();
     		}
-    		File coverFile = new File(cacheDirectory, Crc32.formatAsHexLowerCase(cover.getCrc()));
-    		FileOutputStream out = null;
-    		try {
-    			final Bitmap resizing = resized == null ? bitmap : resized;
-    			Dimension uncroppedDim = ThumbSize.getDimension(currentThumbSize, mediaType, resizing.getWidth(), resizing.getHeight());
-    			Dimension targetDim = ThumbSize.getTargetDimension(currentThumbSize, mediaType, resizing.getWidth(), resizing.getHeight());
-    			// TODO: crop
-    			Log.i(TAG, "Resizing to: " + uncroppedDim + " in order to fit into " + targetDim);
-    			
-    			resized = Bitmap.createScaledBitmap(resizing, uncroppedDim.x, uncroppedDim.y, true);
-    			resized.compress(Bitmap.CompressFormat.JPEG, 85, new FileOutputStream(coverFile));
-    			if (thumbSize == currentThumbSize) {
-    				sizeToReturn = resized;
-    			}
-    		} catch (FileNotFoundException e) {
-    			return null;
-    		} finally {
-    			IOUtilities.closeStream(out);
+    		if (thumbSize == currentThumbSize) {
+    			sizeToReturn = resized;
     		}
     	}
         return sizeToReturn;
@@ -155,21 +294,13 @@ public abstract class ImportUtilities {
         return (double)availableBlocks / (double)totalBlocks * 100;
     }
 
-    private static File ensureCache(String type, int size) throws IOException {
-        File cacheDirectory = getCacheDirectory(type, size);
-        if (!cacheDirectory.exists()) {
-            cacheDirectory.mkdirs();
-            new File(cacheDirectory, ".nomedia").createNewFile();
-        }
-        return cacheDirectory;
-    }
-    
     public static void purgeCache() {
     	final int size[] = ThumbSize.values();
     	final int[] mediaTypes = MediaType.getTypes();
     	for (int i = 0; i < mediaTypes.length; i++) {
     		String folder = MediaType.getArtFolder(mediaTypes[i]);
     		for (int j = 0; j < size.length; j++) {
+    			getThumbStore(folder, size[j]).purge();
     			File cacheDirectory = getCacheDirectory(folder, size[j]);
     			if (cacheDirectory.exists() && cacheDirectory.isDirectory()) {
     				for (File file : cacheDirectory.listFiles()) {
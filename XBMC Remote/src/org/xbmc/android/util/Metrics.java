@@ -0,0 +1,325 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process registry of counters and latency histograms. Both are updated
+ * with atomic operations only, so they can be called from any thread on hot
+ * paths and are always on.
+ *
+ * Get a metric once, keep it in a static field and update it:
+ * <pre>
+ * private static final Metrics.Histogram QUERY = Metrics.histogram("httpapi.query");
+ * ...
+ * final long start = System.nanoTime();
+ * // do the work
+ * QUERY.recordSince(start);
+ * </pre>
+ *
+ * {@link #export()} writes all metrics as tab separated text, so dumps of
+ * different builds can be compared line by line.
+ *
+ * @author Team XBMC
+ */
+public final class Metrics {
+
+	private static final ConcurrentHashMap<String, Counter> sCounters = new ConcurrentHashMap<String, Counter>();
+	private static final ConcurrentHashMap<String, Histogram> sHistograms = new ConcurrentHashMap<String, Histogram>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the counter of the given name, creates it if necessary.
+	 * @param name Name like "cover.mem.hit"
+	 * @return Counter, always the same instance for a name.
+	 */
+	public static Counter counter(String name) {
+		final Counter counter = sCounters.get(name);
+		if (counter != null) {
+			return counter;
+		}
+		final Counter created = new Counter(name);
+		final Counter existing = sCounters.putIfAbsent(name, created);
+		return existing != null ? existing : created;
+	}
+
+	/**
+	 * Returns the histogram of the given name, creates it if necessary.
+	 * @param name Name like "httpapi.query"
+	 * @return Histogram, always the same instance for a name.
+	 */
+	public static Histogram histogram(String name) {
+		final Histogram histogram = sHistograms.get(name);
+		if (histogram != null) {
+			return histogram;
+		}
+		final Histogram created = new Histogram(name);
+		final Histogram existing = sHistograms.putIfAbsent(name, created);
+		return existing != null ? existing : created;
+	}
+
+	/**
+	 * Sets all metrics back to zero. Metrics stay registered.
+	 */
+	public static void reset() {
+		for (Counter counter : sCounters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : sHistograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Returns all metrics sorted by name, histograms first. Times are in
+	 * milliseconds with microsecond precision.
+	 * @return Two tables with header lines
+	 */
+	public static String export() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("histogram\tcount\tmean\tp50\tp90\tp99\tp99.9\tmax\n");
+		final ArrayList<String> histograms = new ArrayList<String>(sHistograms.keySet());
+		Collections.sort(histograms);
+		for (String name : histograms) {
+			sHistograms.get(name).appendTo(sb);
+		}
+		sb.append("\ncounter\tvalue\n");
+		final ArrayList<String> counters = new ArrayList<String>(sCounters.keySet());
+		Collections.sort(counters);
+		for (String name : counters) {
+			sb.append(name).append('\t').append(sCounters.get(name).get()).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes {@link #export()} followed by the given sections to a file.
+	 * @param file     Target file, overwritten if it exists.
+	 * @param sections Additional text, like a command trace, can be empty.
+	 * @throws IOException
+	 */
+	public static void exportTo(File file, String... sections) throws IOException {
+		final Writer writer = new FileWriter(file);
+		try {
+			writer.write(export());
+			for (String section : sections) {
+				writer.write('\n');
+				writer.write(section);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Number of events, like cache hits
+	 */
+	public static final class Counter {
+
+		private final String mName;
+		private final AtomicLong mValue = new AtomicLong();
+
+		private Counter(String name) {
+			mName = name;
+		}
+
+		public void inc() {
+			mValue.incrementAndGet();
+		}
+
+		public void add(long delta) {
+			mValue.addAndGet(delta);
+		}
+
+		public long get() {
+			return mValue.get();
+		}
+
+		void reset() {
+			mValue.set(0);
+		}
+
+		@Override
+		public String toString() {
+			return mName + ": " + mValue.get();
+		}
+	}
+
+	/**
+	 * Distribution of durations in microseconds. Values are counted in
+	 * log-linear buckets: every power of two is split into eight buckets of
+	 * the same width, so every value is known with an error of at most 12.5%
+	 * while the whole range up to several days fits in a few hundred longs.
+	 */
+	public static final class Histogram {
+
+		/**
+		 * Linear buckets per power of two, as bit count
+		 */
+		private static final int SUB_BITS = 3;
+		private static final int SUB_COUNT = 1 << SUB_BITS;
+
+		/**
+		 * Largest exponent, larger values are counted in the last bucket.
+		 */
+		private static final int MAX_EXPONENT = 40;
+		private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+		private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+		private final String mName;
+		private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+		private final AtomicLong mCount = new AtomicLong();
+		private final AtomicLong mSum = new AtomicLong();
+		private final AtomicLong mMax = new AtomicLong();
+
+		private Histogram(String name) {
+			mName = name;
+		}
+
+		/**
+		 * Records a duration.
+		 * @param micros Duration in microseconds
+		 */
+		public void record(long micros) {
+			final long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+			mBuckets.incrementAndGet(indexOf(value));
+			mCount.incrementAndGet();
+			mSum.addAndGet(value);
+			long max = mMax.get();
+			while (value > max && !mMax.compareAndSet(max, value)) {
+				max = mMax.get();
+			}
+		}
+
+		/**
+		 * Records the time since a start taken with {@link System#nanoTime()}.
+		 * @param startNanos Start time in nanoseconds
+		 */
+		public void recordSince(long startNanos) {
+			record((System.nanoTime() - startNanos) / 1000);
+		}
+
+		public long getCount() {
+			return mCount.get();
+		}
+
+		/**
+		 * Returns the average duration in microseconds.
+		 * @return Mean or 0 if nothing was recorded.
+		 */
+		public long getMean() {
+			final long count = mCount.get();
+			return count == 0 ? 0 : mSum.get() / count;
+		}
+
+		public long getMax() {
+			return mMax.get();
+		}
+
+		/**
+		 * Returns the duration below which the given share of all recorded
+		 * durations lies. It's the upper end of the bucket the percentile
+		 * falls into, but never more than the maximum.
+		 * @param percentile Percentile between 0 and 100
+		 * @return Duration in microseconds, 0 if nothing was recorded.
+		 */
+		public long getPercentile(double percentile) {
+			long total = 0;
+			final long[] counts = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = mBuckets.get(i);
+				total += counts[i];
+			}
+			if (total == 0) {
+				return 0;
+			}
+			final long rank = Math.max(1, (long)Math.ceil(total * percentile / 100));
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(upperBoundOf(i), mMax.get());
+				}
+			}
+			return mMax.get();
+		}
+
+		void reset() {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				mBuckets.set(i, 0);
+			}
+			mCount.set(0);
+			mSum.set(0);
+			mMax.set(0);
+		}
+
+		void appendTo(StringBuilder sb) {
+			sb.append(mName);
+			sb.append('\t').append(getCount());
+			sb.append('\t').append(millis(getMean()));
+			sb.append('\t').append(millis(getPercentile(50)));
+			sb.append('\t').append(millis(getPercentile(90)));
+			sb.append('\t').append(millis(getPercentile(99)));
+			sb.append('\t').append(millis(getPercentile(99.9)));
+			sb.append('\t').append(millis(getMax()));
+			sb.append('\n');
+		}
+
+		private static int indexOf(long value) {
+			if (value < SUB_COUNT) {
+				return (int)value;
+			}
+			final int exponent = 63 - Long.numberOfLeadingZeros(value);
+			final int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+			return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+		}
+
+		private static long upperBoundOf(int index) {
+			if (index < SUB_COUNT) {
+				return index;
+			}
+			final int exponent = index / SUB_COUNT + SUB_BITS - 1;
+			final long width = 1L << (exponent - SUB_BITS);
+			return (SUB_COUNT + index % SUB_COUNT) * width + width - 1;
+		}
+
+		private static String millis(long micros) {
+			return micros / 1000 + "." + (micros % 1000 < 100 ? (micros % 1000 < 10 ? "00" : "0") : "") + micros % 1000;
+		}
+
+		@Override
+		public String toString() {
+			return mName + ": " + getCount() + " times, mean " + millis(getMean()) + "ms, max " + millis(getMax()) + "ms";
+		}
+	}
+}
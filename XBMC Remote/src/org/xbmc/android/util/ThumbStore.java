@@ -0,0 +1,740 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import android.util.Log;
+
+/**
+ * Packed thumb cache of one media type in one size.
+ *
+ * All thumbs are appended to a single data file. A second file contains
+ * one fixed-size record per write: the CRC of the thumb, where its data
+ * starts and how long it is. When opening, the index file is mapped and
+ * read into a hash table in memory, so checking whether a thumb is cached
+ * doesn't touch the file system at all. Thumbs are read from a mapping of
+ * the data file.
+ *
+ * Records are only appended, the last record of a CRC wins. A record with
+ * length 0 removes the thumb. Data of replaced and removed thumbs stays in
+ * the data file until more than half of it is garbage, then {@link #trim()}
+ * compacts the store.
+ *
+ * If a quota is set and the data file grows beyond it, {@link #trim()}
+ * evicts the least recently read thumbs and compacts the store as well.
+ * Compaction writes thumbs in order of their last access, which is how the
+ * access order survives reopening the store. The live thumbs are copied
+ * without holding the lock, so reading thumbs on the UI thread isn't
+ * blocked; only records written meanwhile are copied while swapping files.
+ *
+ * Thumbs cached by previous versions as one file per cover are imported
+ * by {@link #importFiles()}, also without blocking reads.
+ *
+ * @author Team XBMC
+ */
+public class ThumbStore {
+
+	private static final String TAG = "ThumbStore";
+
+	private static final String DATA_FILE = "thumbs.dat";
+	private static final String INDEX_FILE = "thumbs.idx";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * CRC, offset and length as integers
+	 */
+	private static final int RECORD_SIZE = 12;
+
+	/**
+	 * Garbage below this size is never compacted (bytes)
+	 */
+	private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+	/**
+	 * Eviction stops when the data is below this part of the quota.
+	 */
+	private static final double TRIM_RATIO = 0.8;
+
+	private final File mDirectory;
+
+	private RandomAccessFile mData = null;
+	private RandomAccessFile mIndex = null;
+	private MappedByteBuffer mMap = null;
+
+	/**
+	 * Open addressing hash table, CRCs to packed offset and length.
+	 */
+	private int[] mKeys;
+	private long[] mValues;
+	private int mSlotsUsed;
+
+	/**
+	 * Access clock of every slot, higher is more recent.
+	 */
+	private int[] mAccess;
+	private int mClock;
+
+	private int mEntries;
+	private long mDataBytes;
+	private long mLiveBytes;
+
+	/**
+	 * Maximal size of the data file in bytes, 0 for unlimited.
+	 */
+	private long mQuota = 0;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+	private int mEvictions = 0;
+
+	/**
+	 * Counts close() calls, so a compaction notices the store was purged or
+	 * replaced while copying.
+	 */
+	private int mGeneration = 0;
+	private boolean mCompacting = false;
+	private volatile boolean mImported = false;
+
+	private static final long EMPTY = -1L;
+	private static final long REMOVED = 0L;
+
+	/**
+	 * Class constructor. Files are opened when first accessed.
+	 * @param directory Directory of the store
+	 */
+	public ThumbStore(File directory) {
+		mDirectory = directory;
+	}
+
+	/**
+	 * Checks if a thumb is stored.
+	 * @param crc CRC of the thumb
+	 * @return True if stored, false otherwise.
+	 */
+	public synchronized boolean contains(int crc) {
+		if (!open()) {
+			return false;
+		}
+		return length(lookup(crc)) > 0;
+	}
+
+	/**
+	 * Returns the encoded data of a thumb.
+	 * @param crc CRC of the thumb
+	 * @return Thumb data or null if not stored.
+	 */
+	public synchronized byte[] get(int crc) {
+		if (!open()) {
+			return null;
+		}
+		final int slot = slot(crc);
+		final long value = mValues[slot];
+		final int length = length(value);
+		if (value == EMPTY || length <= 0) {
+			mMisses++;
+			return null;
+		}
+		mHits++;
+		mAccess[slot] = ++mClock;
+		final int offset = offset(value);
+		try {
+			if (mMap == null || offset + length > mMap.capacity()) {
+				mMap = mData.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, mDataBytes);
+			}
+			final byte[] data = new byte[length];
+			final ByteBuffer buffer = mMap.duplicate();
+			buffer.position(offset);
+			buffer.get(data);
+			return data;
+		} catch (IOException e) {
+			Log.e(TAG, "Error reading thumb from " + mDirectory + ": " + e.getMessage());
+			close();
+			return null;
+		}
+	}
+
+	/**
+	 * Appends a thumb, replacing a previous version if stored.
+	 * @param crc  CRC of the thumb
+	 * @param data Encoded thumb
+	 * @return True if written, false otherwise.
+	 */
+	public synchronized boolean put(int crc, byte[] data) {
+		if (!open()) {
+			return false;
+		}
+		try {
+			append(crc, data);
+			return true;
+		} catch (IOException e) {
+			Log.e(TAG, "Error writing thumb to " + mDirectory + ": " + e.getMessage());
+			close();
+			return false;
+		}
+	}
+
+	/**
+	 * Removes a thumb, for instance because it's corrupted.
+	 * @param crc CRC of the thumb
+	 */
+	public synchronized void remove(int crc) {
+		if (!open() || length(lookup(crc)) <= 0) {
+			return;
+		}
+		try {
+			writeRecord(mIndex.getChannel(), mIndex.length(), crc, 0, 0);
+			update(crc, REMOVED);
+		} catch (IOException e) {
+			Log.e(TAG, "Error removing thumb from " + mDirectory + ": " + e.getMessage());
+			close();
+		}
+	}
+
+	/**
+	 * Sets the maximal size of the data file. Call {@link #trim()} in order
+	 * to apply it.
+	 * @param bytes Quota in bytes, 0 for unlimited.
+	 */
+	public synchronized void setQuota(long bytes) {
+		mQuota = bytes;
+	}
+
+	/**
+	 * Returns true if the data file is bigger than the quota.
+	 * @return True if eviction is needed, false otherwise.
+	 */
+	public synchronized boolean isOverQuota() {
+		return mQuota > 0 && open() && mDataBytes > mQuota;
+	}
+
+	/**
+	 * Returns true if the store is over its quota or more than half of the
+	 * data file is garbage.
+	 * @return True if {@link #trim()} has work to do, false otherwise.
+	 */
+	public synchronized boolean needsTrim() {
+		if (isOverQuota()) {
+			return true;
+		}
+		final long garbage = mDataBytes - mLiveBytes;
+		return mData != null && garbage >= MIN_COMPACT_BYTES && garbage >= mLiveBytes;
+	}
+
+	/**
+	 * Evicts least recently read thumbs until the store fits into its quota
+	 * again, then compacts it. Can take a while, so don't call this from
+	 * the UI thread. Thumbs can be read and written meanwhile.
+	 * @return Number of evicted thumbs
+	 */
+	public int trim() {
+		int evicted = 0;
+		synchronized (this) {
+			if (!needsTrim()) {
+				return 0;
+			}
+			if (isOverQuota()) {
+				final long target = (long)(mQuota * TRIM_RATIO);
+				try {
+					final int[] slots = slotsByAccess();
+					final FileChannel index = mIndex.getChannel();
+					long position = mIndex.length();
+					for (int i = 0; i < slots.length && mLiveBytes > target; i++) {
+						writeRecord(index, position, mKeys[slots[i]], 0, 0);
+						position += RECORD_SIZE;
+						update(mKeys[slots[i]], REMOVED);
+						evicted++;
+					}
+				} catch (IOException e) {
+					Log.e(TAG, "Error trimming " + mDirectory + ": " + e.getMessage());
+					close();
+					return evicted;
+				} finally {
+					mEvictions += evicted;
+				}
+			}
+		}
+		try {
+			compact();
+			if (evicted > 0) {
+				Log.i(TAG, "Evicted " + evicted + " thumbs from " + this);
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "Error compacting " + mDirectory + ": " + e.getMessage());
+			synchronized (this) {
+				close();
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Deletes all thumbs.
+	 */
+	public synchronized void purge() {
+		close();
+		new File(mDirectory, DATA_FILE).delete();
+		new File(mDirectory, INDEX_FILE).delete();
+	}
+
+	/**
+	 * Closes the files. They are opened again when accessed.
+	 */
+	public synchronized void close() {
+		mGeneration++;
+		mMap = null;
+		mKeys = null;
+		mValues = null;
+		mAccess = null;
+		IOUtilities.closeStream(mData);
+		IOUtilities.closeStream(mIndex);
+		mData = null;
+		mIndex = null;
+	}
+
+	/**
+	 * Returns the number of stored thumbs.
+	 * @return Number of thumbs
+	 */
+	public synchronized int size() {
+		return open() ? mEntries : 0;
+	}
+
+	/**
+	 * Returns the size of the data file, including garbage.
+	 * @return Size in bytes
+	 */
+	public synchronized long getDataBytes() {
+		return open() ? mDataBytes : 0;
+	}
+
+	/**
+	 * Returns the size of all stored thumbs.
+	 * @return Size in bytes
+	 */
+	public synchronized long getLiveBytes() {
+		return open() ? mLiveBytes : 0;
+	}
+
+	public synchronized long getQuota() {
+		return mQuota;
+	}
+
+	public synchronized int getHits() {
+		return mHits;
+	}
+
+	public synchronized int getMisses() {
+		return mMisses;
+	}
+
+	public synchronized int getEvictions() {
+		return mEvictions;
+	}
+
+	/**
+	 * Returns the part of reads which found their thumb.
+	 * @return Hit rate between 0 and 1
+	 */
+	public synchronized double getHitRate() {
+		final int reads = mHits + mMisses;
+		return reads == 0 ? 0.0 : (double)mHits / reads;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return mDirectory + ": " + mEntries + " thumbs, " + (mLiveBytes / 1024) + "/" + (mDataBytes / 1024) + "K used, quota " + (mQuota > 0 ? (mQuota / 1024) + "K" : "none") + ", " + mHits + " hits, " + mMisses + " misses, " + mEvictions + " evictions";
+	}
+
+	/**
+	 * Opens the files and reads the index if not done yet.
+	 * @return True if the store is usable, false otherwise.
+	 */
+	private boolean open() {
+		if (mData != null) {
+			return true;
+		}
+		try {
+			if (!mDirectory.exists()) {
+				mDirectory.mkdirs();
+				new File(mDirectory, ".nomedia").createNewFile();
+			}
+			mData = new RandomAccessFile(new File(mDirectory, DATA_FILE), "rw");
+			mIndex = new RandomAccessFile(new File(mDirectory, INDEX_FILE), "rw");
+			mDataBytes = mData.length();
+			readIndex();
+			return true;
+		} catch (IOException e) {
+			Log.e(TAG, "Cannot open thumb store at " + mDirectory + ": " + e.getMessage());
+			close();
+			return false;
+		}
+	}
+
+	/**
+	 * Reads all records of the index file into memory. Records pointing
+	 * beyond the end of the data file (written before a crash) are dropped.
+	 * @throws IOException
+	 */
+	private void readIndex() throws IOException {
+		final FileChannel channel = mIndex.getChannel();
+		final int records = (int)(channel.size() / RECORD_SIZE);
+		clear(records);
+		if (records > 0) {
+			final MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long)records * RECORD_SIZE);
+			for (int i = 0; i < records; i++) {
+				final int crc = index.getInt();
+				final int offset = index.getInt();
+				final int length = index.getInt();
+				if (length == 0) {
+					update(crc, REMOVED);
+				} else if (offset >= 0 && length > 0 && (long)offset + length <= mDataBytes) {
+					update(crc, pack(offset, length));
+				}
+			}
+		}
+		Log.i(TAG, "Opened " + this + " (" + records + " records)");
+	}
+
+	/**
+	 * Moves thumbs saved as single files by previous versions into the
+	 * store. Reads the files without holding the lock, so call it in the
+	 * background. Does nothing after the first complete run.
+	 */
+	public void importFiles() {
+		if (mImported) {
+			return;
+		}
+		final File[] files = mDirectory.listFiles();
+		if (files == null) {
+			mImported = true;
+			return;
+		}
+		int imported = 0;
+		for (File file : files) {
+			final String name = file.getName();
+			if (name.length() != 8 || !file.isFile()) {
+				continue;
+			}
+			final int crc;
+			try {
+				crc = (int)Long.parseLong(name, 16);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			if (file.length() > 0 && !contains(crc)) {
+				final byte[] data;
+				try {
+					data = readFile(file);
+				} catch (IOException e) {
+					Log.w(TAG, "Cannot import " + file + ": " + e.getMessage());
+					continue;
+				}
+				synchronized (this) {
+					// might have been downloaded meanwhile
+					if (data != null && !contains(crc)) {
+						if (!put(crc, data)) {
+							return;
+						}
+						imported++;
+					}
+				}
+			}
+			file.delete();
+		}
+		mImported = true;
+		if (imported > 0) {
+			Log.i(TAG, "Imported " + imported + " thumbs into " + this);
+		}
+	}
+
+	/**
+	 * Reads a whole file.
+	 * @return Content or null if the file got shorter while reading.
+	 */
+	private static byte[] readFile(File file) throws IOException {
+		final byte[] data = new byte[(int)file.length()];
+		final FileInputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < data.length) {
+				final int n = in.read(data, read, data.length - read);
+				if (n < 0) {
+					return null;
+				}
+				read += n;
+			}
+			return data;
+		} finally {
+			IOUtilities.closeStream(in);
+		}
+	}
+
+	/**
+	 * Appends data and index record.
+	 */
+	private void append(int crc, byte[] data) throws IOException {
+		if (mDataBytes + data.length > Integer.MAX_VALUE) {
+			throw new IOException("Thumb store is full.");
+		}
+		final int offset = (int)mDataBytes;
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		final FileChannel channel = mData.getChannel();
+		long position = offset;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		mDataBytes += data.length;
+		writeRecord(mIndex.getChannel(), mIndex.length(), crc, offset, data.length);
+		update(crc, pack(offset, data.length));
+	}
+
+	private static void writeRecord(FileChannel channel, long position, int crc, int offset, int length) throws IOException {
+		final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		record.putInt(crc).putInt(offset).putInt(length);
+		record.flip();
+		while (record.hasRemaining()) {
+			position += channel.write(record, position);
+		}
+	}
+
+	/**
+	 * Rewrites the store with only the live thumbs, least recently read
+	 * first. The thumbs are copied without holding the lock. Records written
+	 * meanwhile are copied as well before the files are swapped.
+	 * @throws IOException
+	 */
+	private void compact() throws IOException {
+		final int[] crcs;
+		final long[] values;
+		final long indexBytes;
+		final int generation;
+		synchronized (this) {
+			if (mCompacting || !open()) {
+				return;
+			}
+			Log.i(TAG, "Compacting " + this);
+			final int[] slots = slotsByAccess();
+			crcs = new int[slots.length];
+			values = new long[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				crcs[i] = mKeys[slots[i]];
+				values[i] = mValues[slots[i]];
+			}
+			indexBytes = mIndex.length();
+			generation = mGeneration;
+			mCompacting = true;
+		}
+		final File dataFile = new File(mDirectory, DATA_FILE);
+		final File indexFile = new File(mDirectory, INDEX_FILE);
+		final File dataTemp = new File(mDirectory, DATA_FILE + TEMP_SUFFIX);
+		final File indexTemp = new File(mDirectory, INDEX_FILE + TEMP_SUFFIX);
+		RandomAccessFile source = null;
+		RandomAccessFile data = null;
+		RandomAccessFile index = null;
+		try {
+			// data is only appended, so the snapshot stays valid
+			source = new RandomAccessFile(dataFile, "r");
+			data = new RandomAccessFile(dataTemp, "rw");
+			index = new RandomAccessFile(indexTemp, "rw");
+			data.setLength(0);
+			index.setLength(0);
+			final FileChannel target = data.getChannel();
+			final FileChannel targetIndex = index.getChannel();
+			long position = 0;
+			int records = 0;
+			for (int i = 0; i < crcs.length; i++) {
+				final int length = length(values[i]);
+				copy(source.getChannel(), offset(values[i]), length, target);
+				writeRecord(targetIndex, (long)records * RECORD_SIZE, crcs[i], (int)position, length);
+				position += length;
+				records++;
+			}
+			synchronized (this) {
+				if (generation != mGeneration) {
+					Log.i(TAG, "Store changed while compacting " + mDirectory + ", dropping copy.");
+					return;
+				}
+				// replay records written since the snapshot, in order
+				final long end = mIndex.length();
+				if (end > indexBytes) {
+					final MappedByteBuffer tail = mIndex.getChannel().map(FileChannel.MapMode.READ_ONLY, indexBytes, end - indexBytes);
+					while (tail.remaining() >= RECORD_SIZE) {
+						final int crc = tail.getInt();
+						final int offset = tail.getInt();
+						final int length = tail.getInt();
+						if (length > 0) {
+							copy(mData.getChannel(), offset, length, target);
+							writeRecord(targetIndex, (long)records * RECORD_SIZE, crc, (int)position, length);
+							position += length;
+						} else {
+							writeRecord(targetIndex, (long)records * RECORD_SIZE, crc, 0, 0);
+						}
+						records++;
+					}
+				}
+				IOUtilities.closeStream(data);
+				IOUtilities.closeStream(index);
+				close();
+				if (!dataTemp.renameTo(dataFile) || !indexTemp.renameTo(indexFile)) {
+					// data and index must match, so better start over.
+					dataFile.delete();
+					indexFile.delete();
+					throw new IOException("Cannot replace thumb store with compacted version.");
+				}
+				if (!open()) {
+					throw new IOException("Cannot reopen compacted thumb store.");
+				}
+			}
+		} finally {
+			IOUtilities.closeStream(source);
+			IOUtilities.closeStream(data);
+			IOUtilities.closeStream(index);
+			dataTemp.delete();
+			indexTemp.delete();
+			synchronized (this) {
+				mCompacting = false;
+			}
+		}
+	}
+
+	private static void copy(FileChannel source, long offset, int length, FileChannel target) throws IOException {
+		long copied = 0;
+		while (copied < length) {
+			copied += source.transferTo(offset + copied, length - copied, target);
+		}
+	}
+
+	/**
+	 * Returns the slots of all live thumbs, least recently read first.
+	 */
+	private int[] slotsByAccess() {
+		final long[] order = new long[mEntries];
+		int n = 0;
+		for (int i = 0; i < mKeys.length; i++) {
+			if (length(mValues[i]) > 0) {
+				order[n++] = ((long)mAccess[i] << 32) | i;
+			}
+		}
+		Arrays.sort(order, 0, n);
+		final int[] slots = new int[n];
+		for (int i = 0; i < n; i++) {
+			slots[i] = (int)order[i];
+		}
+		return slots;
+	}
+
+	private void clear(int capacity) {
+		int slots = 16;
+		while (slots < capacity * 2) {
+			slots <<= 1;
+		}
+		mKeys = new int[slots];
+		mValues = new long[slots];
+		mAccess = new int[slots];
+		Arrays.fill(mValues, EMPTY);
+		mClock = 0;
+		mSlotsUsed = 0;
+		mEntries = 0;
+		mLiveBytes = 0;
+	}
+
+	private int slot(int crc) {
+		final int mask = mKeys.length - 1;
+		int i = (crc ^ (crc >>> 16)) * 0x45d9f3b & mask;
+		while (mValues[i] != EMPTY && mKeys[i] != crc) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private long lookup(int crc) {
+		final long value = mValues[slot(crc)];
+		return value == EMPTY ? REMOVED : value;
+	}
+
+	/**
+	 * Sets the value of a CRC and keeps the counters up to date.
+	 */
+	private void update(int crc, long value) {
+		int i = slot(crc);
+		final long previous = mValues[i];
+		if (previous == EMPTY) {
+			if (value == REMOVED) {
+				return;
+			}
+			if ((mSlotsUsed + 1) * 4 > mKeys.length * 3) {
+				grow();
+				i = slot(crc);
+			}
+			mKeys[i] = crc;
+			mSlotsUsed++;
+		} else if (length(previous) > 0) {
+			mEntries--;
+			mLiveBytes -= length(previous);
+		}
+		mValues[i] = value;
+		if (length(value) > 0) {
+			mEntries++;
+			mLiveBytes += length(value);
+			mAccess[i] = ++mClock;
+		}
+	}
+
+	private void grow() {
+		final int[] keys = mKeys;
+		final long[] values = mValues;
+		final int[] access = mAccess;
+		mKeys = new int[keys.length * 2];
+		mValues = new long[values.length * 2];
+		mAccess = new int[access.length * 2];
+		Arrays.fill(mValues, EMPTY);
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != EMPTY) {
+				final int j = slot(keys[i]);
+				mKeys[j] = keys[i];
+				mValues[j] = values[i];
+				mAccess[j] = access[i];
+			}
+		}
+	}
+
+
+	private static long pack(int offset, int length) {
+		return ((long)offset << 32) | (length & 0xffffffffL);
+	}
+
+	private static int offset(long value) {
+		return (int)(value >>> 32);
+	}
+
+	private static int length(long value) {
+		return (int)value;
+	}
+}
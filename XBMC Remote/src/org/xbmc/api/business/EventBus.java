@@ -0,0 +1,79 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.api.business;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import android.util.Log;
+
+/**
+ * Delivers events of one type to everybody who subscribed. Events are
+ * delivered synchronously on the thread that posts them, so listeners must
+ * return quickly and hand anything heavy over to their own thread.
+ * 
+ * Subscribing and unsubscribing is safe at any time, also from within a
+ * listener.
+ * 
+ * @author Team XBMC
+ * @param <E> Type of the events
+ */
+public class EventBus<E> {
+	
+	private static final String TAG = "EventBus";
+	
+	/**
+	 * Receives the events of a bus.
+	 * @param <E> Type of the events
+	 */
+	public interface Listener<E> {
+		public void onEvent(E event);
+	}
+	
+	private final CopyOnWriteArrayList<Listener<? super E>> mListeners = new CopyOnWriteArrayList<Listener<? super E>>();
+	
+	public void subscribe(Listener<? super E> listener) {
+		mListeners.addIfAbsent(listener);
+	}
+	
+	public void unsubscribe(Listener<? super E> listener) {
+		mListeners.remove(listener);
+	}
+	
+	public boolean hasListeners() {
+		return !mListeners.isEmpty();
+	}
+	
+	/**
+	 * Hands the event to all listeners. A failing listener doesn't keep the
+	 * others from receiving it.
+	 * @param event Event to deliver
+	 */
+	public void post(E event) {
+		for (Listener<? super E> listener : mListeners) {
+			try {
+				listener.onEvent(event);
+			} catch (RuntimeException e) {
+				Log.e(TAG, "Listener failed on " + event + ": " + e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -50,6 +50,12 @@ public interface IMusicManager extends IManager {
 	 */
 	public void getAlbums(final DataResponse<ArrayList<Album>> response, final Context context);
 	
+	/**
+	 * Gets all albums from database, page by page
+	 * @param response Response object, receives the first page
+	 */
+	public void getAlbums(final PagedResponse<Album> response, final Context context);
+	
 	/**
 	 * SYNCHRONOUSLY gets all albums from database
 	 * @return All albums in database
@@ -91,6 +97,20 @@ public interface IMusicManager extends IManager {
 	 */
 	public void getSongs(final DataResponse<ArrayList<Song>> response, final Genre genre, final Context context);
 
+	/**
+	 * Gets all songs from an artist from database, page by page
+	 * @param response Response object, receives the first page
+	 * @param artist Artist
+	 */
+	public void getSongs(final PagedResponse<Song> response, final Artist artist, final Context context);
+
+	/**
+	 * Gets all songs of a genre from database, page by page
+	 * @param response Response object, receives the first page
+	 * @param genre Genre
+	 */
+	public void getSongs(final PagedResponse<Song> response, final Genre genre, final Context context);
+
 	/**
 	 * Gets all artists from database
 	 * @param response Response object
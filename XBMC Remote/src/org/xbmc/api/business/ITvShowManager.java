@@ -50,6 +50,14 @@ public interface ITvShowManager extends IManager{
 	 */
 	public void getEpisodes(DataResponse<ArrayList<Episode>> response, Season season, Context context) ;
 	
+	/**
+	 * Gets all Episodes for the specified season, page by page
+	 * @param response Response object, receives the first page
+	 * @param season
+	 * @param context
+	 */
+	public void getEpisodes(PagedResponse<Episode> response, Season season, Context context) ;
+	
 	/**
 	 * Gets all seasons for the specified show
 	 * @param show
@@ -49,6 +49,12 @@ public interface IVideoManager extends IManager {
 	 */
 	public void getMovies(final DataResponse<ArrayList<Movie>> response, final Context context);
 	
+	/**
+	 * Gets all movies from database, page by page
+	 * @param response Response object, receives the first page
+	 */
+	public void getMovies(final PagedResponse<Movie> response, final Context context);
+	
 	/**
 	 * SYNCHRONOUSLY gets all movies from database
 	 * @return All movies in database
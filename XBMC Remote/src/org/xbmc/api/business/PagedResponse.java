@@ -0,0 +1,62 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.api.business;
+
+import java.util.ArrayList;
+
+/**
+ * Response of a list which is fetched in pages. The first page is delivered
+ * like any other response, through <tt>value</tt> and {@link #run()}. All
+ * following pages are passed to {@link #onPage(ArrayList)}, one by one and
+ * in order, until the list is complete or the response gets cancelled.
+ *
+ * @author Team XBMC
+ * @param <T> Type of the list items
+ */
+public class PagedResponse<T> extends DataResponse<ArrayList<T>> {
+
+	private volatile boolean mCancelled = false;
+
+	/**
+	 * Executed on the UI thread for every page following the first one.
+	 * @param page Next rows of the list
+	 */
+	public void onPage(ArrayList<T> page) {
+		// do nothing if not overloaded
+	}
+
+	/**
+	 * Stops fetching further pages, for instance when the list gets reloaded
+	 * or the activity is left.
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+
+	/**
+	 * Returns true if no more pages should be fetched.
+	 * @return True if cancelled, false otherwise.
+	 */
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.api.data;
+
+import java.util.ArrayList;
+
+import org.xbmc.api.business.INotifiableManager;
+
+/**
+ * Raw read access to XBMC's media databases, used to mirror the library
+ * locally. Rows come back as strings, exactly as XBMC returns them.
+ * 
+ * @author Team XBMC
+ */
+public interface ILibraryClient extends IClient {
+	
+	public static final int MUSIC_DATABASE = 1;
+	public static final int VIDEO_DATABASE = 2;
+	
+	/**
+	 * Runs a query on one of XBMC's databases.
+	 * @param manager  Upper layer reference for error posting
+	 * @param database Either {@link #MUSIC_DATABASE} or {@link #VIDEO_DATABASE}
+	 * @param sql      SQL query
+	 * @param columns  Number of columns the query selects
+	 * @return Rows with one string per column, empty list on error.
+	 */
+	public ArrayList<String[]> query(INotifiableManager manager, int database, String sql, int columns);
+}
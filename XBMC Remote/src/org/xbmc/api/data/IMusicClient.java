@@ -231,6 +231,16 @@ public interface IMusicClient extends IClient {
 	 */
 	public ArrayList<Album> getAlbums(INotifiableManager manager, Genre genre, int sortBy, String sortOrder);
 	
+	/**
+	 * Gets one page of all albums from database
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of albums to skip
+	 * @param limit Maximal number of albums to return
+	 * @return Albums of the page
+	 */
+	public ArrayList<Album> getAlbums(INotifiableManager manager, int sortBy, String sortOrder, int offset, int limit);
+	
 	/**
 	 * Gets all albums from database
 	 * @param albumArtistsOnly If set to true, hide artists who appear only on compilations.
@@ -303,6 +313,28 @@ public interface IMusicClient extends IClient {
 	 */
 	public ArrayList<Song> getSongs(INotifiableManager manager, Artist artist, Genre genre, int sortBy, String sortOrder);
 	
+	/**
+	 * Returns one page of all tracks of an artist.
+	 * @param artist Artist
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Artist artist, int sortBy, String sortOrder, int offset, int limit);
+	
+	/**
+	 * Returns one page of all tracks of a genre.
+	 * @param genre Genre
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Genre genre, int sortBy, String sortOrder, int offset, int limit);
+	
 	/**
 	 * Returns a list containing all artist IDs that stand for "compilation".
 	 * Best case scenario would be only one ID for "Various Artists", though
@@ -50,6 +50,16 @@ public interface ITvShowClient extends IClient {
 	 */
 	public ArrayList<Episode> getEpisodes(INotifiableManager manager, Season season, int sortBy, String sortOrder, boolean hideWatched) ;
 	
+	/**
+	 * Gets one page of the Episodes for the specified season
+	 * @param manager
+	 * @param season
+	 * @param offset Number of episodes to skip
+	 * @param limit Maximal number of episodes to return
+	 * @return
+	 */
+	public ArrayList<Episode> getEpisodes(INotifiableManager manager, Season season, int sortBy, String sortOrder, boolean hideWatched, int offset, int limit) ;
+	
 	/**
 	 * Gets all Episodes for the specified show and season
 	 * @param manager
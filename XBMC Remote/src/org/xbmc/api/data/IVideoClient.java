@@ -57,6 +57,16 @@ public interface IVideoClient extends IClient {
 	 */
 	public ArrayList<Movie> getMovies(INotifiableManager manager, int sortBy, String sortOrder, int offset, boolean hideWatched);
 	
+	/**
+	 * Gets one page of all movies from database
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of movies to skip
+	 * @param limit Maximal number of movies to return
+	 * @return Movies of the page
+	 */
+	public ArrayList<Movie> getMovies(INotifiableManager manager, int sortBy, String sortOrder, int offset, int limit, boolean hideWatched);
+	
 	/**
 	 * Gets all movies with an actor from database
 	 * @param actor Display only movies with this actor.
@@ -32,9 +32,11 @@ public class Host implements Serializable {
 	
 	public static final int DEFAULT_HTTP_PORT = 8080;
 	public static final int DEFAULT_EVENTSERVER_PORT = 9777;
+	public static final int DEFAULT_JSONRPC_TCP_PORT = 9090;
 	public static final int DEFAULT_TIMEOUT = 5000;
 	public static final int DEFAULT_WOL_WAIT = 40;
 	public static final int DEFAULT_WOL_PORT = 9;
+	public static final int DEFAULT_POLL_INTERVAL = 1000;
 	
 	/**
 	 * Database ID
@@ -88,6 +90,10 @@ public class Host implements Serializable {
 	 * The port to send the WOL to
 	 */
 	public int wol_port = DEFAULT_WOL_PORT;
+	/**
+	 * Time between two "Now playing" polls in milliseconds
+	 */
+	public int poll_interval = DEFAULT_POLL_INTERVAL;
 	
 	/**
 	 * Something readable
@@ -3,6 +3,9 @@ package org.xbmc.eventclient;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 import org.xbmc.api.data.IEventClient;
 
@@ -16,6 +19,9 @@ import android.util.Log;
  * Ping-Thread, which tells the XBMC EventServer that the client is alive.
  * Therefore if you close your application you SHOULD call stopClient()!
  * 
+ * All packets are encoded into the same buffer and sent through one UDP
+ * channel, which stays open until the host changes or the client stops.
+ * 
  * 03.09.2009 freezy changed class name and member variables
  * 
  * @author Stefan Agner
@@ -30,6 +36,20 @@ public class EventClient implements IEventClient {
 	private InetAddress mHostAddress;
 	private int mHostPort;
 	
+	/**
+	 * Channel to the EventServer and its address, guarded by mBuffer.
+	 */
+	private DatagramChannel mChannel;
+	private InetSocketAddress mTarget;
+	
+	/**
+	 * Encoding buffer reused for every packet
+	 */
+	private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(Packet.MAX_PACKET_SIZE);
+	
+	private long mPacketsSent = 0;
+	private long mSendNanos = 0;
+	
 	private static final String TAG = "EventClient";
 	
 	/**
@@ -97,7 +117,7 @@ public class EventClient implements IEventClient {
 			} else {
 				mHostAddress = addr;
 				mHostPort = port;
-				mPingThread.setHost(addr, port);
+				closeChannel();
 			}
 		} else {
 			Log.e(TAG, "Setting null host!");
@@ -107,6 +127,8 @@ public class EventClient implements IEventClient {
 				e.printStackTrace();
 			}
 			mHostAddress = null;
+			// the next host gets a new channel and target
+			closeChannel();
 		}
 	}
 	
@@ -164,6 +186,12 @@ public class EventClient implements IEventClient {
 		// Save host address and port
 		mHostAddress = hostAddress;
 		mHostPort = hostPort;
+		// a channel still open to the previous host would keep sending there
+		closeChannel();
+		if (mPingThread != null) {
+			mPingThread.giveup();
+			mPingThread.interrupt();
+		}
 
 		// Send Hello Packet...
 		PacketHELO p;
@@ -173,9 +201,9 @@ public class EventClient implements IEventClient {
 			p = new PacketHELO(mDeviceName);
 
 		try {
-			p.send(hostAddress, hostPort);
+			send(p);
 			// Start Thread (for Ping packets...)
-			mPingThread = new PingThread(hostAddress, hostPort, 20000);
+			mPingThread = new PingThread(20000);
 			mPingThread.start();
 		} catch (IOException e) {
 		}
@@ -195,7 +223,61 @@ public class EventClient implements IEventClient {
 			mPingThread.interrupt();
 			
 			PacketBYE p = new PacketBYE();
-			p.send(mHostAddress, mHostPort);
+			send(p);
+			Log.i(TAG, getStats());
+			closeChannel();
+		}
+	}
+	
+	/**
+	 * Returns how many packets were sent and how long sending took on
+	 * average, including encoding.
+	 * @return Send statistics
+	 */
+	public String getStats() {
+		synchronized (mBuffer) {
+			return mPacketsSent + " packets sent, " + (mPacketsSent > 0 ? mSendNanos / mPacketsSent / 1000 : 0) + "us per packet";
+		}
+	}
+	
+	/**
+	 * Encodes and sends a packet to the current host. Opens the channel if
+	 * needed.
+	 * @param packet Packet to send
+	 * @throws IOException
+	 */
+	private void send(Packet packet) throws IOException {
+		synchronized (mBuffer) {
+			final long start = System.nanoTime();
+			if (mChannel == null || !mChannel.isOpen()) {
+				mChannel = DatagramChannel.open();
+				mTarget = new InetSocketAddress(mHostAddress, mHostPort);
+			}
+			try {
+				packet.send(mChannel, mBuffer, mTarget);
+			} catch (IOException e) {
+				closeChannel();
+				throw e;
+			}
+			mPacketsSent++;
+			mSendNanos += System.nanoTime() - start;
+		}
+	}
+	
+	/**
+	 * Closes the channel, so the next packet opens a new one to the current
+	 * host.
+	 */
+	private void closeChannel() {
+		synchronized (mBuffer) {
+			if (mChannel != null) {
+				try {
+					mChannel.close();
+				} catch (IOException e) {
+					Log.e(TAG, "Error closing channel: " + e.getMessage());
+				}
+				mChannel = null;
+			}
 		}
 	}
 	
@@ -214,7 +296,7 @@ public class EventClient implements IEventClient {
 				p = new PacketNOTIFICATION(title, message, mIconType, mIconData);
 			else
 				p = new PacketNOTIFICATION(title, message);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 	
@@ -222,7 +304,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketNOTIFICATION p = new PacketNOTIFICATION(title, message, icontype, icondata);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -246,7 +328,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketBUTTON p = new PacketBUTTON(code, repeat, down, queue, amount, axis);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -293,7 +375,7 @@ public class EventClient implements IEventClient {
 		if (addr != null) {
 			Log.i(TAG, "sendButton(" + map_name + ", \"" + button_name + "\", " + (repeat ? "rep, " : "nonrep, ") + (down ? "down)" : "up)"));
 			PacketBUTTON p = new PacketBUTTON(map_name, button_name, repeat, down, queue, amount, axis);
-			p.send(addr, mHostPort);
+			send(p);
 		} else {
 			Log.e(TAG, "sendButton failed due to unset host address!");
 		}
@@ -309,7 +391,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketMOUSE p = new PacketMOUSE(x, y);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -322,7 +404,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketPING p = new PacketPING();
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -346,7 +428,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketLOG p = new PacketLOG(loglevel, logmessage);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -360,7 +442,7 @@ public class EventClient implements IEventClient {
 		final InetAddress addr = mHostAddress;
 		if (addr != null) {
 			PacketACTION p = new PacketACTION(actionmessage);
-			p.send(addr, mHostPort);
+			send(p);
 		}
 	}
 
@@ -370,33 +452,23 @@ public class EventClient implements IEventClient {
 	 * 
 	 * @author Stefan Agner
 	 */
-	private static class PingThread extends Thread {
-		private InetAddress mHostAddress;
-		private int mHostPort;
+	private class PingThread extends Thread {
 		private int mSleepTime;
 		private boolean mGiveup = false;
 
-		public PingThread(InetAddress hostAddress, int hostPort, int sleepTime) {
+		public PingThread(int sleepTime) {
 			super("XBMC EventClient Ping-Thread");
-			mHostAddress = hostAddress;
-			mHostPort = hostPort;
 			mSleepTime = sleepTime;
 		}
 
 		public void giveup() {
 			mGiveup = true;
 		}
-		
-		public void setHost(InetAddress addr, int port) {
-			mHostAddress = addr;
-			mHostPort = port;
-		}
 
 		public void run() {
 			while (!mGiveup) {
 				try {
-					PacketPING p = new PacketPING();
-					p.send(mHostAddress, mHostPort);
+					ping();
 				} catch (IOException e) {
 
 					e.printStackTrace();
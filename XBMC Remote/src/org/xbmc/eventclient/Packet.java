@@ -3,6 +3,11 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import org.xbmc.android.util.Metrics;
 
 /**
  * XBMC Event Client Class
@@ -56,17 +61,26 @@ import java.net.InetAddress;
  */
 public abstract class Packet {
 	
-	private byte[] sig;
-	private byte[] payload = new byte[0];
-	private byte minver;
-	private byte majver;
+	private static final byte[] SIGNATURE = new byte[] {'X', 'B', 'M', 'C' };
+	private static final byte MAJOR_VERSION = 2;
+	private static final byte MINOR_VERSION = 0;
+	
+	private static final Metrics.Histogram SEND_TIME = Metrics.histogram("eventclient.send");
+	
+	/**
+	 * Payload, filled up to payloadsize. Grows by doubling, so appending
+	 * doesn't copy the whole payload every time.
+	 */
+	private byte[] payload;
+	private int payloadsize = 0;
 	
 	private short packettype; 
 	
 	
-	private final static short MAX_PACKET_SIZE  = 1024;
+	public final static short MAX_PACKET_SIZE  = 1024;
 	private final static short HEADER_SIZE      = 32;
 	private final static short MAX_PAYLOAD_SIZE = MAX_PACKET_SIZE - HEADER_SIZE;
+	private final static int DEFAULT_PAYLOAD_CAPACITY = 32;
 
 	protected final static byte PT_HELO          = 0x01;
 	protected final static byte PT_BYE           = 0x02;
@@ -97,10 +111,18 @@ public abstract class Packet {
 	 */
 	protected Packet(short packettype)
 	{
-		sig = new byte[] {'X', 'B', 'M', 'C' };
-        minver = 0;
-        majver = 2;
-        this.packettype = packettype;
+		this(packettype, DEFAULT_PAYLOAD_CAPACITY);
+	}
+	
+	/**
+	 * Same as {@link #Packet(short)}, but reserves room for the payload.
+	 * @param packettype Type of Packet (PT_XXX)
+	 * @param capacity Expected payload size in bytes
+	 */
+	protected Packet(short packettype, int capacity)
+	{
+		this.packettype = packettype;
+		this.payload = new byte[capacity];
 	}
 
 	/**
@@ -109,12 +131,21 @@ public abstract class Packet {
 	 */
 	protected void appendPayload(String payload)
 	{
-		byte[] payloadarr = payload.getBytes();
-		int oldpayloadsize = this.payload.length;
-		byte[] oldpayload = this.payload;
-		this.payload = new byte[oldpayloadsize+payloadarr.length+1]; // Create new Array with more place (+1 for string terminator)
-		System.arraycopy(oldpayload, 0, this.payload, 0, oldpayloadsize);
-		System.arraycopy(payloadarr, 0, this.payload, oldpayloadsize, payloadarr.length);
+		final int length = payload.length();
+		ensureCapacity(length + 1);
+		for (int i = 0; i < length; i++) {
+			final char c = payload.charAt(i);
+			if (c >= 0x80) {
+				// not plain ascii, let the platform encode it.
+				final byte[] payloadarr = payload.substring(i).getBytes();
+				ensureCapacity(payloadarr.length + 1);
+				System.arraycopy(payloadarr, 0, this.payload, payloadsize, payloadarr.length);
+				payloadsize += payloadarr.length;
+				break;
+			}
+			this.payload[payloadsize++] = (byte)c;
+		}
+		this.payload[payloadsize++] = 0; // string terminator
 	}
 
 	/**
@@ -123,7 +154,8 @@ public abstract class Packet {
 	 */
 	protected void appendPayload(byte payload)
 	{
-		appendPayload(new byte[] { payload });
+		ensureCapacity(1);
+		this.payload[payloadsize++] = payload;
 	}
 
 	/**
@@ -132,11 +164,9 @@ public abstract class Packet {
 	 */
 	protected void appendPayload(byte[] payloadarr)
 	{
-		int oldpayloadsize = this.payload.length;
-		byte[] oldpayload = this.payload;
-		this.payload = new byte[oldpayloadsize+payloadarr.length];
-		System.arraycopy(oldpayload, 0, this.payload, 0, oldpayloadsize);
-		System.arraycopy(payloadarr, 0, this.payload, oldpayloadsize, payloadarr.length);
+		ensureCapacity(payloadarr.length);
+		System.arraycopy(payloadarr, 0, this.payload, payloadsize, payloadarr.length);
+		payloadsize += payloadarr.length;
 	}
 
 	/**
@@ -144,7 +174,11 @@ public abstract class Packet {
 	 * @param i Payload
 	 */
 	protected void appendPayload(int i) {
-		appendPayload(intToByteArray(i));
+		ensureCapacity(4);
+		payload[payloadsize++] = (byte)(i >>> 24);
+		payload[payloadsize++] = (byte)(i >>> 16);
+		payload[payloadsize++] = (byte)(i >>> 8);
+		payload[payloadsize++] = (byte)i;
 	}
 
 	/**
@@ -152,92 +186,89 @@ public abstract class Packet {
 	 * @param s Payload
 	 */
 	protected void appendPayload(short s) {
-		appendPayload(shortToByteArray(s));
+		ensureCapacity(2);
+		payload[payloadsize++] = (byte)(s >>> 8);
+		payload[payloadsize++] = (byte)s;
 	}
 	
 	/**
-	 * Get Number of Packets which will be sent with current Payload...
+	 * Get Number of Packets which will be sent with current Payload. Packets
+	 * without payload (PING, BYE) still need one packet.
 	 * @return Number of Packets
 	 */
 	public int getNumPackets()
 	{
-		return (int)((payload.length + (MAX_PAYLOAD_SIZE - 1)) / MAX_PAYLOAD_SIZE);
+		return Math.max(1, (payloadsize + (MAX_PAYLOAD_SIZE - 1)) / MAX_PAYLOAD_SIZE);
 	}
 	
 	/**
-	 * Get Header for a specific Packet in this sequence...
-	 * @param seq Current sequence number
-	 * @param maxseq Maximal sequence number
-	 * @param actpayloadsize Payloadsize of this packet
-	 * @return Byte-Array with Header information (currently 32-Byte long, see HEADER_SIZE)
+	 * Writes header and payload of a specific Packet in sequence into a
+	 * buffer.
+	 * @param buffer Buffer with at least MAX_PACKET_SIZE bytes remaining
+	 * @param seq Current sequence number, starting with 1
 	 */
-	private byte[] getHeader(int seq, int maxseq, short actpayloadsize)
+	public void writeUDPMessage(ByteBuffer buffer, int seq)
 	{
-		byte[] header = new byte[HEADER_SIZE];
-		System.arraycopy(sig, 0, header, 0, 4);
-		header[4] = majver;
-		header[5] = minver;
-		byte[] packettypearr = shortToByteArray(this.packettype);
-		System.arraycopy(packettypearr, 0, header, 6, 2);
-		byte[] seqarr = intToByteArray(seq);
-		System.arraycopy(seqarr, 0, header, 8, 4);
-		byte[] maxseqarr = intToByteArray(maxseq);
-		System.arraycopy(maxseqarr, 0, header, 12, 4);
-		byte[] payloadsize = shortToByteArray(actpayloadsize);
-		System.arraycopy(payloadsize, 0, header, 16, 2);
-		byte[] uid = intToByteArray(Packet.uid);
-		System.arraycopy(uid, 0, header, 18, 4);
-		byte[] reserved = new byte[10];
-		System.arraycopy(reserved, 0, header, 22, 10);
+		final int maxseq = getNumPackets();
+		final int offset = (seq - 1) * MAX_PAYLOAD_SIZE;
+		final short actpayloadsize = (short)Math.min(MAX_PAYLOAD_SIZE, payloadsize - offset);
 		
-		return header;
+		buffer.put(SIGNATURE);
+		buffer.put(MAJOR_VERSION);
+		buffer.put(MINOR_VERSION);
+		buffer.putShort(packettype);
+		buffer.putInt(seq);
+		buffer.putInt(maxseq);
+		buffer.putShort(actpayloadsize);
+		buffer.putInt(uid);
+		for (int i = 0; i < 10; i++) { // reserved
+			buffer.put((byte)0);
+		}
+		buffer.put(payload, offset, actpayloadsize);
 	}
 	
 	/**
-	 * Generates the whole UDP-Message with Header and Payload of a specific Packet in sequence
-	 * @param seq Current sequence number
-	 * @return Byte-Array with UDP-Message
+	 * Sends this packet through an open channel.
+	 * @param channel Datagram channel
+	 * @param buffer Buffer used for encoding, at least MAX_PACKET_SIZE bytes
+	 * @param target Address and port of the EventServer
+	 * @throws IOException
 	 */
-	private byte[] getUDPMessage(int seq)
+	public void send(DatagramChannel channel, ByteBuffer buffer, SocketAddress target) throws IOException
 	{
-		int maxseq = (int)((payload.length + (MAX_PAYLOAD_SIZE - 1)) / MAX_PAYLOAD_SIZE);
-		if(seq > maxseq)
-			return null;
-		
-		short actpayloadsize;
-		
-		if(seq == maxseq)
-			actpayloadsize = (short)(payload.length%MAX_PAYLOAD_SIZE);
-			
-		else
-			actpayloadsize = (short)MAX_PAYLOAD_SIZE;
-
-		byte[] pack = new byte[HEADER_SIZE+actpayloadsize];
-		
-		System.arraycopy(getHeader(seq, maxseq, actpayloadsize), 0, pack, 0, HEADER_SIZE);
-		System.arraycopy(payload, (seq-1)*MAX_PAYLOAD_SIZE, pack, HEADER_SIZE, actpayloadsize);
-		
-		return pack;
+		final long start = System.nanoTime();
+		final int maxseq = getNumPackets();
+		for (int seq = 1; seq <= maxseq; seq++) {
+			buffer.clear();
+			writeUDPMessage(buffer, seq);
+			buffer.flip();
+			channel.send(buffer, target);
+		}
+		SEND_TIME.recordSince(start);
 	}
 	
 	/**
-	 * Sends this packet to the EventServer
+	 * Sends this packet to the EventServer through a new socket. Use
+	 * {@link EventClient}, which keeps its socket open, if you send more
+	 * than one packet.
 	 * @param adr Address of the EventServer
 	 * @param port Port of the EventServer
 	 * @throws IOException
 	 */
 	public void send(InetAddress adr, int port) throws IOException
 	{
-		int maxseq = getNumPackets();
+		final long start = System.nanoTime();
+		final int maxseq = getNumPackets();
+		final ByteBuffer buffer = ByteBuffer.allocate(MAX_PACKET_SIZE);
 		DatagramSocket s = new DatagramSocket();
 		
 		try {
 			// For each Packet in Sequence...
 			for(int seq=1;seq<=maxseq;seq++)
 			{
-				// Get Message and send them...
-				byte[] pack = getUDPMessage(seq);
-				DatagramPacket p = new DatagramPacket(pack, pack.length);
+				buffer.clear();
+				writeUDPMessage(buffer, seq);
+				DatagramPacket p = new DatagramPacket(buffer.array(), buffer.position());
 				p.setAddress(adr);
 				p.setPort(port);
 				s.send(p);
@@ -245,31 +276,18 @@ public abstract class Packet {
 		} finally {
 			s.close();
 		}
+		SEND_TIME.recordSince(start);
 	}
 	
 	/**
-	 * Helper Method to convert an integer to a Byte array
-	 * @param value
-	 * @return Byte-Array
+	 * Makes sure the payload array has room for more bytes.
+	 * @param bytes Number of bytes to append
 	 */
-	private static final byte[] intToByteArray(int value) {
-	          return new byte[] {
-	                  (byte)(value >>> 24),
-	                  (byte)(value >>> 16),
-	                  (byte)(value >>> 8),
-	                  (byte)value};
-	}
-
-	/**
-	 * Helper Method to convert an short to a Byte array
-	 * @param value
-	 * @return Byte-Array
-	 */
-	private static final byte[] shortToByteArray(short value) {
-        return new byte[] {
-                (byte)(value >>> 8),
-                (byte)value};
+	private void ensureCapacity(int bytes) {
+		if (payloadsize + bytes > payload.length) {
+			final byte[] grown = new byte[Math.max(payload.length * 2, payloadsize + bytes)];
+			System.arraycopy(payload, 0, grown, 0, payloadsize);
+			payload = grown;
+		}
 	}
-
-	
 }
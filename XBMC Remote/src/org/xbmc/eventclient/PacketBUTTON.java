@@ -35,7 +35,7 @@ public class PacketBUTTON extends Packet {
 	 */
 	public PacketBUTTON(short code, boolean repeat, boolean down, boolean queue, short amount, byte axis)
 	{
-		super(PT_BUTTON);
+		super(PT_BUTTON, getPayloadSize("", ""));
 		String map_name = "";
 		String button_name = "";
 		short flags = 0;
@@ -71,12 +71,25 @@ public class PacketBUTTON extends Packet {
 	 */
 	public PacketBUTTON(String map_name, String button_name, boolean repeat, boolean down, boolean queue, short amount, byte axis)
 	{
-		super(PT_BUTTON);
+		super(PT_BUTTON, getPayloadSize(map_name, button_name));
 		short code = 0;
 		short flags = BT_USE_NAME;
 		appendPayload(code, map_name, button_name, repeat, down, queue, amount, axis, flags);
 	}
 	
+	/**
+	 * Returns the payload size of a button packet with ascii names, so the
+	 * payload is allocated only once.
+	 * @param map_name Name of the map
+	 * @param button_name Name of the button
+	 * @return Payload size in bytes
+	 */
+	private static int getPayloadSize(String map_name, String button_name)
+	{
+		// code, flags and amount, then both names with terminator
+		return 6 + map_name.length() + 1 + button_name.length() + 1;
+	}
+	
 	/**
 	 * Appends Payload for a Button Packet (this method is used by the different Constructors of this Packet)
 	 * @param code raw button code (default: 0)
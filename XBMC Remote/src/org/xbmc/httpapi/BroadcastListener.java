@@ -26,12 +26,12 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketException;
-import java.util.Observable;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.xbmc.android.remote.business.Command;
+import org.xbmc.api.business.EventBus;
 import org.xbmc.api.business.DataResponse;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.data.IControlClient.ICurrentlyPlaying;
@@ -41,10 +41,10 @@ import android.util.Log;
 /**
  * Implementation of XBMC's broadcast feature. 
  * 
- * <p>Classical observer pattern, any class implementing the observer interface
- * can subscribe. On any event, the {@link Observable#update(Observable o, Object arg) update()}
- * method is executed on the subscriber, with the event code in the
- * {@link BroadcastListener.Event} object.</p>
+ * <p>Events are posted on the {@link #getEventBus() event bus}, any
+ * {@link EventBus.Listener} can subscribe. On any event, its
+ * {@link EventBus.Listener#onEvent(Object) onEvent()} method is executed with
+ * the event code in the {@link BroadcastListener.Event} object.</p>
  * 
  * <p>We will set the broadcast port to something random in order to distinguish
  * between several potential XBMC instances running concurrently. If broadcasting
@@ -61,7 +61,7 @@ import android.util.Log;
  * @see <a href="http://xbmc.org/trac/ticket/7687">Trac about missing messages</a>
  * @author Team XBMC
  */
-public class BroadcastListener extends Observable implements Runnable {
+public class BroadcastListener implements Runnable {
 	
 	private static final String TAG = "broadcast";
 	
@@ -98,11 +98,17 @@ public class BroadcastListener extends Observable implements Runnable {
 	private static Thread sThread;
 	
 	private final HttpApi mHttpClient;
+	private final EventBus<Event> mEventBus = new EventBus<Event>();
 	
 	private boolean mIsListening = false;
 	private boolean mIsAvailable = false;
 	private int mPort = 0;
 	
+	/**
+	 * Virtual clock of the current playback, null if nothing is playing.
+	 */
+	private TimerTask mCounter;
+	
 	private final INotifiableManager mManagerStub;
 	
 	/**
@@ -158,7 +164,7 @@ public class BroadcastListener extends Observable implements Runnable {
 				Log.i(TAG, "current port = " + port);
 				if (port == 0 || port == DEFAULT_PORT) {
 					final Random rnd = new Random();
-					final int rndPort = (rnd.nextInt() % 22768) + 10000;
+					final int rndPort = 10000 + rnd.nextInt(22768);
 					Log.i(TAG, "new port = " + rndPort);
 					if (!mHttpClient.control.setBroadcast(mManagerStub, rndPort, BCAST_LEVEL)) {
 						Log.i(TAG, "SETTING BROADCAST SETTINGS FAILED!");
@@ -176,6 +182,10 @@ public class BroadcastListener extends Observable implements Runnable {
 				sThread.start();
 				int n = 0;
 				while (!mIsAvailable || !mIsListening) {
+					if (!sThread.isAlive()) {
+						Log.i(TAG, "Listener thread died, stop pinging.");
+						break;
+					}
 					Log.i(TAG, "broadcast PING (" + BCAST_PING + ")...");
 					mHttpClient.control.broadcast(mManagerStub, BCAST_PING);
 					try {
@@ -222,6 +232,13 @@ public class BroadcastListener extends Observable implements Runnable {
 			e.printStackTrace();
 			String[] params = { e.getMessage() };
 			dispatch(EVENT_ERROR, params);
+		} catch (RuntimeException e) {
+			// invalid port or address, the init loop must not wait for nothing.
+			e.printStackTrace();
+			String[] params = { e.getMessage() };
+			dispatch(EVENT_ERROR, params);
+		} finally {
+			mIsListening = false;
 		}
 	}
 	
@@ -233,17 +250,33 @@ public class BroadcastListener extends Observable implements Runnable {
 	}
 	
 	/**
-	 * Notifies the observers
+	 * Returns true if the test broadcast was received, i.e. events arrive.
+	 * @return True if listening and available, false otherwise.
+	 */
+	public boolean isAvailable() {
+		return mIsListening && mIsAvailable;
+	}
+	
+	/**
+	 * Returns the bus on which all events are posted. Listeners are called
+	 * on the receiving thread or, for progress, on the timer thread.
+	 * @return Event bus
+	 */
+	public EventBus<Event> getEventBus() {
+		return mEventBus;
+	}
+	
+	/**
+	 * Notifies the listeners
 	 * @param event
 	 * @param params
 	 */
 	private void dispatch(int event, String[] params) {
-		setChanged();
-		notifyObservers(new Event(event, params));
+		mEventBus.post(new Event(event, params));
 	}
 	
 	/**
-	 * Notifies the observers
+	 * Notifies the listeners
 	 * @param event
 	 */
 	private void dispatch(int event) {
@@ -274,21 +307,19 @@ public class BroadcastListener extends Observable implements Runnable {
 			params[0] = param;
 		} else if (response.startsWith("OnPlayBackStarted")) {
 			event = EVENT_ON_PLAYBACK_STARTED;
-			ICurrentlyPlaying currPlaying = mHttpClient.control.getCurrentlyPlaying(mManagerStub);
-			sTimer.schedule(new BroadcastListener.Counter(currPlaying.getTime(), currPlaying.getDuration()), 0L, 1000L);
+			startCounter();
 		} else if (response.startsWith("OnPlayBackStopped")) {
 			event = EVENT_ON_PLAYBACK_STOPPED;
-			sTimer.cancel();
+			stopCounter();
 		} else if (response.startsWith("OnPlayBackEnded")) {
 			event = EVENT_ON_PLAYBACK_ENDED;
-			sTimer.cancel();
+			stopCounter();
 		} else if (response.startsWith("OnPlayBackPaused")) {
 			event = EVENT_ON_PLAYBACK_PAUSED;
-			sTimer.cancel();
+			stopCounter();
 		} else if (response.startsWith("OnPlayBackResumed")) {
 			event = EVENT_ON_PLAYBACK_RESUMED;
-			ICurrentlyPlaying currPlaying = mHttpClient.control.getCurrentlyPlaying(mManagerStub);
-			sTimer.schedule(new BroadcastListener.Counter(currPlaying.getTime(), currPlaying.getDuration()), 0L, 1000L);
+			startCounter();
 		} else if (response.startsWith("OnQueueNextItem")) {
 			event = EVENT_ON_QUEUE_NEXT_ITEM;
 		} else if (response.startsWith("MediaChanged")) {
@@ -304,6 +335,25 @@ public class BroadcastListener extends Observable implements Runnable {
 		dispatch(event, params);
 	}
 	
+	/**
+	 * (Re-)starts the virtual clock at the current playback position. Only
+	 * the task is cancelled when playback stops, since a cancelled timer
+	 * can't schedule anything anymore.
+	 */
+	private synchronized void startCounter() {
+		stopCounter();
+		final ICurrentlyPlaying currPlaying = mHttpClient.control.getCurrentlyPlaying(mManagerStub);
+		mCounter = new BroadcastListener.Counter(currPlaying.getTime(), currPlaying.getDuration());
+		sTimer.schedule(mCounter, 0L, 1000L);
+	}
+	
+	private synchronized void stopCounter() {
+		if (mCounter != null) {
+			mCounter.cancel();
+			mCounter = null;
+		}
+	}
+	
 	private class Counter extends TimerTask {
 		private int mStart, mEnd;
 		Counter(int start, int end) {
@@ -21,24 +21,26 @@
 
 package org.xbmc.httpapi;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.Authenticator;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.PasswordAuthentication;
-import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.apache.http.HttpException;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.xbmc.android.util.Base64;
 import org.xbmc.android.util.ClientFactory;
+import org.xbmc.android.util.Metrics;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.object.Host;
 
@@ -58,6 +60,10 @@ public class Connection {
 	private static final String XBMC_MICROHTTPD_VFS_BOOTSTRAP =  "/vfs/";
 	private static final int SOCKET_CONNECTION_TIMEOUT = 5000;
 	
+	private static final Metrics.Histogram QUERY_TIME = Metrics.histogram("httpapi.query");
+	private static final Metrics.Histogram QUERY_ROWS_TIME = Metrics.histogram("httpapi.query.rows");
+	private static final Metrics.Counter QUERY_ERRORS = Metrics.counter("httpapi.query.errors");
+	
 	/**
 	 * Singleton class instance
 	 */
@@ -79,6 +85,11 @@ public class Connection {
 	 */
 	private HttpAuthenticator mAuthenticator = null;
 	
+	/**
+	 * Keep-alive transport shared by all requests
+	 */
+	private final ConnectionPool mPool = new ConnectionPool(SOCKET_CONNECTION_TIMEOUT);
+	
 	/**
 	 * Use getInstance() for public class instantiation
 	 * @param host XBMC host
@@ -125,6 +136,7 @@ public class Connection {
 	 * @param port Port the HTTP API is listening to
 	 */
 	public void setHost(String host, int port) {
+		final String previous = mUrlSuffix;
 		if (host == null || port <= 0) {
 			mUrlSuffix = null;
 		} else {
@@ -135,6 +147,10 @@ public class Connection {
 			sb.append(port);
 			mUrlSuffix = sb.toString();
 		}
+		// don't keep sockets to a host we're not talking to anymore
+		if (previous != null && !previous.equals(mUrlSuffix)) {
+			mPool.closeAll();
+		}
 	}
 	
 	/**
@@ -150,6 +166,7 @@ public class Connection {
 			mAuthenticator = null;
 			Authenticator.setDefault(null);
 		}
+		mPool.setCredentials(user, pass);
 	}
 	
 	/**
@@ -159,9 +176,19 @@ public class Connection {
 	public void setTimeout(int timeout) {
 		if (timeout > 0) {
 			mSocketReadTimeout = timeout;
+			mPool.setReadTimeout(timeout);
 		}
 	}
 	
+	/**
+	 * Returns the keep-alive transport, e.g. for reading its socket reuse
+	 * counters.
+	 * @return Connection pool
+	 */
+	public ConnectionPool getPool() {
+		return mPool;
+	}
+	
 	/**
 	 * Returns the full URL of an HTTP API request
 	 * @param command    Name of the command to execute
@@ -188,22 +215,15 @@ public class Connection {
 	 * @return
 	 */
 	public InputStream getThumbInputStream(String command, String parameters, INotifiableManager manager) {
-		URLConnection uc = null;
 		try {
 			if (mUrlSuffix == null) {
 				throw new NoSettingsException();
 			}
-			if (mAuthenticator != null) {
-				mAuthenticator.resetCounter();
-			}
-			URL url = new URL(getUrl(command, parameters));
-			uc = url.openConnection();
-			uc.setConnectTimeout(SOCKET_CONNECTION_TIMEOUT);
-			uc.setReadTimeout(mSocketReadTimeout);
+			final String url = getUrl(command, parameters);
 			Log.i(TAG, "Preparing input stream from " + url);
-			return uc.getInputStream();
-		} catch (MalformedURLException e) {
-			manager.onError(e);
+			return mPool.execute(url);
+		} catch (HttpResponseException e) {
+			manager.onError(toHttpException(e));
 		} catch (IOException e) {
 			manager.onError(e);
 		} catch (NoSettingsException e) {
@@ -212,6 +232,23 @@ public class Connection {
 		return null;
 	}
 	
+	/**
+	 * Returns the decoded content of a HTTP API command returning base64 data,
+	 * such as <tt>FileDownload</tt>. Envelope and encoding are removed while
+	 * reading, so the response is never held in memory.
+	 * @param command    Name of the command to execute
+	 * @param parameters Parameters, separated by ";".
+	 * @param manager    Reference back to business layer
+	 * @return Decoded stream or null on error.
+	 */
+	public InputStream getBase64InputStream(String command, String parameters, INotifiableManager manager) {
+		final InputStream stream = getThumbInputStream(command, parameters, manager);
+		if (stream == null) {
+			return null;
+		}
+		return new Base64.InputStream(new EnvelopeInputStream(new BufferedInputStream(stream, 8192)), Base64.DECODE);
+	}
+	
 	/**
 	 * Returns an input stream pointing to a HTTP API command.
 	 * @param command    Name of the command to execute
@@ -220,29 +257,22 @@ public class Connection {
 	 * @return
 	 */
 	public InputStream getThumbInputStreamForMicroHTTPd(String thumb, INotifiableManager manager) throws FileNotFoundException {
-		URLConnection uc = null;
 		try {
 			if (mUrlSuffix == null) {
 				throw new NoSettingsException();
 			}
-			if (mAuthenticator != null) {
-				mAuthenticator.resetCounter();
-			}
-			final URL url;
+			final String url;
 			if (ClientFactory.XBMC_REV > 0 && ClientFactory.XBMC_REV >= ClientFactory.THUMB_TO_VFS_REV) {
-				url = new URL(mUrlSuffix + XBMC_MICROHTTPD_VFS_BOOTSTRAP + URLEncoder.encode(thumb));
+				url = mUrlSuffix + XBMC_MICROHTTPD_VFS_BOOTSTRAP + URLEncoder.encode(thumb);
 			} else {
-				url = new URL(mUrlSuffix + XBMC_MICROHTTPD_THUMB_BOOTSTRAP + thumb + ".jpg");
+				url = mUrlSuffix + XBMC_MICROHTTPD_THUMB_BOOTSTRAP + thumb + ".jpg";
 			}
 			Log.i(TAG, "Preparing input stream from " + url + " for microhttpd..");
-			uc = url.openConnection();
-			uc.setConnectTimeout(SOCKET_CONNECTION_TIMEOUT);
-			uc.setReadTimeout(mSocketReadTimeout);
-			return uc.getInputStream();
+			return mPool.execute(url);
 		} catch (FileNotFoundException e) {
 			throw e;
-		} catch (MalformedURLException e) {
-			manager.onError(e);
+		} catch (HttpResponseException e) {
+			manager.onError(toHttpException(e));
 		} catch (IOException e) {
 			manager.onError(e);
 		} catch (NoSettingsException e) {
@@ -259,48 +289,97 @@ public class Connection {
 	 * @return HTTP response string.
 	 */
 	public String query(String command, String parameters, INotifiableManager manager) {
-		URLConnection uc = null;
+		final long start = System.nanoTime();
 		try {
 			if (mUrlSuffix == null) {
 				throw new NoSettingsException();
 			}
-			if (mAuthenticator != null) {
-				mAuthenticator.resetCounter();
-			}
-			URL url = new URL(getUrl(command, parameters));
-			uc = url.openConnection();
-			uc.setConnectTimeout(SOCKET_CONNECTION_TIMEOUT);
-			uc.setReadTimeout(mSocketReadTimeout);
-			
-			final String debugUrl = URLDecoder.decode(url.toString());
-			Log.i(TAG, debugUrl);
+			final String url = getUrl(command, parameters);
+			Log.i(TAG, URLDecoder.decode(url));
 			
-			final BufferedReader in = new BufferedReader(new InputStreamReader(uc.getInputStream()), 8192);
+			final BufferedReader in = new BufferedReader(new InputStreamReader(mPool.execute(url)), 8192);
 			final StringBuilder response = new StringBuilder();
 			String line;
-
-			while ((line = in.readLine()) != null) {
-				response.append(line);
+			try {
+				while ((line = in.readLine()) != null) {
+					response.append(line);
+				}
+			} finally {
+				in.close(); // hands the socket back to the pool
 			}
-			in.close();
 			return response.toString().replace("<html>", "").replace("</html>", "");
 			
-		} catch (MalformedURLException e) {
-			manager.onError(e);
+		} catch (HttpResponseException e) {
+			QUERY_ERRORS.inc();
+			manager.onError(toHttpException(e));
 		} catch (IOException e) {
-			int responseCode = -1;
+			QUERY_ERRORS.inc();
+			manager.onError(e);
+		} catch (NoSettingsException e) {
+			manager.onError(e);
+		} finally {
+			QUERY_TIME.recordSince(start);
+		}
+		return "";
+	}
+	
+	/**
+	 * Executes a database query and maps every row of the result to an
+	 * object while the response is still being received. Unlike
+	 * {@link #query(String, String, INotifiableManager)}, the response is
+	 * never held in memory as a whole.
+	 * @param command    Name of the command to execute
+	 * @param parameters Parameters, separated by ";".
+	 * @param mapper     Converts a row into an object
+	 * @param manager    Reference back to business layer
+	 * @return Mapped rows, empty list on error.
+	 */
+	public <T> ArrayList<T> query(String command, String parameters, RowMapper<T> mapper, INotifiableManager manager) {
+		final ArrayList<T> rows = new ArrayList<T>();
+		final long start = System.nanoTime();
+		try {
+			if (mUrlSuffix == null) {
+				throw new NoSettingsException();
+			}
+			final String url = getUrl(command, parameters);
+			final FieldReader reader = new FieldReader(new InputStreamReader(mPool.execute(url)));
 			try {
-				responseCode = ((HttpURLConnection)uc).getResponseCode();
-			} catch (IOException e1) { } // do nothing, getResponse code failed so treat as default i/o exception.
-			if (uc != null && responseCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
-				manager.onError(new HttpException(Integer.toString(HttpURLConnection.HTTP_UNAUTHORIZED)));
-			} else {
-				manager.onError(e);
+				while (reader.hasNext()) {
+					final T row = mapper.map(reader);
+					if (row != null) {
+						rows.add(row);
+					}
+				}
+			} catch (EOFException e) {
+				Log.e(TAG, "Error parsing " + command + " response after " + rows.size() + " rows: " + e.getMessage());
+			} finally {
+				reader.close(); // hands the socket back to the pool
 			}
+		} catch (HttpResponseException e) {
+			QUERY_ERRORS.inc();
+			manager.onError(toHttpException(e));
+		} catch (IOException e) {
+			QUERY_ERRORS.inc();
+			manager.onError(e);
 		} catch (NoSettingsException e) {
 			manager.onError(e);
+		} finally {
+			QUERY_ROWS_TIME.recordSince(start);
 		}
-		return "";
+		return rows;
+	}
+	
+	/**
+	 * Converts an HTTP error status into the exception the upper layers
+	 * expect. Only 401 is special, since it makes the UI ask for credentials.
+	 * @param e Exception thrown by the connection pool
+	 * @return Exception to post to the manager
+	 */
+	private static Exception toHttpException(HttpResponseException e) {
+		if (e.getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+			return new HttpException(Integer.toString(HttpStatus.SC_UNAUTHORIZED));
+		}
+		return e;
 	}
 	
 	/**
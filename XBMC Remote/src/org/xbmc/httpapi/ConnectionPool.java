@@ -0,0 +1,264 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.xbmc.android.util.Base64;
+
+import android.util.Log;
+
+/**
+ * Keep-alive transport shared by all HTTP API requests of a {@link Connection}.
+ *
+ * Sockets are kept open after a request and handed to the next one going to
+ * the same host, so browsing the library doesn't cost a TCP handshake per
+ * query. Credentials are sent preemptively, which saves the 401 round-trip
+ * on password protected hosts.
+ * <p/>
+ * The pool is bounded per host, closes connections which have been idle for
+ * longer than {@link #IDLE_TIMEOUT} and checks pooled connections for
+ * staleness before handing them out.
+ *
+ * @author Team XBMC
+ */
+public class ConnectionPool {
+
+	private static final String TAG = "ConnectionPool";
+
+	/**
+	 * Maximal number of open sockets per host
+	 */
+	public static final int MAX_CONNECTIONS_PER_HOST = 4;
+
+	/**
+	 * Maximal number of open sockets in total
+	 */
+	public static final int MAX_CONNECTIONS_TOTAL = 8;
+
+	/**
+	 * Connections idle for longer than this are closed (milliseconds)
+	 */
+	public static final long IDLE_TIMEOUT = 30000L;
+
+	/**
+	 * How long to wait for a free connection when the pool is exhausted
+	 */
+	private static final long CHECKOUT_TIMEOUT = 10000L;
+
+	private final DefaultHttpClient mClient;
+	private final ClientConnectionManager mConnectionManager;
+
+	/**
+	 * Value of the "Authorization" header, null if no auth is needed.
+	 */
+	private volatile String mAuthorization = null;
+
+	private volatile long mLastEviction = 0L;
+
+	private final AtomicLong mSocketsOpened = new AtomicLong();
+	private final AtomicLong mRequestsServed = new AtomicLong();
+
+	/**
+	 * Class constructor
+	 * @param connectionTimeout Socket connection timeout in milliseconds
+	 */
+	public ConnectionPool(int connectionTimeout) {
+		final HttpParams params = new BasicHttpParams();
+		HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+		HttpProtocolParams.setUseExpectContinue(params, false);
+		HttpConnectionParams.setConnectionTimeout(params, connectionTimeout);
+		HttpConnectionParams.setStaleCheckingEnabled(params, true);
+		HttpConnectionParams.setTcpNoDelay(params, true);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS_PER_HOST));
+		ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS_TOTAL);
+		ConnManagerParams.setTimeout(params, CHECKOUT_TIMEOUT);
+
+		final SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", new CountingSocketFactory(), 80));
+
+		mConnectionManager = new ThreadSafeClientConnManager(params, registry);
+		mClient = new DefaultHttpClient(mConnectionManager, params);
+	}
+
+	/**
+	 * Sets socket read timeout for all following requests.
+	 * @param timeout Read timeout in milliseconds, 0 for infinite.
+	 */
+	public void setReadTimeout(int timeout) {
+		HttpConnectionParams.setSoTimeout(mClient.getParams(), timeout);
+	}
+
+	/**
+	 * Sets credentials for basic authentication.
+	 * @param user Username
+	 * @param pass Password, null or empty if no authentication is needed.
+	 */
+	public void setCredentials(String user, String pass) {
+		if (pass != null && pass.length() > 0) {
+			mAuthorization = "Basic " + Base64.encodeBytes(((user == null ? "" : user) + ":" + pass).getBytes());
+		} else {
+			mAuthorization = null;
+		}
+	}
+
+	/**
+	 * Executes a GET request and returns the response body. The underlying
+	 * connection is released back to the pool as soon as the returned stream
+	 * is read to its end or closed, so make sure you close it.
+	 *
+	 * @param url Absolute URL
+	 * @return Response body
+	 * @throws FileNotFoundException If the server returns 404
+	 * @throws HttpResponseException If the server returns any other error code
+	 * @throws IOException On any other I/O error
+	 */
+	public InputStream execute(String url) throws IOException {
+		evictIdleConnections();
+		final HttpGet request;
+		try {
+			request = new HttpGet(url);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid URL: " + url);
+		}
+		if (mAuthorization != null) {
+			request.addHeader("Authorization", mAuthorization);
+		}
+		try {
+			final HttpResponse response = mClient.execute(request);
+			mRequestsServed.incrementAndGet();
+			final int status = response.getStatusLine().getStatusCode();
+			final HttpEntity entity = response.getEntity();
+			if (status >= HttpStatus.SC_BAD_REQUEST) {
+				if (entity != null) {
+					entity.consumeContent();
+				}
+				if (status == HttpStatus.SC_NOT_FOUND) {
+					throw new FileNotFoundException(url);
+				}
+				throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+			}
+			if (entity == null) {
+				throw new IOException("Empty response from " + url);
+			}
+			return new CountingInputStream(entity.getContent());
+		} catch (IOException e) {
+			request.abort();
+			throw e;
+		} catch (RuntimeException e) {
+			request.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes connections that have been idle for too long. Runs at most
+	 * every half idle period, so it's cheap enough to call on each checkout.
+	 */
+	public void evictIdleConnections() {
+		final long now = System.currentTimeMillis();
+		if (now - mLastEviction > IDLE_TIMEOUT / 2) {
+			mLastEviction = now;
+			mConnectionManager.closeExpiredConnections();
+			mConnectionManager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Closes all pooled connections, for instance when the host changes.
+	 */
+	public void closeAll() {
+		mConnectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns how many sockets have been opened since startup.
+	 * @return Number of opened sockets
+	 */
+	public long getSocketsOpened() {
+		return mSocketsOpened.get();
+	}
+
+	/**
+	 * Returns how many requests have been answered since startup.
+	 * @return Number of served requests
+	 */
+	public long getRequestsServed() {
+		return mRequestsServed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool: " + mSocketsOpened.get() + " sockets opened for " + mRequestsServed.get() + " requests";
+	}
+
+	/**
+	 * Plain socket factory which counts opened sockets. Comparing this value
+	 * with the number of served requests tells how well sockets are reused.
+	 */
+	private class CountingSocketFactory implements SocketFactory {
+
+		private final PlainSocketFactory mDelegate = PlainSocketFactory.getSocketFactory();
+
+		public Socket createSocket() throws IOException {
+			return mDelegate.createSocket();
+		}
+
+		public Socket connectSocket(Socket sock, String host, int port, InetAddress localAddress, int localPort, HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+			final Socket socket = mDelegate.connectSocket(sock, host, port, localAddress, localPort, params);
+			final long opened = mSocketsOpened.incrementAndGet();
+			Log.d(TAG, "Opened socket to " + host + ":" + port + " (" + opened + " sockets for " + mRequestsServed.get() + " requests)");
+			return socket;
+		}
+
+		public boolean isSecure(Socket sock) throws IllegalArgumentException {
+			return false;
+		}
+	}
+}
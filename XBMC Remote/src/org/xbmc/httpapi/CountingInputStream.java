@@ -0,0 +1,88 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a response, per reading thread. Since a
+ * command reads its responses on the thread it runs on, the difference of
+ * {@link #getThreadCount()} before and after the command is what it
+ * received.
+ *
+ * @author Team XBMC
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private static final ThreadLocal<long[]> sCount = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	/**
+	 * Class constructor
+	 * @param in Raw response
+	 */
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has read from counted
+	 * streams so far.
+	 * @return Number of bytes
+	 */
+	public static long getThreadCount() {
+		return sCount.get()[0];
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = in.read();
+		if (b >= 0) {
+			sCount.get()[0]++;
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int count) throws IOException {
+		final int read = in.read(buffer, offset, count);
+		if (read > 0) {
+			sCount.get()[0] += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		final long skipped = in.skip(count);
+		if (skipped > 0) {
+			sCount.get()[0] += skipped;
+		}
+		return skipped;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Removes the &lt;html&gt; envelope around HTTP API responses while they are
+ * read, so the content can be streamed into a decoder. Any tag is dropped,
+ * which is fine for base64 data since it never contains '&lt;'.
+ *
+ * @author Team XBMC
+ */
+public class EnvelopeInputStream extends FilterInputStream {
+
+	private boolean mInTag = false;
+
+	/**
+	 * Class constructor
+	 * @param in Raw response, should be buffered.
+	 */
+	public EnvelopeInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b;
+		while ((b = in.read()) >= 0) {
+			if (mInTag) {
+				mInTag = b != '>';
+			} else if (b == '<') {
+				mInTag = true;
+			} else {
+				return b;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int count) throws IOException {
+		while (true) {
+			final int read = in.read(buffer, offset, count);
+			if (read <= 0) {
+				return read;
+			}
+			// filter in place
+			final int end = offset + read;
+			int n = offset;
+			for (int i = offset; i < end; i++) {
+				final byte b = buffer[i];
+				if (mInTag) {
+					mInTag = b != '>';
+				} else if (b == '<') {
+					mInTag = true;
+				} else {
+					buffer[n++] = b;
+				}
+			}
+			if (n > offset) {
+				return n - offset;
+			}
+		}
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count && read() >= 0) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return 0;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming tokenizer for HTTP API database results, which look like:
+ * <pre>
+ * &lt;html&gt;
+ * &lt;record&gt;&lt;field&gt;1&lt;/field&gt;&lt;field&gt;Title&lt;/field&gt;&lt;/record&gt;
+ * ...
+ * &lt;/html&gt;
+ * </pre>
+ * Cells are read directly from the stream, one at a time, so parsing works
+ * in constant memory no matter how big the result is. Values are treated the
+ * same way {@link Connection#trim(String)} and friends do: markup and line
+ * breaks are removed, but whitespace is kept.
+ *
+ * @author Team XBMC
+ */
+public class FieldReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final char[][] TAGS = {
+		"<field>".toCharArray(),
+		"</field>".toCharArray(),
+		"<record>".toCharArray(),
+		"</record>".toCharArray(),
+		"<html>".toCharArray(),
+		"</html>".toCharArray()
+	};
+	private static final int TAG_FIELD = 0;
+	private static final int MAX_TAG_LENGTH = 9;
+	private static final char[] TRUE = "true".toCharArray();
+
+	private final Reader mReader;
+	private final char[] mBuffer = new char[BUFFER_SIZE];
+	private int mPos = 0;
+	private int mLimit = 0;
+
+	/**
+	 * Content of the current cell. Grows to the largest cell, but is reused.
+	 */
+	private char[] mCell = new char[256];
+	private int mCellLength = 0;
+
+	/**
+	 * True if the current cell has been read but not consumed yet
+	 */
+	private boolean mHasCell = false;
+
+	/**
+	 * True if we're past a &lt;field&gt; tag, i.e. reading cell content.
+	 */
+	private boolean mInField = false;
+
+	/**
+	 * Class constructor
+	 * @param reader Character stream of the response
+	 */
+	public FieldReader(Reader reader) {
+		mReader = reader;
+	}
+
+	/**
+	 * Returns true if there is at least one more cell to read.
+	 * @return True if more cells available, false otherwise.
+	 * @throws IOException
+	 */
+	public boolean hasNext() throws IOException {
+		if (!mHasCell) {
+			mHasCell = readCell();
+		}
+		return mHasCell;
+	}
+
+	/**
+	 * Returns the next cell as string.
+	 * @return Cell value
+	 * @throws IOException
+	 */
+	public String nextString() throws IOException {
+		next();
+		return new String(mCell, 0, mCellLength);
+	}
+
+	/**
+	 * Returns the next cell as integer. Thousands separators are ignored.
+	 * Empty or invalid values return -1, same as {@link Connection#trimInt(String)}.
+	 * @return Cell value
+	 * @throws IOException
+	 */
+	public int nextInt() throws IOException {
+		next();
+		final char[] cell = mCell;
+		final int length = mCellLength;
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (cell[0] == '-' || cell[0] == '+')) {
+			negative = cell[0] == '-';
+			i++;
+		}
+		long value = 0;
+		boolean digits = false;
+		for (; i < length; i++) {
+			final char c = cell[i];
+			if (c == ',') {
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE + 1L) {
+				return -1;
+			}
+			digits = true;
+		}
+		if (!digits) {
+			return -1;
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			return -1;
+		}
+		return (int)value;
+	}
+
+	/**
+	 * Returns the next cell as double. Empty or invalid values return -1.0,
+	 * same as {@link Connection#trimDouble(String)}.
+	 * @return Cell value
+	 * @throws IOException
+	 */
+	public double nextDouble() throws IOException {
+		next();
+		if (mCellLength == 0) {
+			return -1.0;
+		}
+		try {
+			return Double.parseDouble(new String(mCell, 0, mCellLength));
+		} catch (NumberFormatException e) {
+			return -1.0;
+		}
+	}
+
+	/**
+	 * Returns the next cell as boolean. "1" and "true" are true, anything
+	 * else is false, same as {@link Connection#trimBoolean(String)}.
+	 * @return Cell value
+	 * @throws IOException
+	 */
+	public boolean nextBoolean() throws IOException {
+		next();
+		if (mCellLength == 0) {
+			return false;
+		}
+		if (mCell[0] == '1') {
+			return true;
+		}
+		final char[] t = TRUE;
+		if (mCellLength < t.length) {
+			return false;
+		}
+		for (int i = 0; i < t.length; i++) {
+			if (Character.toLowerCase(mCell[i]) != t[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Skips the next cell.
+	 * @throws IOException
+	 */
+	public void skip() throws IOException {
+		next();
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		mReader.close();
+	}
+
+	/**
+	 * Makes sure there is a cell and marks it as consumed.
+	 * @throws EOFException If the stream ended in the middle of a row
+	 */
+	private void next() throws IOException {
+		if (!hasNext()) {
+			throw new EOFException("Incomplete record, response ended before all fields were read.");
+		}
+		mHasCell = false;
+	}
+
+	/**
+	 * Reads the next cell into the cell buffer.
+	 * @return False if end of stream was reached before another cell.
+	 * @throws IOException
+	 */
+	private boolean readCell() throws IOException {
+		mCellLength = 0;
+		// skip everything before the first field
+		while (!mInField) {
+			if (mPos >= mLimit && fill(1) == 0) {
+				return false;
+			}
+			if (mBuffer[mPos] != '<') {
+				mPos++;
+			} else {
+				final int tag = matchTag();
+				if (tag == TAG_FIELD) {
+					mInField = true;
+				} else if (tag < 0) {
+					mPos++;
+				}
+			}
+		}
+		while (true) {
+			if (mPos >= mLimit && fill(1) == 0) {
+				mInField = false; // last cell of the response
+				return true;
+			}
+			final char c = mBuffer[mPos];
+			if (c == '<') {
+				final int tag = matchTag();
+				if (tag == TAG_FIELD) {
+					return true;
+				} else if (tag >= 0) {
+					continue;
+				}
+			} else if (c == '\n' || c == '\r') {
+				mPos++;
+				continue;
+			}
+			append(c);
+			mPos++;
+		}
+	}
+
+	/**
+	 * Checks if one of the known tags starts at the current position. If so,
+	 * the tag is consumed.
+	 * @return Index of the matched tag or -1 if nothing matched.
+	 * @throws IOException
+	 */
+	private int matchTag() throws IOException {
+		final int available = fill(MAX_TAG_LENGTH);
+		for (int i = 0; i < TAGS.length; i++) {
+			final char[] tag = TAGS[i];
+			if (tag.length <= available && regionMatches(tag)) {
+				mPos += tag.length;
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean regionMatches(char[] tag) {
+		final char[] buffer = mBuffer;
+		final int pos = mPos;
+		for (int i = 0; i < tag.length; i++) {
+			if (buffer[pos + i] != tag[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Makes sure at least <tt>min</tt> characters are buffered, unless the
+	 * stream ends before.
+	 * @param min Number of characters needed
+	 * @return Number of available characters
+	 * @throws IOException
+	 */
+	private int fill(int min) throws IOException {
+		int available = mLimit - mPos;
+		if (available >= min) {
+			return available;
+		}
+		if (mPos > 0) {
+			System.arraycopy(mBuffer, mPos, mBuffer, 0, available);
+			mPos = 0;
+			mLimit = available;
+		}
+		while (mLimit < min) {
+			final int read = mReader.read(mBuffer, mLimit, mBuffer.length - mLimit);
+			if (read < 0) {
+				break;
+			}
+			mLimit += read;
+		}
+		return mLimit - mPos;
+	}
+
+	private void append(char c) {
+		if (mCellLength == mCell.length) {
+			final char[] cell = new char[mCell.length * 2];
+			System.arraycopy(mCell, 0, cell, 0, mCellLength);
+			mCell = cell;
+		}
+		mCell[mCellLength++] = c;
+	}
+}
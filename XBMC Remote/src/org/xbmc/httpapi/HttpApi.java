@@ -24,6 +24,7 @@ package org.xbmc.httpapi;
 import org.xbmc.api.object.Host;
 import org.xbmc.httpapi.client.ControlClient;
 import org.xbmc.httpapi.client.InfoClient;
+import org.xbmc.httpapi.client.LibraryClient;
 import org.xbmc.httpapi.client.MusicClient;
 import org.xbmc.httpapi.client.TvShowClient;
 import org.xbmc.httpapi.client.VideoClient;
@@ -62,6 +63,11 @@ public class HttpApi {
 	 */
 	public final TvShowClient shows;
 	
+	/**
+	 * Use this client for raw database access
+	 */
+	public final LibraryClient library;
+	
 	/**
 	 * Construct with all paramaters
 	 * @param host    Connection data of the host
@@ -81,6 +87,7 @@ public class HttpApi {
 		video = new VideoClient(connection);
 		control = new ControlClient(connection);
 		shows = new TvShowClient(connection);
+		library = new LibraryClient(connection);
 	}
 	
 	/**
@@ -93,5 +100,6 @@ public class HttpApi {
 		video.setHost(host);
 		control.setHost(host);
 		shows.setHost(host);
+		library.setHost(host);
 	}
 }
\ No newline at end of file
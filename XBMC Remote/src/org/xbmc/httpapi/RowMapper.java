@@ -0,0 +1,43 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi;
+
+import java.io.IOException;
+
+/**
+ * Converts one row of a database query into an object. The mapper is called
+ * once per row and must read exactly the number of columns the query
+ * selects, in the same order.
+ *
+ * @author Team XBMC
+ * @param <T> Type of the mapped object
+ */
+public interface RowMapper<T> {
+
+	/**
+	 * Reads the cells of the current row and returns the resulting object.
+	 * @param fields Reader positioned at the first cell of the row
+	 * @return Mapped object or null if the row should be skipped
+	 * @throws IOException If the row is incomplete or reading failed
+	 */
+	public T map(FieldReader fields) throws IOException;
+}
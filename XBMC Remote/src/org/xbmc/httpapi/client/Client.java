@@ -22,12 +22,11 @@
 package org.xbmc.httpapi.client;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 
-import org.xbmc.android.util.Base64;
+import org.xbmc.android.util.BitmapScaler;
 import org.xbmc.android.util.ClientFactory;
 import org.xbmc.android.util.ImportUtilities;
 import org.xbmc.api.business.INotifiableManager;
@@ -38,7 +37,6 @@ import org.xbmc.httpapi.Connection;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Bitmap.CompressFormat;
 import android.util.Log;
 
 /**
@@ -50,6 +48,12 @@ abstract class Client {
 	
 	public static final String TAG = "Client-HTTPAPI";
 	
+	/**
+	 * Size of the buffer holding the beginning of a downloaded image while
+	 * its boundaries are decoded. Must fit the image header.
+	 */
+	private static final int HEADER_BUFFER_SIZE = 65536;
+	
 	protected final Connection mConnection;
 
 	/**
@@ -60,6 +64,32 @@ abstract class Client {
 		mConnection = connection;
 	}
 	
+	/**
+	 * Returns the SQL clause restricting a query to one page. The key column
+	 * is appended to the sort order, so rows with equal sort values don't
+	 * jump between pages.
+	 * @param orderBy SQL "ORDER BY" string, may be empty
+	 * @param key     Unique column of the queried table
+	 * @param offset  Number of rows to skip
+	 * @param limit   Maximal number of rows to return
+	 * @return SQL "ORDER BY ... LIMIT ... OFFSET ..." string
+	 */
+	protected static String page(String orderBy, String key, int offset, int limit) {
+		final StringBuilder sb = new StringBuilder(orderBy.length() + key.length() + 40);
+		if (orderBy.length() == 0) {
+			sb.append(" ORDER BY ");
+		} else {
+			sb.append(orderBy);
+			sb.append(", ");
+		}
+		sb.append(key);
+		sb.append(" LIMIT ");
+		sb.append(limit);
+		sb.append(" OFFSET ");
+		sb.append(offset);
+		return sb.toString();
+	}
+	
 	/**
 	 * Downloads a cover. 
 	 * 
@@ -88,9 +118,10 @@ abstract class Client {
 
 	
 	/**
-	 * Downloads a cover "the old way", meaning the base64-encoded result is
-	 * stored in a String and decoded from there. I've tried using a 
-	 * Base64.InputStream directly with libgoahead crashing as a result.
+	 * Downloads a cover through the HTTP API's <tt>FileDownload</tt> command.
+	 * The base64-encoded response is decoded while it's received and the
+	 * image is decoded the same way as with microhttpd. The fallback URL is
+	 * tried if the primary cover is empty or can't be decoded.
 	 * 
 	 * @param manager Postback manager
 	 * @param cover Cover object
@@ -105,33 +136,12 @@ abstract class Client {
 		// don't fetch small sizes
 		size = size < ThumbSize.BIG ? ThumbSize.MEDIUM : ThumbSize.BIG;
 		try {
-			String b64enc = mConnection.query("FileDownload", url, manager);
-			if (b64enc.length() <= 0) {
-				if (fallbackUrl != null) {
-					Log.i(TAG, "*** Downloaded cover has size null, retrying with fallback:");
-					b64enc = mConnection.query("FileDownload", fallbackUrl, manager);
-				} else {
-					b64enc = null;
-				}
-			}
-			if (b64enc != null) {
-				byte[] bytes = Base64.decode(b64enc);
-				
-				if (bytes.length > 0) {
-					final BitmapFactory.Options opts = prefetch(manager, bytes, size);
-					final Dimension dim = ThumbSize.getDimension(size, mediaType, opts.outWidth, opts.outHeight);
-					final int ss = ImportUtilities.calculateSampleSize(opts, dim);
-					opts.inDither = true;
-					opts.inSampleSize = ss;
-					opts.inJustDecodeBounds = false;
-					
-					Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, opts);
-					if (ss == 1) {
-						bitmap = blowup(bitmap);
-					}
-					return bitmap;
-				}
+			Bitmap bitmap = decode(fileDownload(manager, url), size, mediaType);
+			if (bitmap == null && fallbackUrl != null) {
+				Log.i(TAG, "*** Downloaded cover is empty, retrying with fallback:");
+				bitmap = decode(fileDownload(manager, fallbackUrl), size, mediaType);
 			}
+			return bitmap;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -141,10 +151,7 @@ abstract class Client {
 	/**
 	 * Downloads a cover using microhttpd.
 	 * 
-	 * First, only boundaries are downloaded in order to determine the sample
-	 * size. Setting sample size > 1 will do two things:
-	 * <ol><li>Only a fragment of the total size will be downloaded</li>
-	 *     <li>Resizing will be smooth and not pixelated as before</li></ol>
+	 * The fallback URL is only tried if the primary cover doesn't exist.
 	 * There is no base64-decoding since we're accessing the /thumb accessor
 	 * directly. The returned size is the next bigger (but smaller than the 
 	 * double) size of the original image.
@@ -160,43 +167,19 @@ abstract class Client {
 		final int mediaType = cover.getMediaType();
 		// don't fetch small sizes
 		size = size < ThumbSize.BIG ? ThumbSize.MEDIUM : ThumbSize.BIG;
-		InputStream is = null;
 		try {
-			
 			Log.i(TAG, "Starting download (" + url + ") - microhttpd");
-			BitmapFactory.Options opts = prefetch(manager, url, size);
-			Dimension dim = ThumbSize.getDimension(size, mediaType, opts.outWidth, opts.outHeight);
-			
-			Log.i(TAG, "Pre-fetch: " + opts.outWidth + "x" + opts.outHeight + " => " + dim);
-			if (opts.outWidth < 1) {
-				if (fallbackUrl != null) {
-					Log.i(TAG, "Starting fallback download (" + fallbackUrl + ")");
-					opts = prefetch(manager, fallbackUrl, size);
-					dim = ThumbSize.getDimension(size, mediaType, opts.outWidth, opts.outHeight);
-					Log.i(TAG, "FALLBACK-Pre-fetch: " + opts.outWidth + "x" + opts.outHeight + " => " + dim);
-					if (opts.outWidth < 1) {
-						return null;
-					} else {
-						url = fallbackUrl;
-					}
-				} else {
+			Bitmap bitmap;
+			try {
+				bitmap = decodeFromMicroHTTPd(manager, url, size, mediaType);
+			} catch (FileNotFoundException e) {
+				if (fallbackUrl == null) {
 					Log.i(TAG, "Fallback url is null, returning null-bitmap");
 					return null;
 				}
+				Log.i(TAG, "Starting fallback download (" + fallbackUrl + ")");
+				bitmap = decodeFromMicroHTTPd(manager, fallbackUrl, size, mediaType);
 			}
-			final int ss = ImportUtilities.calculateSampleSize(opts, dim);
-			Log.i(TAG, "Sample size: " + ss);
-			
-			is = new BufferedInputStream(mConnection.getThumbInputStreamForMicroHTTPd(url, manager), 8192);
-			opts.inDither = true;
-			opts.inSampleSize = ss;
-			opts.inJustDecodeBounds = false;
-			
-			Bitmap bitmap = BitmapFactory.decodeStream(is, null, opts);
-			if (ss == 1) {
-				bitmap = blowup(bitmap);
-			}
-			is.close();
 			if (bitmap == null) {
 				Log.i(TAG, "Fetch: Bitmap is null!!");
 				return null;
@@ -210,69 +193,98 @@ abstract class Client {
 		} catch (IOException e) {
 			manager.onError(e);
 			e.printStackTrace();
-		} finally {
-			try {
-				if (is != null) {
-					is.close();
-				}
-			} catch (IOException e) { }
 		}
 		return null;
 	}
 	
 	/**
-	 * Only downloads as much as boundaries of the image in order to find out
-	 * its size.
-	 * @param manager Postback manager
-	 * @param url URL to primary cover
-	 * @param size Minmal size to pre-resize to.
-	 * @return
+	 * Opens the stream of an image. Can be called a second time if the
+	 * stream can't be rewound.
 	 */
-	private BitmapFactory.Options prefetch(INotifiableManager manager, String url, int size) {
-		BitmapFactory.Options opts = new BitmapFactory.Options();
-		try {
-			InputStream is = new BufferedInputStream(mConnection.getThumbInputStreamForMicroHTTPd(url, manager), 8192);
-			opts.inJustDecodeBounds = true;
-			BitmapFactory.decodeStream(is, null, opts);
-		} catch (FileNotFoundException e) {
-			return opts;
-		}			
-		return opts;
+	private interface ImageSource {
+		public InputStream open() throws IOException;
+	}
+	
+	private ImageSource fileDownload(final INotifiableManager manager, final String url) {
+		return new ImageSource() {
+			public InputStream open() {
+				return mConnection.getBase64InputStream("FileDownload", url, manager);
+			}
+		};
 	}
 	
 	/**
-	 * Only decodes as much as boundaries of the image in order to find out
-	 * its size.
+	 * Downloads and decodes an image from microhttpd.
 	 * @param manager Postback manager
-	 * @param data Image data as byte array
+	 * @param url URL to cover
 	 * @param size Minmal size to pre-resize to.
-	 * @return
+	 * @param mediaType Media type of the cover
+	 * @return Bitmap or null if the image couldn't be decoded.
+	 * @throws FileNotFoundException If the cover doesn't exist on XBMC.
+	 * @throws IOException
 	 */
-	private BitmapFactory.Options prefetch(INotifiableManager manager, byte[] data, int size) {
-		BitmapFactory.Options opts = new BitmapFactory.Options();
-		opts.inJustDecodeBounds = true;
-		BitmapFactory.decodeByteArray(data, 0, data.length, opts);
-		return opts;
+	private Bitmap decodeFromMicroHTTPd(final INotifiableManager manager, final String url, int size, int mediaType) throws IOException {
+		return decode(new ImageSource() {
+			public InputStream open() throws IOException {
+				return mConnection.getThumbInputStreamForMicroHTTPd(url, manager);
+			}
+		}, size, mediaType);
 	}
 	
 	/**
-	 * Doubles the size of a bitmap and re-reads it with samplesize 2. I've 
-	 * found no other way to smoothely resize images with samplesize = 1.
-	 * @param source
-	 * @return
+	 * Downloads and decodes an image with one request.
+	 * 
+	 * The beginning of the stream is buffered while only the boundaries are
+	 * decoded, which gives us the sample size. The stream is then rewound and
+	 * the image decoded with that sample size. Setting sample size > 1 makes
+	 * resizing smooth and not pixelated. Only if the header doesn't fit into
+	 * the buffer, the image is requested a second time.
+	 * 
+	 * @param source Opens the image stream
+	 * @param size Minmal size to pre-resize to.
+	 * @param mediaType Media type of the cover
+	 * @return Bitmap or null if the image couldn't be decoded.
+	 * @throws IOException
 	 */
-	private Bitmap blowup(Bitmap source) {
-		if (source != null) {
-			Bitmap big = Bitmap.createScaledBitmap(source, source.getWidth() * 2,  source.getHeight() * 2, true);
-			BitmapFactory.Options opts = new BitmapFactory.Options();
-			opts.inSampleSize = 2;
-			
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			big.compress(CompressFormat.PNG, 100, os);            
+	private Bitmap decode(ImageSource source, int size, int mediaType) throws IOException {
+		final InputStream stream = source.open();
+		if (stream == null) {
+			return null; // error has already been posted
+		}
+		InputStream is = new BufferedInputStream(stream, HEADER_BUFFER_SIZE);
+		try {
+			is.mark(HEADER_BUFFER_SIZE);
+			final BitmapFactory.Options opts = new BitmapFactory.Options();
+			opts.inJustDecodeBounds = true;
+			BitmapFactory.decodeStream(is, null, opts);
+			final Dimension dim = ThumbSize.getDimension(size, mediaType, opts.outWidth, opts.outHeight);
+			Log.i(TAG, "Header: " + opts.outWidth + "x" + opts.outHeight + " => " + dim);
+			if (opts.outWidth < 1) {
+				return null;
+			}
+			final int ss = ImportUtilities.calculateSampleSize(opts, dim);
+			Log.i(TAG, "Sample size: " + ss);
+			try {
+				is.reset();
+			} catch (IOException e) {
+				Log.i(TAG, "Header bigger than " + HEADER_BUFFER_SIZE + " bytes, downloading again.");
+				is.close();
+				is = source.open();
+				if (is == null) {
+					return null;
+				}
+				is = new BufferedInputStream(is, 8192);
+			}
+			opts.inDither = true;
+			opts.inSampleSize = ss;
+			opts.inJustDecodeBounds = false;
 			
-			byte[] array = os.toByteArray();
-			return BitmapFactory.decodeByteArray(array, 0, array.length, opts);
+			final Bitmap bitmap = BitmapFactory.decodeStream(is, null, opts);
+			return ss == 1 ? BitmapScaler.shrink(bitmap, dim.x, dim.y) : bitmap;
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) { }
 		}
-		return null;
-	}	
+	}
 }
@@ -0,0 +1,70 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.httpapi.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.xbmc.api.business.INotifiableManager;
+import org.xbmc.api.data.ILibraryClient;
+import org.xbmc.api.object.Host;
+import org.xbmc.httpapi.Connection;
+import org.xbmc.httpapi.FieldReader;
+import org.xbmc.httpapi.RowMapper;
+
+/**
+ * Runs raw queries on XBMC's databases through QueryMusicDatabase and
+ * QueryVideoDatabase.
+ * 
+ * @author Team XBMC
+ */
+public class LibraryClient extends Client implements ILibraryClient {
+	
+	/**
+	 * Class constructor needs reference to HTTP client connection
+	 * @param connection
+	 */
+	public LibraryClient(Connection connection) {
+		super(connection);
+	}
+	
+	/**
+	 * Updates host info on the connection.
+	 * @param host
+	 */
+	public void setHost(Host host) {
+		mConnection.setHost(host);
+	}
+	
+	public ArrayList<String[]> query(INotifiableManager manager, int database, String sql, final int columns) {
+		final String command = database == VIDEO_DATABASE ? "QueryVideoDatabase" : "QueryMusicDatabase";
+		return mConnection.query(command, sql, new RowMapper<String[]>() {
+			public String[] map(FieldReader fields) throws IOException {
+				final String[] row = new String[columns];
+				for (int i = 0; i < columns; i++) {
+					row[i] = fields.nextString();
+				}
+				return row;
+			}
+		}, manager);
+	}
+}
@@ -21,6 +21,7 @@
 
 package org.xbmc.httpapi.client;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -38,6 +39,8 @@ import org.xbmc.api.object.Song;
 import org.xbmc.api.type.MediaType;
 import org.xbmc.api.type.SortType;
 import org.xbmc.httpapi.Connection;
+import org.xbmc.httpapi.FieldReader;
+import org.xbmc.httpapi.RowMapper;
 
 import android.graphics.Bitmap;
 
@@ -170,42 +173,6 @@ public class MusicClient extends Client implements IMusicClient {
 	 */
 	public ArrayList<String> getPlaylist(INotifiableManager manager) {
 		return mConnection.getArray(manager, "GetPlaylistContents", PLAYLIST_ID);
-		
-		
-		/*
-		final ArrayList<String> nodes = mConnection.getArray("GetDirectory", "playlistmusic://");
-		final ArrayList<String> ids = new ArrayList<String>();
-		final int playlistPosition = getPlaylistPosition();
-		int i = 0;
-		for (String node : nodes) {
-			ids.add(node.substring(node.lastIndexOf('/') + 1, node.lastIndexOf('.')));
-			if (++i > PLAYLIST_LIMIT + playlistPosition) {
-				break;
-			}
-		}
-		StringBuilder sql = new StringBuilder();
-		sql.append("idSong IN (");
-		int j = 0;
-		for (String id : ids) {
-			sql.append(id);
-			if (++j < i) {
-				sql.append(',');
-			}
-		}
-		sql.append(")");
-		final HashMap<Integer, Song> unsortedSongs = getSongsAsHashMap(sql);
-		final ArrayList<Song> sortedSongs = new ArrayList<Song>();
-		
-		for (String node : nodes) {
-			try {
-				final int id = Integer.parseInt(node.substring(node.lastIndexOf('/') + 1, node.lastIndexOf('.')));
-				sortedSongs.add(unsortedSongs.get(id));
-			} catch (NumberFormatException e) { 
-				Log.e(TAG, e.getMessage());
-				e.printStackTrace();
-			}
-		}
-		return sortedSongs;*/
 	}
 	
 	/**
@@ -328,7 +295,7 @@ public class MusicClient extends Client implements IMusicClient {
 			}
 		}
 		sb.append(")");
-		return parseAlbums(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ALBUM_MAPPER, manager);
 	}
 	
 	/**
@@ -342,7 +309,23 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append("SELECT idAlbum, strAlbum, strArtist, iYear, strThumb");
 		sb.append(" FROM albumview WHERE albumview.strAlbum <> ''");
 		sb.append(albumsOrderBy(sortBy, sortOrder));
-		return parseAlbums(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ALBUM_MAPPER, manager);
+	}
+	
+	/**
+	 * Gets one page of all albums from database
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of albums to skip
+	 * @param limit Maximal number of albums to return
+	 * @return Albums of the page
+	 */
+	public ArrayList<Album> getAlbums(INotifiableManager manager, int sortBy, String sortOrder, int offset, int limit) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("SELECT idAlbum, strAlbum, strArtist, iYear, strThumb");
+		sb.append(" FROM albumview WHERE albumview.strAlbum <> ''");
+		sb.append(page(albumsOrderBy(sortBy, sortOrder), "idAlbum", offset, limit));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ALBUM_MAPPER, manager);
 	}
 
 	/**
@@ -359,7 +342,7 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append(" WHERE albumview.strAlbum <> ''");
 		sb.append(" AND idArtist = " + artist.id);
 		sb.append(albumsOrderBy(sortBy, sortOrder));
-		return parseAlbums(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ALBUM_MAPPER, manager);
 	}
 
 	/**
@@ -384,7 +367,7 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append("        WHERE idGenre = " + genre.id);
 		sb.append("  ))");
 		sb.append(albumsOrderBy(sortBy, sortOrder));
-		return parseAlbums(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ALBUM_MAPPER, manager);
 	}
 	
 	/**
@@ -412,7 +395,7 @@ public class MusicClient extends Client implements IMusicClient {
 			sb.append("SELECT idArtist, strArtist FROM artist");
 		}
 		sb.append(" ORDER BY upper(strArtist), strArtist");
-		return parseArtists(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ARTIST_MAPPER, manager);
 	}
 
 	/**
@@ -449,7 +432,7 @@ public class MusicClient extends Client implements IMusicClient {
 			sb.append("  ) AND artist.strArtist != ''");
 		}		
 		sb.append(" ORDER BY upper(strArtist), strArtist");
-		return parseArtists(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), ARTIST_MAPPER, manager);
 	}
 	
 	/**
@@ -457,7 +440,7 @@ public class MusicClient extends Client implements IMusicClient {
 	 * @return All genres
 	 */
 	public ArrayList<Genre> getGenres(INotifiableManager manager) {
-		return parseGenres(mConnection.query("QueryMusicDatabase", "SELECT idGenre, strGenre FROM genre ORDER BY upper(strGenre), strGenre", manager));
+		return mConnection.query("QueryMusicDatabase", "SELECT idGenre, strGenre FROM genre ORDER BY upper(strGenre), strGenre", GENRE_MAPPER, manager);
 	}
 	
 	/**
@@ -472,7 +455,8 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append("  LEFT JOIN albuminfo AS ai ON ai.idAlbumInfo = a.idAlbum");
 		sb.append("  WHERE a.idGenre = g.idGenre");
 		sb.append("  AND a.idAlbum = " + album.id);
-		return parseAlbumInfo(album, mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		mConnection.query("QueryMusicDatabase", sb.toString(), albumInfoMapper(album), manager);
+		return album;
 	}
 	
 	/**
@@ -485,7 +469,8 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append("SELECT strBorn, strFormed, strGenres, strMoods, strStyles, strBiography");
 		sb.append("  FROM artistinfo");
 		sb.append("  WHERE idArtist = " + artist.id);
-		return parseArtistInfo(artist, mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		mConnection.query("QueryMusicDatabase", sb.toString(), artistInfoMapper(artist), manager);
+		return artist;
 	}
 	
 	/**
@@ -500,22 +485,25 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append(sqlCondition);
 		sb.append(songsOrderBy(sortBy, sortOrder));
 		
-		return parseSongs(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), SONG_MAPPER, manager);
 	}
 	
 	/**
-	 * Returns a hash map containing tracks of a certain condition.
+	 * Returns one page of the tracks of a certain condition.
 	 * @param sqlCondition SQL condition which tracks to return
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
 	 * @return Found tracks
-	 *
-	private HashMap<Integer, Song> getSongsAsHashMap(StringBuilder sqlCondition) {
+	 */
+	private ArrayList<Song> getSongs(INotifiableManager manager, StringBuilder sqlCondition, int sortBy, String sortOrder, int offset, int limit) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("SELECT idSong, strTitle, strArtist, strAlbum, iTrack, iDuration, strPath, strFileName, strThumb");
 		sb.append(" FROM songview WHERE ");
 		sb.append(sqlCondition);
-		sb.append(" ORDER BY iTrack, strFileName");
-		return parseSongsAsHashMap(mConnection.query("QueryMusicDatabase", sb.toString()));
-	}*/
+		sb.append(page(songsOrderBy(sortBy, sortOrder), "idSong", offset, limit));
+		
+		return mConnection.query("QueryMusicDatabase", sb.toString(), SONG_MAPPER, manager);
+	}
 	
 	/**
 	 * Returns the SQL condition that returns all songs of a song.
@@ -678,6 +666,32 @@ public class MusicClient extends Client implements IMusicClient {
 		return getSongs(manager, getSongsCondition(artist, genre), sortBy, sortOrder);
 	}
 	
+	/**
+	 * Returns one page of all tracks of an artist.
+	 * @param artist Artist
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Artist artist, int sortBy, String sortOrder, int offset, int limit) {
+		return getSongs(manager, getSongsCondition(artist), sortBy, sortOrder, offset, limit);
+	}
+	
+	/**
+	 * Returns one page of all tracks of a genre.
+	 * @param genre Genre
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Genre genre, int sortBy, String sortOrder, int offset, int limit) {
+		return getSongs(manager, getSongsCondition(genre), sortBy, sortOrder, offset, limit);
+	}
+	
 	/**
 	 * Returns a pre-resized album/artist cover. Pre-resizing is done in a way that
 	 * the bitmap at least as large as the specified size but not larger than
@@ -708,7 +722,7 @@ public class MusicClient extends Client implements IMusicClient {
 		sb.append("  WHERE lower(strArtist) LIKE 'various artists%%'");
 		sb.append("  OR lower(strArtist) LIKE 'v.a.%%'");
 		sb.append("  OR lower(strArtist) = 'va'");
-		return parseIntArray(mConnection.query("QueryMusicDatabase", sb.toString(), manager));
+		return mConnection.query("QueryMusicDatabase", sb.toString(), INT_MAPPER, manager);
 		
 	}
 	
@@ -718,7 +732,7 @@ public class MusicClient extends Client implements IMusicClient {
 	 * @param sortOrder Sort order
 	 * @return SQL "ORDER BY" string
 	 */
-	private String albumsOrderBy(int sortBy, String sortOrder) {
+	public static String albumsOrderBy(int sortBy, String sortOrder) {
 		switch (sortBy) {
 			default:
 			case SortType.ALBUM:
@@ -738,7 +752,7 @@ public class MusicClient extends Client implements IMusicClient {
 	 * @param sortOrder Sort order
 	 * @return SQL "ORDER BY" string
 	 */
-	private String songsOrderBy(int sortBy, String sortOrder) {
+	public static String songsOrderBy(int sortBy, String sortOrder) {
 		switch (sortBy) {
 			case SortType.ALBUM:
 				return " ORDER BY lower(strAlbum) " + sortOrder + ", iTrack " + sortOrder;
@@ -757,7 +771,7 @@ public class MusicClient extends Client implements IMusicClient {
 	}
 
 	/**
-	 * Converts query response from HTTP API to a list of Album objects. Each
+	 * Maps a row of the HTTP API query response to an Album object. Each
 	 * row must return the following attributes in the following order:
 	 * <ol>
 	 * 	<li><code>idAlbum</code></li>
@@ -766,29 +780,18 @@ public class MusicClient extends Client implements IMusicClient {
 	 * 	<li><code>iYear</code></li>
 	 * 	<li><code>strThumb</code></li>
 	 * </ol> 
-	 * @param response
-	 * @return List of albums
 	 */
-	private ArrayList<Album> parseAlbums(String response) {
-		ArrayList<Album> albums = new ArrayList<Album>();
-		String[] fields = response.split("<field>");
-		try {
-			for (int row = 1; row < fields.length; row += 5) {
-				albums.add(new Album(
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1]), 
-						Connection.trim(fields[row + 2]),
-						Connection.trimInt(fields[row + 3]),
-						Connection.trim(fields[row + 4])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Album> ALBUM_MAPPER = new RowMapper<Album>() {
+		public Album map(FieldReader fields) throws IOException {
+			return new Album( // int id, String name, String artist, int year, String thumbPath
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextInt(),
+					fields.nextString()
+			);
 		}
-		return albums;
-	}
+	};
 	
 	/**
 	 * Updates an album with info from HTTP API query response. One row is 
@@ -799,31 +802,31 @@ public class MusicClient extends Client implements IMusicClient {
 	 * 	<li><code>strLabel</code></li>
 	 * 	<li><code>iRating</code></li>
 	 * </ol>  
-	 * @param album
-	 * @param response
-	 * @return Updated album
-	 */
-	private Album parseAlbumInfo(Album album, String response) {
-		String[] fields = response.split("<field>");
-		try {
-			if (Connection.trim(fields[1]).length() > 0) {
-				album.genres = Connection.trim(fields[1]);
-			}
-			if (Connection.trim(fields[2]).length() > 0) {
-				album.genres += ((Connection.trim(fields[1]).length() > 0) ? " / " : "") + Connection.trim(fields[2]);
-			}
-			if (Connection.trim(fields[3]).length() > 0) {
-				album.label = Connection.trim(fields[3]);
-			}
-			if (Connection.trim(fields[4]).length() > 0) {
-				album.rating = Connection.trimInt(fields[4]);
+	 * @param album Album to update
+	 * @return Row mapper updating the album
+	 */
+	private static RowMapper<Album> albumInfoMapper(final Album album) {
+		return new RowMapper<Album>() {
+			public Album map(FieldReader fields) throws IOException {
+				final String genre = fields.nextString();
+				final String extraGenres = fields.nextString();
+				final String label = fields.nextString();
+				final String rating = fields.nextString();
+				if (genre.length() > 0) {
+					album.genres = genre;
+				}
+				if (extraGenres.length() > 0) {
+					album.genres += ((genre.length() > 0) ? " / " : "") + extraGenres;
+				}
+				if (label.length() > 0) {
+					album.label = label;
+				}
+				if (rating.length() > 0) {
+					album.rating = Connection.trimInt(rating);
+				}
+				return album;
 			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return album;
+		};
 	}
 	
 	/**
@@ -837,41 +840,43 @@ public class MusicClient extends Client implements IMusicClient {
 	 * 	<li><code>strStyles</code></li>
 	 * 	<li><code>strBiography</code></li>
 	 * </ol>  
-	 * @param artist
-	 * @param response
-	 * @return Updated artist
-	 */
-	private Artist parseArtistInfo(Artist artist, String response) {
-		String[] fields = response.split("<field>");
-		try {
-			if (Connection.trim(fields[1]).length() > 0) {
-				artist.born = Connection.trim(fields[1]);
-			}	
-			if (Connection.trim(fields[2]).length() > 0) {
-				artist.formed = Connection.trim(fields[2]);
-			}
-			if (Connection.trim(fields[3]).length() > 0) {
-				artist.genres = Connection.trim(fields[3]);
-			}
-			if (Connection.trim(fields[4]).length() > 0) {
-				artist.moods = Connection.trim(fields[4]);
-			}
-			if (Connection.trim(fields[5]).length() > 0) {
-				artist.styles = Connection.trim(fields[5]);
-			}
-			if (Connection.trim(fields[6]).length() > 0) {
-				artist.biography = Connection.trim(fields[6]);
+	 * @param artist Artist to update
+	 * @return Row mapper updating the artist
+	 */
+	private static RowMapper<Artist> artistInfoMapper(final Artist artist) {
+		return new RowMapper<Artist>() {
+			public Artist map(FieldReader fields) throws IOException {
+				final String born = fields.nextString();
+				final String formed = fields.nextString();
+				final String genres = fields.nextString();
+				final String moods = fields.nextString();
+				final String styles = fields.nextString();
+				final String biography = fields.nextString();
+				if (born.length() > 0) {
+					artist.born = born;
+				}
+				if (formed.length() > 0) {
+					artist.formed = formed;
+				}
+				if (genres.length() > 0) {
+					artist.genres = genres;
+				}
+				if (moods.length() > 0) {
+					artist.moods = moods;
+				}
+				if (styles.length() > 0) {
+					artist.styles = styles;
+				}
+				if (biography.length() > 0) {
+					artist.biography = biography;
+				}
+				return artist;
 			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return artist;
+		};
 	}
 	
 	/**
-	 * Converts query response from HTTP API to a list of Song objects. Each
+	 * Maps a row of the HTTP API query response to a Song object. Each
 	 * row must return the following columns in the following order:
 	 * <ol>
 	 * 	<li><code>idSong</code></li>
@@ -884,153 +889,59 @@ public class MusicClient extends Client implements IMusicClient {
 	 * 	<li><code>strFileName</code></li>
 	 * 	<li><code>strThumb</code></li>
 	 * </ol> 
-	 * @param response
-	 * @return List of Songs
 	 */
-	private ArrayList<Song> parseSongs(String response) {
-		ArrayList<Song> songs = new ArrayList<Song>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 9) { 
-				songs.add(new Song( // int id, String title, String artist, String album, int track, int duration, String path, String filename, String thumbPath
-						Connection.trimInt(fields[row]),
-						Connection.trim(fields[row + 1]), 
-						Connection.trim(fields[row + 2]), 
-						Connection.trim(fields[row + 3]), 
-						Connection.trimInt(fields[row + 4]), 
-						Connection.trimInt(fields[row + 5]), 
-						Connection.trim(fields[row + 6]),
-						Connection.trim(fields[row + 7]), 
-						Connection.trim(fields[row + 8]) 
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Song> SONG_MAPPER = new RowMapper<Song>() {
+		public Song map(FieldReader fields) throws IOException {
+			return new Song( // int id, String title, String artist, String album, int track, int duration, String path, String filename, String thumbPath
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextInt(),
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString()
+			);
 		}
-		return songs;		
-	}
+	};
 	
 	/**
-	 * Converts query response from HTTP API to a list of Song objects. Each
-	 * row must return the following columns in the following order:
-	 * <ol>
-	 * 	<li><code>idSong</code></li>
-	 * 	<li><code>strTitle</code></li>
-	 * 	<li><code>strArtist</code></li>
-	 * 	<li><code>strAlbum</code></li>
-	 * 	<li><code>iTrack</code></li>
-	 * 	<li><code>iDuration</code></li>
-	 * 	<li><code>strPath</code></li>
-	 * 	<li><code>strFileName</code></li>
-	 * 	<li><code>strThumb</code></li>
-	 * </ol> 
-	 * @param response
-	 * @return List of Songs
-	 *
-	private HashMap<Integer, Song> parseSongsAsHashMap(String response) {
-		HashMap<Integer, Song> songs = new HashMap<Integer, Song>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 9) { 
-				songs.put(Connection.trimInt(fields[row]),
-					new Song( // int id, String title, String artist, String album, int track, int duration, String path, String filename, String thumbPath
-						Connection.trimInt(fields[row]),
-						Connection.trim(fields[row + 1]), 
-						Connection.trim(fields[row + 2]), 
-						Connection.trim(fields[row + 3]), 
-						Connection.trimInt(fields[row + 4]), 
-						Connection.trimInt(fields[row + 5]), 
-						Connection.trim(fields[row + 6]),
-						Connection.trim(fields[row + 7]), 
-						Connection.trim(fields[row + 8])
-					)
-				);
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return songs;		
-	}*/
-	
-	/**
-	 * Converts query response from HTTP API to a list of integer values.
-	 * @param response
-	 * @return
+	 * Maps a row of the HTTP API query response to an integer value.
 	 */
-	private ArrayList<Integer> parseIntArray(String response) {
-		ArrayList<Integer> array = new ArrayList<Integer>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 9) {
-				array.add(Connection.trimInt(fields[row]));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Integer> INT_MAPPER = new RowMapper<Integer>() {
+		public Integer map(FieldReader fields) throws IOException {
+			return fields.nextInt();
 		}
-		return array;
-	}
+	};
 	
 	/**
-	 * Converts query response from HTTP API to a list of Artist objects. Each
+	 * Maps a row of the HTTP API query response to an Artist object. Each
 	 * row must return the following columns in the following order:
 	 * <ol>
 	 * 	<li><code>idArtist</code></li>
 	 * 	<li><code>strArtist</code></li>
 	 * </ol>
-	 * @param response
-	 * @return List of Artists
 	 */
-	private ArrayList<Artist> parseArtists(String response) {
-		ArrayList<Artist> artists = new ArrayList<Artist>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 2) { 
-				artists.add(new Artist(
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Artist> ARTIST_MAPPER = new RowMapper<Artist>() {
+		public Artist map(FieldReader fields) throws IOException {
+			return new Artist(fields.nextInt(), fields.nextString());
 		}
-		return artists;		
-	}
+	};
 	
 	/**
-	 * Converts query response from HTTP API to a list of Genre objects. Each
+	 * Maps a row of the HTTP API query response to a Genre object. Each
 	 * row must return the following columns in the following order:
 	 * <ol>
 	 * 	<li><code>idGenre</code></li>
 	 * 	<li><code>strGenre</code></li>
 	 * </ol>
-	 * @param response
-	 * @return List of Genres
 	 */
-	private ArrayList<Genre> parseGenres(String response) {
-		ArrayList<Genre> genres = new ArrayList<Genre>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 2) { 
-				genres.add(new Genre(
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Genre> GENRE_MAPPER = new RowMapper<Genre>() {
+		public Genre map(FieldReader fields) throws IOException {
+			return new Genre(fields.nextInt(), fields.nextString());
 		}
-		return genres;		
-	}
+	};
 	
 	static ICurrentlyPlaying getCurrentlyPlaying(final HashMap<String, String> map) {
 		return new IControlClient.ICurrentlyPlaying() {
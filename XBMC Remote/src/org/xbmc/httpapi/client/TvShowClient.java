@@ -21,6 +21,7 @@
 
 package org.xbmc.httpapi.client;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -38,6 +39,8 @@ import org.xbmc.api.object.TvShow;
 import org.xbmc.api.type.MediaType;
 import org.xbmc.api.type.SortType;
 import org.xbmc.httpapi.Connection;
+import org.xbmc.httpapi.FieldReader;
+import org.xbmc.httpapi.RowMapper;
 
 import android.graphics.Bitmap;
 import android.util.Log;
@@ -131,7 +134,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 /*		sb.append("SELECT tvshow.idShow, c00, c01, c04, c05, c08, c13, c14, strPath FROM tvshow, path, tvshowlinkpath");
 		sb.append(" WHERE tvshow.idShow = tvshowlinkpath.idShow");
 		sb.append(" AND path.idPath = tvshowlinkpath.idPath");*/
-		return parseShows(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), SHOW_MAPPER, manager);
 	}
 	
 	/**
@@ -143,7 +146,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append("SELECT DISTINCT actors.idActor, strActor FROM actors, actorlinktvshow");
 		sb.append(" WHERE actorlinktvshow.idActor = actors.idActor");
 		sb.append(" ORDER BY upper(strActor), strActor");
-		return VideoClient.parseActors(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), VideoClient.ACTOR_MAPPER, manager);
 	}
 	
 	/**
@@ -155,7 +158,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append("SELECT idGenre, strGenre FROM genre");
 		sb.append(" WHERE idGenre IN (SELECT idGenre FROM genrelinktvshow)");
 		sb.append(" ORDER BY upper(strGenre)");
-		return VideoClient.parseGenres(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), VideoClient.GENRE_MAPPER, manager);
 	}
 	
 	/**
@@ -204,7 +207,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append(showsOrderBy(sortBy, sortOrder));
 		
 		Log.i(TAG, sb.toString());
-		return parseShows(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), SHOW_MAPPER, manager);
 	}
 	
 	/**
@@ -251,7 +254,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append(showsOrderBy(sortBy, sortOrder));
 		
 		Log.i(TAG, sb.toString());
-		return parseShows(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), SHOW_MAPPER, manager);
 	}
 	
 	/**
@@ -280,7 +283,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append(") q where not q.c12 is null ");
 		sb.append("ORDER BY q.c12+0");
 		
-		return parseSeasons(mConnection.query("QueryVideoDatabase", sb.toString(), manager), show);
+		return mConnection.query("QueryVideoDatabase", sb.toString(), seasonMapper(show), manager);
 	}
 	
 	/**
@@ -310,7 +313,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append("GROUP BY episode.c12, tvshow.c00 ");
 		sb.append("ORDER BY tvshow.idShow, episode.c12+0");
 		
-		return parseSeasons(mConnection.query("QueryVideoDatabase", sb.toString(), manager), showMap);
+		return mConnection.query("QueryVideoDatabase", sb.toString(), seasonMapper(showMap), manager);
 	}
 	
 	/**
@@ -346,7 +349,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 			sb.append(" WHERE (playCount IS NULL OR playCount = 0) ");
 		}
 		sb.append(showsOrderBy(sortBy, sortOrder));
-		return parseEpisodes(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), EPISODE_MAPPER, manager);
 	}
 	
 	/**
@@ -357,6 +360,33 @@ public class TvShowClient extends Client implements ITvShowClient {
 	 * @return
 	 */
 	public ArrayList<Episode> getEpisodes(INotifiableManager manager, TvShow show, Season season, int sortBy, String sortOrder, boolean hideWatched) {
+		StringBuilder sb = getEpisodesQuery(show, season, hideWatched);
+		sb.append(showsOrderBy(sortBy, sortOrder));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), EPISODE_MAPPER, manager);
+	}
+	
+	/**
+	 * Gets one page of the Episodes for the specified season
+	 * @param manager
+	 * @param season
+	 * @param offset Number of episodes to skip
+	 * @param limit Maximal number of episodes to return
+	 * @return
+	 */
+	public ArrayList<Episode> getEpisodes(INotifiableManager manager, Season season, int sortBy, String sortOrder, boolean hideWatched, int offset, int limit) {
+		StringBuilder sb = getEpisodesQuery(season.show, season, hideWatched);
+		sb.append(page(showsOrderBy(sortBy, sortOrder), "idEpisode", offset, limit));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), EPISODE_MAPPER, manager);
+	}
+	
+	/**
+	 * Returns the episode query of a show and optionally a season, without
+	 * sort order.
+	 * @param show
+	 * @param season Season or null for all seasons
+	 * @return SQL query
+	 */
+	private StringBuilder getEpisodesQuery(TvShow show, Season season, boolean hideWatched) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("SELECT idEpisode, c00, \"\" AS c01, ROUND(c03, 2), c04, c05, c06, playCount, c10, c12, c13, strPath, strFileName, strTitle");
 		sb.append(" FROM episodeview ");
@@ -373,8 +403,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 			sb.append(season.number);
 			sb.append(")))");
 		}
-		sb.append(showsOrderBy(sortBy, sortOrder));
-		return parseEpisodes(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return sb;
 	}
 	
 	public TvShow updateTvShowDetails(INotifiableManager manager, TvShow show) {
@@ -383,7 +412,7 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append("  FROM tvshow");
 		sb.append("  WHERE tvshow.idShow = ");
 		sb.append(show.id);
-		show = parseTvShowDetails(mConnection.query("QueryVideoDatabase", sb.toString(), manager), show);
+		mConnection.query("QueryVideoDatabase", sb.toString(), tvShowDetailsMapper(show), manager);
 		//parse actors of the show
 		sb = new StringBuilder();
 		sb.append("SELECT actors.idActor, strActor, strRole");
@@ -391,20 +420,22 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append(" WHERE actors.idActor = actorlinktvshow.idActor");
 		sb.append(" AND actorlinktvshow.idShow =");
 		sb.append(show.getId());
-		show.actors = VideoClient.parseActorRoles(mConnection.query("QueryVideoDatabase", sb.toString(), manager));		
+		show.actors = mConnection.query("QueryVideoDatabase", sb.toString(), VideoClient.ACTOR_ROLE_MAPPER, manager);		
 		return show;
 	}
 	
-	private TvShow parseTvShowDetails(String response, TvShow show) {
-		String[] fields = response.split("<field>");
-		try {
-			show.summary = Connection.trim(fields[1]);
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return show;
+	/**
+	 * Updates a tv show with its summary (<code>c01</code>).
+	 * @param show Show to update
+	 * @return Row mapper updating the show
+	 */
+	private static RowMapper<TvShow> tvShowDetailsMapper(final TvShow show) {
+		return new RowMapper<TvShow>() {
+			public TvShow map(FieldReader fields) throws IOException {
+				show.summary = fields.nextString();
+				return show;
+			}
+		};
 	}
 	
 	public Episode updateEpisodeDetails(INotifiableManager manager, Episode episode) {
@@ -413,27 +444,29 @@ public class TvShowClient extends Client implements ITvShowClient {
 		sb.append(" FROM episodeview ");
 		sb.append(" WHERE idEpisode=");
 		sb.append(episode.id);
-		episode = parseEpisodeDetails(mConnection.query("QueryVideoDatabase", sb.toString(), manager), episode);
+		mConnection.query("QueryVideoDatabase", sb.toString(), episodeDetailsMapper(episode), manager);
 		sb = new StringBuilder();
 		sb.append("SELECT actors.idActor, strActor, strRole");
 		sb.append(" FROM actors, actorlinkepisode");
 		sb.append(" WHERE actors.idActor = actorlinkepisode.idActor");
 		sb.append(" AND actorlinkepisode.idEpisode =");
 		sb.append(episode.id);
-		episode.actors = VideoClient.parseActorRoles(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		episode.actors = mConnection.query("QueryVideoDatabase", sb.toString(), VideoClient.ACTOR_ROLE_MAPPER, manager);
 		return episode;
 	}
 	
-	private Episode parseEpisodeDetails(String response, Episode episode) {
-		String[] fields = response.split("<field>");
-		try {
-			episode.plot = Connection.trim(fields[1]);
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return episode;
+	/**
+	 * Updates an episode with its plot (<code>c01</code>).
+	 * @param episode Episode to update
+	 * @return Row mapper updating the episode
+	 */
+	private static RowMapper<Episode> episodeDetailsMapper(final Episode episode) {
+		return new RowMapper<Episode>() {
+			public Episode map(FieldReader fields) throws IOException {
+				episode.plot = fields.nextString();
+				return episode;
+			}
+		};
 	}
 	
 	static ICurrentlyPlaying getCurrentlyPlaying(final HashMap<String, String> map) {
@@ -535,95 +568,77 @@ public class TvShowClient extends Client implements ITvShowClient {
 		 * c13: Episode Number
 		 * idFile: Foreign key to the files table
 		 */
-	protected ArrayList<Episode> parseEpisodes(String response) {
-		ArrayList<Episode> episodes = new ArrayList<Episode>();
-		String[] fields = response.split("<field>");
-		try {
-			for(int row = 1; row < fields.length; row += 14) {
-				episodes.add(new Episode(Connection.trimInt(fields[row]),
-						Connection.trim(fields[row + 1]),
-						Connection.trim(fields[row + 2]),
-						Connection.trimDouble(fields[row + 3]),
-						Connection.trim(fields[row + 4]),
-						Connection.trim(fields[row + 5]),
-						Connection.trimInt(fields[row + 7]),
-						Connection.trim(fields[row + 8]),
-						Connection.trimInt(fields[row + 9]),
-						Connection.trimInt(fields[row + 10]),
-						Connection.trim(fields[row + 11]),
-						Connection.trim(fields[row + 12]),
-						Connection.trim(fields[row + 13])
-					));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	protected static final RowMapper<Episode> EPISODE_MAPPER = new RowMapper<Episode>() {
+		public Episode map(FieldReader fields) throws IOException {
+			final int id = fields.nextInt();
+			final String title = fields.nextString();
+			final String plot = fields.nextString();
+			final double rating = fields.nextDouble();
+			final String writer = fields.nextString();
+			final String firstAired = fields.nextString();
+			fields.skip(); // c06, thumbnail url
+			final int numWatched = fields.nextInt();
+			final String director = fields.nextString();
+			final int season = fields.nextInt();
+			final int episode = fields.nextInt();
+			final String path = fields.nextString();
+			final String fileName = fields.nextString();
+			final String showTitle = fields.nextString();
+			return new Episode(id, title, plot, rating, writer, firstAired, numWatched, director, season, episode, path, fileName, showTitle);
 		}
+	};
 
-		return episodes;
-	}
-
-	protected ArrayList<Season> parseSeasons(String response, TvShow show) {
-		ArrayList<Season> seasons = new ArrayList<Season>();
-		String[] fields = response.split("<field>");
-		try {
-			for( int row = 1; row < fields.length; row ++) {
-				seasons.add(new Season(Connection.trimInt(fields[row]), false, show));
+	/**
+	 * Maps the season number (<code>c12</code>) of each row to a season of
+	 * the given show.
+	 * @param show Show the seasons belong to
+	 * @return Row mapper creating seasons
+	 */
+	protected static RowMapper<Season> seasonMapper(final TvShow show) {
+		return new RowMapper<Season>() {
+			public Season map(FieldReader fields) throws IOException {
+				return new Season(fields.nextInt(), false, show);
 			}
-		}catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return seasons;
+		};
 	}
 	
-	protected ArrayList<Season> parseSeasons(String response, HashMap<Integer, TvShow> showMap) {
-		ArrayList<Season> seasons = new ArrayList<Season>();
-		String[] fields = response.split("<field>");
-		try {
-			for (int row = 1; row < fields.length; row += 2) {
-				final int showId = Connection.trimInt(fields[row]);
+	/**
+	 * Maps rows of <code>idShow</code> and season number (<code>c12</code>) 
+	 * to seasons. Rows of shows not in the map are skipped.
+	 * @param showMap Shows by ID
+	 * @return Row mapper creating seasons
+	 */
+	protected static RowMapper<Season> seasonMapper(final HashMap<Integer, TvShow> showMap) {
+		return new RowMapper<Season>() {
+			public Season map(FieldReader fields) throws IOException {
+				final int showId = fields.nextInt();
+				final int number = fields.nextInt();
 				if (showMap.containsKey(showId)) {
-					seasons.add(new Season(Connection.trimInt(fields[row + 1]), false, showMap.get(showId)));
+					return new Season(number, false, showMap.get(showId));
 				}
+				return null;
 			}
-		}catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return seasons;
+		};
 	}
 	
-	protected ArrayList<TvShow> parseShows(String response) {
-		ArrayList<TvShow> shows = new ArrayList<TvShow>();
-		String[] fields = response.split("<field>");
-		try {
-			for (int row = 1; row < fields.length; row += 12) {
-				shows.add(new TvShow(
-						Connection.trimInt(fields[row]),
-						Connection.trim(fields[row + 1]),
-						Connection.trim(fields[row + 2]),
-						Connection.trimDouble(fields[row + 3]),
-						Connection.trim(fields[row + 4]),
-						Connection.trim(fields[row + 5]),
-						Connection.trim(fields[row + 6]),
-						Connection.trim(fields[row + 7]),
-						Connection.trim(fields[row + 8]),
-						Connection.trimInt(fields[row + 9]),
-						Connection.trimInt(fields[row + 10]),
-						Connection.trimBoolean(fields[row + 11])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	protected static final RowMapper<TvShow> SHOW_MAPPER = new RowMapper<TvShow>() {
+		public TvShow map(FieldReader fields) throws IOException {
+			return new TvShow( // int id, String title, String summary, double rating, String firstAired, String genre, String contentRating, String network, String path, int numEpisodes, int watchedEpisodes, boolean watched
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextDouble(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextInt(),
+					fields.nextInt(),
+					fields.nextBoolean()
+			);
 		}
-		return shows;
-	}
+	};
 	
 	private String showsOrderBy(int sortBy, String sortOrder) {
 		switch (sortBy) {
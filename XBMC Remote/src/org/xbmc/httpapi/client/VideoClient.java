@@ -21,6 +21,7 @@
 
 package org.xbmc.httpapi.client;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -36,6 +37,8 @@ import org.xbmc.api.object.Movie;
 import org.xbmc.api.type.MediaType;
 import org.xbmc.api.type.SortType;
 import org.xbmc.httpapi.Connection;
+import org.xbmc.httpapi.FieldReader;
+import org.xbmc.httpapi.RowMapper;
 
 import android.graphics.Bitmap;
 
@@ -80,7 +83,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append(" FROM movie, files, path WHERE movie.idFile=files.idFile AND path.idPath=files.idPath");
 		sb.append(watchedFilter(hideWatched));
 		sb.append(moviesOrderBy(sortBy, sortOrder));
-		return parseMovies(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), MOVIE_MAPPER, manager);
 	}
 	
 	/**
@@ -96,7 +99,24 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append(watchedFilter(hideWatched));
 		sb.append(moviesOrderBy(sortBy, sortOrder));
 		sb.append(" LIMIT -1 OFFSET " + offset);
-		return parseMovies(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), MOVIE_MAPPER, manager);
+	}
+	
+	/**
+	 * Gets one page of all movies from database
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of movies to skip
+	 * @param limit Maximal number of movies to return
+	 * @return Movies of the page
+	 */
+	public ArrayList<Movie> getMovies(INotifiableManager manager, int sortBy, String sortOrder, int offset, int limit, boolean hideWatched) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("SELECT idMovie, c00, c07, strPath, strFileName, c15, c11, c14, ROUND(c05, 2), playCount");
+		sb.append(" FROM movie, files, path WHERE movie.idFile=files.idFile AND path.idPath=files.idPath");
+		sb.append(watchedFilter(hideWatched));
+		sb.append(page(moviesOrderBy(sortBy, sortOrder), "idMovie", offset, limit));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), MOVIE_MAPPER, manager);
 	}
 	
 	/**
@@ -118,7 +138,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append(" )");
 		sb.append(watchedFilter(hideWatched));
 		sb.append(moviesOrderBy(sortBy, sortOrder));
-		return parseMovies(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), MOVIE_MAPPER, manager);
 	}
 	
 	/**
@@ -140,7 +160,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append(" )");
 		sb.append(watchedFilter(hideWatched));
 		sb.append(moviesOrderBy(sortBy, sortOrder));
-		return parseMovies(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), MOVIE_MAPPER, manager);
 	}
 	
 	/**
@@ -154,14 +174,14 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append("SELECT c03, c01, c04, c18, c12, c19");
 		sb.append(" FROM movie, files, path WHERE movie.idFile=files.idFile AND path.idPath=files.idPath AND movie.idmovie = ");
 		sb.append(movie.getId());
-		parseMovieDetails(mConnection.query("QueryVideoDatabase", sb.toString(), manager), movie);
+		mConnection.query("QueryVideoDatabase", sb.toString(), movieDetailsMapper(movie), manager);
 		sb = new StringBuilder();
 		sb.append("SELECT actors.idActor, strActor, strRole");
 		sb.append(" FROM actors, actorlinkmovie");
 		sb.append(" WHERE actors.idActor = actorlinkmovie.idActor");
 		sb.append(" AND actorlinkmovie.idMovie =");
 		sb.append(movie.getId());
-		movie.actors = parseActorRoles(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		movie.actors = mConnection.query("QueryVideoDatabase", sb.toString(), ACTOR_ROLE_MAPPER, manager);
 		return movie;
 	}
 	
@@ -174,7 +194,7 @@ public class VideoClient extends Client implements IVideoClient {
 		StringBuilder sb = new StringBuilder();
 		sb.append("SELECT idActor, strActor FROM actors");
 		sb.append(" ORDER BY upper(strActor), strActor");
-		return parseActors(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), ACTOR_MAPPER, manager);
 	}
 	
 	/**
@@ -186,7 +206,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append("SELECT DISTINCT actors.idActor, strActor FROM actors, actorlinkmovie");
 		sb.append(" WHERE actorlinkmovie.idActor = actors.idActor");
 		sb.append(" ORDER BY upper(strActor), strActor");
-		return parseActors(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), ACTOR_MAPPER, manager);
 	}
 	
 	/**
@@ -198,7 +218,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append("SELECT DISTINCT actors.idActor, strActor FROM actors, actorlinktvshow");
 		sb.append(" WHERE actorlinktvshow.idActor = actors.idActor");
 		sb.append(" ORDER BY upper(strActor), strActor");
-		return parseActors(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), ACTOR_MAPPER, manager);
 	}
 	
 	/**
@@ -210,7 +230,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append("SELECT idGenre, strGenre FROM genre");
 		sb.append(" WHERE idGenre IN (SELECT idGenre FROM genrelinkmovie)");
 		sb.append(" ORDER BY upper(strGenre)");
-		return parseGenres(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), GENRE_MAPPER, manager);
 	}
 	
 	/**
@@ -222,7 +242,7 @@ public class VideoClient extends Client implements IVideoClient {
 		sb.append("SELECT idGenre, strGenre FROM genre");
 		sb.append(" WHERE idGenre IN (SELECT idGenre FROM genrelinktvshow)");
 		sb.append(" ORDER BY upper(strGenre)");
-		return parseGenres(mConnection.query("QueryVideoDatabase", sb.toString(), manager));
+		return mConnection.query("QueryVideoDatabase", sb.toString(), GENRE_MAPPER, manager);
 	}
 
 	/**
@@ -239,7 +259,7 @@ public class VideoClient extends Client implements IVideoClient {
 	}
 	
 	/**
-	 * Converts query response from HTTP API to a list of Movie objects. Each
+	 * Maps a row of the HTTP API query response to a Movie object. Each
 	 * row must return the following attributes in the following order:
 	 * <ol>
 	 * 	<li><code>idMovie</code></li>
@@ -251,35 +271,25 @@ public class VideoClient extends Client implements IVideoClient {
 	 * 	<li><code>c11</code></li> (runtime)
 	 * 	<li><code>c14</code></li> (genres)
 	 * 	<li><code>c05</code></li> (rating)
+	 * 	<li><code>playCount</code></li>
 	 * </ol> 
-	 * @param response
-	 * @return List of movies
 	 */
-	private ArrayList<Movie> parseMovies(String response) {
-		ArrayList<Movie> movies = new ArrayList<Movie>();
-		String[] fields = response.split("<field>");
-		try {
-			for (int row = 1; row < fields.length; row += 10) {
-				movies.add(new Movie( // int id, String title, int year, String path, String filename, String director, String runtime, String genres, Double rating, int numWatched
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1]), 
-						Connection.trimInt(fields[row + 2]),
-						Connection.trim(fields[row + 3]),
-						Connection.trim(fields[row + 4]),
-						Connection.trim(fields[row + 5]),
-						Connection.trim(fields[row + 6]),
-						Connection.trim(fields[row + 7]),
-						Connection.trimDouble(fields[row + 8]),
-						Connection.trimInt(fields[row + 9])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	private static final RowMapper<Movie> MOVIE_MAPPER = new RowMapper<Movie>() {
+		public Movie map(FieldReader fields) throws IOException {
+			return new Movie( // int id, String title, int year, String path, String filename, String director, String runtime, String genres, Double rating, int numWatched
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextInt(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextString(),
+					fields.nextDouble(),
+					fields.nextInt()
+			);
 		}
-		return movies;
-	}
+	};
 	
 	/**
 	 * Updates a movie object with some more details. Fields must be the following (in this order):
@@ -291,116 +301,68 @@ public class VideoClient extends Client implements IVideoClient {
 	 * 	<li><code>c12</code></li> (parental rating)
 	 * 	<li><code>c19</code></li> (trailer)
 	 * </ol> 
-	 * @param response
-	 * @param movie 
-	 * @return Updated movie object
+	 * @param movie Movie to update
+	 * @return Row mapper updating the movie
 	 */
-	private Movie parseMovieDetails(String response, Movie movie) {
-		String[] fields = response.split("<field>");
-		try {
-			movie.tagline = Connection.trim(fields[1]);
-			movie.plot = Connection.trim(fields[2]);
-			movie.numVotes = Connection.trimInt(fields[3]);
-			movie.studio = Connection.trim(fields[4]);
-			movie.rated = Connection.trim(fields[5]);
-			movie.trailerUrl = Connection.trim(fields[6]);
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
-		}
-		return movie;
+	private static RowMapper<Movie> movieDetailsMapper(final Movie movie) {
+		return new RowMapper<Movie>() {
+			public Movie map(FieldReader fields) throws IOException {
+				movie.tagline = fields.nextString();
+				movie.plot = fields.nextString();
+				movie.numVotes = fields.nextInt();
+				movie.studio = fields.nextString();
+				movie.rated = fields.nextString();
+				movie.trailerUrl = fields.nextString();
+				return movie;
+			}
+		};
 	}
-	
 
 	/**
-	 * Converts query response from HTTP API to a list of Actor objects. Each
+	 * Maps a row of the HTTP API query response to an Actor object. Each
 	 * row must return the following columns in the following order:
 	 * <ol>
 	 * 	<li><code>idActor</code></li>
 	 * 	<li><code>strActor</code></li>
 	 * </ol>
-	 * @param response
-	 * @return List of Actors
 	 */
-	public static ArrayList<Actor> parseActors(String response) {
-		ArrayList<Actor> actors = new ArrayList<Actor>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 2) { 
-				actors.add(new Actor(
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	public static final RowMapper<Actor> ACTOR_MAPPER = new RowMapper<Actor>() {
+		public Actor map(FieldReader fields) throws IOException {
+			return new Actor(fields.nextInt(), fields.nextString());
 		}
-		return actors;		
-	}
+	};
 	
 	/**
-	 * Converts query response from HTTP API to a list of Actor objects with 
-	 * roles attached. Each row must return the following columns in the 
+	 * Maps a row of the HTTP API query response to an Actor object with 
+	 * role attached. Each row must return the following columns in the 
 	 * following order:
 	 * <ol>
 	 * 	<li><code>idActor</code></li>
 	 * 	<li><code>strActor</code></li>
 	 * 	<li><code>strRole</code></li>
 	 * </ol>
-	 * @param response
-	 * @return List of Actors
 	 */
-	public static ArrayList<Actor> parseActorRoles(String response) {
-		ArrayList<Actor> actors = new ArrayList<Actor>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 3) { 
-				actors.add(new Actor(
-						Connection.trimInt(fields[row]), 
-						Connection.trim(fields[row + 1]),
-						Connection.trim(fields[row + 2])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	public static final RowMapper<Actor> ACTOR_ROLE_MAPPER = new RowMapper<Actor>() {
+		public Actor map(FieldReader fields) throws IOException {
+			return new Actor(fields.nextInt(), fields.nextString(), fields.nextString());
 		}
-		return actors;		
-	}
+	};
 	
 	/**
-	 * Converts query response from HTTP API to a list of Genre objects. Each
+	 * Maps a row of the HTTP API query response to a Genre object. Each
 	 * row must return the following columns in the following order:
 	 * <ol>
 	 * 	<li><code>idGenre</code></li>
 	 * 	<li><code>strGenre</code></li>
 	 * </ol>
-	 * @param response
-	 * @return List of Genres
 	 */
-	public static ArrayList<Genre> parseGenres(String response) {
-		ArrayList<Genre> genres = new ArrayList<Genre>();
-		String[] fields = response.split("<field>");
-		try { 
-			for (int row = 1; row < fields.length; row += 2) { 
-				genres.add(new Genre(
-					Connection.trimInt(fields[row]), 
-					Connection.trim(fields[row + 1])
-				));
-			}
-		} catch (Exception e) {
-			System.err.println("ERROR: " + e.getMessage());
-			System.err.println("response = " + response);
-			e.printStackTrace();
+	public static final RowMapper<Genre> GENRE_MAPPER = new RowMapper<Genre>() {
+		public Genre map(FieldReader fields) throws IOException {
+			return new Genre(fields.nextInt(), fields.nextString());
 		}
-		return genres;		
-	}
+	};
 
-	private String watchedFilter(boolean hideWatched) {
+	public static String watchedFilter(boolean hideWatched) {
 		if (hideWatched) {
 			return " AND (playCount IS NULL OR playCount = 0) ";
 		} else {
@@ -414,7 +376,7 @@ public class VideoClient extends Client implements IVideoClient {
 	 * @param sortOrder Sort order
 	 * @return SQL "ORDER BY" string
 	 */
-	private String moviesOrderBy(int sortBy, String sortOrder) {
+	public static String moviesOrderBy(int sortBy, String sortOrder) {
 		switch (sortBy) {
 			default:
 			case SortType.TITLE:
@@ -0,0 +1,180 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.jsonrpc;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.codehaus.jackson.JsonNode;
+import org.xbmc.api.business.INotifiableManager;
+
+/**
+ * Result of a JSON-RPC call which may still be on its way. Returned by the
+ * asynchronous methods of {@link Connection}.
+ * 
+ * Errors are handled like with the blocking methods: they are posted to the
+ * manager and {@link #get()} returns the same fallback value, e.g. an empty
+ * string. So <code>get()</code> never throws an ExecutionException.
+ * 
+ * @author Team XBMC
+ * @param <T> Type of the converted result
+ */
+public abstract class CallFuture<T> implements Future<T> {
+	
+	private final INotifiableManager mManager;
+	private final CountDownLatch mLatch = new CountDownLatch(1);
+	
+	private volatile JsonNode mResponse;
+	private volatile Exception mError;
+	private volatile boolean mCancelled = false;
+	
+	private boolean mConverted = false;
+	private T mValue;
+	
+	private TcpConnection mConnection;
+	private String mId;
+	
+	/**
+	 * Class constructor
+	 * @param manager Upper layer reference for error posting
+	 */
+	protected CallFuture(INotifiableManager manager) {
+		mManager = manager;
+	}
+	
+	INotifiableManager getManager() {
+		return mManager;
+	}
+	
+	/**
+	 * Converts the result of the call.
+	 * @param result Result field of the response, null on error.
+	 * @return Converted result or fallback value
+	 */
+	protected abstract T convert(JsonNode result);
+	
+	/**
+	 * Remembers where the call was sent to, so it can be withdrawn when
+	 * cancelled.
+	 */
+	synchronized void attach(TcpConnection connection, String id) {
+		mConnection = connection;
+		mId = id;
+	}
+	
+	/**
+	 * Completes the call with XBMC's response.
+	 * @param response Response object, null if the error has already been
+	 *                 posted to the manager.
+	 */
+	void setResponse(JsonNode response) {
+		mResponse = response;
+		mLatch.countDown();
+	}
+	
+	/**
+	 * Completes the call with an error.
+	 * @param e Reason why there won't be any response
+	 */
+	void setError(Exception e) {
+		mError = e;
+		mLatch.countDown();
+	}
+	
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (isDone()) {
+			return false;
+		}
+		mCancelled = true;
+		final TcpConnection connection;
+		final String id;
+		synchronized (this) {
+			connection = mConnection;
+			id = mId;
+		}
+		if (connection != null) {
+			connection.forget(id);
+		}
+		mLatch.countDown();
+		return true;
+	}
+	
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+	
+	public boolean isDone() {
+		return mLatch.getCount() == 0;
+	}
+	
+	public T get() throws InterruptedException {
+		mLatch.await();
+		return value();
+	}
+	
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		if (!mLatch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return value();
+	}
+	
+	/**
+	 * Waits for the result like the blocking methods would. If nothing came
+	 * back in time, the call is cancelled and a timeout posted to the manager.
+	 * @param timeout Time to wait in milliseconds
+	 * @return Converted result or fallback value
+	 */
+	T await(int timeout) {
+		try {
+			if (mLatch.await(timeout, TimeUnit.MILLISECONDS) || !cancel(false)) {
+				return value();
+			}
+			mManager.onError(new SocketTimeoutException("No response within " + timeout + "ms."));
+		} catch (InterruptedException e) {
+			cancel(false);
+			Thread.currentThread().interrupt();
+		}
+		return convert(null);
+	}
+	
+	private synchronized T value() {
+		if (mCancelled) {
+			throw new CancellationException();
+		}
+		if (!mConverted) {
+			JsonNode result = null;
+			if (mError != null) {
+				mManager.onError(mError);
+			} else if (mResponse != null) {
+				result = Connection.getResult(mResponse, mManager);
+			}
+			mValue = convert(result);
+			mConverted = true;
+		}
+		return mValue;
+	}
+}
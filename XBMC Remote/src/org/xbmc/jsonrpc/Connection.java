@@ -30,6 +30,8 @@ import java.net.MalformedURLException;
 import java.net.PasswordAuthentication;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.HttpException;
 import org.codehaus.jackson.JsonEncoding;
@@ -37,10 +39,12 @@ import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
-import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.node.ObjectNode;
+import org.xbmc.android.util.Metrics;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.object.Host;
+import org.xbmc.httpapi.CountingInputStream;
 import org.xbmc.httpapi.NoSettingsException;
 import org.xbmc.jsonrpc.client.Client;
 
@@ -60,6 +64,10 @@ public class Connection {
 	private static final String XBMC_THUMB_BOOTSTRAP = "/thumb";
 	private static final int SOCKET_CONNECTION_TIMEOUT = 5000;
 	
+	private static final Metrics.Histogram POST_TIME = Metrics.histogram("jsonrpc.post");
+	private static final Metrics.Histogram CALL_TIME = Metrics.histogram("jsonrpc.call");
+	private static final Metrics.Counter POST_ERRORS = Metrics.counter("jsonrpc.post.errors");
+	
 	/**
 	 * Singleton class instance
 	 */
@@ -81,6 +89,39 @@ public class Connection {
 	 */
 	private HttpAuthenticator mAuthenticator = null;
 	
+	/**
+	 * Socket to XBMC's TCP interface. While it's open, single calls are
+	 * sent through it instead of HTTP.
+	 */
+	private volatile TcpConnection mTcpConnection = null;
+	
+	/**
+	 * Source of request IDs, so responses can be matched with their calls.
+	 */
+	private static final AtomicInteger sRequestId = new AtomicInteger();
+	
+	/**
+	 * Shared by all requests, so the symbol tables of field names are reused.
+	 * Its codec is the mapper, so parsers can still build trees.
+	 */
+	private static final JsonFactory JSON_FACTORY = Client.MAPPER.getJsonFactory();
+	
+	/**
+	 * Reads a response from the parser.
+	 */
+	private interface ResponseReader<T> {
+		public T read(JsonParser parser) throws IOException;
+	}
+	
+	/**
+	 * Reads the whole response into a tree.
+	 */
+	private static final ResponseReader<JsonNode> TREE_READER = new ResponseReader<JsonNode>() {
+		public JsonNode read(JsonParser parser) throws IOException {
+			return parser.readValueAs(JsonNode.class);
+		}
+	};
+	
 	/**
 	 * Use getInstance() for public class instantiation
 	 * @param host XBMC host
@@ -154,6 +195,16 @@ public class Connection {
 		}
 	}
 	
+	/**
+	 * Lets single calls go through XBMC's TCP interface while it's
+	 * connected, which saves one HTTP request per call and allows several
+	 * calls in flight at the same time.
+	 * @param connection TCP connection, null to only use HTTP.
+	 */
+	public void setTcpConnection(TcpConnection connection) {
+		mTcpConnection = connection;
+	}
+	
 	/**
 	 * Sets socket read timeout (connection timeout has constant value)
 	 * @param timeout Read timeout in milliseconds.
@@ -189,10 +240,89 @@ public class Connection {
 	 * @return Parsed JSON object, empty object on error.
 	 */
 	public JsonNode query(String command, JsonNode parameters, INotifiableManager manager) {
+		final JsonNode ret = post(request(command, parameters, sRequestId.incrementAndGet()), TREE_READER, manager);
+		return ret == null ? new ObjectNode(null) : ret;
+	}
+	
+	/**
+	 * Executes a JSON-RPC method returning a list and maps its items while
+	 * the response is parsed. Unlike {@link #getJson(INotifiableManager, String, JsonNode)},
+	 * no tree is built, so only one item at a time is held in memory besides
+	 * the mapped objects.
+	 * @param manager    Upper layer reference for error posting
+	 * @param method     Name of the method to run
+	 * @param parameters Parameters of the method
+	 * @param listField  Field of the result holding the list
+	 * @param mapper     Converts an item into an object
+	 * @return Mapped items, empty list on error.
+	 */
+	public <T> ArrayList<T> getList(final INotifiableManager manager, String method, JsonNode parameters, final String listField, final JsonMapper<T> mapper) {
+		final ArrayList<T> items = new ArrayList<T>();
+		post(request(method, parameters, sRequestId.incrementAndGet()), new ResponseReader<Void>() {
+			public Void read(JsonParser parser) throws IOException {
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					throw new IOException("Weird JSON response, expected an object.");
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					final String field = parser.getCurrentName();
+					final JsonToken token = parser.nextToken();
+					if (field.equals(RESULT_FIELD) && token == JsonToken.START_OBJECT) {
+						while (parser.nextToken() == JsonToken.FIELD_NAME) {
+							final String name = parser.getCurrentName();
+							if (parser.nextToken() == JsonToken.START_ARRAY && name.equals(listField)) {
+								while (parser.nextToken() == JsonToken.START_OBJECT) {
+									final T item = mapper.map(parser);
+									if (item != null) {
+										items.add(item);
+									}
+								}
+							} else {
+								parser.skipChildren();
+							}
+						}
+					} else if (field.equals(ERROR_FIELD)) {
+						final JsonNode error = parser.readValueAsTree();
+						final JsonNode message = error.get("message");
+						manager.onError(new Exception(message == null ? "Weird JSON response, could not parse error." : message.getValueAsText()));
+					} else {
+						parser.skipChildren();
+					}
+				}
+				return null;
+			}
+		}, manager);
+		return items;
+	}
+	
+	/**
+	 * Returns the request object of a JSON-RPC call.
+	 * @param command    Name of the command to execute
+	 * @param parameters Parameters, can be null
+	 * @param id         ID of the request
+	 * @return Request object
+	 */
+	private static ObjectNode request(String command, JsonNode parameters, int id) {
+		final ObjectNode data = Client.obj()
+			.p("jsonrpc", "2.0")
+			.p("method", command)
+			.p("id", id);
+		if (parameters != null) {
+			data.put("params", parameters);
+		}
+		return data;
+	}
+	
+	/**
+	 * Posts a request and reads the response while it's received.
+	 * @param data    Request object
+	 * @param reader  Reads the response
+	 * @param manager Reference back to business layer
+	 * @return What the reader returned or null on error.
+	 */
+	private <T> T post(JsonNode data, ResponseReader<T> reader, INotifiableManager manager) {
 		URLConnection uc = null;
+		final long start = System.nanoTime();
 		try {
-			final ObjectMapper mapper = Client.MAPPER;
-
 			if (mUrl == null) {
 				throw new NoSettingsException();
 			}
@@ -205,30 +335,23 @@ public class Connection {
 			uc.setReadTimeout(mSocketReadTimeout);
 			uc.setDoOutput(true);
 			
-			final ObjectNode data = Client.obj()
-				.put("jsonrpc", "2.0")
-				.put("method", command)
-				.put("id", "1");
-			if (parameters != null) {
-				data.put("params", parameters);
-			}
-			
-			final JsonFactory jsonFactory = new JsonFactory();
-			final JsonGenerator jg = jsonFactory.createJsonGenerator(uc.getOutputStream(), JsonEncoding.UTF8);
-			jg.setCodec(mapper);
+			final JsonGenerator jg = JSON_FACTORY.createJsonGenerator(uc.getOutputStream(), JsonEncoding.UTF8);
 
 			// POST data
 			jg.writeTree(data);
 			jg.flush();
 			
-			final JsonParser jp = jsonFactory.createJsonParser(uc.getInputStream());
-			jp.setCodec(mapper);
-			final JsonNode ret = jp.readValueAs(JsonNode.class);
-			return ret;
+			final JsonParser jp = JSON_FACTORY.createJsonParser(new CountingInputStream(uc.getInputStream()));
+			try {
+				return reader.read(jp);
+			} finally {
+				jp.close();
+			}
 			
 		} catch (MalformedURLException e) {
 			manager.onError(e);
 		} catch (IOException e) {
+			POST_ERRORS.inc();
 			int responseCode = -1;
 			try {
 				responseCode = ((HttpURLConnection)uc).getResponseCode();
@@ -240,8 +363,10 @@ public class Connection {
 			}
 		} catch (NoSettingsException e) {
 			manager.onError(e);
+		} finally {
+			POST_TIME.recordSince(start);
 		}
-		return new ObjectNode(null);
+		return null;
 	}
 	
 	/**
@@ -252,22 +377,80 @@ public class Connection {
 	 * @return Result
 	 */
 	public JsonNode getJson(INotifiableManager manager, String method, JsonNode parameters) {
-		try {
-			final JsonNode response = query(method, parameters, manager);
-			final JsonNode result = response.get(RESULT_FIELD);
-			if (result == null) {
-				if (response.get(ERROR_FIELD) == null) {
-					throw new Exception("Weird JSON response, could not parse error.");
-				} else {
-					throw new Exception(response.get(ERROR_FIELD).get("message").getTextValue());
-				}
-			} else {
-				return response.get(RESULT_FIELD);
+		return await(System.nanoTime(), getJsonAsync(manager, method, parameters));
+	}
+	
+	/**
+	 * Executes a JSON-RPC command without waiting for the result. If the TCP
+	 * connection is open, the call is sent through it and any number of calls
+	 * can be pending. Otherwise it's posted over HTTP right away and the
+	 * returned future is already done.
+	 * @param manager     Upper layer reference for error posting
+	 * @param method      Name of the method to run
+	 * @param parameters  Parameters of the method
+	 * @return Future result, empty object on error.
+	 */
+	public CallFuture<JsonNode> getJsonAsync(INotifiableManager manager, String method, JsonNode parameters) {
+		return call(method, parameters, new CallFuture<JsonNode>(manager) {
+			protected JsonNode convert(JsonNode result) {
+				return result == null ? Client.obj() : result;
+			}
+		});
+	}
+	
+	/**
+	 * Sends a call through the TCP connection if it's open, otherwise over
+	 * HTTP.
+	 * @param method     Name of the method to run
+	 * @param parameters Parameters of the method
+	 * @param future     Receives the response
+	 * @return The given future
+	 */
+	private <T> CallFuture<T> call(String method, JsonNode parameters, CallFuture<T> future) {
+		final int id = sRequestId.incrementAndGet();
+		final ObjectNode request = request(method, parameters, id);
+		final TcpConnection tcp = mTcpConnection;
+		if (tcp != null && tcp.isConnected()) {
+			try {
+				tcp.send(String.valueOf(id), request, future);
+				return future;
+			} catch (IOException e) {
+				Log.w(TAG, "Sending " + method + " through TCP failed, using HTTP: " + e.getMessage());
 			}
-		} catch (Exception e) {
-			manager.onError(e);
 		}
-		return Client.obj();
+		future.setResponse(post(request, TREE_READER, future.getManager()));
+		return future;
+	}
+	
+	/**
+	 * Waits for a call like a blocking request would, using the read timeout.
+	 * @param start  When the call was sent, from {@link System#nanoTime()}
+	 * @param future Pending call
+	 * @return Converted result or fallback value
+	 */
+	private <T> T await(long start, CallFuture<T> future) {
+		try {
+			return future.await(mSocketReadTimeout > 0 ? mSocketReadTimeout : Host.DEFAULT_TIMEOUT);
+		} finally {
+			CALL_TIME.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns the result of a response or posts its error to the manager.
+	 * @param response Complete response object
+	 * @param manager  Upper layer reference for error posting
+	 * @return Result or null on error.
+	 */
+	static JsonNode getResult(JsonNode response, INotifiableManager manager) {
+		final JsonNode result = response.get(RESULT_FIELD);
+		if (result != null) {
+			return result;
+		}
+		final JsonNode error = response.get(ERROR_FIELD);
+		final JsonNode message = error == null ? null : error.get("message");
+		manager.onError(new Exception(message == null ? "Weird JSON response, could not parse error." : message.getValueAsText()));
+		return null;
 	}
 	
 	public JsonNode getJson(INotifiableManager manager, String method, JsonNode parameters, String resultField) {
@@ -293,7 +476,7 @@ public class Connection {
 	 * @return Result
 	 */
 	public JsonNode getJson(INotifiableManager manager, String method) {
-		return query(method, null, manager).get(RESULT_FIELD);
+		return getJson(manager, method, null);
 	}
 	
 	/**
@@ -305,8 +488,25 @@ public class Connection {
 	 * @return Result
 	 */
 	public String getString(INotifiableManager manager, String method, ObjectNode parameters, String returnField) {
-		final JsonNode result = query(method, parameters, manager).get(RESULT_FIELD);
-		return result == null ? "" : result.get(returnField).getValueAsText();
+		return await(System.nanoTime(), getStringAsync(manager, method, parameters, returnField));
+	}
+	
+	/**
+	 * Executes an JSON-RPC method without waiting and returns the result from
+	 * a field as string, see {@link #getJsonAsync(INotifiableManager, String, JsonNode)}.
+	 * @param manager     Upper layer reference for error posting
+	 * @param method      Name of the method to run
+	 * @param parameters  Parameters of the method
+	 * @param returnField Name of the field to return
+	 * @return Future result, empty string on error.
+	 */
+	public CallFuture<String> getStringAsync(INotifiableManager manager, String method, ObjectNode parameters, final String returnField) {
+		return call(method, parameters, new CallFuture<String>(manager) {
+			protected String convert(JsonNode result) {
+				final JsonNode field = result == null ? null : result.get(returnField);
+				return field == null ? "" : field.getValueAsText();
+			}
+		});
 	}
 	
 	/**
@@ -330,11 +530,29 @@ public class Connection {
 	 * @return Result as integer
 	 */
 	public int getInt(INotifiableManager manager, String method, ObjectNode parameters, String returnField) {
-		try {
-			return Integer.parseInt(getString(manager, method, parameters, returnField));
-		} catch (NumberFormatException e) {
-			return 0;
-		}
+		return await(System.nanoTime(), getIntAsync(manager, method, parameters, returnField));
+	}
+	
+	/**
+	 * Executes an JSON-RPC method without waiting and returns the result from
+	 * a field as integer, see {@link #getJsonAsync(INotifiableManager, String, JsonNode)}.
+	 * @param manager     Upper layer reference for error posting
+	 * @param method      Name of the method to run
+	 * @param parameters  Parameters of the method
+	 * @param returnField Name of the field to return
+	 * @return Future result, 0 on error.
+	 */
+	public CallFuture<Integer> getIntAsync(INotifiableManager manager, String method, ObjectNode parameters, final String returnField) {
+		return call(method, parameters, new CallFuture<Integer>(manager) {
+			protected Integer convert(JsonNode result) {
+				final JsonNode field = result == null ? null : result.get(returnField);
+				try {
+					return field == null ? 0 : Integer.parseInt(field.getValueAsText());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		});
 	}
 
 	/**
@@ -0,0 +1,46 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.jsonrpc;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonParser;
+
+/**
+ * Converts one item of a JSON-RPC result list into an object, directly from
+ * the token stream. The mapper is called once per item, with the parser on
+ * the item's START_OBJECT token, and must consume the item up to and
+ * including its END_OBJECT token.
+ *
+ * @author Team XBMC
+ * @param <T> Type of the mapped object
+ */
+public interface JsonMapper<T> {
+
+	/**
+	 * Reads the fields of the current item and returns the resulting object.
+	 * @param parser Parser positioned at the start of the item
+	 * @return Mapped object or null if the item should be skipped
+	 * @throws IOException If the item is malformed or reading failed
+	 */
+	public T map(JsonParser parser) throws IOException;
+}
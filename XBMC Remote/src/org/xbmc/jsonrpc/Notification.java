@@ -0,0 +1,87 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.jsonrpc;
+
+import org.codehaus.jackson.JsonNode;
+
+/**
+ * A notification pushed by XBMC through the TCP interface, i.e. a JSON-RPC
+ * request without ID, like <code>Player.OnPlay</code>.
+ * 
+ * Changes of the connection itself are posted as notifications as well, see
+ * {@link #CONNECTED} and {@link #DISCONNECTED}. They never come from XBMC.
+ * 
+ * @see <a href="http://wiki.xbmc.org/index.php?title=JSON-RPC_API#Notifications">XBMC Wiki</a>
+ * @author Team XBMC
+ */
+public class Notification {
+	
+	public static final String PLAYER_ON_PLAY = "Player.OnPlay";
+	public static final String PLAYER_ON_PAUSE = "Player.OnPause";
+	public static final String PLAYER_ON_STOP = "Player.OnStop";
+	public static final String PLAYER_ON_SEEK = "Player.OnSeek";
+	public static final String PLAYER_ON_SPEED_CHANGED = "Player.OnSpeedChanged";
+	public static final String PLAYLIST_ON_ADD = "Playlist.OnAdd";
+	public static final String PLAYLIST_ON_CLEAR = "Playlist.OnClear";
+	public static final String AUDIOLIBRARY_ON_UPDATE = "AudioLibrary.OnUpdate";
+	public static final String VIDEOLIBRARY_ON_UPDATE = "VideoLibrary.OnUpdate";
+	public static final String SYSTEM_ON_QUIT = "System.OnQuit";
+	
+	/**
+	 * Posted locally when the connection to XBMC is established
+	 */
+	public static final String CONNECTED = "Remote.OnConnected";
+	/**
+	 * Posted locally when the connection to XBMC is lost
+	 */
+	public static final String DISCONNECTED = "Remote.OnDisconnected";
+	
+	private static final String PLAYER_NAMESPACE = "Player.";
+	private static final String PLAYLIST_NAMESPACE = "Playlist.";
+	
+	/**
+	 * Name of the notification, e.g. "Player.OnPlay"
+	 */
+	public final String method;
+	/**
+	 * Parameters of the notification, can be null.
+	 */
+	public final JsonNode params;
+	
+	public Notification(String method, JsonNode params) {
+		this.method = method;
+		this.params = params;
+	}
+	
+	/**
+	 * Returns true if the notification changes what's currently playing.
+	 * @return True for player and playlist notifications, false otherwise.
+	 */
+	public boolean isPlaybackEvent() {
+		return method.startsWith(PLAYER_NAMESPACE) || method.startsWith(PLAYLIST_NAMESPACE);
+	}
+	
+	@Override
+	public String toString() {
+		return params == null ? method : method + " " + params;
+	}
+}
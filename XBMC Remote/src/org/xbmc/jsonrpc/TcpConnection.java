@@ -0,0 +1,501 @@
+/*
+ *      Copyright (C) 2005-2010 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.jsonrpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.xbmc.api.business.EventBus;
+import org.xbmc.jsonrpc.client.Client;
+
+import android.util.Log;
+
+/**
+ * Keeps a socket to XBMC's raw TCP JSON-RPC interface open and posts every
+ * notification XBMC sends on the {@link #getNotifications() notification bus}.
+ * 
+ * Requests can be sent through the same socket while it's open. They don't
+ * wait for each other, responses are matched to their calls by ID, in
+ * whatever order XBMC sends them.
+ * 
+ * XBMC doesn't delimit the JSON objects it writes to the socket, so incoming
+ * bytes are split into objects by counting brackets while they arrive. Only
+ * complete objects are parsed.
+ * 
+ * When the connection drops, it's reopened after one second, then waiting
+ * twice as long after every failed attempt, up to a minute.
+ * 
+ * @author Team XBMC
+ */
+public class TcpConnection implements Runnable {
+	
+	private static final String TAG = "Connection-JsonRpcTcp";
+	private static final String THREAD_NAME = "JsonRpcTcp";
+	
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final int MIN_RETRY = 1000;
+	private static final int MAX_RETRY = 60000;
+	private static final int BUFFER_SIZE = 8192;
+	
+	private static final String METHOD_FIELD = "method";
+	private static final String PARAMS_FIELD = "params";
+	private static final String ID_FIELD = "id";
+	
+	private static final JsonFactory JSON_FACTORY = Client.MAPPER.getJsonFactory();
+	
+	/**
+	 * Singleton class instance
+	 */
+	private static TcpConnection sConnection;
+	
+	private final EventBus<Notification> mNotifications = new EventBus<Notification>();
+	
+	/**
+	 * Calls sent but not answered yet, by ID
+	 */
+	private final ConcurrentHashMap<String, CallFuture<?>> mPending = new ConcurrentHashMap<String, CallFuture<?>>();
+	private final Object mWriteLock = new Object();
+	
+	private String mHost;
+	private int mPort;
+	
+	/**
+	 * Thread currently owning the connection, null if stopped.
+	 */
+	private Thread mThread;
+	private volatile boolean mConnected = false;
+	private SocketChannel mChannel;
+	
+	/**
+	 * Use getInstance() for public class instantiation
+	 * @param host XBMC host or IP address
+	 * @param port TCP port of the JSON-RPC interface
+	 */
+	public TcpConnection(String host, int port) {
+		mHost = host;
+		mPort = port;
+	}
+	
+	/**
+	 * Returns the instance of this singleton class, pointing to the given
+	 * host. The connection isn't opened until {@link #start()} is called.
+	 * @param host XBMC host or IP address
+	 * @param port TCP port of the JSON-RPC interface
+	 * @return Connection instance
+	 */
+	public static synchronized TcpConnection getInstance(String host, int port) {
+		if (sConnection == null) {
+			sConnection = new TcpConnection(host, port);
+		} else {
+			sConnection.setHost(host, port);
+		}
+		return sConnection;
+	}
+	
+	/**
+	 * Points the connection to another host. If it's open, it gets closed
+	 * and reopened to the new host right away.
+	 * @param host XBMC host or IP address
+	 * @param port TCP port of the JSON-RPC interface
+	 */
+	public synchronized void setHost(String host, int port) {
+		if (port == mPort && (host == null ? mHost == null : host.equals(mHost))) {
+			return;
+		}
+		mHost = host;
+		mPort = port;
+		closeChannel(mChannel);
+		if (mThread != null) {
+			mThread.interrupt();
+		}
+	}
+	
+	/**
+	 * Starts the thread that connects and reads. Does nothing if it's
+	 * already running.
+	 */
+	public synchronized void start() {
+		if (mThread == null) {
+			mThread = new Thread(this, THREAD_NAME);
+			mThread.setDaemon(true);
+			mThread.start();
+		}
+	}
+	
+	/**
+	 * Closes the connection and stops reconnecting.
+	 */
+	public synchronized void stop() {
+		closeChannel(mChannel);
+		if (mThread != null) {
+			mThread.interrupt();
+			mThread = null;
+		}
+	}
+	
+	/**
+	 * Returns true as long as the calling thread is the one that should read,
+	 * so an old thread finishes even if the connection is started again.
+	 */
+	private synchronized boolean isRunning() {
+		return mThread == Thread.currentThread();
+	}
+	
+	/**
+	 * Returns true if the socket is open, i.e. notifications arrive.
+	 * @return True if connected, false otherwise.
+	 */
+	public boolean isConnected() {
+		return mConnected;
+	}
+	
+	/**
+	 * Returns the bus on which XBMC's notifications are posted. Listeners are
+	 * called on the connection's thread.
+	 * @return Notification bus
+	 */
+	public EventBus<Notification> getNotifications() {
+		return mNotifications;
+	}
+	
+	/**
+	 * Sends a request without waiting for the response, which completes the
+	 * future when it arrives.
+	 * @param id      ID of the request, as text
+	 * @param request Request object
+	 * @param future  Receives the response
+	 * @throws IOException If the socket isn't open or writing failed. The
+	 *                     future isn't touched in that case. If the
+	 *                     connection is lost while writing, the future gets
+	 *                     the error instead.
+	 */
+	void send(String id, JsonNode request, CallFuture<?> future) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final JsonGenerator jg = JSON_FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+		jg.writeTree(request);
+		jg.close();
+		final ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		synchronized (mWriteLock) {
+			final SocketChannel channel;
+			// closeChannel() fails pending calls only after resetting mConnected
+			synchronized (this) {
+				channel = mConnected ? mChannel : null;
+				if (channel == null) {
+					throw new IOException("Not connected.");
+				}
+				future.attach(this, id);
+				mPending.put(id, future);
+			}
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException e) {
+				// already failed by failPending() otherwise
+				if (mPending.remove(id) != null) {
+					throw e;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Drops a pending call, any response to it will be ignored.
+	 * @param id ID of the request
+	 */
+	void forget(String id) {
+		mPending.remove(id);
+	}
+	
+	/**
+	 * Returns the number of calls waiting for their response.
+	 * @return Number of pending calls
+	 */
+	public int getPendingCount() {
+		return mPending.size();
+	}
+	
+	/**
+	 * Connects, reads until the connection drops and reconnects, until
+	 * {@link #stop()} is called.
+	 */
+	public void run() {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final Framer framer = new Framer();
+		int retry = MIN_RETRY;
+		while (isRunning()) {
+			SocketChannel channel = null;
+			try {
+				channel = SocketChannel.open();
+				connect(channel);
+				retry = MIN_RETRY;
+				framer.reset();
+				buffer.clear();
+				while (isRunning() && channel.read(buffer) >= 0) {
+					buffer.flip();
+					while (framer.next(buffer)) {
+						handle(framer.getFrame(), framer.getLength());
+					}
+					buffer.clear();
+				}
+				Log.i(TAG, "Connection closed by XBMC.");
+			} catch (IOException e) {
+				if (isRunning()) {
+					Log.w(TAG, "Connection to " + mHost + ":" + mPort + " failed: " + e.getMessage());
+				}
+			} finally {
+				closeChannel(channel);
+			}
+			if (!isRunning()) {
+				break;
+			}
+			try {
+				Thread.sleep(retry);
+				retry = Math.min(retry * 2, MAX_RETRY);
+			} catch (InterruptedException e) {
+				// host has changed, try again right away
+				retry = MIN_RETRY;
+			}
+		}
+		Log.i(TAG, "EXITED connection loop!");
+	}
+	
+	/**
+	 * Connects a new blocking channel to the current host.
+	 * @param channel Channel to connect
+	 * @throws IOException
+	 */
+	private void connect(SocketChannel channel) throws IOException {
+		final String host;
+		final int port;
+		synchronized (this) {
+			host = mHost;
+			port = mPort;
+		}
+		if (host == null || host.length() == 0) {
+			throw new UnknownHostException("No host set.");
+		}
+		// resolve on every attempt, the address might have changed
+		final InetSocketAddress address = new InetSocketAddress(host, port);
+		if (address.isUnresolved()) {
+			throw new UnknownHostException(host);
+		}
+		synchronized (this) {
+			mChannel = channel;
+		}
+		channel.socket().connect(address, CONNECT_TIMEOUT);
+		Log.i(TAG, "Connected to " + address);
+		mConnected = true;
+		mNotifications.post(new Notification(Notification.CONNECTED, null));
+	}
+	
+	/**
+	 * Closes a channel and announces the disconnection if it was the
+	 * current one.
+	 * @param channel Channel to close, can be null.
+	 */
+	private void closeChannel(SocketChannel channel) {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Log.w(TAG, "Error closing channel: " + e.getMessage());
+		}
+		final boolean wasConnected;
+		synchronized (this) {
+			if (channel != mChannel) {
+				return;
+			}
+			mChannel = null;
+			wasConnected = mConnected;
+			mConnected = false;
+		}
+		if (wasConnected) {
+			failPending();
+			mNotifications.post(new Notification(Notification.DISCONNECTED, null));
+		}
+	}
+	
+	/**
+	 * Completes all pending calls with an error, since their responses
+	 * won't arrive anymore.
+	 */
+	private void failPending() {
+		for (Iterator<String> i = mPending.keySet().iterator(); i.hasNext();) {
+			final CallFuture<?> future = mPending.remove(i.next());
+			if (future != null) {
+				future.setError(new IOException("Connection to XBMC lost."));
+			}
+		}
+	}
+	
+	/**
+	 * Parses a complete JSON object and posts it if it's a notification or
+	 * hands it to its call if it's a response. Anything unreadable is logged and dropped, the connection stays open.
+	 * @param frame  Buffer holding the object
+	 * @param length Number of bytes of the object
+	 */
+	private void handle(byte[] frame, int length) {
+		final JsonNode node;
+		try {
+			final JsonParser parser = JSON_FACTORY.createJsonParser(frame, 0, length);
+			try {
+				node = parser.readValueAsTree();
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Dropping malformed message: " + e.getMessage());
+			return;
+		}
+		if (node.isArray()) {
+			for (Iterator<JsonNode> i = node.getElements(); i.hasNext();) {
+				dispatch(i.next());
+			}
+		} else {
+			dispatch(node);
+		}
+	}
+	
+	private void dispatch(JsonNode message) {
+		final JsonNode method = message.get(METHOD_FIELD);
+		final JsonNode id = message.get(ID_FIELD);
+		if (id == null || id.isNull()) {
+			if (method != null && method.isTextual()) {
+				mNotifications.post(new Notification(method.getTextValue(), message.get(PARAMS_FIELD)));
+				return;
+			}
+		} else {
+			final CallFuture<?> future = mPending.remove(id.getValueAsText());
+			if (future != null) {
+				future.setResponse(message);
+				return;
+			}
+		}
+		Log.d(TAG, "Ignoring message: " + message);
+	}
+	
+	/**
+	 * Splits a byte stream of concatenated JSON values into single values,
+	 * without parsing them. Bytes between values, like white space, are
+	 * skipped. Since all structural characters are ASCII, multi-byte UTF-8
+	 * sequences can't be mistaken for them.
+	 */
+	static class Framer {
+		
+		/**
+		 * Largest message accepted before the connection is considered broken
+		 */
+		private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+		
+		private byte[] mFrame = new byte[BUFFER_SIZE];
+		private int mLength = 0;
+		private int mDepth = 0;
+		private boolean mInString = false;
+		private boolean mEscaped = false;
+		private boolean mComplete = false;
+		
+		/**
+		 * Reads from the buffer until a value is complete or the buffer is
+		 * empty. The remaining bytes are kept for the next call.
+		 * @param in Received bytes, ready to be read
+		 * @return True if a value is complete, false if more bytes are needed.
+		 * @throws IOException If a value exceeds the maximal size
+		 */
+		boolean next(ByteBuffer in) throws IOException {
+			if (mComplete) {
+				mLength = 0;
+				mComplete = false;
+			}
+			while (in.hasRemaining()) {
+				final byte b = in.get();
+				if (mDepth == 0 && b != '{' && b != '[') {
+					continue;
+				}
+				append(b);
+				if (mInString) {
+					if (mEscaped) {
+						mEscaped = false;
+					} else if (b == '\\') {
+						mEscaped = true;
+					} else if (b == '"') {
+						mInString = false;
+					}
+				} else if (b == '"') {
+					mInString = true;
+				} else if (b == '{' || b == '[') {
+					mDepth++;
+				} else if ((b == '}' || b == ']') && --mDepth == 0) {
+					mComplete = true;
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Returns the buffer of the last complete value. Only valid until the
+		 * next call of {@link #next(ByteBuffer)}.
+		 * @return Buffer, filled up to {@link #getLength()}
+		 */
+		byte[] getFrame() {
+			return mFrame;
+		}
+		
+		int getLength() {
+			return mLength;
+		}
+		
+		void reset() {
+			mLength = 0;
+			mDepth = 0;
+			mInString = false;
+			mEscaped = false;
+			mComplete = false;
+		}
+		
+		private void append(byte b) throws IOException {
+			if (mLength == mFrame.length) {
+				if (mLength >= MAX_FRAME_SIZE) {
+					throw new IOException("Message exceeds " + MAX_FRAME_SIZE + " bytes.");
+				}
+				final byte[] frame = new byte[Math.min(mLength * 2, MAX_FRAME_SIZE)];
+				System.arraycopy(mFrame, 0, frame, 0, mLength);
+				mFrame = frame;
+			}
+			mFrame[mLength++] = b;
+		}
+	}
+}
@@ -22,16 +22,18 @@
 package org.xbmc.jsonrpc.client;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 
 import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.JsonNodeFactory;
 import org.codehaus.jackson.node.ObjectNode;
+import org.xbmc.android.util.BitmapScaler;
 import org.xbmc.android.util.ImportUtilities;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.object.ICoverArt;
@@ -41,7 +43,6 @@ import org.xbmc.jsonrpc.Connection;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Bitmap.CompressFormat;
 import android.util.Log;
 
 /**
@@ -121,7 +122,7 @@ public abstract class Client {
 			
 			Bitmap bitmap = BitmapFactory.decodeStream(is, null, opts);
 			if (ss == 1) {
-				bitmap = blowup(bitmap);
+				bitmap = BitmapScaler.shrink(bitmap, dim.x, dim.y);
 			}
 			is.close();
 			if (bitmap == null) {
@@ -157,27 +158,6 @@ public abstract class Client {
 		return opts;
 	}
 	
-	/**
-	 * Doubles the size of a bitmap and re-reads it with samplesize 2. I've 
-	 * found no other way to smoothely resize images with samplesize = 1.
-	 * @param source
-	 * @return
-	 */
-	private Bitmap blowup(Bitmap source) {
-		if (source != null) {
-			Bitmap big = Bitmap.createScaledBitmap(source, source.getWidth() * 2,  source.getHeight() * 2, true);
-			BitmapFactory.Options opts = new BitmapFactory.Options();
-			opts.inSampleSize = 2;
-			
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			big.compress(CompressFormat.PNG, 100, os);            
-			
-			byte[] array = os.toByteArray();
-			return BitmapFactory.decodeByteArray(array, 0, array.length, opts);
-		}
-		return null;
-	}	
-	
 	public final static ObjNode obj() {
 		return new ObjNode(FACTORY);
 	}
@@ -194,6 +174,10 @@ public abstract class Client {
 			super.put(fieldName, v);
 			return this;
 		}
+		public ObjNode p(String fieldName, int v) {
+			super.put(fieldName, v);
+			return this;
+		}
 	};
 
 	public final static ArrayNode arr() {
@@ -209,4 +193,19 @@ public abstract class Client {
 	public final static int getInt(JsonNode obj, String key) {
 		return obj.get(key) == null ? -1 : obj.get(key).getIntValue();
 	}
+	
+	/**
+	 * Returns the value the parser is on as string, for mapping items while
+	 * streaming.
+	 * @param parser Parser positioned at a value
+	 * @param ifNullResult Returned if the value is null
+	 * @return Value as string
+	 * @throws IOException
+	 */
+	public final static String getString(JsonParser parser, String ifNullResult) throws IOException {
+		return parser.getCurrentToken() == JsonToken.VALUE_NULL ? ifNullResult : parser.getText();
+	}
+	public final static int getInt(JsonParser parser) throws IOException {
+		return parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : -1;
+	}
 }
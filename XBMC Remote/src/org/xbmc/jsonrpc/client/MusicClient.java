@@ -21,11 +21,12 @@
 
 package org.xbmc.jsonrpc.client;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 
-import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.xbmc.api.business.INotifiableManager;
 import org.xbmc.api.data.IControlClient;
 import org.xbmc.api.data.IMusicClient;
@@ -40,6 +41,7 @@ import org.xbmc.api.object.Song;
 import org.xbmc.api.type.MediaType;
 import org.xbmc.api.type.SortType;
 import org.xbmc.jsonrpc.Connection;
+import org.xbmc.jsonrpc.JsonMapper;
 
 import android.graphics.Bitmap;
 
@@ -330,23 +332,50 @@ public class MusicClient extends Client implements IMusicClient {
 		return getAlbums(manager, sort(obj().p(PARAM_FIELDS, arr().add("artist").add("year")), sortBy, sortOrder));
 	}
 	
+	/**
+	 * Gets one page of all albums from database
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of albums to skip
+	 * @param limit Maximal number of albums to return
+	 * @return Albums of the page
+	 */
+	public ArrayList<Album> getAlbums(INotifiableManager manager, int sortBy, String sortOrder, int offset, int limit) {
+		return getAlbums(manager, sort(obj().p(PARAM_FIELDS, arr().add("artist").add("year")), sortBy, sortOrder).p("start", offset).p("end", offset + limit));
+	}
+	
 	private ArrayList<Album> getAlbums(INotifiableManager manager, ObjNode obj) {
-		final ArrayList<Album> albums = new ArrayList<Album>();
-		final JsonNode result = mConnection.getJson(manager, "MusicLibrary.GetAlbums", obj);
-		final JsonNode jsonAlbums = result.get("albums");
-		for (Iterator<JsonNode> i = jsonAlbums.getElements(); i.hasNext();) {
-			JsonNode jsonAlbum = (JsonNode)i.next();
-			albums.add(new Album(
-				getInt(jsonAlbum, "albumid"), 
-				getString(jsonAlbum, "label"), 
-				getString(jsonAlbum, "artist"), 
-				getInt(jsonAlbum, "year"), 
-				getString(jsonAlbum, "thumbnail", "NONE") 
-			));
-		}
-		return albums;
+		return mConnection.getList(manager, "MusicLibrary.GetAlbums", obj, "albums", ALBUM_MAPPER);
 	}
 	
+	/**
+	 * Maps the albums of a MusicLibrary.GetAlbums response
+	 */
+	private static final JsonMapper<Album> ALBUM_MAPPER = new JsonMapper<Album>() {
+		public Album map(JsonParser parser) throws IOException {
+			int id = -1, year = -1;
+			String label = "", artist = "", thumb = "NONE";
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = parser.getCurrentName();
+				parser.nextToken();
+				if (field.equals("albumid")) {
+					id = getInt(parser);
+				} else if (field.equals("label")) {
+					label = getString(parser, "");
+				} else if (field.equals("artist")) {
+					artist = getString(parser, "");
+				} else if (field.equals("year")) {
+					year = getInt(parser);
+				} else if (field.equals("thumbnail")) {
+					thumb = getString(parser, "NONE");
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return new Album(id, label, artist, year, thumb);
+		}
+	};
+	
 	/**
 	 * Gets all albums with given artist IDs
 	 * @param artistIDs Array of artist IDs
@@ -704,6 +733,32 @@ public class MusicClient extends Client implements IMusicClient {
 		return null; //getSongs(manager, getSongsCondition(artist, genre), sortBy, sortOrder);
 	}
 	
+	/**
+	 * Returns one page of all tracks of an artist.
+	 * @param artist Artist
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Artist artist, int sortBy, String sortOrder, int offset, int limit) {
+		return null; //getSongs(manager, getSongsCondition(artist), sortBy, sortOrder, offset, limit);
+	}
+	
+	/**
+	 * Returns one page of all tracks of a genre.
+	 * @param genre Genre
+	 * @param sortBy Sort field, see SortType.* 
+	 * @param sortOrder Sort order, must be either SortType.ASC or SortType.DESC.
+	 * @param offset Number of tracks to skip
+	 * @param limit Maximal number of tracks to return
+	 * @return Tracks of the page
+	 */
+	public ArrayList<Song> getSongs(INotifiableManager manager, Genre genre, int sortBy, String sortOrder, int offset, int limit) {
+		return null; //getSongs(manager, getSongsCondition(genre), sortBy, sortOrder, offset, limit);
+	}
+	
 	/**
 	 * Returns a pre-resized album cover. Pre-resizing is done in a way that
 	 * the bitmap at least as large as the specified size but not larger than